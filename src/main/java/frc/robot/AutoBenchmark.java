@@ -0,0 +1,471 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.pathplanner.lib.commands.PathPlannerAuto;
+import com.pathplanner.lib.path.PathPlannerPath;
+import com.pathplanner.lib.path.PathPoint;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.Constants.BenchmarkConstants;
+import frc.robot.Constants.DriveConstants;
+import frc.robot.Constants.LoopConstants;
+import frc.utils.PathTrackingStats;
+import frc.utils.TimingStats;
+
+/**
+ * Runs every auto in simulation, normal and mirrored, and checks that none of them got slower or less accurate.
+ *
+ * <p>The whole robot program runs, just stepped one loop at a time instead of in real time, so it takes a few
+ * seconds per auto. For each one this records how long it took, how far the simulated robot ended up from the
+ * end of the last path, and how many balls were launched. Those are compared with the baseline file, and the run
+ * fails if any of them is worse by more than the tolerances in {@link BenchmarkConstants}. How long the robot code
+ * took per loop is printed too, but it depends on the computer running it, so it isn't compared.
+ *
+ * <p>Run it with {@code ./gradlew autoBenchmark}. It fails if there is no baseline. To make the first one, or after
+ * a change that is meant to change an auto, run {@code ./gradlew autoBenchmark -PupdateBaseline} and commit the new
+ * baseline along with the change.
+ *
+ * <p>It also prints how closely each path was followed, and runs every auto again with
+ * {@link DriveConstants#kUseArbitraryFeedforward} flipped to compare the path tracking with and without it.
+ * Those are only printed, not compared with the baseline.
+ *
+ * <p>It also prints how fast each teleop drive command gets up to speed and how far it takes to stop, to compare
+ * them before turning on {@link DriveConstants#kUseProfiledTeleopDrive}.
+ *
+ * <p>There are no balls on the simulated field: the robot starts with one staged, and picks one up whenever
+ * the intake runs long enough. So the ball count catches autos that stop shooting or intaking, not aim.
+ */
+public final class AutoBenchmark {
+  private AutoBenchmark() {}
+
+  /** The numbers from one run of one auto. */
+  private static final class Result {
+    final String auto;
+    final boolean mirrored;
+    boolean finished;
+    double time;
+    double translationError;
+    double headingError;
+    double loopTime90;
+    double maxLoopTime;
+    int ballsShot;
+    final List<PathResult> paths = new ArrayList<>();
+
+    Result(String auto, boolean mirrored) {
+      this.auto = auto;
+      this.mirrored = mirrored;
+    }
+
+    String getName() {
+      return auto + (mirrored ? " (mirrored)" : "");
+    }
+  }
+
+  /** How closely one path in an auto was followed, from {@link PathTrackingStats}. */
+  private static final class PathResult {
+    final int index;
+    final double crossTrackRms;
+    final double crossTrackMax;
+    final double alongTrackRms;
+    final double headingRms;
+    final double timeOverPlan;
+
+    PathResult(int index, PathTrackingStats stats) {
+      this.index = index;
+      crossTrackRms = stats.getLastCrossTrackRms();
+      crossTrackMax = stats.getLastCrossTrackMax();
+      alongTrackRms = stats.getLastAlongTrackRms();
+      headingRms = stats.getLastHeadingRms();
+      timeOverPlan = stats.getLastTimeOverPlan();
+    }
+  }
+
+  /** How one teleop drive command gets up to speed and stops, driving straight. NaN if it never did. */
+  private static final class DriveResult {
+    final String name;
+    double timeToSpeed = Double.NaN;
+    double stoppingTime = Double.NaN;
+    double stoppingDistance = Double.NaN;
+
+    DriveResult(String name) {
+      this.name = name;
+    }
+  }
+
+  private static final String kHeader = "auto,mirrored,finished,time,translation_error,heading_error,balls_shot";
+
+  public static void main(String... args) throws IOException {
+    boolean updateBaseline = Arrays.asList(args).contains("--update-baseline");
+
+    if (!HAL.initialize(500, 0)) {
+      throw new IllegalStateException("Failed to initialize the HAL");
+    }
+
+    DriverStationSim.setDsAttached(true);
+    setEnabled(false);
+
+    Robot robot = new Robot();
+    robot.startSteppedSimulation();
+    RobotContainer container = robot.getRobotContainer();
+
+    long start = System.nanoTime();
+    List<Result> results = new ArrayList<>();
+    for (String auto : findAutos()) {
+      results.add(run(robot, container, auto, false));
+      results.add(run(robot, container, auto, true));
+    }
+    double realTime = (System.nanoTime() - start) / 1e9;
+
+    printResults(results);
+    double simulatedTime = 0;
+    for (Result result : results) {
+      simulatedTime += result.time;
+    }
+    System.out.printf("Simulated %.1f s of autos in %.1f s%n", simulatedTime, realTime);
+    printPathResults(results);
+
+    // Compare the path tracking with the feedforward flipped. These are only printed, since the baseline uses the default.
+    List<Result> flipped = new ArrayList<>();
+    container.setArbitraryFeedforward(!DriveConstants.kUseArbitraryFeedforward);
+    for (String auto : findAutos()) {
+      flipped.add(run(robot, container, auto, false));
+    }
+    container.setArbitraryFeedforward(DriveConstants.kUseArbitraryFeedforward);
+    printFeedforwardComparison(results, flipped);
+
+    // Compare the teleop drives. These are only printed, since they don't come from an auto.
+    printDriveResults(List.of(
+      runDriveResponse(robot, container, "Slew rate limited", false),
+      runDriveResponse(robot, container, "Profiled", true)));
+
+    File baselineFile = new File(BenchmarkConstants.kBaselineFile);
+    if (updateBaseline) {
+      writeBaseline(baselineFile, results);
+      System.out.println("Wrote the baseline to " + baselineFile + ", commit it with your change");
+      System.exit(0);
+    }
+
+    // Writing a new baseline here would make every run pass, including the first one after a regression
+    if (!baselineFile.exists()) {
+      System.out.println("There is no baseline at " + baselineFile + ". Run ./gradlew autoBenchmark -PupdateBaseline "
+        + "on a commit you trust and commit the file.");
+      System.exit(1);
+    }
+
+    List<String> regressions = compare(readBaseline(baselineFile), results);
+    if (regressions.isEmpty()) {
+      System.out.println("No regressions against " + baselineFile);
+      System.exit(0);
+    }
+
+    System.out.println("Regressions against " + baselineFile + ":");
+    for (String regression : regressions) {
+      System.out.println("  " + regression);
+    }
+    System.exit(1);
+  }
+
+  /** Returns the name of every .auto file, sorted so the runs always happen in the same order. */
+  private static List<String> findAutos() {
+    File[] files = new File(BenchmarkConstants.kAutosDirectory).listFiles((dir, name) -> name.endsWith(".auto"));
+    if (files == null) {
+      throw new IllegalStateException("No autos in " + BenchmarkConstants.kAutosDirectory);
+    }
+
+    List<String> autos = new ArrayList<>();
+    for (File file : files) {
+      autos.add(file.getName().substring(0, file.getName().length() - ".auto".length()));
+    }
+    autos.sort(null);
+    return autos;
+  }
+
+  private static void setEnabled(boolean enabled) {
+    setMode(enabled, true);
+  }
+
+  private static void setMode(boolean enabled, boolean autonomous) {
+    DriverStationSim.setAutonomous(autonomous);
+    DriverStationSim.setEnabled(enabled);
+    DriverStationSim.notifyNewData();
+  }
+
+  /** Runs one auto from the start of a match until it finishes or the auto period is over. */
+  private static Result run(Robot robot, RobotContainer container, String autoName, boolean mirrored) {
+    Result result = new Result(autoName, mirrored);
+
+    container.resetSimulation();
+    Command auto = container.selectAuton(autoName, mirrored);
+    Pose2d target = getFinalPathPose(autoName, mirrored);
+
+    TimingStats loopTimes = new TimingStats((int) Math.ceil(BenchmarkConstants.kAutoTimeout / LoopConstants.kPeriod) + 1);
+
+    setEnabled(true);
+
+    // The auto is scheduled in the first loop, and resets the pose then
+    loopTimes.add(robot.stepSimulation());
+    double startTime = Timer.getFPGATimestamp();
+    if (target == null) {
+      // Autos without a path should stay where they started
+      target = container.getSimulatedPose();
+    }
+
+    PathTrackingStats pathStats = container.getPathStats();
+    int pathCount = pathStats.getPathCount();
+    while (auto.isScheduled() && Timer.getFPGATimestamp() - startTime < BenchmarkConstants.kAutoTimeout) {
+      loopTimes.add(robot.stepSimulation());
+      if (pathStats.getPathCount() != pathCount) {
+        pathCount = pathStats.getPathCount();
+        result.paths.add(new PathResult(result.paths.size() + 1, pathStats));
+      }
+    }
+
+    result.finished = !auto.isScheduled();
+    result.time = result.finished ? Timer.getFPGATimestamp() - startTime : BenchmarkConstants.kAutoTimeout;
+    result.ballsShot = container.getBallsLaunched();
+
+    Pose2d end = container.getSimulatedPose();
+    result.translationError = end.getTranslation().getDistance(target.getTranslation());
+    result.headingError = Math.abs(end.getRotation().minus(target.getRotation()).getDegrees());
+
+    result.loopTime90 = loopTimes.getPercentile(90);
+    result.maxLoopTime = loopTimes.getMax();
+
+    setEnabled(false);
+    for (int i = 0; i < BenchmarkConstants.kSettleLoops; i++) {
+      robot.stepSimulation();
+    }
+
+    return result;
+  }
+
+  /**
+   * Holds the forward stick all the way (without turbo) in teleop, then lets go,
+   * and records how long the drive took to get up to speed and how far it went before stopping.
+   */
+  private static DriveResult runDriveResponse(Robot robot, RobotContainer container, String name, boolean profiled) {
+    DriveResult result = new DriveResult(name);
+    container.resetSimulation();
+
+    // Commands that don't run when disabled can't be scheduled until the robot has seen that it is enabled
+    setMode(true, false);
+    robot.stepSimulation();
+
+    double[] stick = {1};
+    Command command = container.createTeleopDriveCommand(profiled, () -> stick[0], () -> 0, () -> false);
+    command.schedule();
+
+    double targetSpeed = BenchmarkConstants.kDriveSpeedFraction * DriveConstants.kMaxForwardSpeed * DriveConstants.kMaxSpeedMetersPerSecond;
+    double startTime = Timer.getFPGATimestamp();
+    while (Timer.getFPGATimestamp() - startTime < BenchmarkConstants.kDriveAccelerateTime) {
+      robot.stepSimulation();
+      if (Double.isNaN(result.timeToSpeed) && Math.abs(container.getDriveSpeed()) >= targetSpeed) {
+        result.timeToSpeed = Timer.getFPGATimestamp() - startTime;
+      }
+    }
+
+    stick[0] = 0;
+    Translation2d releasePosition = container.getSimulatedPose().getTranslation();
+    double releaseTime = Timer.getFPGATimestamp();
+    while (Timer.getFPGATimestamp() - releaseTime < BenchmarkConstants.kDriveStopTime) {
+      robot.stepSimulation();
+      if (Math.abs(container.getDriveSpeed()) < BenchmarkConstants.kDriveStoppedSpeed) {
+        result.stoppingTime = Timer.getFPGATimestamp() - releaseTime;
+        result.stoppingDistance = container.getSimulatedPose().getTranslation().getDistance(releasePosition);
+        break;
+      }
+    }
+
+    command.cancel();
+    setMode(false, false);
+    for (int i = 0; i < BenchmarkConstants.kSettleLoops; i++) {
+      robot.stepSimulation();
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns where the auto's last path ends, facing along the path, or null if it has no paths.
+   * @param autoName The auto.
+   * @param mirrored Whether the auto runs mirrored, in which case the path is too.
+   */
+  private static Pose2d getFinalPathPose(String autoName, boolean mirrored) {
+    List<PathPlannerPath> paths = PathPlannerAuto.getPathGroupFromAutoFile(autoName);
+    if (paths.isEmpty()) {
+      return null;
+    }
+
+    PathPlannerPath path = paths.get(paths.size() - 1);
+    if (mirrored) {
+      path = path.flipPath();
+    }
+
+    List<PathPoint> points = path.getAllPathPoints();
+    PathPoint last = points.get(points.size() - 1);
+    PathPoint beforeLast = points.get(points.size() - 2);
+
+    // A differential drive faces along the path, or backwards along it on a reversed path
+    Rotation2d heading = last.position.minus(beforeLast.position).getAngle();
+    if (path.isReversed()) {
+      heading = heading.plus(Rotation2d.fromDegrees(180));
+    }
+    return new Pose2d(last.position, heading);
+  }
+
+  private static void printResults(List<Result> results) {
+    System.out.printf("%-32s %8s %9s %9s %10s %10s %6s%n",
+      "Auto", "Time", "Error m", "Error deg", "Loop 90 ms", "Loop max ms", "Balls");
+    for (Result result : results) {
+      System.out.printf("%-32s %8s %9.3f %9.1f %10.2f %10.2f %6d%n",
+        result.getName(),
+        result.finished ? String.format("%.2f", result.time) : "timeout",
+        result.translationError,
+        result.headingError,
+        result.loopTime90 * 1000,
+        result.maxLoopTime * 1000,
+        result.ballsShot);
+    }
+  }
+
+  private static void printPathResults(List<Result> results) {
+    System.out.printf("%n%-32s %5s %12s %12s %12s %12s %13s%n",
+      "Auto", "Path", "Cross RMS m", "Cross max m", "Along RMS m", "Heading deg", "Over plan s");
+    for (Result result : results) {
+      for (PathResult path : result.paths) {
+        System.out.printf("%-32s %5d %12.3f %12.3f %12.3f %12.1f %13.2f%n", result.getName(), path.index,
+          path.crossTrackRms, path.crossTrackMax, path.alongTrackRms, path.headingRms, path.timeOverPlan);
+      }
+    }
+  }
+
+  /**
+   * Prints the path tracking of each auto with the default feedforward next to the same auto with it flipped.
+   * @param results The runs with the default, including the mirrored ones, which are skipped.
+   * @param flipped The runs with {@link DriveConstants#kUseArbitraryFeedforward} flipped, not mirrored.
+   */
+  private static void printFeedforwardComparison(List<Result> results, List<Result> flipped) {
+    System.out.printf("%n%-32s %5s %15s %15s %15s %15s%n",
+      "Auto", "Path", "Cross RMS on", "Cross RMS off", "Over plan on", "Over plan off");
+
+    for (Result other : flipped) {
+      Result base = null;
+      for (Result result : results) {
+        if (!result.mirrored && result.auto.equals(other.auto)) {
+          base = result;
+        }
+      }
+      if (base == null) {
+        continue;
+      }
+
+      Result withFeedforward = DriveConstants.kUseArbitraryFeedforward ? base : other;
+      Result without = DriveConstants.kUseArbitraryFeedforward ? other : base;
+      int paths = Math.min(withFeedforward.paths.size(), without.paths.size());
+      for (int i = 0; i < paths; i++) {
+        PathResult a = withFeedforward.paths.get(i);
+        PathResult b = without.paths.get(i);
+        System.out.printf("%-32s %5d %15.3f %15.3f %15.2f %15.2f%n", other.auto, a.index,
+          a.crossTrackRms, b.crossTrackRms, a.timeOverPlan, b.timeOverPlan);
+      }
+    }
+  }
+
+  private static void printDriveResults(List<DriveResult> results) {
+    System.out.printf("%n%-20s %15s %15s %17s%n", "Teleop drive", "To speed s", "Stopping s", "Stopping dist m");
+    for (DriveResult result : results) {
+      System.out.printf("%-20s %15.2f %15.2f %17.3f%n", result.name, result.timeToSpeed, result.stoppingTime, result.stoppingDistance);
+    }
+    System.out.println();
+  }
+
+  /**
+   * Returns a line for every number that got worse than the baseline by more than its tolerance.
+   * Autos that aren't in the baseline yet are only mentioned.
+   */
+  private static List<String> compare(Map<String, Result> baseline, List<Result> results) {
+    List<String> regressions = new ArrayList<>();
+
+    for (Result result : results) {
+      Result base = baseline.get(result.getName());
+      if (base == null) {
+        System.out.println(result.getName() + " isn't in the baseline yet");
+        continue;
+      }
+
+      String name = result.getName();
+      if (base.finished && !result.finished) {
+        regressions.add(name + " didn't finish within " + BenchmarkConstants.kAutoTimeout + " s");
+      } else if (result.time > base.time + BenchmarkConstants.kTimeTolerance) {
+        regressions.add(String.format("%s took %.2f s, was %.2f s", name, result.time, base.time));
+      }
+      if (result.translationError > base.translationError + BenchmarkConstants.kTranslationTolerance) {
+        regressions.add(String.format("%s ended %.3f m off, was %.3f m", name, result.translationError, base.translationError));
+      }
+      if (result.headingError > base.headingError + BenchmarkConstants.kHeadingTolerance) {
+        regressions.add(String.format("%s ended %.1f deg off, was %.1f deg", name, result.headingError, base.headingError));
+      }
+      if (result.ballsShot < base.ballsShot) {
+        regressions.add(String.format("%s launched %d balls, was %d", name, result.ballsShot, base.ballsShot));
+      }
+    }
+
+    return regressions;
+  }
+
+  private static void writeBaseline(File file, List<Result> results) throws IOException {
+    if (file.getParentFile() != null) {
+      file.getParentFile().mkdirs();
+    }
+
+    try (PrintWriter writer = new PrintWriter(file, "UTF-8")) {
+      writer.println(kHeader);
+      for (Result result : results) {
+        writer.printf(Locale.ROOT, "%s,%b,%b,%.3f,%.4f,%.2f,%d%n", result.auto, result.mirrored, result.finished,
+          result.time, result.translationError, result.headingError, result.ballsShot);
+      }
+    }
+  }
+
+  private static Map<String, Result> readBaseline(File file) throws IOException {
+    Map<String, Result> baseline = new LinkedHashMap<>();
+
+    List<String> lines = Files.readAllLines(file.toPath());
+    for (String line : lines.subList(1, lines.size())) {
+      if (line.isBlank()) {
+        continue;
+      }
+
+      String[] values = line.split(",");
+      Result result = new Result(values[0], Boolean.parseBoolean(values[1]));
+      result.finished = Boolean.parseBoolean(values[2]);
+      result.time = Double.parseDouble(values[3]);
+      result.translationError = Double.parseDouble(values[4]);
+      result.headingError = Double.parseDouble(values[5]);
+      result.ballsShot = Integer.parseInt(values[6]);
+      baseline.put(result.getName(), result);
+    }
+
+    return baseline;
+  }
+}
@@ -7,9 +7,14 @@ package frc.robot;
 import com.ctre.phoenix6.signals.NeutralModeValue;
 import com.revrobotics.CANSparkBase.IdleMode;
 
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.DifferentialDriveKinematics;
 import edu.wpi.first.math.kinematics.DifferentialDriveWheelSpeeds;
 import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.PowerDistribution.ModuleType;
+import frc.utils.GainScheduledSparkPID.Gains;
 
 /**
  * The Constants class provides a convenient place for teams to hold robot-wide numerical or boolean
@@ -23,6 +28,14 @@ public final class Constants {
 
   public static final class MotorConstants {
     public static final double kNeoMotorMaxRPM = 5676.0;
+
+    // The voltage a full output means. Mechanisms are commanded in volts and the motor controllers compensate
+    // for the battery, so speeds don't change as it sags. Only what the battery can still supply is held,
+    // so keep mechanism voltages under about 11 V.
+    public static final double kNominalVoltage = 12.0;
+
+    // How long a SparkMax call waits for the SparkMax to answer. This is REVLib's default.
+    public static final int kSparkMaxCanTimeoutMs = 20;
   }
 
   public static final class DriveConstants {
@@ -57,6 +70,22 @@ public final class Constants {
     public static final double kVelocityI = 0.0;
     public static final double kVelocityD = 0.0;
     public static final double kVelocityFF = 1 / kMaxSpeedMetersPerSecond;
+
+    // Send a kS/kV/kA feedforward voltage with each velocity reference instead of using the SparkMax's FF gain.
+    // The acceleration comes from how much the reference changed since the last loop, so the wheels don't lag when speeding up.
+    // Off until kS and kA are characterized on the real drivetrain (SysId) and the auto benchmark has compared the two.
+    // Until then, the placeholders below would only be guesses added on top of a working FF gain.
+    public static final boolean kUseArbitraryFeedforward = false;
+    // UNCALIBRATED: placeholders, see above
+    public static final double kS = 0.15; // volts
+    public static final double kV = 12.0 / kMaxSpeedMetersPerSecond; // volts per m/s, the same as kVelocityFF at 12 volts
+    public static final double kA = 0.4; // volts per m/s^2
+    // References further apart than this (seconds) are treated as a fresh start with no acceleration
+    public static final double kMaxFeedforwardDt = 0.1;
+    // The most acceleration the feedforward is ever asked for (m/s^2). A step in the reference, like a path starting
+    // or the stick jumping, would otherwise ask for hundreds of m/s^2 for one loop. This is about what the wheels can
+    // do before slipping, a rough estimate rather than a measurement.
+    public static final double kMaxFeedforwardAcceleration = 5.0;
     
     // converting motor rotations to distance traveled (for odometry)
     public static final double kEncoderConversionFactor = kWheelCircumference / kGearRatio;
@@ -95,6 +124,37 @@ public final class Constants {
 
     public static final double kMaxForwardSpeed = 0.90;
     public static final double kMaxTurningSpeed = 0.7;
+
+    // Use per-side acceleration and jerk limited profiles instead of the slew rate limiters in teleop.
+    // Off until the limits below are tuned on the robot. ./gradlew autoBenchmark prints the time to speed and
+    // stopping distance of both drives in simulation.
+    public static final boolean kUseProfiledTeleopDrive = false;
+    // Wheel space limits for the profiled teleop drive. Deceleration is lower so the robot doesn't tip when stopping.
+    // These are starting guesses, not measured.
+    public static final double kMaxWheelAcceleration = 4.0; // m/s^2
+    public static final double kMaxWheelDeceleration = 3.0; // m/s^2
+    public static final double kMaxWheelJerk = 25.0; // m/s^3
+
+    // Traction control. Off until kAccelerometerSign and the thresholds below are checked on the robot:
+    // with the wrong sign every wheel looks like it is slipping.
+    public static final boolean kUseTractionControl = false;
+    // A wheel is slipping when it is this far from the estimated ground speed (m/s)
+    public static final double kSlipThreshold = 0.5;
+    // and grips again once it is back within this (m/s)
+    public static final double kSlipClearThreshold = 0.25;
+    // How fast the commanded speed of a slipping side is pulled towards the ground speed (fraction per second)
+    public static final double kTractionReductionRate = 4.0;
+    // How fast it is given back once the side grips again (fraction per second)
+    public static final double kTractionRecoveryRate = 2.0;
+    public static final double kMinTractionScale = 0.2;
+    // How strongly the estimated chassis speed follows the gripping wheels each loop (0-1)
+    public static final double kVelocityEstimateGain = 0.2;
+    // Flip this if the navX is mounted so that forwards reads as negative acceleration. Not checked yet.
+    public static final double kAccelerometerSign = 1.0;
+
+    // Simulated drivetrain, two NEOs per side. Rough numbers; the auto benchmark only compares runs with each other.
+    public static final double kSimMass = 50; // kg, with battery and bumpers
+    public static final double kSimMomentOfInertia = 4.0; // kg m^2
   }
 
   public static final class IntakeConstants {
@@ -105,8 +165,29 @@ public final class Constants {
     
     public static final NeutralModeValue kMotorIdleMode = NeutralModeValue.Coast;
 
-    public static final double kIntakeSpeed = 0.8;
-    public static final double kReverseIntakeSpeed = -0.7;
+    public static final int kCurrentLimit = 30;
+
+    // Volts, compensated for the battery
+    public static final double kIntakeVoltage = 9.6;
+    public static final double kReverseIntakeVoltage = -8.4;
+
+    // Jam detection: stator amps per unit of output, above which the roller is stalling
+    public static final double kJamCurrentPerOutput = 40;
+    public static final double kJamMinOutput = 0.2;
+    public static final double kJamTime = 0.25;
+    public static final double kJamFilterTimeConstant = 0.06;
+
+    // When IntakeCommand sees a jam it reverses for this long, then tries again, up to this many times
+    public static final double kUnjamReverseTime = 0.3;
+    public static final int kMaxUnjamAttempts = 3;
+
+    // Simulated stator current at full output, free spinning and jammed
+    public static final double kSimFreeCurrent = 4;
+    public static final double kSimStallCurrent = 60;
+    // Simulated roller surface speed at the nominal voltage (meters per second)
+    public static final double kSimFreeSpeed = 6;
+    // In simulation, a ball reaches the index after the intake has run forwards for this long (seconds)
+    public static final double kSimBallFeedTime = 0.75;
   }
 
   public static final class IndexConstants {
@@ -118,9 +199,36 @@ public final class Constants {
     public static final boolean kIndexInverted = true;
     public static final NeutralModeValue kMotorIdleMode = NeutralModeValue.Brake;
 
-    public static final double kIndexSpeed = 0.3;
-    
-    public static final double kReverseIndexSpeed = -0.7;
+    public static final int kCurrentLimit = 30;
+
+    // Volts, compensated for the battery
+    public static final double kIndexVoltage = 3.6;
+    public static final double kReverseIndexVoltage = -8.4;
+    public static final double kLaunchVoltage = 11.0;
+
+    // Voltage the index drops to the instant a ball reaches the sensor, so every ball is staged in the same spot
+    public static final double kBallHoldVoltage = 0;
+    // Sensor edges closer together than this are noise, in seconds. The sensor is read again once this has passed,
+    // so a real change inside it is only delayed, not lost.
+    public static final double kBallSensorDebounceTime = 0.005;
+    // The shortest wait before reading the sensor again, so the notifier is never started with no delay
+    public static final double kMinDebounceDelay = 0.0005;
+    // Ball events kept for commands to read; the oldest are dropped once it is full
+    public static final int kBallEventQueueSize = 16;
+
+    // Jam detection: stator amps per unit of output, above which the roller is stalling
+    public static final double kJamCurrentPerOutput = 40;
+    public static final double kJamMinOutput = 0.15;
+    public static final double kJamTime = 0.25;
+    public static final double kJamFilterTimeConstant = 0.06;
+
+    // Simulated stator current at full output, free spinning and jammed
+    public static final double kSimFreeCurrent = 4;
+    public static final double kSimStallCurrent = 60;
+    // Simulated roller surface speed at the nominal voltage (meters per second)
+    public static final double kSimFreeSpeed = 4;
+    // How far a simulated ball moves past the sensor before it is out of the index (meters)
+    public static final double kSimBallLength = 0.18;
   }
 
   public static final class ShooterConstants {
@@ -143,6 +251,13 @@ public final class Constants {
     public static final double kVelocityI = 0;
     public static final double kVelocityD = 0;
     public static final double kVelocityFF = 1 / kMaxMetersPerSecond;
+
+    // Gain scheduling: each range of wheel speeds (m/s) gets its own gains.
+    // The shot range comes first so it uses slot 0, which is what the dashboard PID widget tunes.
+    public static final double kHighSpeedRegionMin = 0.5 * kMaxMetersPerSecond;
+    public static final Gains kHighSpeedGains = new Gains(kVelocityP, kVelocityI, kVelocityD, kVelocityFF, 0);
+    public static final Gains kLowSpeedGains = new Gains(kVelocityP, kVelocityI, kVelocityD, kVelocityFF, 0);
+    public static final Gains kBackfeedGains = new Gains(kVelocityP, kVelocityI, kVelocityD, kVelocityFF, 0);
     
     public static final double kTurningEncoderPositionFactor = kWheelCircumference / kGearRatio;
     public static final double kTurningEncoderVelocityFactor = (kWheelCircumference / kGearRatio) / 60;
@@ -157,8 +272,134 @@ public final class Constants {
     public static final int kClimbMotorID = 34;
     public static final int kWinchMotorID = 35;
 
+    // The automatic climb has only been run in simulation. Every value marked UNCALIBRATED below is a placeholder,
+    // so keep this off (no co-driver binding, no dashboard button outside simulation) until they are measured
+    // on the real climber, starting with the sensor phases at low speed.
+    public static final boolean kAutoClimbEnabled = false;
+
     public static final boolean kClimbInverted = false;
     public static final boolean kWinchInverted = false;
+
+    public static final int kCurrentLimit = 40;
+    // How long to wait for each Talon config to go through at boot (ms)
+    public static final int kConfigTimeoutMs = 50;
+
+    // Both motors have a mag encoder. Positions below are in encoder rotations, zeroed at boot,
+    // so they are only right if the climber is stowed when the robot turns on.
+    public static final double kEncoderTicksPerRotation = 4096;
+    // UNCALIBRATED: check that the position goes up when each motor runs forward
+    public static final boolean kClimbSensorPhase = false;
+    public static final boolean kWinchSensorPhase = false;
+
+    // UNCALIBRATED: soft limits, a little outside the positions the sequence drives to
+    public static final double kClimbMinPosition = -0.5;
+    public static final double kClimbMaxPosition = 30.5;
+    public static final double kWinchMinPosition = -0.5;
+    public static final double kWinchMaxPosition = 60.5;
+
+    // UNCALIBRATED: climb sequence targets
+    public static final double kClimbExtendedPosition = 30;
+    public static final double kClimbRetractedPosition = 2;
+    public static final double kWinchClimbedPosition = 60;
+
+    // UNCALIBRATED: the fastest each stage can safely run (percent output). Start much lower on the real climber.
+    public static final double kClimbExtendSpeed = 1.0;
+    public static final double kClimbRetractSpeed = 0.6;
+    public static final double kWinchSpeed = 1.0;
+    // Output per rotation of error. Each stage runs at full speed and only slows down this close to its target.
+    public static final double kPositionP = 0.5;
+    public static final double kPositionTolerance = 0.25;
+    // Keeps the robot hanging once the climb is done. The winch is in brake mode too.
+    public static final double kWinchHoldOutput = 0.1;
+
+    // UNCALIBRATED: stall detection, like the intake jam detection: stator amps per unit of output
+    public static final double kStallCurrentPerOutput = 60;
+    public static final double kStallMinOutput = 0.1;
+    public static final double kStallTime = 0.2;
+    public static final double kStallFilterTimeConstant = 0.05;
+
+    // Give up on the climb if a stage takes longer than this (seconds)
+    public static final double kStageTimeout = 4.0;
+    // How many climb times to keep for the dashboard
+    public static final int kStatsSamples = 20;
+
+    // Simulation model: free speed at full output (rotations per second) and stator current at full output
+    public static final double kSimClimbFreeSpeed = 25;
+    public static final double kSimWinchFreeSpeed = 30;
+    public static final double kSimFreeCurrent = 5;
+    public static final double kSimStallCurrent = 100;
+    // Where the hooks catch the bar, after which the winch lifts the whole robot and slows down
+    public static final double kSimWinchLoadedPosition = 10;
+    public static final double kSimLoadedSpeedScale = 0.6;
+    public static final double kSimLoadedCurrent = 35;
+    // The mechanism's hard stops, just outside the soft limits
+    public static final double kSimClimbHardStop = 31;
+    public static final double kSimWinchHardStop = 61;
+  }
+
+  public static final class PowerConstants {
+    // How often to read the power distribution and recalculate limits (seconds)
+    public static final double kUpdatePeriod = LoopConstants.kSlowPeriod; // runs in the slow rate group
+
+    // Internal resistance of the battery plus the main wiring (ohms)
+    public static final double kBatteryResistance = 0.02;
+    public static final double kOpenCircuitVoltageTimeConstant = 1.0; // seconds
+
+    // The channels below are on a REV PDH (channels 18 and 19 don't exist on a CTRE PDP)
+    public static final int kPowerDistributionId = 1;
+    public static final ModuleType kPowerDistributionType = ModuleType.kRev;
+
+    // Keep the battery above this voltage. The roboRIO browns out at 6.8 V.
+    public static final double kMinVoltage = 8.0;
+    // The most current the budget ever hands out. The 120 A main breaker is a thermal rating and carries about
+    // twice that for the few seconds of a hard acceleration, so the battery voltage is usually what limits the budget.
+    public static final double kMaxTotalCurrent = 250;
+
+    // Don't rewrite a current limit unless it changed by this many amps. New limits are sent without waiting for the motor controllers.
+    public static final int kLimitHysteresis = 3;
+
+    // Per-motor current limits in amps. Mechanisms are given current in this order.
+    // The minimums add up to 100 A, so they fit with room to spare even on a tired battery (see PowerBudgetTest).
+    public static final int kDriveMinCurrent = 15;
+    public static final int kDriveMaxCurrent = 40;
+    public static final int kShooterMinCurrent = 15;
+    public static final int kShooterMaxCurrent = 40;
+    public static final int kIntakeMinCurrent = 5;
+    public static final int kIntakeMaxCurrent = 30;
+    public static final int kIndexMinCurrent = 5;
+    public static final int kIndexMaxCurrent = 30;
+
+    // Power distribution channels of each mechanism. Check these against the wiring.
+    public static final int[] kDriveChannels = {0, 1, 18, 19};
+    public static final int[] kShooterChannels = {10, 11};
+    public static final int[] kIntakeChannels = {8};
+    public static final int[] kIndexChannels = {9};
+
+    public static final double kSimOpenCircuitVoltage = 12.6;
+    // The range of the simulated battery slider, from a tired battery to a fresh one
+    public static final double kSimMinOpenCircuitVoltage = 10.5;
+    public static final double kSimMaxOpenCircuitVoltage = 13.0;
+  }
+
+  public static final class ThermalConstants {
+    // A lumped model of a NEO. The resistance is 12 V over the 105 A stall current; the thermal numbers
+    // are rough, so check them against a few logged matches with the log analyzer and adjust.
+    public static final double kNeoResistance = 0.114; // ohms
+    public static final double kNeoThermalResistance = 1.2; // degrees C per watt
+    public static final double kNeoThermalCapacity = 200; // joules per degree C
+
+    public static final double kAmbientTemperature = 30; // degrees C, a warm venue
+    // Derate to stay under this. It is under the health fault temperature, so there is room for the model to be off.
+    public static final double kLimitTemperature = 80; // degrees C
+    // How fast the reported temperature pulls in the estimate (fraction of the difference per second).
+    // The reported temperature is coarse and lags, so this is slow.
+    public static final double kCorrectionRate = 0.05;
+
+    // How long the motors have to last when there's no match timer, for example in practice (seconds)
+    public static final double kDefaultHorizon = 150;
+    // Never plan for less than this, so the cap doesn't jump around in the last few seconds of a period
+    public static final double kMinHorizon = 5;
+    public static final double kTeleopLength = 135;
   }
 
   public static final class OperatorConstants {
@@ -169,12 +410,214 @@ public final class Constants {
   public static final class AutonomousConstants {
     public static final double kBallLaunchTimeout = 1;
     
+    // Path following controllers that can be picked on the Auton tab
+    public static final String kRamseteController = "Ramsete";
+    public static final String kLTVController = "LTV";
+    public static final String kPurePursuitController = "Pure Pursuit";
+
     public static final double kBValue = 2.0;
     public static final double kZetaValue = 0.7;
 
+    // The LTV controller precomputes gains for every speed up to this (m/s), which takes a while, so it is built at boot
+    public static final double kLTVMaxVelocity = 3.0;
+    public static final double kLTVDt = 0.02;
+
+    public static final double kPurePursuitLookahead = 0.6; // meters
+
+    // Tracking error is published here at the end of every path
+    public static final String kPathTrackingTableName = "Path Tracking";
+    // Below this target speed (m/s) the schedule lag isn't measured
+    public static final double kMinLagSpeed = 0.2;
+
     public static final double kShooterSpeed = 0.5;
   }
 
+  public static final class PathfindingConstants {
+    // Navgrid exported by PathPlanner, relative to the deploy directory
+    public static final String kNavGridFile = "pathplanner/navgrid.json";
+
+    // Poses to drive to for shooting. The second one is the mirrored (left side) start position.
+    public static final double kFieldLengthMeters = 16.54;
+    public static final Pose2d[] kScoringPoses = {
+      new Pose2d(0.35, 3.08, Rotation2d.fromDegrees(0)),
+      new Pose2d(kFieldLengthMeters - 0.35, 3.08, Rotation2d.fromDegrees(180))
+    };
+
+    public static final double kMaxSpeedMetersPerSecond = 2.0;
+    public static final double kMaxAngularSpeed = Math.PI; // radians per second
+    public static final double kTurnP = 3.0;
+
+    // How many cells ahead on the flow field to aim for. Higher values cut corners more.
+    public static final int kLookaheadCells = 3;
+    // How many cells to search when the robot has been pushed out of the free corridor
+    public static final int kCorridorSearchRadius = 4;
+
+    // Within this distance the robot drives straight at the target (meters)
+    public static final double kFinalApproachDistance = 0.6;
+    // Start slowing down within this distance of the target (meters)
+    public static final double kSlowdownDistance = 1.0;
+
+    public static final double kPositionTolerance = 0.1; // meters
+    public static final double kHeadingTolerance = Math.toRadians(5);
+  }
+
+  public static final class ShooterMapConstants {
+    // Distance to the goal vs. shooter wheel speeds, relative to the deploy directory
+    public static final String kFile = "shooter_map.json";
+
+    // The center of each goal on the field (meters). Distances are measured to the closest one.
+    public static final Translation2d[] kGoalPositions = {
+      new Translation2d(0, 3.08),
+      new Translation2d(PathfindingConstants.kFieldLengthMeters, 3.08)
+    };
+
+    // Starting wheel speeds (m/s) for capturing new points, the same as the old fixed percent speeds
+    public static final double kDefaultCaptureTopSpeed = ShooterConstants.kTopShooterSpeed * ShooterConstants.kMaxMetersPerSecond;
+    public static final double kDefaultCaptureBottomSpeed = ShooterConstants.kBottomShooterSpeed * ShooterConstants.kMaxMetersPerSecond;
+  }
+
+  public static final class AimConstants {
+    // The direction the shooter faces relative to the front of the robot.
+    // The scoring poses face away from the goal, so the shooter is on the back.
+    public static final Rotation2d kShooterDirection = Rotation2d.fromDegrees(180);
+
+    // Heading profile limits, a bit under what the drivetrain can do so the wheels don't slip
+    public static final double kMaxAngularSpeed = 2 * Math.PI; // radians per second
+    public static final double kMaxAngularAcceleration = 4 * Math.PI; // radians per second squared
+
+    // PID on heading error (radians), added on top of the profile's velocity
+    public static final double kP = 4.0;
+    public static final double kI = 0.0;
+    public static final double kD = 0.1;
+
+    // The robot is aligned once it is within these and the profile has finished
+    public static final double kHeadingTolerance = Math.toRadians(2);
+    public static final double kAngularVelocityTolerance = Math.toRadians(10); // radians per second
+
+    // Give up on aiming after this long (seconds), so a stuck robot hands control back to the driver
+    public static final double kTimeout = 2.0;
+
+    // How many time-to-aligned samples to keep for the dashboard
+    public static final int kStatsSamples = 100;
+    // Pause between turns in the aim benchmark (seconds)
+    public static final double kBenchmarkPause = 0.5;
+  }
+
+  public static final class VisionConstants {
+    // Where the vision worker (tools/visionworker) writes its observations. Must match the worker's --results.
+    // /dev/shm is memory, so nothing is written to the roboRIO's flash.
+    public static final String kResultsFile = "/dev/shm/vision_results";
+
+    // The worker is treated as gone if it hasn't sent anything for this long (seconds)
+    public static final double kStaleTime = 0.5;
+  }
+
+  public static final class HealthConstants {
+    // How often to check every device, in seconds
+    public static final double kPeriod = 0.5;
+    public static final String kTableName = "Health";
+
+    // Temperatures in degrees Celsius
+    public static final double kMotorWarningTemperature = 70;
+    public static final double kMotorFaultTemperature = 90;
+    public static final double kTalonWarningTemperature = 60;
+    public static final double kTalonFaultTemperature = 80;
+
+    // An encoder is stale if it doesn't move for this many checks while its motor is above this output
+    // and below this current. A motor stalled against something draws far more than this.
+    public static final double kStaleEncoderOutput = 0.2;
+    public static final double kStaleEncoderCurrent = 5; // amps
+    public static final int kStaleEncoderChecks = 4;
+  }
+
+  public static final class BootConstants {
+    // Threads for the background startup steps
+    public static final int kThreads = 2;
+    public static final String kTableName = "Boot";
+  }
+
+  public static final class TuningConstants {
+    // Saved tuning values, relative to the deploy directory
+    public static final String kParameterFile = "parameters.json";
+    public static final String kTableName = "Tuning";
+  }
+
+  public static final class LoopConstants {
+    public static final double kPeriod = 0.02;
+    // Run the robot loop as soon as a Driver Station packet arrives instead of on a fixed timer, to cut input lag
+    public static final boolean kSyncToDriverStation = false;
+    // When synced, run the loop anyway if no packet comes for this long (seconds)
+    public static final double kFallbackTimeout = 0.03;
+    // How many stick-to-output latency samples to keep for the dashboard
+    public static final int kLatencySamples = 500;
+
+    // Rate groups that run alongside the main loop: fast for control that wants fresher sensor data,
+    // slow for work that doesn't need to happen every loop
+    public static final double kFastPeriod = 0.005;
+    public static final double kSlowPeriod = 0.1;
+    // How many timing samples each rate group keeps
+    public static final int kTimingSamples = 500;
+  }
+
+  public static final class ThreadingConstants {
+    // Off until the loop jitter has been measured on the robot with this on and off (the rate group stats on the
+    // Loop tab), since a real-time thread that misbehaves can starve the rest of the program
+    public static final boolean kEnabled = false;
+
+    // The roboRIO has two cores. The robot thread and control threads get one, everything else gets the other.
+    public static final int kControlCpu = 1;
+    public static final int kBackgroundCpu = 0;
+
+    // Real-time priorities go from 1 to 99. The HAL and Driver Station threads are already real-time, at around 40,
+    // so the robot thread stays below them and the notifier that wakes it matches them.
+    public static final int kMainPriority = 15;
+    public static final int kNotifierPriority = 40;
+    // Threads that only wake up for an event and run for a moment: the ball sensor interrupt and its debounce,
+    // and the Driver Station packet timestamps. They are above the robot thread so they don't wait for a loop.
+    public static final int kEventPriority = 20;
+    // Nice value for the camera server, NetworkTables, logging and other background threads. The JIT and the GC
+    // are left alone, see ThreadingProfile. 19 is the lowest priority.
+    public static final int kBackgroundNice = 10;
+
+    // How often to look for new threads to move to the background core (seconds)
+    public static final double kRescanPeriod = 5.0;
+    // How many GC pauses to keep for the dashboard
+    public static final int kGcSamples = 500;
+  }
+
+  public static final class BenchmarkConstants {
+    // Autos run by the auto benchmark, and the baseline it compares them with, relative to the project directory
+    public static final String kAutosDirectory = "src/main/deploy/pathplanner/autos";
+    public static final String kBaselineFile = "benchmarks/auto-baseline.csv";
+
+    // An auto that hasn't finished by the end of the auto period counts as this long
+    public static final double kAutoTimeout = 15.0;
+    // Disabled loops between autos, so the simulated robot comes to a stop
+    public static final int kSettleLoops = 50;
+
+    // How much worse than the baseline a run can be before it counts as a regression. Times are in seconds.
+    public static final double kTimeTolerance = 0.1;
+    public static final double kTranslationTolerance = 0.05; // meters
+    public static final double kHeadingTolerance = 3.0; // degrees
+
+    // Teleop drive response: the stick is held forwards, then let go
+    public static final double kDriveAccelerateTime = 4.0; // seconds
+    public static final double kDriveStopTime = 3.0; // seconds
+    // Up to speed means this fraction of the top non-turbo speed
+    public static final double kDriveSpeedFraction = 0.9;
+    // Stopped means slower than this (m/s)
+    public static final double kDriveStoppedSpeed = 0.05;
+  }
+
+  public static final class TelemetryConstants {
+    public static final String kTableName = "Telemetry";
+
+    // The dashboard layout still reads the old one-value-per-topic entries.
+    // Turn this off once it uses the struct topics to save bandwidth.
+    // The log analyzer's telemetry table and the loop time on the Loop tab show the difference.
+    public static final boolean kPublishDashboardDoubles = true;
+  }
+
   public static final class LEDConstants {
     public static final String LEDTableName = "LED Data";
     public static final String LEDIndexName = "LED Mode";
@@ -4,35 +4,142 @@
 
 package frc.robot;
 
+import java.lang.management.ManagementFactory;
+
+import edu.wpi.first.wpilibj.DataLogManager;
 import edu.wpi.first.wpilibj.DriverStation;
-import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.shuffleboard.BuiltInLayouts;
+import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
+import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardTab;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import edu.wpi.first.wpilibj2.command.InstantCommand;
+import frc.robot.Constants.LoopConstants;
+import frc.robot.Constants.ThreadingConstants;
+import frc.utils.GcPauseMonitor;
+import frc.utils.RateGroup;
+import frc.utils.SyncedRobot;
+import frc.utils.ThreadingProfile;
+import frc.utils.TimingStats;
 
 /**
  * The VM is configured to automatically run this class, and to call the functions corresponding to
  * each mode, as described in the TimedRobot documentation. If you change the name of this class or
  * the package after creating this project, you must also update the build.gradle file in the
  * project.
+ *
+ * <p>This runs on {@link SyncedRobot} instead of TimedRobot, so the loop can run as soon as a Driver Station
+ * packet arrives. See {@link LoopConstants#kSyncToDriverStation}.
  */
-public class Robot extends TimedRobot {
+public class Robot extends SyncedRobot {
   private Command m_autonomousCommand;
 
   private RobotContainer m_robotContainer;
 
+  private boolean m_reportedFirstEnabledLoop = false;
+
+  // The normal group runs with the main loop, so it follows the Driver Station packets when synced.
+  // The fast and slow groups run on their own timers.
+  private final RateGroup m_fastGroup = new RateGroup("Fast", LoopConstants.kFastPeriod, LoopConstants.kTimingSamples);
+  private final RateGroup m_normalGroup = new RateGroup("Normal", LoopConstants.kPeriod, LoopConstants.kTimingSamples);
+  private final RateGroup m_slowGroup = new RateGroup("Slow", LoopConstants.kSlowPeriod, LoopConstants.kTimingSamples);
+
+  private final ThreadingProfile m_threadingProfile = new ThreadingProfile(
+    ThreadingConstants.kControlCpu, ThreadingConstants.kBackgroundCpu, ThreadingConstants.kBackgroundNice, ThreadingConstants.kRescanPeriod);
+  private final GcPauseMonitor m_gcPauseMonitor = new GcPauseMonitor(ThreadingConstants.kGcSamples);
+
+  public Robot() {
+    super(LoopConstants.kPeriod, LoopConstants.kSyncToDriverStation, LoopConstants.kFallbackTimeout, LoopConstants.kLatencySamples);
+  }
+
   /**
    * This function is run when the robot is first started up and should be used for any
    * initialization code.
    */
   @Override
   public void robotInit() {
+    // Log how long the JVM took to get here, to keep an eye on startup time (class loading, CDS archive, etc.)
+    System.out.println("robotInit started " + ManagementFactory.getRuntimeMXBean().getUptime() + " ms after JVM start");
+
+    // Record NetworkTables, the console and the driver station inputs to a log on the roboRIO.
+    // These logs are what tools/loganalyzer reads after an event.
+    DataLogManager.start();
+    DriverStation.startDataLog(DataLogManager.getLog());
+
+    // Load the tunable values before anything reads them.
+    Tuning.start();
+
     // Instantiate our RobotContainer.  This will perform all our button bindings, and put our
     // autonomous chooser on the dashboard.
     m_robotContainer = new RobotContainer();
 
+    // Apply dashboard changes to tunable values first, so they never change in the middle of a loop.
+    m_normalGroup.addTask(Tuning::update);
+
+    // Runs the Scheduler.  This is responsible for polling buttons, adding newly-scheduled
+    // commands, running already-scheduled commands, removing finished or interrupted commands,
+    // and running subsystem periodic() methods.  This must be called from the robot's periodic
+    // block in order for anything in the Command-based framework to work.
+    m_normalGroup.addTask(CommandScheduler.getInstance()::run);
+
+    m_robotContainer.addRateGroupTasks(m_fastGroup, m_slowGroup);
+    addRateGroups(m_fastGroup, m_slowGroup);
+
     // Turn off controller warnings. These are more annoying than they are helpful.
     // These will still display at competitions.
     DriverStation.silenceJoystickConnectionWarning(true);
+
+    // Compare these with kSyncToDriverStation on and off.
+    // The percentiles are sorted in the slow group, so the dashboard doesn't sort every stat every loop.
+    ShuffleboardTab loopTab = Shuffleboard.getTab("Loop");
+    TimingStats latency = getInputLatencyStats();
+    loopTab.addBoolean("Synced To DS", this::isSyncedToDriverStation);
+    loopTab.addInteger("Synced Loops", this::getSyncedLoopCount);
+    loopTab.addInteger("Fallback Loops", this::getFallbackLoopCount);
+    m_slowGroup.addTask(latency::updateCachedPercentiles);
+    loopTab.addDouble("Input Latency Median ms", () -> latency.getCachedPercentile(50) * 1000);
+    loopTab.addDouble("Input Latency 90th ms", () -> latency.getCachedPercentile(90) * 1000);
+    loopTab.addDouble("Input Latency Max ms", () -> latency.getMax() * 1000);
+    loopTab.add("Reset Latency", new InstantCommand(latency::reset).ignoringDisable(true));
+
+    // Compare these with TelemetryConstants.kPublishDashboardDoubles on and off, to see what the extra dashboard topics cost
+    TimingStats loopDuration = getLoopDurationStats();
+    loopTab.addDouble("Loop Mean ms", () -> loopDuration.getMean() * 1000);
+    m_slowGroup.addTask(loopDuration::updateCachedPercentiles);
+    loopTab.addDouble("Loop 99th ms", () -> loopDuration.getCachedPercentile(99) * 1000);
+    loopTab.add("Reset Loop Time", new InstantCommand(loopDuration::reset).ignoringDisable(true));
+
+    for (RateGroup group : new RateGroup[] {m_fastGroup, m_normalGroup, m_slowGroup}) {
+      m_slowGroup.addTask(group::updateCachedPercentiles);
+      group.addWidgets(loopTab.getLayout(group.getName() + " Group", BuiltInLayouts.kList));
+    }
+
+    // Compare the jitter above and these with ThreadingConstants.kEnabled on and off, and with the GC settings in build.gradle
+    TimingStats gcPauses = m_gcPauseMonitor.getPauseStats();
+    loopTab.addInteger("GC Pauses", m_gcPauseMonitor::getPauseCount);
+    loopTab.addDouble("GC Pause Total ms", () -> m_gcPauseMonitor.getTotalPauseTime() * 1000);
+    m_slowGroup.addTask(gcPauses::updateCachedPercentiles);
+    loopTab.addDouble("GC Pause Median ms", () -> gcPauses.getCachedPercentile(50) * 1000);
+    loopTab.addDouble("GC Pause 90th ms", () -> gcPauses.getCachedPercentile(90) * 1000);
+    loopTab.addDouble("GC Pause Max ms", () -> gcPauses.getMax() * 1000);
+    loopTab.add("Reset GC Pauses", new InstantCommand(m_gcPauseMonitor::reset).ignoringDisable(true));
+    loopTab.addBoolean("Main Thread RT", m_threadingProfile::isMainRealTime);
+    loopTab.addInteger("Background Threads", m_threadingProfile::getBackgroundThreadCount);
+
+    // Last, so the threads started during boot already exist. Linux scheduling only matters on the roboRIO.
+    if (ThreadingConstants.kEnabled && isReal()) {
+      m_threadingProfile.apply(ThreadingConstants.kMainPriority, ThreadingConstants.kNotifierPriority);
+      // The ball sensor threads would otherwise end up on the background core at a low priority
+      m_robotContainer.setSensorThreadSetup(() -> m_threadingProfile.addControlThread(ThreadingConstants.kEventPriority));
+    }
+  }
+
+  @Override
+  protected void packetThreadStarted() {
+    // The packet timestamps are only useful if they are taken right when the packet arrives
+    if (ThreadingConstants.kEnabled && isReal()) {
+      m_threadingProfile.addControlThread(ThreadingConstants.kEventPriority);
+    }
   }
 
   /**
@@ -44,11 +151,18 @@ public class Robot extends TimedRobot {
    */
   @Override
   public void robotPeriodic() {
-    // Runs the Scheduler.  This is responsible for polling buttons, adding newly-scheduled
-    // commands, running already-scheduled commands, removing finished or interrupted commands,
-    // and running subsystem periodic() methods.  This must be called from the robot's periodic
-    // block in order for anything in the Command-based framework to work.
-    CommandScheduler.getInstance().run();
+    // Tuning updates and the scheduler
+    m_normalGroup.run();
+
+    // The drive motors have their new references now, so this is when the driver's input takes effect
+    if (DriverStation.isTeleopEnabled()) {
+      markOutputsSent();
+    }
+
+    if (!m_reportedFirstEnabledLoop && DriverStation.isEnabled()) {
+      m_reportedFirstEnabledLoop = true;
+      System.out.println("First enabled loop " + ManagementFactory.getRuntimeMXBean().getUptime() + " ms after JVM start");
+    }
   }
 
   /** This function is called once each time the robot enters Disabled mode. */
@@ -60,6 +174,9 @@ public class Robot extends TimedRobot {
     m_robotContainer.setCoastMode();
 
     m_robotContainer.stopDrivetrain();
+
+    // The robot can be pushed around while disabled, so the traction controller's speed estimate is no good any more
+    m_robotContainer.resetTraction();
   }
 
   @Override
@@ -71,6 +188,9 @@ public class Robot extends TimedRobot {
     // Keep robot in brake mode when enabled.
     m_robotContainer.setBrakeMode();
 
+    // A match starts with auton, so start counting jams from here
+    m_robotContainer.resetMatchStats();
+
     m_autonomousCommand = m_robotContainer.getAutonomousCommand();
 
     // schedule the autonomous command (example)
@@ -111,6 +231,11 @@ public class Robot extends TimedRobot {
   @Override
   public void testPeriodic() {}
 
+  /** Returns the robot container, once robotInit has run. This is for the auto benchmark. */
+  RobotContainer getRobotContainer() {
+    return m_robotContainer;
+  }
+
   /** This function is called once when the robot is first started up. */
   @Override
   public void simulationInit() {}
@@ -4,32 +4,66 @@
 
 package frc.robot;
 
+import frc.robot.Constants.AimConstants;
+import frc.robot.Constants.BootConstants;
+import frc.robot.Constants.ClimbConstants;
+import frc.robot.Constants.DriveConstants;
+import frc.robot.Constants.HealthConstants;
 import frc.robot.Constants.OperatorConstants;
-import frc.robot.Constants.ShooterConstants;
+import frc.robot.Constants.PathfindingConstants;
+import frc.robot.Constants.PowerConstants;
+import frc.robot.Constants.ShooterMapConstants;
 import frc.robot.Constants.AutonomousConstants;
 import frc.robot.Constants.LEDConstants;
 
+import frc.robot.commands.AimCommand;
+import frc.robot.commands.ClimbCommand;
 import frc.robot.commands.DriveCommand;
 import frc.robot.commands.DropIntakeCommand;
+import frc.robot.commands.DriveToPoseCommand;
 import frc.robot.commands.IntakeCommand;
 import frc.robot.commands.LaunchBallCommand;
+import frc.robot.commands.ProfiledDriveCommand;
 import frc.robot.commands.ReverseIntakeCommand;
 import frc.robot.commands.ShooterIntakeCommand;
-import frc.robot.commands.RevUpShooterPercentCommand;
+import frc.robot.commands.RevUpShooterFromDistanceCommand;
 import frc.robot.subsystems.ClimbSubsystem;
 import frc.robot.subsystems.DriveSubsystem;
 
 import com.pathplanner.lib.auto.AutoBuilder;
 import com.pathplanner.lib.auto.NamedCommands;
+import com.pathplanner.lib.commands.PathPlannerAuto;
 
 import frc.robot.subsystems.IndexSubsystem;
 import frc.robot.subsystems.IntakeSubsystem;
+import frc.robot.subsystems.PowerSubsystem;
 import frc.robot.subsystems.ShooterSubsystem;
+import frc.robot.subsystems.VisionSubsystem;
+import frc.utils.BootSequence;
+import frc.utils.FlowField;
+import frc.utils.HealthMonitor;
+import frc.utils.InterpolatingTable;
+import frc.utils.NavGrid;
+import frc.utils.PathTrackingStats;
+import frc.utils.RateGroup;
+import frc.utils.TimingStats;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
 import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.RobotBase;
 import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
+import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardTab;
 import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
+import edu.wpi.first.wpilibj2.command.RunCommand;
+import edu.wpi.first.wpilibj2.command.WaitCommand;
 import edu.wpi.first.wpilibj2.command.button.CommandXboxController;
 
 import edu.wpi.first.networktables.NetworkTableInstance;
@@ -49,36 +83,98 @@ public class RobotContainer {
   private final IntakeSubsystem m_intakeSubsystem = new IntakeSubsystem();
   private final ShooterSubsystem m_shooterSubsystem = new ShooterSubsystem();
   private final IndexSubsystem m_indexSubsystem = new IndexSubsystem();
-  // private final ClimbSubsystem m_climbSubsystem = new ClimbSubsystem();
+  private final ClimbSubsystem m_climbSubsystem = new ClimbSubsystem();
+  private final PowerSubsystem m_powerSubsystem = new PowerSubsystem();
+  private final VisionSubsystem m_visionSubsystem = new VisionSubsystem();
+
+  // Checks every device in the background
+  private final HealthMonitor m_healthMonitor = new HealthMonitor(HealthConstants.kPeriod, HealthConstants.kTableName);
 
   // Controllers
   private final CommandXboxController m_driverController = new CommandXboxController(OperatorConstants.kDriverControllerPort);
   private final CommandXboxController m_coDriverController = new CommandXboxController(OperatorConstants.kCoDriverControllerPort);
 
-  private final SendableChooser<Command> m_autonChooser;
+  private SendableChooser<Command> m_autonChooser;
+  // Runs instead of the chooser's pick when set, for the auto benchmark
+  private Command m_autonOverride;
 
   private IntegerPublisher m_LEDIndexPublisher;
 
+  // Distance to the goal vs. top and bottom shooter wheel speeds
+  private final InterpolatingTable m_shooterMap = new InterpolatingTable("distance", "top", "bottom");
+
+  // Flow fields to each scoring pose, built once at boot
+  private FlowField[] m_scoringFields = new FlowField[0];
+
+  // How long auto-aim takes to line up, shared by every aim command
+  private final TimingStats m_aimStats = new TimingStats(AimConstants.kStatsSamples);
+
+  // The automatic climb, and how long it takes
+  private final TimingStats m_climbStats = new TimingStats(ClimbConstants.kStatsSamples);
+  private final ClimbCommand m_climbCommand = new ClimbCommand(m_climbSubsystem, m_climbStats);
+
   /** The container for the robot. Contains subsystems, OI devices, and commands. */
   public RobotContainer() {
+    // Slow setup (CAN configuration, the camera, pathfinding) runs on background threads.
+    // Anything that touches the scheduler, Shuffleboard or PathPlanner stays on this thread.
+    BootSequence boot = new BootSequence(BootConstants.kThreads);
+
+    // Configure the motor controllers
+    boot.addStep("Drive motors", m_driveSubsystem::configureMotors);
+    boot.addStep("Shooter motors", m_shooterSubsystem::configureMotors);
+    boot.addStep("Climb motors", m_climbSubsystem::configureMotors);
 
-    // Connect to camera
-    CameraServer.startAutomaticCapture();
+    // Precompute the LTV path controller gains
+    boot.addStep("LTV controller", m_driveSubsystem::buildLTVController);
+
+    // Connect to camera. This is the driver camera; the vision worker captures from its own.
+    boot.addStep("Camera", () -> CameraServer.startAutomaticCapture());
+
+    // Precompute the paths to the scoring poses
+    boot.addStep("Pathfinding", this::configurePathfinding);
+
+    // Load the shooter speeds for each distance
+    boot.addStep("Shooter map", this::loadShooterMap);
 
     // Configure network tables to communicate with LEDs
-    configureNetworkTables();
+    boot.addMainThreadStep("Network tables", this::configureNetworkTables);
+
+    // Split the battery current between the mechanisms
+    boot.addMainThreadStep("Power budget", this::configurePowerBudget);
 
     // Configure the controller bindings
-    configureBindings();
+    boot.addMainThreadStep("Bindings", this::configureBindings, "Pathfinding");
 
     // Register commands to pathplanner
-    registerCommands();
+    boot.addMainThreadStep("Named commands", this::registerCommands);
+
+    boot.addMainThreadStep("Auton chooser", () -> {
+      m_autonChooser = AutoBuilder.buildAutoChooser();
+
+      Shuffleboard.getTab("Auton").add("Auton Selector", m_autonChooser);
 
-    m_autonChooser = AutoBuilder.buildAutoChooser();
+      Shuffleboard.getTab("Auton").addDouble("Match Timer", () -> DriverStation.isTeleopEnabled() ? DriverStation.getMatchTime() : -1);
+    });
 
-    Shuffleboard.getTab("Auton").add("Auton Selector", m_autonChooser);
+    boot.addMainThreadStep("Shooter tuning", m_shooterSubsystem::addTuningWidgets, "Shooter motors");
 
-    Shuffleboard.getTab("Auton").addDouble("Match Timer", () -> DriverStation.isTeleopEnabled() ? DriverStation.getMatchTime() : -1);
+    boot.addMainThreadStep("Shooter map capture", this::configureShooterMapCapture);
+
+    boot.addMainThreadStep("Aim telemetry", this::configureAimTelemetry);
+
+    boot.addMainThreadStep("Climb telemetry", this::configureClimbTelemetry);
+
+    // Start checking devices once they are configured, so the factory reset doesn't show up as faults
+    boot.addMainThreadStep("Health monitor", this::configureHealthMonitor, "Drive motors", "Shooter motors", "Climb motors");
+
+    // Everything is done before the first robot loop
+    boot.run();
+    boot.publish(BootConstants.kTableName);
+
+    // In simulation, balls go from the intake to the index
+    if (RobotBase.isSimulation()) {
+      m_indexSubsystem.setSimulatedBallSource(m_intakeSubsystem::takeSimulatedBall);
+    }
   }
 
   /** 
@@ -87,9 +183,14 @@ public class RobotContainer {
    * */
   private void configureBindings() {
     // Configures robot to drive with joystick inputs by default
-    m_driveSubsystem.setDefaultCommand(
-      new DriveCommand(m_driveSubsystem, m_driverController::getLeftY, m_driverController::getRightX, () -> m_driverController.rightBumper().getAsBoolean())
-    );
+    m_driveSubsystem.setDefaultCommand(createTeleopDriveCommand(DriveConstants.kUseProfiledTeleopDrive,
+      m_driverController::getLeftY, m_driverController::getRightX, () -> m_driverController.rightBumper().getAsBoolean()));
+
+    // Configures the robot to drive itself to the closest scoring pose when the a button is held on the Driver Controller.
+    m_driverController.a().whileTrue(new DriveToPoseCommand(m_driveSubsystem, m_scoringFields));
+
+    // Configures the robot to turn the shooter towards the closest goal when the b button is held on the Driver Controller.
+    m_driverController.b().whileTrue(new AimCommand(m_driveSubsystem, m_aimStats, ShooterMapConstants.kGoalPositions));
 
     // Configures intake to start when the b button is held on the Co-Driver Controller.
     m_coDriverController.b().whileTrue(new IntakeCommand(m_intakeSubsystem, m_indexSubsystem));
@@ -104,11 +205,18 @@ public class RobotContainer {
     // The speed is controled by the analog input of the trigger.
     //m_coDriverController.leftTrigger(0.1).whileTrue(new RevUpShooterCommand(m_shooterSubsystem, m_coDriverController::getLeftTriggerAxis));
     m_coDriverController.leftTrigger(0.1)
-      .whileTrue(new RevUpShooterPercentCommand(m_shooterSubsystem, ShooterConstants.kTopShooterSpeed, ShooterConstants.kBottomShooterSpeed));
+      .whileTrue(new RevUpShooterFromDistanceCommand(m_shooterSubsystem, m_driveSubsystem, m_shooterMap));
 
     // Configures the ball to launch when the right trigger is pressed.
     m_coDriverController.rightTrigger(0.3).whileTrue(new LaunchBallCommand(m_indexSubsystem));
 
+    // Configures the robot to climb on its own when the y button is pressed on the Co-Driver Controller.
+    // It keeps holding once it is up, and the back button stops it. Off until the climb constants are calibrated.
+    if (ClimbConstants.kAutoClimbEnabled) {
+      m_coDriverController.y().onTrue(m_climbCommand);
+    }
+    m_coDriverController.back().onTrue(new InstantCommand(m_climbSubsystem::stop, m_climbSubsystem));
+
     m_coDriverController.povUp().onTrue(new InstantCommand(() -> {
       m_LEDIndexPublisher.set(LEDConstants.Feedme);
     }));
@@ -137,17 +245,158 @@ public class RobotContainer {
     m_LEDIndexPublisher = table.getIntegerTopic(LEDConstants.LEDIndexName).publish();
   }
 
+  /**
+   * This method registers the mechanisms with the power subsystem, highest priority first.
+   * This is handled in a separate function to keep things organized.
+   */
+  private void configurePowerBudget() {
+    m_powerSubsystem.addConsumer("Drive", 4, PowerConstants.kDriveMinCurrent, PowerConstants.kDriveMaxCurrent,
+      m_driveSubsystem::setCurrentLimit, PowerConstants.kDriveChannels);
+    m_powerSubsystem.addConsumer("Shooter", 2, PowerConstants.kShooterMinCurrent, PowerConstants.kShooterMaxCurrent,
+      m_shooterSubsystem::setCurrentLimit, PowerConstants.kShooterChannels);
+    m_powerSubsystem.addConsumer("Intake", 1, PowerConstants.kIntakeMinCurrent, PowerConstants.kIntakeMaxCurrent,
+      m_intakeSubsystem::setCurrentLimit, PowerConstants.kIntakeChannels);
+    m_powerSubsystem.addConsumer("Index", 1, PowerConstants.kIndexMinCurrent, PowerConstants.kIndexMaxCurrent,
+      m_indexSubsystem::setCurrentLimit, PowerConstants.kIndexChannels);
+
+    // The drive and shooter NEOs run the hardest for the longest, so derate them before they overheat
+    m_powerSubsystem.addThermalModel("Drive", m_driveSubsystem::getMotorCurrent, m_driveSubsystem::getMotorTemperature);
+    m_powerSubsystem.addThermalModel("Shooter", m_shooterSubsystem::getMotorCurrent, m_shooterSubsystem::getMotorTemperature);
+  }
+
+  /**
+   * Loads the shooter map from the deploy directory. This runs on a background thread at boot.
+   */
+  private void loadShooterMap() {
+    try {
+      m_shooterMap.load(new File(Filesystem.getDeployDirectory(), ShooterMapConstants.kFile));
+    } catch (IOException e) {
+      DriverStation.reportError("Failed to load shooter map: " + e.getMessage(), false);
+    }
+  }
+
+  /**
+   * Adds dashboard controls for adding points to the shooter map during practice.
+   * Drive to a spot, tune the capture speeds while holding "Test Capture Speeds" until shots go in,
+   * then press "Capture Point". The map is saved on the roboRIO right away, but the next deploy
+   * overwrites it, so copy the file back into the repo afterwards.
+   */
+  private void configureShooterMapCapture() {
+    ShuffleboardTab mapTab = Shuffleboard.getTab("Shooter Map");
+
+    mapTab.addDouble("Distance To Goal", m_driveSubsystem::getDistanceToGoal);
+    mapTab.addInteger("Points", m_shooterMap::size);
+
+    mapTab.add("Test Capture Speeds", new RunCommand(
+      () -> m_shooterSubsystem.setVelocity(Tuning.kCaptureTopSpeed.get(), Tuning.kCaptureBottomSpeed.get()),
+      m_shooterSubsystem
+    ).finallyDo(m_shooterSubsystem::stopShooter));
+
+    mapTab.add("Capture Point", new InstantCommand(() -> {
+      m_shooterMap.addPoint(m_driveSubsystem.getDistanceToGoal(), Tuning.kCaptureTopSpeed.get(), Tuning.kCaptureBottomSpeed.get());
+
+      try {
+        m_shooterMap.save(new File(Filesystem.getDeployDirectory(), ShooterMapConstants.kFile));
+      } catch (IOException e) {
+        DriverStation.reportError("Failed to save shooter map: " + e.getMessage(), false);
+      }
+    }).ignoringDisable(true));
+  }
+
+  /**
+   * Shows how long auto-aim takes to line up, and adds a benchmark that turns to random headings over and over.
+   * Run the benchmark in simulation (or on a practice field) after changing the aim constants
+   * and compare the percentiles. Reset the stats first so old runs don't mix in.
+   */
+  private void configureAimTelemetry() {
+    ShuffleboardTab aimTab = Shuffleboard.getTab("Aim");
+
+    aimTab.addInteger("Aims", m_aimStats::getTotalCount);
+    aimTab.addDouble("Last Time", m_aimStats::getLast);
+    aimTab.addDouble("Mean Time", m_aimStats::getMean);
+    // Sorted in the slow group, see addRateGroupTasks
+    aimTab.addDouble("Median Time", () -> m_aimStats.getCachedPercentile(50));
+    aimTab.addDouble("90th Percentile Time", () -> m_aimStats.getCachedPercentile(90));
+    aimTab.addDouble("Max Time", m_aimStats::getMax);
+    // Timeouts count as kTimeout in the times above, so check this before trusting the percentiles
+    aimTab.addInteger("Timeouts", () -> m_aimStats.countAtLeast(AimConstants.kTimeout));
+
+    aimTab.add("Reset Stats", new InstantCommand(m_aimStats::reset).ignoringDisable(true));
+
+    // The target is picked once per turn, so it doesn't move while the robot is turning to it
+    Rotation2d[] benchmarkTarget = {new Rotation2d()};
+    aimTab.add("Benchmark", new InstantCommand(() -> benchmarkTarget[0] = Rotation2d.fromRadians((Math.random() * 2 - 1) * Math.PI))
+      .andThen(new AimCommand(m_driveSubsystem, () -> benchmarkTarget[0], m_aimStats))
+      .andThen(new WaitCommand(AimConstants.kBenchmarkPause))
+      .repeatedly());
+  }
+
+  /**
+   * Shows how far along the climb is and how long each stage took.
+   * In simulation, the climber can be put back to stowed so the climb can be timed again.
+   */
+  private void configureClimbTelemetry() {
+    ShuffleboardTab climbTab = Shuffleboard.getTab("Climb");
+
+    climbTab.addString("Stage", () -> String.valueOf(m_climbCommand.getStage()));
+    climbTab.addDouble("Extend Time", () -> m_climbCommand.getStageTime(ClimbCommand.Stage.EXTEND));
+    climbTab.addDouble("Pull Time", () -> m_climbCommand.getStageTime(ClimbCommand.Stage.PULL));
+    climbTab.addDouble("Last Climb Time", m_climbStats::getLast);
+    climbTab.addDouble("Mean Climb Time", m_climbStats::getMean);
+    climbTab.addDouble("Max Climb Time", m_climbStats::getMax);
+
+    // The placeholder constants can't hurt anything in simulation
+    if (ClimbConstants.kAutoClimbEnabled || RobotBase.isSimulation()) {
+      climbTab.add("Climb", m_climbCommand);
+    }
+
+    if (RobotBase.isSimulation()) {
+      climbTab.add("Reset Sim Climber", new InstantCommand(m_climbSubsystem::resetSimulation, m_climbSubsystem).ignoringDisable(true));
+    }
+  }
+
+  /**
+   * This method builds the flow fields used to drive to the scoring poses.
+   * This is handled in a separate function to keep things organized.
+   */
+  private void configurePathfinding() {
+    try {
+      NavGrid grid = NavGrid.fromDeployDirectory(PathfindingConstants.kNavGridFile);
+
+      m_scoringFields = new FlowField[PathfindingConstants.kScoringPoses.length];
+      for (int i = 0; i < m_scoringFields.length; i++) {
+        m_scoringFields[i] = new FlowField(grid, PathfindingConstants.kScoringPoses[i]);
+      }
+    } catch (IOException e) {
+      DriverStation.reportError("Failed to load navgrid: " + e.getMessage(), e.getStackTrace());
+    }
+  }
+
+  /**
+   * Adds every device to the health monitor and starts it.
+   */
+  private void configureHealthMonitor() {
+    m_driveSubsystem.addHealthChecks(m_healthMonitor);
+    m_shooterSubsystem.addHealthChecks(m_healthMonitor);
+    m_intakeSubsystem.addHealthChecks(m_healthMonitor);
+    m_indexSubsystem.addHealthChecks(m_healthMonitor);
+    m_climbSubsystem.addHealthChecks(m_healthMonitor);
+
+    m_healthMonitor.start();
+  }
+
   /**
    * This method registers autonomous commands so that they can be used in pathplanner.
    * This is handled in a separate function to keep things organized.
    */
   private void registerCommands() {
     NamedCommands.registerCommand("Rev Up Shooter", 
-      new RevUpShooterPercentCommand(m_shooterSubsystem, ShooterConstants.kTopShooterSpeed, ShooterConstants.kBottomShooterSpeed)
+      new RevUpShooterFromDistanceCommand(m_shooterSubsystem, m_driveSubsystem, m_shooterMap)
     );
     NamedCommands.registerCommand("Shoot", new LaunchBallCommand(m_indexSubsystem).withTimeout(AutonomousConstants.kBallLaunchTimeout));
     NamedCommands.registerCommand("Intake", new IntakeCommand(m_intakeSubsystem, m_indexSubsystem).withTimeout(3));
     NamedCommands.registerCommand("Drop Intake", new DropIntakeCommand(m_driveSubsystem));
+    NamedCommands.registerCommand("Aim", new AimCommand(m_driveSubsystem, m_aimStats, ShooterMapConstants.kGoalPositions));
   }
 
   /**
@@ -156,10 +405,106 @@ public class RobotContainer {
    * @return the command to run in autonomous
    */
   public Command getAutonomousCommand() {
+    if (m_autonOverride != null) {
+      return m_autonOverride;
+    }
+
     // Run the command currently selected on shuffleboard
     return m_autonChooser.getSelected();
   }
 
+  /**
+   * Picks the auton to run by name instead of from the chooser. This is for the auto benchmark.
+   * @param autoName The name of the .auto file, without the extension.
+   * @param mirrored Whether to run it mirrored to the left side.
+   * @return The auton command.
+   */
+  public Command selectAuton(String autoName, boolean mirrored) {
+    m_driveSubsystem.setMirrorAuton(mirrored);
+    m_autonOverride = new PathPlannerAuto(autoName);
+    return m_autonOverride;
+  }
+
+  /** Returns how many balls have been launched since the match started. */
+  public int getBallsLaunched() {
+    return m_indexSubsystem.getLaunchCount();
+  }
+
+  /** Returns where the simulated robot really is. Outside of simulation this is the odometry pose. */
+  public Pose2d getSimulatedPose() {
+    return m_driveSubsystem.getSimulatedPose();
+  }
+
+  /** Puts the simulated mechanisms back to the start of a match, with a ball preloaded, and stops the drivetrain. */
+  public void resetSimulation() {
+    m_driveSubsystem.resetSimulation();
+    m_intakeSubsystem.resetSimulation();
+    m_indexSubsystem.resetSimulation(true);
+    m_climbSubsystem.resetSimulation();
+  }
+
+  /**
+   * Creates the teleop drive command. The auto benchmark also uses this to compare the two with fixed stick inputs.
+   * @param profiled Whether to use the acceleration and jerk limited drive instead of the slew rate limited one.
+   * @param leftInput The forward stick.
+   * @param rightInput The turning stick.
+   * @param turboMode True while turbo mode is held.
+   */
+  Command createTeleopDriveCommand(boolean profiled, DoubleSupplier leftInput, DoubleSupplier rightInput, BooleanSupplier turboMode) {
+    if (profiled) {
+      return new ProfiledDriveCommand(m_driveSubsystem, leftInput, rightInput, turboMode);
+    }
+    return new DriveCommand(m_driveSubsystem, leftInput, rightInput, turboMode);
+  }
+
+  /** Returns how fast the drivetrain is going forwards, in meters per second. This is for the auto benchmark. */
+  double getDriveSpeed() {
+    return m_driveSubsystem.getChassisSpeeds().vxMetersPerSecond;
+  }
+
+  /** Returns the drive subsystem. This is for the simulation tests. */
+  DriveSubsystem getDriveSubsystem() {
+    return m_driveSubsystem;
+  }
+
+  /** Returns the power subsystem. This is for the simulation tests. */
+  PowerSubsystem getPowerSubsystem() {
+    return m_powerSubsystem;
+  }
+
+  /** Returns the intake subsystem. This is for the simulation tests. */
+  IntakeSubsystem getIntakeSubsystem() {
+    return m_intakeSubsystem;
+  }
+
+  /** Returns the index subsystem. This is for the simulation tests. */
+  IndexSubsystem getIndexSubsystem() {
+    return m_indexSubsystem;
+  }
+
+  /** Returns the climb subsystem. This is for the simulation tests. */
+  ClimbSubsystem getClimbSubsystem() {
+    return m_climbSubsystem;
+  }
+
+  /** Turns the drive's arbitrary feedforward on or off. This is for the auto benchmark. */
+  void setArbitraryFeedforward(boolean enabled) {
+    m_driveSubsystem.setArbitraryFeedforward(enabled);
+  }
+
+  /** Returns how well the last auton path was followed. This is for the auto benchmark. */
+  PathTrackingStats getPathStats() {
+    return m_driveSubsystem.getPathStats();
+  }
+
+  /**
+   * Sets something to run once on each of the ball sensor's threads, see {@link IndexSubsystem#setSensorThreadSetup}.
+   * @param setup What to run.
+   */
+  public void setSensorThreadSetup(Runnable setup) {
+    m_indexSubsystem.setSensorThreadSetup(setup);
+  }
+
   /** Set the drivetrain to brake mode when enabled. */
   public void setBrakeMode() {
     m_driveSubsystem.setBrakeMode();
@@ -174,4 +519,34 @@ public class RobotContainer {
   public void stopDrivetrain() {
     m_driveSubsystem.stopDrive();
   }
+
+  /** Starts the drive's traction estimate over, for when the robot is disabled. */
+  public void resetTraction() {
+    m_driveSubsystem.resetTraction();
+  }
+
+  /**
+   * Adds each subsystem's fast and slow periodic tasks to the rate groups.
+   * Everything else still runs in the normal loop with the scheduler.
+   * @param fast The fast rate group.
+   * @param slow The slow rate group.
+   */
+  public void addRateGroupTasks(RateGroup fast, RateGroup slow) {
+    m_driveSubsystem.addRateGroupTasks(fast, slow);
+    m_powerSubsystem.addRateGroupTasks(fast, slow);
+    m_visionSubsystem.addRateGroupTasks(fast, slow);
+
+    // Devices that can't be read from the health monitor's thread are read here, on the robot thread
+    slow.addTask(m_healthMonitor::sample);
+
+    // The aim percentiles on the dashboard only need to be sorted a few times a second
+    slow.addTask(m_aimStats::updateCachedPercentiles);
+  }
+
+  /** Resets the per match counters at the start of a match. */
+  public void resetMatchStats() {
+    m_intakeSubsystem.resetJamCount();
+    m_indexSubsystem.resetJamCount();
+    m_indexSubsystem.resetLaunchCount();
+  }
 }
\ No newline at end of file
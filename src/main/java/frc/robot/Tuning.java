@@ -0,0 +1,46 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot;
+
+import frc.robot.Constants.DriveConstants;
+import frc.robot.Constants.ShooterConstants;
+import frc.robot.Constants.ShooterMapConstants;
+import frc.robot.Constants.TuningConstants;
+import frc.utils.ParameterStore;
+import frc.utils.ParameterStore.Parameter;
+
+/**
+ * The Tuning class holds values that can be changed from the dashboard while the robot is running,
+ * without redeploying. The defaults come from {@link Constants}, and saved values are loaded from
+ * the deploy directory.
+ *
+ * <p>Read these with {@code Tuning.kTopShooterSpeed.get()}. Only add values here that are safe to
+ * change in the middle of a match; everything else belongs in {@link Constants}.
+ */
+public final class Tuning {
+  private static final ParameterStore store = new ParameterStore(TuningConstants.kParameterFile, TuningConstants.kTableName);
+
+  public static final Parameter kTopShooterSpeed = store.add("Shooter/Top Speed", ShooterConstants.kTopShooterSpeed);
+  public static final Parameter kBottomShooterSpeed = store.add("Shooter/Bottom Speed", ShooterConstants.kBottomShooterSpeed);
+
+  // Wheel speeds (m/s) to try when capturing new shooter map points
+  public static final Parameter kCaptureTopSpeed = store.add("Shooter Map/Capture Top Speed", ShooterMapConstants.kDefaultCaptureTopSpeed);
+  public static final Parameter kCaptureBottomSpeed = store.add("Shooter Map/Capture Bottom Speed", ShooterMapConstants.kDefaultCaptureBottomSpeed);
+
+  public static final Parameter kDriverSensitivity = store.add("Drive/Driver Sensitivity", DriveConstants.kDriverSensitvity);
+  public static final Parameter kRotationalSensitivity = store.add("Drive/Rotational Sensitivity", DriveConstants.kRotationalSensitivity);
+
+  private Tuning() {}
+
+  /** Loads the saved values and starts listening to the dashboard. Call this once in robotInit. */
+  public static void start() {
+    store.start();
+  }
+
+  /** Applies any changes from the dashboard. Call this at the start of every loop. */
+  public static void update() {
+    store.update();
+  }
+}
@@ -0,0 +1,128 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.commands;
+
+import frc.robot.Constants.AimConstants;
+import frc.robot.subsystems.DriveSubsystem;
+import frc.utils.TimingStats;
+
+import java.util.function.Supplier;
+
+import edu.wpi.first.math.controller.ProfiledPIDController;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.trajectory.TrapezoidProfile;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.Command;
+
+public class AimCommand extends Command {
+  private final DriveSubsystem m_driveSubsystem;
+  private final Supplier<Rotation2d> m_targetHeading;
+  private final TimingStats m_stats;
+
+  // Follows a trapezoid profile from the current heading to the target, with PID on the error from the profile
+  private final ProfiledPIDController m_controller = new ProfiledPIDController(
+    AimConstants.kP,
+    AimConstants.kI,
+    AimConstants.kD,
+    new TrapezoidProfile.Constraints(AimConstants.kMaxAngularSpeed, AimConstants.kMaxAngularAcceleration)
+  );
+
+  private double m_startTime;
+  private boolean m_aligned;
+
+  /**
+   * Turns the robot in place to a target heading.
+   * The heading is checked every loop, so it can follow a moving target.
+   * This command finishes once the robot is aligned, or after {@link AimConstants#kTimeout}.
+   *
+   * @param driveSubsystem The drive subsystem.
+   * @param targetHeading Supplies the field relative heading to turn to.
+   * @param stats Records how long it took to get aligned, in seconds. Timeouts are recorded as {@link AimConstants#kTimeout}.
+   */
+  public AimCommand(DriveSubsystem driveSubsystem, Supplier<Rotation2d> targetHeading, TimingStats stats) {
+    m_driveSubsystem = driveSubsystem;
+    m_targetHeading = targetHeading;
+    m_stats = stats;
+
+    m_controller.enableContinuousInput(-Math.PI, Math.PI);
+    m_controller.setTolerance(AimConstants.kHeadingTolerance, AimConstants.kAngularVelocityTolerance);
+
+    addRequirements(driveSubsystem);
+  }
+
+  /**
+   * Turns the robot in place so the shooter points at the closest of several targets, using the odometry pose.
+   * This command finishes once the robot is aligned, or after {@link AimConstants#kTimeout}.
+   *
+   * @param driveSubsystem The drive subsystem.
+   * @param stats Records how long it took to get aligned, in seconds. Timeouts are recorded as {@link AimConstants#kTimeout}.
+   * @param targets The positions on the field to aim at, for example the goals.
+   */
+  public AimCommand(DriveSubsystem driveSubsystem, TimingStats stats, Translation2d... targets) {
+    this(driveSubsystem, () -> headingToClosest(driveSubsystem.getPose().getTranslation(), targets), stats);
+  }
+
+  /**
+   * Returns the heading that points the shooter at the closest target.
+   * @param position The robot's position.
+   * @param targets The targets.
+   * @return The field relative heading of the robot.
+   */
+  private static Rotation2d headingToClosest(Translation2d position, Translation2d[] targets) {
+    Translation2d closest = targets[0];
+    for (Translation2d target : targets) {
+      if (position.getDistance(target) < position.getDistance(closest)) {
+        closest = target;
+      }
+    }
+
+    Translation2d toTarget = closest.minus(position);
+    return new Rotation2d(toTarget.getX(), toTarget.getY()).minus(AimConstants.kShooterDirection);
+  }
+
+  @Override
+  public void initialize() {
+    // Start the profile from where the robot is and how fast it is already turning
+    m_controller.reset(
+      m_driveSubsystem.getHeading().getRadians(),
+      m_driveSubsystem.getChassisSpeeds().omegaRadiansPerSecond
+    );
+
+    m_startTime = Timer.getFPGATimestamp();
+    m_aligned = false;
+  }
+
+  @Override
+  public void execute() {
+    double heading = m_driveSubsystem.getHeading().getRadians();
+    double feedback = m_controller.calculate(heading, m_targetHeading.get().getRadians());
+    double omega = m_controller.getSetpoint().velocity + feedback;
+
+    m_driveSubsystem.drive(new ChassisSpeeds(0, 0, omega));
+
+    if (m_controller.atGoal()) {
+      m_aligned = true;
+      m_stats.add(Timer.getFPGATimestamp() - m_startTime);
+    }
+  }
+
+  @Override
+  public void end(boolean interrupted) {
+    m_driveSubsystem.stopDrive();
+
+    // Leaving timeouts out would make the stats look better the worse aiming gets.
+    // Letting go of the button isn't a timeout, so that isn't recorded.
+    if (!interrupted && !m_aligned) {
+      m_stats.add(AimConstants.kTimeout);
+    }
+  }
+
+  @Override
+  public boolean isFinished() {
+    return m_aligned || Timer.getFPGATimestamp() - m_startTime > AimConstants.kTimeout;
+  }
+}
@@ -0,0 +1,155 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.commands;
+
+import frc.robot.Constants.ClimbConstants;
+import frc.robot.subsystems.ClimbSubsystem;
+import frc.utils.TimingStats;
+
+import java.util.Arrays;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.Command;
+
+public class ClimbCommand extends Command {
+  public enum Stage {
+    // Raise the arm up to the bar
+    EXTEND,
+    // Winch the robot up while the arm comes back down
+    PULL,
+    // Keep the robot hanging
+    HOLD,
+    // Something stalled or took too long, so the motors are stopped
+    FAILED
+  }
+
+  private final ClimbSubsystem m_climbSubsystem;
+  private final TimingStats m_stats;
+
+  private Stage m_stage;
+  private double m_startTime;
+  private double m_stageStartTime;
+  private boolean m_armDone;
+
+  // How long each stage took on the last climb, in seconds
+  private final double[] m_stageTimes = new double[Stage.values().length];
+
+  /**
+   * Climbs automatically. The arm goes up to the bar, then the winch pulls the robot up while the arm retracts,
+   * and then the winch holds the robot there. Each stage runs at full speed until it gets close to its target.
+   * If a motor stalls where it shouldn't or a stage takes too long, both motors stop and this command finishes.
+   * Otherwise it keeps holding until it is interrupted.
+   * The targets, speeds and stall limits are uncalibrated, see {@link ClimbConstants#kAutoClimbEnabled}.
+   *
+   * @param climbSubsystem The climb subsystem.
+   * @param stats Records how long the climb took, from the start until the robot is holding, in seconds.
+   */
+  public ClimbCommand(ClimbSubsystem climbSubsystem, TimingStats stats) {
+    m_climbSubsystem = climbSubsystem;
+    m_stats = stats;
+
+    addRequirements(climbSubsystem);
+  }
+
+  @Override
+  public void initialize() {
+    m_startTime = Timer.getFPGATimestamp();
+    Arrays.fill(m_stageTimes, 0);
+
+    m_stage = null;
+    startStage(Stage.EXTEND);
+  }
+
+  @Override
+  public void execute() {
+    double stageTime = Timer.getFPGATimestamp() - m_stageStartTime;
+    if ((m_stage == Stage.EXTEND || m_stage == Stage.PULL) && stageTime > ClimbConstants.kStageTimeout) {
+      fail(m_stage + " took too long");
+      return;
+    }
+
+    switch (m_stage) {
+      case EXTEND:
+        if (m_climbSubsystem.isClimbStalled()) {
+          // Nothing should be stopping the arm on the way up
+          fail("climber arm stalled while extending");
+        } else if (m_climbSubsystem.moveClimberTo(ClimbConstants.kClimbExtendedPosition, ClimbConstants.kClimbExtendSpeed)) {
+          startStage(Stage.PULL);
+        }
+        break;
+
+      case PULL:
+        // The arm only has to get out of the way, so it can stop early if the robot is already resting on it
+        if (!m_armDone) {
+          m_armDone = m_climbSubsystem.isClimbStalled()
+            || m_climbSubsystem.moveClimberTo(ClimbConstants.kClimbRetractedPosition, ClimbConstants.kClimbRetractSpeed);
+        } else {
+          m_climbSubsystem.moveClimber(0);
+        }
+
+        boolean winchDone = m_climbSubsystem.moveWinchTo(ClimbConstants.kWinchClimbedPosition, ClimbConstants.kWinchSpeed);
+        if (m_climbSubsystem.isWinchStalled()) {
+          fail("winch stalled at " + String.format("%.1f", m_climbSubsystem.getWinchPosition()) + " rotations");
+        } else if (winchDone) {
+          m_stats.add(Timer.getFPGATimestamp() - m_startTime);
+          startStage(Stage.HOLD);
+        }
+        break;
+
+      case HOLD:
+        m_climbSubsystem.moveClimber(0);
+        m_climbSubsystem.setWinch(ClimbConstants.kWinchHoldOutput);
+        break;
+
+      case FAILED:
+        break;
+    }
+  }
+
+  private void startStage(Stage stage) {
+    double now = Timer.getFPGATimestamp();
+    if (m_stage != null && m_stage != Stage.HOLD && m_stage != Stage.FAILED) {
+      m_stageTimes[m_stage.ordinal()] = now - m_stageStartTime;
+    }
+
+    m_stage = stage;
+    m_stageStartTime = now;
+    m_armDone = false;
+
+    // Each stage starts with a clean slate, so the current spike from changing direction isn't a stall
+    m_climbSubsystem.resetStallDetectors();
+  }
+
+  private void fail(String reason) {
+    DriverStation.reportWarning("Climb stopped: " + reason, false);
+    m_climbSubsystem.stop();
+    startStage(Stage.FAILED);
+  }
+
+  /** Returns the stage the climb is in, or null if it has never run. */
+  public Stage getStage() {
+    return m_stage;
+  }
+
+  /**
+   * Returns how long a stage took on the last climb.
+   * @param stage The stage, either {@link Stage#EXTEND} or {@link Stage#PULL}.
+   * @return The time in seconds, or 0 if the stage hasn't finished yet.
+   */
+  public double getStageTime(Stage stage) {
+    return m_stageTimes[stage.ordinal()];
+  }
+
+  @Override
+  public void end(boolean interrupted) {
+    m_climbSubsystem.stop();
+  }
+
+  @Override
+  public boolean isFinished() {
+    return m_stage == Stage.FAILED;
+  }
+}
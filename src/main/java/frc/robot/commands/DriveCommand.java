@@ -4,6 +4,7 @@
 
 package frc.robot.commands;
 
+import frc.robot.Tuning;
 import frc.robot.Constants.DriveConstants;
 import frc.robot.subsystems.DriveSubsystem;
 import frc.utils.Utils;
@@ -54,7 +55,7 @@ public class DriveCommand extends Command {
       speedSlewRateLimiter.calculate(
         Utils.sensitivityFunction(
           getLeftJoyStickInput.getAsDouble(),
-          DriveConstants.kDriverSensitvity,
+          Tuning.kDriverSensitivity.get(),
           DriveConstants.kDeadBand)
       ) * (activateTurboMode.getAsBoolean() ? 1 : DriveConstants.kMaxForwardSpeed),
 
@@ -62,7 +63,7 @@ public class DriveCommand extends Command {
       -rotationalSlewRateLimiter.calculate(
         Utils.sensitivityFunction(
           getRightJoyStickInput.getAsDouble(),
-          DriveConstants.kRotationalSensitivity,
+          Tuning.kRotationalSensitivity.get(),
           DriveConstants.kDeadBand)
       ) * DriveConstants.kMaxTurningSpeed
     );
@@ -0,0 +1,141 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.commands;
+
+import frc.robot.Constants.PathfindingConstants;
+import frc.robot.subsystems.DriveSubsystem;
+import frc.utils.FlowField;
+import frc.utils.NavGrid;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.wpilibj2.command.Command;
+
+public class DriveToPoseCommand extends Command {
+  private final DriveSubsystem m_driveSubsystem;
+  private final FlowField[] m_fields;
+
+  private FlowField m_field;
+  private boolean m_atPosition;
+
+  /**
+   * Drives the robot to the closest of several target poses by following precomputed flow fields.
+   * The robot drives to the target position along the navgrid, then turns to the target heading.
+   * This command finishes once the robot is at the target pose.
+   *
+   * @param driveSubsystem The drive subsystem.
+   * @param fields The flow fields for each target pose. These should be built once at boot.
+   */
+  public DriveToPoseCommand(DriveSubsystem driveSubsystem, FlowField... fields) {
+    m_driveSubsystem = driveSubsystem;
+    m_fields = fields;
+
+    addRequirements(driveSubsystem);
+  }
+
+  @Override
+  public void initialize() {
+    Pose2d pose = m_driveSubsystem.getPose();
+
+    // Pick whichever target is the shortest drive away
+    m_field = null;
+    double bestDistance = Double.POSITIVE_INFINITY;
+    for (FlowField field : m_fields) {
+      int cell = field.findEntryCell(pose.getX(), pose.getY(), PathfindingConstants.kCorridorSearchRadius);
+      if (cell >= 0 && field.getDistance(cell) < bestDistance) {
+        bestDistance = field.getDistance(cell);
+        m_field = field;
+      }
+    }
+
+    m_atPosition = false;
+  }
+
+  @Override
+  public void execute() {
+    if (m_field == null) {
+      m_driveSubsystem.stopDrive();
+      return;
+    }
+
+    Pose2d pose = m_driveSubsystem.getPose();
+    Pose2d target = m_field.getTarget();
+    double distanceToTarget = pose.getTranslation().getDistance(target.getTranslation());
+
+    if (m_atPosition || distanceToTarget < PathfindingConstants.kPositionTolerance) {
+      // Turn in place to the target heading
+      m_atPosition = true;
+      double headingError = MathUtil.angleModulus(target.getRotation().getRadians() - pose.getRotation().getRadians());
+      m_driveSubsystem.drive(new ChassisSpeeds(0, 0, calculateTurn(headingError)));
+      return;
+    }
+
+    double aimX;
+    double aimY;
+    double distanceToGo;
+
+    if (distanceToTarget < PathfindingConstants.kFinalApproachDistance) {
+      // Close enough to drive straight at the target
+      aimX = target.getX();
+      aimY = target.getY();
+      distanceToGo = distanceToTarget;
+    } else {
+      int cell = m_field.findEntryCell(pose.getX(), pose.getY(), PathfindingConstants.kCorridorSearchRadius);
+      if (cell < 0) {
+        // Too far outside the corridor to find a way back
+        m_driveSubsystem.stopDrive();
+        return;
+      }
+
+      int goalCell = m_field.getGoalCell();
+      int aimCell = m_field.getLookaheadCell(cell, PathfindingConstants.kLookaheadCells);
+      NavGrid grid = m_field.getGrid();
+
+      if (aimCell == goalCell) {
+        aimX = target.getX();
+        aimY = target.getY();
+      } else {
+        aimX = grid.getCellCenterX(aimCell);
+        aimY = grid.getCellCenterY(aimCell);
+      }
+      distanceToGo = m_field.getDistance(cell) + Math.hypot(
+        target.getX() - grid.getCellCenterX(goalCell), target.getY() - grid.getCellCenterY(goalCell));
+    }
+
+    double headingError = MathUtil.angleModulus(
+      Math.atan2(aimY - pose.getY(), aimX - pose.getX()) - pose.getRotation().getRadians());
+
+    // Only drive forwards when roughly facing the aim point, and slow down near the end
+    double speed = PathfindingConstants.kMaxSpeedMetersPerSecond
+      * Math.max(0, Math.cos(headingError))
+      * Math.min(1, distanceToGo / PathfindingConstants.kSlowdownDistance);
+
+    m_driveSubsystem.drive(new ChassisSpeeds(speed, 0, calculateTurn(headingError)));
+  }
+
+  private double calculateTurn(double headingError) {
+    return MathUtil.clamp(
+      headingError * PathfindingConstants.kTurnP,
+      -PathfindingConstants.kMaxAngularSpeed,
+      PathfindingConstants.kMaxAngularSpeed);
+  }
+
+  @Override
+  public void end(boolean interrupted) {
+    m_driveSubsystem.stopDrive();
+  }
+
+  @Override
+  public boolean isFinished() {
+    if (m_field == null) {
+      return true;
+    }
+
+    double headingError = MathUtil.angleModulus(
+      m_field.getTarget().getRotation().getRadians() - m_driveSubsystem.getPose().getRotation().getRadians());
+    return m_atPosition && Math.abs(headingError) < PathfindingConstants.kHeadingTolerance;
+  }
+}
@@ -7,8 +7,11 @@ package frc.robot.commands;
 import frc.robot.Constants.IndexConstants;
 import frc.robot.Constants.IntakeConstants;
 import frc.robot.subsystems.IndexSubsystem;
+import frc.robot.subsystems.IndexSubsystem.BallEvent;
 import frc.robot.subsystems.IntakeSubsystem;
 
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.Command;
 
 
@@ -18,10 +21,17 @@ public class IntakeCommand extends Command {
   private final IntakeSubsystem m_intakeSubsystem;
   private final IndexSubsystem m_indexSubsystem;
 
+  private final Timer m_reverseTimer = new Timer();
+  private boolean m_reversing = false;
+  private int m_unjamAttempts = 0;
+  private boolean m_ballEntered = false;
+
   /**
    * Creates a new IntakeCommand.
    * This command controls how the ball get intaked into the robot.
-   * This command will finnish once the ball is detected in the robot.
+   * If the intake or index jams, it reverses both for a moment and tries again.
+   * This command will finnish once the ball is detected in the robot,
+   * or if it still jams after a few tries.
    * 
    * @param intakeSubsystem the intake subsystem
    */
@@ -38,20 +48,79 @@ public class IntakeCommand extends Command {
   // Called when the command starts
   @Override
   public void initialize() {
-    m_intakeSubsystem.setIntakeSpeed(IntakeConstants.kIntakeSpeed);
-    m_indexSubsystem.setIndexSpeed(IndexConstants.kIndexSpeed);
+    m_reversing = false;
+    m_unjamAttempts = 0;
+    m_ballEntered = false;
+
+    // Only balls that arrive from now on count
+    m_indexSubsystem.clearBallEvents();
+
+    feed();
+  }
+
+  // Called every time the scheduler runs while the command is scheduled.
+  @Override
+  public void execute() {
+    BallEvent event;
+    while ((event = m_indexSubsystem.pollBallEvent()) != null) {
+      if (event.type == BallEvent.Type.ENTRY) {
+        m_ballEntered = true;
+      }
+    }
+
+    if (m_ballEntered) {
+      // The index already stopped itself in the sensor interrupt
+      return;
+    } else if (m_reversing) {
+      // Done backing off, so try again with a clean slate
+      if (m_reverseTimer.hasElapsed(IntakeConstants.kUnjamReverseTime)) {
+        m_reversing = false;
+        feed();
+      }
+    } else if (m_intakeSubsystem.isJammed() || m_indexSubsystem.isJammed()) {
+      m_unjamAttempts++;
+      if (m_unjamAttempts <= IntakeConstants.kMaxUnjamAttempts) {
+        m_reversing = true;
+        m_reverseTimer.restart();
+        // Backing off draws a lot of current against whatever is stuck, so that can't count as another jam
+        m_intakeSubsystem.setJamDetectionPaused(true);
+        m_indexSubsystem.setJamDetectionPaused(true);
+        m_intakeSubsystem.setIntakeVoltage(IntakeConstants.kReverseIntakeVoltage);
+        m_indexSubsystem.setIndexVoltage(IndexConstants.kReverseIndexVoltage);
+      } else {
+        DriverStation.reportWarning("Intake still jammed after " + IntakeConstants.kMaxUnjamAttempts + " tries, giving up", false);
+      }
+    }
+  }
+
+  /**
+   * Runs the intake and index forwards, and forgets any jam from before.
+   * The index is armed to stop the moment the ball reaches the sensor, so it is always staged in the same place.
+   */
+  private void feed() {
+    m_intakeSubsystem.setJamDetectionPaused(false);
+    m_indexSubsystem.setJamDetectionPaused(false);
+    m_intakeSubsystem.resetJamDetector();
+    m_indexSubsystem.resetJamDetector();
+
+    m_intakeSubsystem.setIntakeVoltage(IntakeConstants.kIntakeVoltage);
+    m_indexSubsystem.setIndexVoltage(IndexConstants.kIndexVoltage);
+    m_indexSubsystem.armStopOnEntry(IndexConstants.kBallHoldVoltage);
   }
 
   // Called once the command ends or is interrupted.
   @Override
   public void end(boolean interrupted) {
+    m_intakeSubsystem.setJamDetectionPaused(false);
+    m_indexSubsystem.setJamDetectionPaused(false);
+    m_indexSubsystem.disarmStopOnEntry();
     m_intakeSubsystem.stopIntake();
     m_indexSubsystem.stopIndex();
   }
 
   @Override
   public boolean isFinished() {
-    return m_indexSubsystem.isBallDetected();
+    return m_ballEntered || m_indexSubsystem.isBallDetected() || m_unjamAttempts > IntakeConstants.kMaxUnjamAttempts;
   }
   
 } 
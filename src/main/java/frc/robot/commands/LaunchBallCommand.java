@@ -4,6 +4,7 @@
 
 package frc.robot.commands;
 
+import frc.robot.Constants.IndexConstants;
 import frc.robot.subsystems.IndexSubsystem;
 
 import edu.wpi.first.wpilibj2.command.Command;
@@ -22,7 +23,7 @@ public class LaunchBallCommand extends Command {
 
   @Override
   public void initialize() {
-    m_indexSubsystem.setIndexSpeed(1);
+    m_indexSubsystem.setIndexVoltage(IndexConstants.kLaunchVoltage);
   }
 
   @Override
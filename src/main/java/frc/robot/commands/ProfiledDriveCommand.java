@@ -0,0 +1,108 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.commands;
+
+import frc.robot.Tuning;
+import frc.robot.Constants.DriveConstants;
+import frc.robot.subsystems.DriveSubsystem;
+import frc.utils.JerkLimitedProfile;
+import frc.utils.Utils;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.Command;
+
+public class ProfiledDriveCommand extends Command {
+
+  private final DriveSubsystem m_subsystem;
+
+  private final DoubleSupplier getLeftJoyStickInput;
+  private final DoubleSupplier getRightJoyStickInput;
+
+  private final BooleanSupplier activateTurboMode;
+
+  // One profile per side of the drivetrain, in wheel speeds (m/s)
+  private final JerkLimitedProfile leftProfile = new JerkLimitedProfile(
+    DriveConstants.kMaxWheelAcceleration, DriveConstants.kMaxWheelDeceleration, DriveConstants.kMaxWheelJerk);
+  private final JerkLimitedProfile rightProfile = new JerkLimitedProfile(
+    DriveConstants.kMaxWheelAcceleration, DriveConstants.kMaxWheelDeceleration, DriveConstants.kMaxWheelJerk);
+
+  private double m_lastTime;
+
+  /**
+   * Drives the robot with joystick input like {@link DriveCommand}, but instead of slew rate limiting
+   * the sticks, each side of the drivetrain follows an acceleration and jerk limited profile.
+   * This lets the robot get up to speed as fast as the wheels allow without tipping when it stops.
+   * This command does not finish on its own.
+   *
+   * @param subsystem The drive subsystem.
+   * @param leftInput a supplier providing the values for the left joystick.
+   * @param rightInput a supplier providing the values for the right joystick.
+   * @param turboMode a supplier that is true while turbo mode is held.
+   */
+  public ProfiledDriveCommand(DriveSubsystem subsystem, DoubleSupplier leftInput, DoubleSupplier rightInput, BooleanSupplier turboMode) {
+    m_subsystem = subsystem;
+    getLeftJoyStickInput = leftInput;
+    getRightJoyStickInput = rightInput;
+    activateTurboMode = turboMode;
+
+    addRequirements(subsystem);
+  }
+
+  // Called when the command starts
+  @Override
+  public void initialize() {
+    // Start the profiles from the current wheel speeds, in the same direction as the motor references
+    double sign = DriveConstants.kInvertEncoders ? -1 : 1;
+    leftProfile.reset(sign * m_subsystem.getLeftVelocity());
+    rightProfile.reset(sign * m_subsystem.getRightVelocity());
+
+    m_lastTime = Timer.getFPGATimestamp();
+  }
+
+  // Called every time the scheduler runs while the command is scheduled.
+  @Override
+  public void execute() {
+    double now = Timer.getFPGATimestamp();
+    double dt = now - m_lastTime;
+    m_lastTime = now;
+
+    double forwardSpeed = Utils.sensitivityFunction(
+        getLeftJoyStickInput.getAsDouble(),
+        Tuning.kDriverSensitivity.get(),
+        DriveConstants.kDeadBand)
+      * (activateTurboMode.getAsBoolean() ? 1 : DriveConstants.kMaxForwardSpeed);
+
+    double turningSpeed = -Utils.sensitivityFunction(
+        getRightJoyStickInput.getAsDouble(),
+        Tuning.kRotationalSensitivity.get(),
+        DriveConstants.kDeadBand)
+      * DriveConstants.kMaxTurningSpeed;
+
+    // Mix the sticks into wheel speeds the same way DriveSubsystem.drive(forward, turning) does
+    double leftSpeed = forwardSpeed + turningSpeed;
+    double rightSpeed = forwardSpeed - turningSpeed;
+
+    double max = Math.max(Math.abs(leftSpeed), Math.abs(rightSpeed));
+    if (max > 1) {
+      leftSpeed /= max;
+      rightSpeed /= max;
+    }
+
+    m_subsystem.driveWheelSpeeds(
+      leftProfile.calculate(leftSpeed * DriveConstants.kMaxSpeedMetersPerSecond, dt),
+      rightProfile.calculate(rightSpeed * DriveConstants.kMaxSpeedMetersPerSecond, dt)
+    );
+  }
+
+  // Called once the command ends or is interrupted.
+  @Override
+  public void end(boolean interrupted) {
+    m_subsystem.stopDrive();
+  }
+
+}
@@ -0,0 +1,59 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.commands;
+
+import frc.robot.Tuning;
+import frc.robot.subsystems.DriveSubsystem;
+import frc.robot.subsystems.ShooterSubsystem;
+import frc.utils.InterpolatingTable;
+
+import edu.wpi.first.wpilibj2.command.Command;
+
+public class RevUpShooterFromDistanceCommand extends Command {
+  // Columns of the shooter map
+  public static final int kTopColumn = 0;
+  public static final int kBottomColumn = 1;
+
+  private final ShooterSubsystem m_shooterSubsystem;
+  private final DriveSubsystem m_driveSubsystem;
+  private final InterpolatingTable m_shooterMap;
+
+  /**
+   * Revs up the shooter to the speeds for the robot's distance from the goal.
+   * The speeds are looked up in the shooter map every loop, so they follow the robot as it drives.
+   * If the map is empty, this falls back to the tunable percent speeds.
+   * This does not require the drive subsystem, so the robot can still drive while revving.
+   *
+   * @param shooterSubsystem the shooter subsystem that controls the wheels in the shooter
+   * @param driveSubsystem the drive subsystem, used for the robot's pose
+   * @param shooterMap distance to the goal (m) vs. top and bottom wheel speed (m/s)
+   */
+  public RevUpShooterFromDistanceCommand(ShooterSubsystem shooterSubsystem, DriveSubsystem driveSubsystem, InterpolatingTable shooterMap) {
+    m_shooterSubsystem = shooterSubsystem;
+    m_driveSubsystem = driveSubsystem;
+    m_shooterMap = shooterMap;
+
+    addRequirements(shooterSubsystem);
+  }
+
+  @Override
+  public void execute() {
+    if (m_shooterMap.size() == 0) {
+      m_shooterSubsystem.setPercent(Tuning.kTopShooterSpeed.get(), Tuning.kBottomShooterSpeed.get());
+      return;
+    }
+
+    double distance = m_driveSubsystem.getDistanceToGoal();
+    m_shooterSubsystem.setVelocity(
+      m_shooterMap.get(distance, kTopColumn),
+      m_shooterMap.get(distance, kBottomColumn)
+    );
+  }
+
+  @Override
+  public void end(boolean interrupted) {
+    m_shooterSubsystem.stopShooter();
+  }
+}
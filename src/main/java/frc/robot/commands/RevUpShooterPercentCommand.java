@@ -6,12 +6,14 @@ package frc.robot.commands;
 
 import frc.robot.subsystems.ShooterSubsystem;
 
+import java.util.function.DoubleSupplier;
+
 import edu.wpi.first.wpilibj2.command.Command;
 
 public class RevUpShooterPercentCommand extends Command {
   private final ShooterSubsystem m_shooterSubsystem;
-  private final double m_topShooterSpeed;
-  private final double m_bottomShooterSpeed;
+  private final DoubleSupplier m_topShooterSpeed;
+  private final DoubleSupplier m_bottomShooterSpeed;
 
   /**
    * This creates a new rev up shooter command. This revs up the shooter to the correct speed before the ball gets fed into the shooter.
@@ -19,6 +21,16 @@ public class RevUpShooterPercentCommand extends Command {
    * @param shooterSpeed a functional interface the had a method get that returns a double that represents the value for the speed of the shooter
    */
   public RevUpShooterPercentCommand(ShooterSubsystem shooterSubsystem, double topShooterSpeed, double bottomShooterSpeed) {
+    this(shooterSubsystem, () -> topShooterSpeed, () -> bottomShooterSpeed);
+  }
+
+  /**
+   * This creates a new rev up shooter command with speeds that can change while it runs, such as tunable values.
+   * @param shooterSubsystem the shooter subsystem that controls the wheels in the shooter
+   * @param topShooterSpeed supplies the top wheel speed (-1 - 1)
+   * @param bottomShooterSpeed supplies the bottom wheel speed (-1 - 1)
+   */
+  public RevUpShooterPercentCommand(ShooterSubsystem shooterSubsystem, DoubleSupplier topShooterSpeed, DoubleSupplier bottomShooterSpeed) {
     m_shooterSubsystem = shooterSubsystem;
     m_topShooterSpeed = topShooterSpeed;
     m_bottomShooterSpeed = bottomShooterSpeed;
@@ -28,7 +40,7 @@ public class RevUpShooterPercentCommand extends Command {
 
   @Override
   public void execute() {
-    m_shooterSubsystem.setPercent(m_topShooterSpeed, m_bottomShooterSpeed);
+    m_shooterSubsystem.setPercent(m_topShooterSpeed.getAsDouble(), m_bottomShooterSpeed.getAsDouble());
   }
 
   @Override
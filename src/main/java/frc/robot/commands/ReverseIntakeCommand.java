@@ -37,8 +37,8 @@ public class ReverseIntakeCommand extends Command {
   // Called every time the scheduler runs while the command is scheduled.
   @Override
   public void initialize() {
-    m_intakeSubsystem.setIntakeSpeed(IntakeConstants.kReverseIntakeSpeed);
-    m_indexSubsystem.setIndexSpeed(IndexConstants.kReverseIndexSpeed);
+    m_intakeSubsystem.setIntakeVoltage(IntakeConstants.kReverseIntakeVoltage);
+    m_indexSubsystem.setIndexVoltage(IndexConstants.kReverseIndexVoltage);
   }
 
   // Called once the command ends or is interrupted.
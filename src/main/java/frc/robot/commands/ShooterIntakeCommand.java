@@ -28,13 +28,17 @@ public class ShooterIntakeCommand extends Command {
   }
 
   @Override
-  public void execute() {
+  public void initialize() {
     m_shooterSubsystem.setPercent(m_intakeShooterSpeed, m_intakeShooterSpeed);
-    m_indexSubsystem.setIndexSpeed(-IndexConstants.kIndexSpeed);
+    m_indexSubsystem.setIndexVoltage(-IndexConstants.kIndexVoltage);
+
+    // Stop the index in the sensor interrupt as soon as the ball arrives
+    m_indexSubsystem.armStopOnEntry(IndexConstants.kBallHoldVoltage);
   }
 
   @Override
   public void end(boolean interrupted) {
+    m_indexSubsystem.disarmStopOnEntry();
     m_shooterSubsystem.stopShooter();
     m_indexSubsystem.stopIndex();
   }
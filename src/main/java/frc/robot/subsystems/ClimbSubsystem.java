@@ -4,33 +4,262 @@
 
 package frc.robot.subsystems;
 
-import com.ctre.phoenix.motorcontrol.ControlMode;
+import com.ctre.phoenix.motorcontrol.FeedbackDevice;
+import com.ctre.phoenix.motorcontrol.NeutralMode;
+import com.ctre.phoenix.motorcontrol.SupplyCurrentLimitConfiguration;
 import com.ctre.phoenix.motorcontrol.can.BaseTalon;
 
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
+import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardTab;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants.ClimbConstants;
+import frc.robot.Constants.HealthConstants;
+import frc.robot.Constants.MotorConstants;
+import frc.utils.DeviceChecks;
+import frc.utils.HealthMonitor;
+import frc.utils.JamDetector;
+import frc.utils.VoltageOutput;
 
 public class ClimbSubsystem extends SubsystemBase {
-  private final BaseTalon winchMotor = new BaseTalon(ClimbConstants.kWinchMotorID, "SRX");  
-  private final BaseTalon climbMotor = new BaseTalon(ClimbConstants.kClimbMotorID, "SRX");  
-  
+  private final BaseTalon winchMotor = new BaseTalon(ClimbConstants.kWinchMotorID, "SRX");
+  private final BaseTalon climbMotor = new BaseTalon(ClimbConstants.kClimbMotorID, "SRX");
+  private final VoltageOutput m_winchOutput = VoltageOutput.talon(winchMotor, MotorConstants.kNominalVoltage);
+  private final VoltageOutput m_climbOutput = VoltageOutput.talon(climbMotor, MotorConstants.kNominalVoltage);
 
-  /** Creates a new ClimbSubsystem. */
+  // Detects a motor that can't move, from its current
+  private final JamDetector m_climbStall = new JamDetector(
+    ClimbConstants.kStallCurrentPerOutput,
+    ClimbConstants.kStallMinOutput,
+    ClimbConstants.kStallTime,
+    ClimbConstants.kStallFilterTimeConstant,
+    0.02
+  );
+  private final JamDetector m_winchStall = new JamDetector(
+    ClimbConstants.kStallCurrentPerOutput,
+    ClimbConstants.kStallMinOutput,
+    ClimbConstants.kStallTime,
+    ClimbConstants.kStallFilterTimeConstant,
+    0.02
+  );
+
+  // Only used in simulation
+  private double m_simClimbPosition = 0;
+  private double m_simWinchPosition = 0;
+  private double m_simClimbCurrent = 0;
+  private double m_simWinchCurrent = 0;
+
+  /** Creates a new ClimbSubsystem. Call {@link #configureMotors()} before climbing. */
   public ClimbSubsystem() {
-    winchMotor.setInverted(ClimbConstants.kWinchInverted);
-    climbMotor.setInverted(ClimbConstants.kClimbInverted);
+    ShuffleboardTab climbTab = Shuffleboard.getTab("Climb");
+    climbTab.addDouble("Climb Position", this::getClimbPosition);
+    climbTab.addDouble("Winch Position", this::getWinchPosition);
+    climbTab.addDouble("Climb Current", this::getClimbStatorCurrent);
+    climbTab.addDouble("Winch Current", this::getWinchStatorCurrent);
+    climbTab.addBoolean("Climb Stalled", this::isClimbStalled);
+    climbTab.addBoolean("Winch Stalled", this::isWinchStalled);
+  }
+
+  /**
+   * Configures the climb and winch motors over CAN and zeroes their encoders.
+   * The climber has to be stowed when this runs, or every position target is off by however far out it was.
+   * It is slow, so it runs on a background thread at boot.
+   *
+   * <p>While {@link ClimbConstants#kAutoClimbEnabled} is off this only sets the directions, like before the
+   * automatic climb, so the uncalibrated soft limits and a zero taken wherever the climber happens to be don't
+   * get in the way of calibrating it.
+   */
+  public void configureMotors() {
+    if (!ClimbConstants.kAutoClimbEnabled) {
+      climbMotor.setInverted(ClimbConstants.kClimbInverted);
+      winchMotor.setInverted(ClimbConstants.kWinchInverted);
+      return;
+    }
+
+    configureMotor(climbMotor, ClimbConstants.kClimbInverted, ClimbConstants.kClimbSensorPhase,
+      ClimbConstants.kClimbMinPosition, ClimbConstants.kClimbMaxPosition);
+    configureMotor(winchMotor, ClimbConstants.kWinchInverted, ClimbConstants.kWinchSensorPhase,
+      ClimbConstants.kWinchMinPosition, ClimbConstants.kWinchMaxPosition);
+
+    // Keep the robot hanging when the winch stops
+    winchMotor.setNeutralMode(NeutralMode.Brake);
+    climbMotor.setNeutralMode(NeutralMode.Brake);
   }
 
+  private static void configureMotor(BaseTalon motor, boolean inverted, boolean sensorPhase, double min, double max) {
+    int timeout = ClimbConstants.kConfigTimeoutMs;
+
+    motor.configFactoryDefault(timeout);
+    motor.setInverted(inverted);
+    // The factory reset turns voltage compensation off, so the climb speed would depend on the battery again
+    VoltageOutput.configureTalon(motor, MotorConstants.kNominalVoltage, timeout);
+
+    motor.configSelectedFeedbackSensor(FeedbackDevice.CTRE_MagEncoder_Relative, 0, timeout);
+    motor.setSensorPhase(sensorPhase);
+    motor.setSelectedSensorPosition(0, 0, timeout);
+
+    // The Talon stops the motor at the soft limits on its own, even if the robot code hangs
+    motor.configReverseSoftLimitThreshold(min * ClimbConstants.kEncoderTicksPerRotation, timeout);
+    motor.configForwardSoftLimitThreshold(max * ClimbConstants.kEncoderTicksPerRotation, timeout);
+    motor.configReverseSoftLimitEnable(true, timeout);
+    motor.configForwardSoftLimitEnable(true, timeout);
+
+    motor.configSupplyCurrentLimit(
+      new SupplyCurrentLimitConfiguration(true, ClimbConstants.kCurrentLimit, ClimbConstants.kCurrentLimit, 0), timeout);
+
+    motor.clearStickyFaults(timeout);
+  }
+
+  /**
+   * Adds the climb motors to the health monitor.
+   * @param monitor The health monitor.
+   */
+  public void addHealthChecks(HealthMonitor monitor) {
+    monitor.addCheck("Climb", DeviceChecks.talon(climbMotor, HealthConstants.kTalonWarningTemperature, HealthConstants.kTalonFaultTemperature));
+    monitor.addCheck("Winch", DeviceChecks.talon(winchMotor, HealthConstants.kTalonWarningTemperature, HealthConstants.kTalonFaultTemperature));
+  }
+
+  /**
+   * Moves the climber arm.
+   * @param speed The output from -1 to 1 of the nominal voltage, positive is up. It is cut off at the soft limits.
+   */
   public void moveClimber(double speed){
-    climbMotor.set(ControlMode.PercentOutput, speed);
+    m_climbOutput.setFraction(limit(speed, getClimbPosition(), ClimbConstants.kClimbMinPosition, ClimbConstants.kClimbMaxPosition));
   }
 
+  /**
+   * Runs the winch.
+   * @param speed The output from -1 to 1 of the nominal voltage, positive pulls the robot up. It is cut off at the soft limits.
+   */
   public void setWinch(double speed){
-    winchMotor.set(ControlMode.PercentOutput, speed);
+    m_winchOutput.setFraction(limit(speed, getWinchPosition(), ClimbConstants.kWinchMinPosition, ClimbConstants.kWinchMaxPosition));
+  }
+
+  /**
+   * Moves the climber arm towards a position. It runs at the max speed until it gets close, then slows down.
+   * Call this every loop.
+   * @param position The target in encoder rotations.
+   * @param maxSpeed The fastest to move, from 0 to 1.
+   * @return Whether the arm is at the position.
+   */
+  public boolean moveClimberTo(double position, double maxSpeed) {
+    double error = position - getClimbPosition();
+    moveClimber(MathUtil.clamp(error * ClimbConstants.kPositionP, -maxSpeed, maxSpeed));
+    return Math.abs(error) < ClimbConstants.kPositionTolerance;
+  }
+
+  /**
+   * Runs the winch towards a position. It runs at the max speed until it gets close, then slows down.
+   * Call this every loop.
+   * @param position The target in encoder rotations.
+   * @param maxSpeed The fastest to move, from 0 to 1.
+   * @return Whether the winch is at the position.
+   */
+  public boolean moveWinchTo(double position, double maxSpeed) {
+    double error = position - getWinchPosition();
+    setWinch(MathUtil.clamp(error * ClimbConstants.kPositionP, -maxSpeed, maxSpeed));
+    return Math.abs(error) < ClimbConstants.kPositionTolerance;
+  }
+
+  /** Stops both motors. They are in brake mode, so the robot stays hanging. */
+  public void stop() {
+    moveClimber(0);
+    setWinch(0);
+  }
+
+  /**
+   * Zeroes the output if it would drive the mechanism further past a limit.
+   * This backs up the Talon soft limits, and is the only limit in simulation.
+   */
+  private static double limit(double speed, double position, double min, double max) {
+    if ((speed > 0 && position >= max) || (speed < 0 && position <= min)) {
+      return 0;
+    }
+    return speed;
+  }
+
+  /** Returns the climber arm position in encoder rotations. 0 is stowed. */
+  public double getClimbPosition() {
+    if (RobotBase.isSimulation()) {
+      return m_simClimbPosition;
+    }
+    return climbMotor.getSelectedSensorPosition() / ClimbConstants.kEncoderTicksPerRotation;
+  }
+
+  /** Returns the winch position in encoder rotations. 0 is fully let out. */
+  public double getWinchPosition() {
+    if (RobotBase.isSimulation()) {
+      return m_simWinchPosition;
+    }
+    return winchMotor.getSelectedSensorPosition() / ClimbConstants.kEncoderTicksPerRotation;
+  }
+
+  /** Returns the stator current of the climb motor in amps. */
+  public double getClimbStatorCurrent() {
+    return RobotBase.isSimulation() ? m_simClimbCurrent : climbMotor.getStatorCurrent();
+  }
+
+  /** Returns the stator current of the winch motor in amps. */
+  public double getWinchStatorCurrent() {
+    return RobotBase.isSimulation() ? m_simWinchCurrent : winchMotor.getStatorCurrent();
+  }
+
+  /** Returns whether the climber arm is being driven but can't move. */
+  public boolean isClimbStalled() {
+    return m_climbStall.isJammed();
+  }
+
+  /** Returns whether the winch is being driven but can't move. */
+  public boolean isWinchStalled() {
+    return m_winchStall.isJammed();
+  }
+
+  /** Forgets the current history of both motors, for example at the start of a new stage. */
+  public void resetStallDetectors() {
+    m_climbStall.reset();
+    m_winchStall.reset();
+  }
+
+  /** Puts the simulated climber back to stowed, so the climb can be run again. */
+  public void resetSimulation() {
+    m_simClimbPosition = 0;
+    m_simWinchPosition = 0;
   }
 
   @Override
   public void periodic() {
-    // This method will be called once per scheduler run
+    double now = Timer.getFPGATimestamp();
+    m_climbStall.update(getClimbStatorCurrent(), m_climbOutput.getFraction(), now);
+    m_winchStall.update(getWinchStatorCurrent(), m_winchOutput.getFraction(), now);
+  }
+
+  @Override
+  public void simulationPeriodic() {
+    double dt = 0.02;
+
+    // The Talons' voltage compensation isn't simulated, so work out what the battery can really supply
+    double batteryVoltage = RobotController.getBatteryVoltage();
+    double climbOutput = m_climbOutput.getAppliedVoltage(batteryVoltage) / MotorConstants.kNominalVoltage;
+    double winchOutput = m_winchOutput.getAppliedVoltage(batteryVoltage) / MotorConstants.kNominalVoltage;
+
+    // The arm moves at a speed proportional to its output until it hits a hard stop, where it stalls
+    double climbTarget = m_simClimbPosition + climbOutput * ClimbConstants.kSimClimbFreeSpeed * dt;
+    double climbPosition = MathUtil.clamp(climbTarget, 0, ClimbConstants.kSimClimbHardStop);
+    m_simClimbCurrent = Math.abs(climbOutput)
+      * (climbPosition != climbTarget ? ClimbConstants.kSimStallCurrent : ClimbConstants.kSimFreeCurrent);
+    m_simClimbPosition = climbPosition;
+
+    // Once the hooks catch the bar, the winch is lifting the whole robot, so it slows down and draws more current
+    boolean loaded = m_simWinchPosition >= ClimbConstants.kSimWinchLoadedPosition && winchOutput > 0;
+    double winchSpeed = ClimbConstants.kSimWinchFreeSpeed * (loaded ? ClimbConstants.kSimLoadedSpeedScale : 1);
+    double winchTarget = m_simWinchPosition + winchOutput * winchSpeed * dt;
+    double winchPosition = MathUtil.clamp(winchTarget, 0, ClimbConstants.kSimWinchHardStop);
+    double winchCurrent = winchPosition != winchTarget ? ClimbConstants.kSimStallCurrent
+      : loaded ? ClimbConstants.kSimLoadedCurrent : ClimbConstants.kSimFreeCurrent;
+    m_simWinchCurrent = Math.abs(winchOutput) * winchCurrent;
+    m_simWinchPosition = winchPosition;
   }
 }
@@ -10,27 +10,53 @@ import com.revrobotics.RelativeEncoder;
 import com.revrobotics.SparkPIDController;
 import com.kauailabs.navx.frc.AHRS;
 import com.pathplanner.lib.auto.AutoBuilder;
+import com.pathplanner.lib.commands.FollowPathCommand;
+import com.pathplanner.lib.controllers.PPLTVController;
+import com.pathplanner.lib.controllers.PPRamseteController;
 import com.pathplanner.lib.util.ReplanningConfig;
 import com.revrobotics.CANSparkBase.ControlType;
 import com.revrobotics.CANSparkBase.IdleMode;
+import com.revrobotics.SparkPIDController.ArbFFUnits;
 
 import java.util.function.Consumer;
 
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.controller.SimpleMotorFeedforward;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.math.kinematics.DifferentialDriveOdometry;
 import edu.wpi.first.math.kinematics.DifferentialDriveWheelSpeeds;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj.SerialPort;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.shuffleboard.BuiltInWidgets;
 import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
 import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardTab;
 import edu.wpi.first.wpilibj.shuffleboard.SimpleWidget;
+import edu.wpi.first.wpilibj.simulation.DifferentialDrivetrainSim;
 import edu.wpi.first.wpilibj.smartdashboard.Field2d;
+import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants.AutonomousConstants;
 import frc.robot.Constants.DriveConstants;
+import frc.robot.Constants.HealthConstants;
+import frc.robot.Constants.MotorConstants;
+import frc.robot.Constants.ShooterMapConstants;
+import frc.robot.Constants.TelemetryConstants;
+import frc.utils.DeviceChecks;
+import frc.utils.HealthMonitor;
+import frc.utils.PathTrackingStats;
+import frc.utils.PurePursuitController;
+import frc.utils.RateGroup;
+import frc.utils.SelectablePathController;
+import frc.utils.StructSchema;
+import frc.utils.TractionController;
 import frc.utils.Utils;
 
 public class DriveSubsystem extends SubsystemBase {
@@ -38,6 +64,7 @@ public class DriveSubsystem extends SubsystemBase {
   private final CANSparkMax leftBackMotor = new CANSparkMax(DriveConstants.kLeftBackMotorCANID, MotorType.kBrushless);
   private final CANSparkMax rightFrontMotor = new CANSparkMax(DriveConstants.kRightFrontMotorCANID, MotorType.kBrushless);
   private final CANSparkMax rightBackMotor = new CANSparkMax(DriveConstants.kRightBackMotorCANID, MotorType.kBrushless);
+  private final CANSparkMax[] m_motors = {leftFrontMotor, leftBackMotor, rightFrontMotor, rightBackMotor};
 
   // encoders
   private final RelativeEncoder leftFrontEncoder = leftFrontMotor.getEncoder();
@@ -58,11 +85,69 @@ public class DriveSubsystem extends SubsystemBase {
   // The gyro sensor
   private final AHRS gyro = new AHRS(SerialPort.Port.kUSB);
 
+  // Detects wheel slip and backs off the slipping side
+  private final TractionController m_traction = new TractionController(
+    DriveConstants.kTrackWidthMeters,
+    DriveConstants.kSlipThreshold,
+    DriveConstants.kSlipClearThreshold,
+    DriveConstants.kTractionReductionRate,
+    DriveConstants.kTractionRecoveryRate,
+    DriveConstants.kMinTractionScale,
+    DriveConstants.kVelocityEstimateGain
+  );
+
+  // Feedforward for each side, used when DriveConstants.kUseArbitraryFeedforward is on.
+  // The auto benchmark turns it on and off to compare the path tracking.
+  private final SimpleMotorFeedforward m_feedforward = new SimpleMotorFeedforward(DriveConstants.kS, DriveConstants.kV, DriveConstants.kA);
+  private boolean m_useArbitraryFeedforward = DriveConstants.kUseArbitraryFeedforward;
+
+  // The last velocity references, for working out the commanded acceleration
+  private double m_lastLeftReference = 0;
+  private double m_lastRightReference = 0;
+  private double m_lastLeftFeedforward = 0;
+  private double m_lastRightFeedforward = 0;
+  private double m_lastReferenceTime = Double.NEGATIVE_INFINITY;
+
+  // Per wheel state, indexed in the same order as Encoders
+  private final double[] m_wheelVelocities = new double[4];
+  private final double[] m_lastWheelPositions = new double[4];
+  private double m_lastUpdateTime = Timer.getFPGATimestamp();
+
+  // Distance traveled by each side, only counting wheels that have grip
+  private double m_leftDistance = 0;
+  private double m_rightDistance = 0;
+
+  // The heading used for odometry, in degrees. It follows the gyro, or the encoders while the gyro is down.
+  private double m_headingAngle = getGyroAngle();
+  private double m_gyroOffset = 0;
+  private boolean m_usingGyro = true;
+
+  // Only used in simulation. REVLib doesn't simulate the SparkMax velocity loop, so it is run here with the same gains,
+  // and the encoders and gyro read from these instead of the hardware.
+  private DifferentialDrivetrainSim m_drivetrainSim;
+  private final double[] m_simWheelPositions = new double[4];
+  private final double[] m_simWheelVelocities = new double[4];
+  private final double[] m_simMotorCurrents = new double[4];
+  private double m_simHeading = 0;
+  private double m_simYawRate = 0;
+  private double m_simForwardAcceleration = 0;
+  private boolean m_simOpenLoop = true;
+  private double m_simPercent = 0;
+  // The SparkMaxes' smart current limit, which the simulated motors are held to like the real ones
+  private static final DCMotor kSimMotor = DCMotor.getNEO(1);
+  private int m_simCurrentLimit = DriveConstants.kSmartCurrentLimit;
+  // What the simulated motors report, 0 being no reading yet like a real SparkMax
+  private double m_simMotorTemperature = 0;
+
+  // Set once the gyro is added to the health monitor
+  private HealthMonitor m_healthMonitor;
+  private int m_gyroCheck;
+
   // Odometry object: responsible for estimating the robot's position.
   private final DifferentialDriveOdometry odometry = new DifferentialDriveOdometry(
-    Rotation2d.fromDegrees(getGyroAngle()), 
-    getLeftPosition(), 
-    getRightPosition()
+    Rotation2d.fromDegrees(m_headingAngle), 
+    m_leftDistance, 
+    m_rightDistance
   );
 
   private final ShuffleboardTab driveTab = Shuffleboard.getTab("Drive");
@@ -71,12 +156,125 @@ public class DriveSubsystem extends SubsystemBase {
   private final SimpleWidget mirrorAuton = Shuffleboard.getTab("Auton").add("Left side?", false)
     .withWidget(BuiltInWidgets.kToggleSwitch);
 
+  // Picks which controller follows the auton paths
+  private final SendableChooser<String> m_pathControllerChooser = new SendableChooser<>();
+
+  // How well the last path was followed
+  private final PathTrackingStats m_pathStats = new PathTrackingStats(
+    AutonomousConstants.kPathTrackingTableName, AutonomousConstants.kMinLagSpeed);
+
+  private final SelectablePathController m_pathController = new SelectablePathController(
+    AutonomousConstants.kRamseteController,
+    new PPRamseteController(AutonomousConstants.kBValue, AutonomousConstants.kZetaValue),
+    m_pathControllerChooser::getSelected,
+    m_pathStats
+  );
+
   // Field widget for displaying odometry
   private final Field2d m_field = new Field2d();
 
-  /** Creates a new DriveSubsystem. */
+  // The pose and speeds for the drive state, copied out in periodic so logging them doesn't allocate
+  private double m_stateX = 0;
+  private double m_stateY = 0;
+  private double m_stateHeading = 0;
+  private double m_stateRotationalSpeed = 0;
+
+  // Pose and wheel states, sent as one update per loop
+  private final StructSchema m_driveState = new StructSchema("DriveState")
+    .addDouble("x", () -> m_stateX)
+    .addDouble("y", () -> m_stateY)
+    .addDouble("heading", () -> m_stateHeading)
+    .addDouble("leftSpeed", this::getLeftVelocity)
+    .addDouble("rightSpeed", this::getRightVelocity)
+    .addDouble("leftPos", this::getLeftPosition)
+    .addDouble("rightPos", this::getRightPosition)
+    .addDouble("rotationalSpeed", () -> m_stateRotationalSpeed)
+    .addDouble("leftTraction", () -> m_traction.getLeftScale())
+    .addDouble("rightTraction", () -> m_traction.getRightScale());
+
+  /** Creates a new DriveSubsystem. Call {@link #configureMotors()} before driving. */
   public DriveSubsystem() {
-    
+
+    if (RobotBase.isSimulation()) {
+      m_drivetrainSim = createDrivetrainSim();
+    }
+
+    /* Shuffleboard Configuration */
+
+    // Field widget for displaying odometry estimation
+    driveTab.add("Field", m_field);
+
+    m_driveState.publish(NetworkTableInstance.getDefault().getTable(TelemetryConstants.kTableName), "Drive State");
+
+    if (TelemetryConstants.kPublishDashboardDoubles) {
+      // Gyro widget
+      driveTab.addDouble("Robot Heading", () -> getHeading().getDegrees());
+
+      driveTab.addDouble("X pos", () -> getPose().getX());
+      driveTab.addDouble("Y pos", () -> getPose().getY());
+
+      // For testing purposes
+      // driveTab.addDouble("Encoder error", () -> leftFrontEncoder.getPosition() - leftBackEncoder.getPosition());
+      // driveTab.addDouble("Gyro error", () -> Units.degreesToRadians(gyro.getRate()) - getChassisSpeeds().omegaRadiansPerSecond);
+      driveTab.addDouble("Left Speed", () -> Math.round(getLeftVelocity() * 1000) / 1000.0);
+      driveTab.addDouble("Right Speed", () -> Math.round(getRightVelocity() * 1000) / 1000.0);
+      driveTab.addDouble("Left Pos", this::getLeftPosition);
+      driveTab.addDouble("Right Pos", this::getRightPosition);
+
+      driveTab.addDouble("Rotational Speed", () -> getChassisSpeeds().omegaRadiansPerSecond);
+
+      driveTab.addDouble("Left Velocity Error", this::getLeftVelocityError);
+      driveTab.addDouble("Right Velocity Error", this::getRightVelocityError);
+    }
+
+    driveTab.addBoolean("Using Gyro", this::isUsingGyro);
+
+    driveTab.add("Max Speed", DriveConstants.kMaxSpeedMetersPerSecond);
+    // driveTab.add("Max Rotation", DriveConstants.kMaxAngularSpeed);
+    driveTab.add("I AM SPEED", new InstantCommand(() -> setPercent(1), this).repeatedly());
+
+    /* Pathplanner Configuration */
+
+    m_pathController.addController(AutonomousConstants.kPurePursuitController,
+      new PurePursuitController(AutonomousConstants.kPurePursuitLookahead));
+
+    m_pathControllerChooser.setDefaultOption(AutonomousConstants.kRamseteController, AutonomousConstants.kRamseteController);
+    m_pathControllerChooser.addOption(AutonomousConstants.kLTVController, AutonomousConstants.kLTVController);
+    m_pathControllerChooser.addOption(AutonomousConstants.kPurePursuitController, AutonomousConstants.kPurePursuitController);
+    Shuffleboard.getTab("Auton").add("Path Controller", m_pathControllerChooser);
+
+    // Every path runs through the selectable controller, and its tracking error is published when it ends
+    AutoBuilder.configureCustom(
+      path -> new FollowPathCommand(
+        path,
+        this::getPose,
+        this::getChassisSpeeds,
+        this::drive,
+        m_pathController,
+        new ReplanningConfig(),
+        () -> mirrorAuton.getEntry().getBoolean(false),
+        this
+      ).beforeStarting(m_pathStats::start).finallyDo(m_pathStats::finish),
+      this::getPose,
+      this::resetOdometry,
+      () -> mirrorAuton.getEntry().getBoolean(false)
+    );
+  }
+
+  /**
+   * Builds the LTV path controller and makes it available to pick.
+   * Building it takes a while, so this runs on a background thread at boot. Until it is done, Ramsete is used instead.
+   */
+  public void buildLTVController() {
+    m_pathController.addController(AutonomousConstants.kLTVController,
+      new PPLTVController(AutonomousConstants.kLTVDt, AutonomousConstants.kLTVMaxVelocity));
+  }
+
+  /**
+   * Configures the drive motors and encoders over CAN.
+   * This is kept out of the constructor because it is slow, so it can run on a background thread at boot.
+   */
+  public void configureMotors() {
     applyAllMotors(motor -> {
       // Reset factory defaults
       motor.restoreFactoryDefaults();
@@ -84,6 +282,8 @@ public class DriveSubsystem extends SubsystemBase {
       motor.setSmartCurrentLimit(DriveConstants.kSmartCurrentLimit);
       // brake gota go slow 3:
       motor.setIdleMode(DriveConstants.kMotorIdleMode);
+      // Scale the output against the battery, so percent output and the feedforward volts mean the same thing as it sags
+      motor.enableVoltageCompensation(MotorConstants.kNominalVoltage);
     });
    
     // invert settings AAAAAAAAAAAAAAAAH
@@ -107,49 +307,66 @@ public class DriveSubsystem extends SubsystemBase {
       PIDController.setP(DriveConstants.kVelocityP);
       PIDController.setI(DriveConstants.kVelocityI);
       PIDController.setD(DriveConstants.kVelocityD);
-      PIDController.setFF(DriveConstants.kVelocityFF);
+      // The feedforward is sent with each reference instead when using arbitrary feedforward
+      PIDController.setFF(m_useArbitraryFeedforward ? 0 : DriveConstants.kVelocityFF);
     }
 
     applyAllMotors(motor -> motor.burnFlash());
 
+    // Clear the faults from before this boot (like the reset itself), so the health monitor only reports new ones
+    applyAllMotors(motor -> motor.clearFaults());
 
-    /* Shuffleboard Configuration */
+    for (int i = 0; i < Encoders.length; i++) {
+      m_lastWheelPositions[i] = (DriveConstants.kInvertEncoders ? -1 : 1) * getWheelPosition(i);
+    }
+  }
 
-    // Gyro widget
-    driveTab.addDouble("Robot Heading", () -> getHeading().getDegrees());
-    
-    // Field widget for displaying odometry estimation
-    driveTab.add("Field", m_field);
-    
-    driveTab.addDouble("X pos", () -> getPose().getX());
-    driveTab.addDouble("Y pos", () -> getPose().getY());
-
-    // For testing purposes
-    // driveTab.addDouble("Encoder error", () -> leftFrontEncoder.getPosition() - leftBackEncoder.getPosition());
-    // driveTab.addDouble("Gyro error", () -> Units.degreesToRadians(gyro.getRate()) - getChassisSpeeds().omegaRadiansPerSecond);
-    driveTab.addDouble("Left Speed", () -> Math.round(getLeftVelocity() * 1000) / 1000.0);
-    driveTab.addDouble("Right Speed", () -> Math.round(getRightVelocity() * 1000) / 1000.0);
-    driveTab.addDouble("Left Pos", this::getLeftPosition);
-    driveTab.addDouble("Right Pos", this::getRightPosition);
-
-    driveTab.addDouble("Rotational Speed", () -> getChassisSpeeds().omegaRadiansPerSecond);
-    driveTab.add("Max Speed", DriveConstants.kMaxSpeedMetersPerSecond);
-    // driveTab.add("Max Rotation", DriveConstants.kMaxAngularSpeed);
-    driveTab.add("I AM SPEED", new InstantCommand(() -> setPercent(1), this).repeatedly());
+  /**
+   * Adds the drive motors and the gyro to the health monitor.
+   * If the gyro faults, the heading is worked out from the encoders until it comes back.
+   * @param monitor The health monitor.
+   */
+  public void addHealthChecks(HealthMonitor monitor) {
+    String[] names = {"Drive Left Front", "Drive Left Back", "Drive Right Front", "Drive Right Back"};
+    CANSparkMax[] motors = {leftFrontMotor, leftBackMotor, rightFrontMotor, rightBackMotor};
+    for (int i = 0; i < motors.length; i++) {
+      monitor.addCheck(names[i], DeviceChecks.sparkMax(motors[i], HealthConstants.kMotorWarningTemperature,
+        HealthConstants.kMotorFaultTemperature, HealthConstants.kStaleEncoderOutput, HealthConstants.kStaleEncoderCurrent,
+        HealthConstants.kStaleEncoderChecks));
+    }
 
-    /* Pathplanner Configuration */
+    m_gyroCheck = monitor.addCheck("Gyro", DeviceChecks.navX(gyro));
+    m_healthMonitor = monitor;
+  }
 
-    AutoBuilder.configureRamsete(
-      this::getPose, 
-      this::resetOdometry, 
-      this::getChassisSpeeds, 
-      this::drive, 
-      AutonomousConstants.kBValue,
-      AutonomousConstants.kZetaValue,
-      new ReplanningConfig(), 
-      () -> mirrorAuton.getEntry().getBoolean(false), 
-      this
-    );
+  /**
+   * Adds the drive's periodic tasks to the rate groups. Odometry stays in {@link #periodic()} with the scheduler,
+   * since the encoders only update every 20 ms anyway. The field widget is only for people, so it goes in the slow group.
+   * @param fast The fast rate group.
+   * @param slow The slow rate group.
+   */
+  public void addRateGroupTasks(RateGroup fast, RateGroup slow) {
+    slow.addTask(() -> {
+      m_field.setRobotPose(getPose());
+      if (m_drivetrainSim != null) {
+        m_field.getObject("Simulated").setPose(m_drivetrainSim.getPose());
+      }
+    });
+  }
+
+  /**
+   * Returns whether the heading is coming from the gyro, as opposed to the encoders.
+   */
+  public boolean isUsingGyro() {
+    return m_usingGyro;
+  }
+
+  /**
+   * Sets whether autons are mirrored to the left side, the same as the toggle on the Auton tab.
+   * @param mirrored Whether to mirror.
+   */
+  public void setMirrorAuton(boolean mirrored) {
+    mirrorAuton.getEntry().setBoolean(mirrored);
   }
 
   /**
@@ -170,10 +387,7 @@ public class DriveSubsystem extends SubsystemBase {
     }
 
     // write speeds to motors
-    leftFrontPID.setReference(DriveConstants.kMaxSpeedMetersPerSecond * leftSpeed, ControlType.kVelocity);
-    leftBackPID.setReference(DriveConstants.kMaxSpeedMetersPerSecond * leftSpeed, ControlType.kVelocity);
-    rightFrontPID.setReference(DriveConstants.kMaxSpeedMetersPerSecond * rightSpeed, ControlType.kVelocity);
-    rightBackPID.setReference(DriveConstants.kMaxSpeedMetersPerSecond * rightSpeed, ControlType.kVelocity);
+    setWheelReferences(DriveConstants.kMaxSpeedMetersPerSecond * leftSpeed, DriveConstants.kMaxSpeedMetersPerSecond * rightSpeed);
   }
 
   /**
@@ -190,10 +404,117 @@ public class DriveSubsystem extends SubsystemBase {
     DifferentialDriveWheelSpeeds wheelSpeeds = DriveConstants.kDriveKinematics.toWheelSpeeds(speeds);
 
     // write speeds to motors
-    leftFrontPID.setReference(wheelSpeeds.leftMetersPerSecond, ControlType.kVelocity);
-    leftBackPID.setReference(wheelSpeeds.leftMetersPerSecond, ControlType.kVelocity);
-    rightFrontPID.setReference(wheelSpeeds.rightMetersPerSecond, ControlType.kVelocity);
-    rightBackPID.setReference(wheelSpeeds.rightMetersPerSecond, ControlType.kVelocity);
+    setWheelReferences(wheelSpeeds.leftMetersPerSecond, wheelSpeeds.rightMetersPerSecond);
+  }
+
+  /**
+   * Drives each side of the robot at a given wheel speed.
+   * The speeds are in the same direction as {@link #drive(double, double)}, just in meters per second instead of percent.
+   * @param leftSpeed The left wheel speed in meters per second.
+   * @param rightSpeed The right wheel speed in meters per second.
+   */
+  public void driveWheelSpeeds(double leftSpeed, double rightSpeed) {
+    setWheelReferences(leftSpeed, rightSpeed);
+  }
+
+  /**
+   * Sends velocity references to the drive motors, backing off any side that is slipping.
+   * @param leftSpeed The left wheel speed in meters per second, in the motors' direction.
+   * @param rightSpeed The right wheel speed in meters per second, in the motors' direction.
+   */
+  private void setWheelReferences(double leftSpeed, double rightSpeed) {
+    if (DriveConstants.kUseTractionControl) {
+      // The traction controller works with forwards positive, which may be opposite to the motors
+      double sign = DriveConstants.kInvertEncoders ? -1 : 1;
+      leftSpeed = sign * m_traction.limitLeft(sign * leftSpeed);
+      rightSpeed = sign * m_traction.limitRight(sign * rightSpeed);
+    }
+
+    // The acceleration the caller is asking for is how much the reference changed since the last loop
+    double now = Timer.getFPGATimestamp();
+    double dt = now - m_lastReferenceTime;
+    double leftAcceleration = 0;
+    double rightAcceleration = 0;
+    if (dt > 0 && dt < DriveConstants.kMaxFeedforwardDt) {
+      // A jump in the reference isn't an acceleration the robot can actually do
+      double limit = DriveConstants.kMaxFeedforwardAcceleration;
+      leftAcceleration = MathUtil.clamp((leftSpeed - m_lastLeftReference) / dt, -limit, limit);
+      rightAcceleration = MathUtil.clamp((rightSpeed - m_lastRightReference) / dt, -limit, limit);
+    }
+    m_lastLeftReference = leftSpeed;
+    m_lastRightReference = rightSpeed;
+    m_lastReferenceTime = now;
+    m_simOpenLoop = false;
+
+    if (!m_useArbitraryFeedforward) {
+      leftFrontPID.setReference(leftSpeed, ControlType.kVelocity);
+      leftBackPID.setReference(leftSpeed, ControlType.kVelocity);
+      rightFrontPID.setReference(rightSpeed, ControlType.kVelocity);
+      rightBackPID.setReference(rightSpeed, ControlType.kVelocity);
+      return;
+    }
+
+    double leftVoltage = m_feedforward.calculate(leftSpeed, leftAcceleration);
+    double rightVoltage = m_feedforward.calculate(rightSpeed, rightAcceleration);
+    m_lastLeftFeedforward = leftVoltage;
+    m_lastRightFeedforward = rightVoltage;
+
+    leftFrontPID.setReference(leftSpeed, ControlType.kVelocity, 0, leftVoltage, ArbFFUnits.kVoltage);
+    leftBackPID.setReference(leftSpeed, ControlType.kVelocity, 0, leftVoltage, ArbFFUnits.kVoltage);
+    rightFrontPID.setReference(rightSpeed, ControlType.kVelocity, 0, rightVoltage, ArbFFUnits.kVoltage);
+    rightBackPID.setReference(rightSpeed, ControlType.kVelocity, 0, rightVoltage, ArbFFUnits.kVoltage);
+  }
+
+  /**
+   * Returns how far the left wheels are from their last velocity reference.
+   * @return The error in meters per second, forwards positive.
+   */
+  public double getLeftVelocityError() {
+    return (DriveConstants.kInvertEncoders ? -1 : 1) * m_lastLeftReference - getLeftVelocity();
+  }
+
+  /**
+   * Returns how far the right wheels are from their last velocity reference.
+   * @return The error in meters per second, forwards positive.
+   */
+  public double getRightVelocityError() {
+    return (DriveConstants.kInvertEncoders ? -1 : 1) * m_lastRightReference - getRightVelocity();
+  }
+
+  /**
+   * Sets the current limit of every drive motor.
+   * This is called by the power subsystem as the battery voltage changes, so it doesn't wait for the motors to confirm.
+   * @param amps The limit for each motor in amps.
+   */
+  public void setCurrentLimit(int amps) {
+    m_simCurrentLimit = amps;
+    applyAllMotors(motor -> Utils.setSmartCurrentLimitNoWait(motor, amps, MotorConstants.kSparkMaxCanTimeoutMs));
+  }
+
+  /**
+   * Returns the current of one drive motor, for the thermal model.
+   * @param index Which motor: left front, left back, right front, right back.
+   * @return The current in amps.
+   */
+  public double getMotorCurrent(int index) {
+    return RobotBase.isSimulation() ? m_simMotorCurrents[index] : m_motors[index].getOutputCurrent();
+  }
+
+  /**
+   * Returns the temperature one drive motor reports, for the thermal model.
+   * @param index Which motor: left front, left back, right front, right back.
+   * @return The temperature in degrees Celsius.
+   */
+  public double getMotorTemperature(int index) {
+    return RobotBase.isSimulation() ? m_simMotorTemperature : m_motors[index].getMotorTemperature();
+  }
+
+  /**
+   * Sets the temperature every simulated drive motor reports, to check that hot motors get derated.
+   * @param celsius The temperature in degrees Celsius.
+   */
+  public void setSimulatedMotorTemperature(double celsius) {
+    m_simMotorTemperature = celsius;
   }
 
   /**
@@ -201,6 +522,12 @@ public class DriveSubsystem extends SubsystemBase {
    */
   public void stopDrive() {
     applyAllMotors((motor) -> motor.set(0));
+    m_simOpenLoop = true;
+    m_simPercent = 0;
+
+    // The next reference starts from a standstill
+    m_lastLeftReference = 0;
+    m_lastRightReference = 0;
   }
 
   /** Sets all of the drive motors to brake mode. */
@@ -220,6 +547,8 @@ public class DriveSubsystem extends SubsystemBase {
    */
   public void setPercent(double speed) {
     applyAllMotors((motor) -> motor.set(speed));
+    m_simOpenLoop = true;
+    m_simPercent = speed;
   }
 
   /**
@@ -227,10 +556,8 @@ public class DriveSubsystem extends SubsystemBase {
    * @param function This function is called for every motor. It passes one CANSparkMax object into the function.
    */
   private void applyAllMotors(Consumer<CANSparkMax> function) {
-    CANSparkMax[] motors = {leftFrontMotor, leftBackMotor, rightFrontMotor, rightBackMotor};
-
-    for (int i = 0; i < motors.length; i++) {
-      function.accept(motors[i]);
+    for (int i = 0; i < m_motors.length; i++) {
+      function.accept(m_motors[i]);
     }
   }
 
@@ -240,7 +567,7 @@ public class DriveSubsystem extends SubsystemBase {
    * @return How far the left side has traveled in meters.
    */
   public double getLeftPosition() {
-    return (DriveConstants.kInvertEncoders ? -1 : 1) * (leftFrontEncoder.getPosition() + leftBackEncoder.getPosition()) / 2.0;
+    return (DriveConstants.kInvertEncoders ? -1 : 1) * (getWheelPosition(0) + getWheelPosition(1)) / 2.0;
   }
 
   /**
@@ -248,7 +575,7 @@ public class DriveSubsystem extends SubsystemBase {
    * @return The wheel speed in meters per second.
    */
   public double getLeftVelocity(){
-    return (DriveConstants.kInvertEncoders ? -1 : 1) * (leftFrontEncoder.getVelocity() + leftBackEncoder.getVelocity()) / 2;
+    return (DriveConstants.kInvertEncoders ? -1 : 1) * (getWheelVelocity(0) + getWheelVelocity(1)) / 2;
   }
 
   /**
@@ -257,7 +584,7 @@ public class DriveSubsystem extends SubsystemBase {
    * @return How far the right side has traveled in meters.
    */
   public double getRightPosition() {
-    return (DriveConstants.kInvertEncoders ? -1 : 1) * (rightFrontEncoder.getPosition() + rightBackEncoder.getPosition()) / 2.0;
+    return (DriveConstants.kInvertEncoders ? -1 : 1) * (getWheelPosition(2) + getWheelPosition(3)) / 2.0;
   }
 
   /**
@@ -265,7 +592,25 @@ public class DriveSubsystem extends SubsystemBase {
    * @return The wheel speed in meters per second.
    */
   public double getRightVelocity() {
-    return (DriveConstants.kInvertEncoders ? -1 : 1) * (rightFrontEncoder.getVelocity() + rightBackEncoder.getVelocity()) / 2;
+    return (DriveConstants.kInvertEncoders ? -1 : 1) * (getWheelVelocity(2) + getWheelVelocity(3)) / 2;
+  }
+
+  /**
+   * Returns the position of one wheel's encoder, in the motor's direction.
+   * @param index Which wheel, in the same order as Encoders.
+   * @return The position in meters.
+   */
+  private double getWheelPosition(int index) {
+    return RobotBase.isSimulation() ? m_simWheelPositions[index] : Encoders[index].getPosition();
+  }
+
+  /**
+   * Returns the velocity of one wheel's encoder, in the motor's direction.
+   * @param index Which wheel, in the same order as Encoders.
+   * @return The velocity in meters per second.
+   */
+  private double getWheelVelocity(int index) {
+    return RobotBase.isSimulation() ? m_simWheelVelocities[index] : Encoders[index].getVelocity();
   }
 
   /**
@@ -274,6 +619,9 @@ public class DriveSubsystem extends SubsystemBase {
    * @return The angle of the gyro in degrees.
    */
   private double getGyroAngle() {
+    if (RobotBase.isSimulation()) {
+      return m_simHeading;
+    }
     return gyro.getAngle() * (DriveConstants.kInvertGyro ? -1.0 : 1.0);
   } 
 
@@ -282,9 +630,28 @@ public class DriveSubsystem extends SubsystemBase {
    * @return The robot's angular velocity in degrees per second.
    */
   private double getGyroRate() {
+    if (RobotBase.isSimulation()) {
+      return m_simYawRate;
+    }
     return gyro.getRate() * (DriveConstants.kInvertGyro ? -1.0 : 1.0);
   }
 
+  /**
+   * Returns the forward acceleration of the robot measured by the gyro's accelerometer.
+   * @return The acceleration in meters per second squared.
+   */
+  private double getForwardAcceleration() {
+    if (RobotBase.isSimulation()) {
+      return m_simForwardAcceleration;
+    }
+
+    // The navX reports world frame acceleration (in g, without gravity), so rotate it back into the robot frame
+    double yaw = Math.toRadians(gyro.getYaw());
+    double forward = gyro.getWorldLinearAccelX() * Math.cos(yaw) + gyro.getWorldLinearAccelY() * Math.sin(yaw);
+
+    return forward * DriveConstants.kAccelerometerSign * 9.81;
+  }
+
   /**
    * Returns the heading of the robot.
    *
@@ -305,6 +672,20 @@ public class DriveSubsystem extends SubsystemBase {
     return odometry.getPoseMeters();
   }
   
+  /**
+   * Returns the distance from the robot to the closest goal.
+   * @return The distance in meters.
+   */
+  public double getDistanceToGoal() {
+    Translation2d position = getPose().getTranslation();
+
+    double closest = Double.POSITIVE_INFINITY;
+    for (Translation2d goal : ShooterMapConstants.kGoalPositions) {
+      closest = Math.min(closest, position.getDistance(goal));
+    }
+    return closest;
+  }
+
   /**
    * Returns the translational and angular speed of the robot.
    * @return The chassis speeds.
@@ -328,27 +709,249 @@ public class DriveSubsystem extends SubsystemBase {
    * @param pose The pose to which to set the odometry.
    */
   public void resetOdometry(Pose2d pose) {
+    m_traction.reset();
+
+    // Autos reset the pose at the start, so put the simulated robot there too
+    if (m_drivetrainSim != null) {
+      m_drivetrainSim.setPose(pose);
+    }
+
     odometry.resetPosition(
-      Rotation2d.fromDegrees(getGyroAngle()), 
-      getLeftPosition(), 
-      getRightPosition(), 
+      Rotation2d.fromDegrees(m_headingAngle), 
+      m_leftDistance, 
+      m_rightDistance, 
       pose
     );
   }
   
+  /**
+   * Updates the slip estimate and adds how far each side moved to the odometry distances.
+   * Slipping wheels are left out. If both wheels on a side are slipping, the estimated
+   * ground speed of that side is used instead.
+   * @param dt The time since the last update in seconds.
+   */
+  private void updateTraction(double dt) {
+    double sign = DriveConstants.kInvertEncoders ? -1 : 1;
+
+    double leftDelta = 0;
+    double rightDelta = 0;
+    int leftCount = 0;
+    int rightCount = 0;
+
+    for (int i = 0; i < Encoders.length; i++) {
+      m_wheelVelocities[i] = sign * getWheelVelocity(i);
+      double position = sign * getWheelPosition(i);
+      double delta = position - m_lastWheelPositions[i];
+      m_lastWheelPositions[i] = position;
+
+      if (DriveConstants.kUseTractionControl && m_traction.isSlipping(i)) {
+        continue;
+      }
+
+      if (i == TractionController.kLeftFront || i == TractionController.kLeftBack) {
+        leftDelta += delta;
+        leftCount++;
+      } else {
+        rightDelta += delta;
+        rightCount++;
+      }
+    }
+
+    m_leftDistance += leftCount > 0 ? leftDelta / leftCount : m_traction.getExpectedLeftVelocity() * dt;
+    m_rightDistance += rightCount > 0 ? rightDelta / rightCount : m_traction.getExpectedRightVelocity() * dt;
+
+    if (m_usingGyro) {
+      m_traction.update(m_wheelVelocities, Math.toRadians(getGyroRate()), getForwardAcceleration(), dt);
+    } else {
+      // Without the navX there is no yaw rate or accelerometer, so fall back on the wheels.
+      // Slip can't be seen this way, but it won't be falsely detected either.
+      double yawRate = (getRightVelocity() - getLeftVelocity()) / DriveConstants.kTrackWidthMeters;
+      m_traction.update(m_wheelVelocities, yawRate, 0, dt);
+    }
+  }
+
+  /**
+   * Updates the heading used for odometry. While the gyro is connected and the health monitor says it is fine,
+   * this follows the gyro. Otherwise the heading is worked out from how far each side moved. The connection is
+   * checked here every loop, since the health monitor only runs a couple of times a second and a disconnected
+   * navX keeps reporting its last angle. When the gyro comes back,
+   * it is offset to continue from the encoder heading so the pose doesn't jump.
+   * @param leftDelta How far the left side moved since the last update in meters.
+   * @param rightDelta How far the right side moved since the last update in meters.
+   */
+  private void updateHeading(double leftDelta, double rightDelta) {
+    boolean gyroOk = (RobotBase.isSimulation() || gyro.isConnected())
+      && (m_healthMonitor == null || m_healthMonitor.isOk(m_gyroCheck));
+
+    if (gyroOk) {
+      if (!m_usingGyro) {
+        m_gyroOffset = m_headingAngle - getGyroAngle();
+      }
+      m_headingAngle = getGyroAngle() + m_gyroOffset;
+    } else {
+      m_headingAngle += Math.toDegrees((rightDelta - leftDelta) / DriveConstants.kTrackWidthMeters);
+    }
+
+    m_usingGyro = gyroOk;
+  }
+
   /**
    * This method runs automatically every scheduler run. It shouldn't be run manually.
    */
   @Override
   public void periodic() {
+    double now = Timer.getFPGATimestamp();
+    double dt = now - m_lastUpdateTime;
+    m_lastUpdateTime = now;
+
+    double lastLeftDistance = m_leftDistance;
+    double lastRightDistance = m_rightDistance;
+    updateTraction(dt);
+    updateHeading(m_leftDistance - lastLeftDistance, m_rightDistance - lastRightDistance);
+
     // Update pose estimation with odometry data
     odometry.update(
-      Rotation2d.fromDegrees(getGyroAngle()), 
-      getLeftPosition(), 
-      getRightPosition()
+      Rotation2d.fromDegrees(m_headingAngle), 
+      m_leftDistance, 
+      m_rightDistance
     );
 
-    // Update field widget
-    m_field.setRobotPose(getPose());
+    // The same numbers as getPose, getHeading and getChassisSpeeds, without making new objects for them
+    Pose2d pose = odometry.getPoseMeters();
+    m_stateX = pose.getX();
+    m_stateY = pose.getY();
+    m_stateHeading = MathUtil.inputModulus(pose.getRotation().getDegrees(), -180, 180);
+    m_stateRotationalSpeed = (getRightVelocity() - getLeftVelocity()) / DriveConstants.kTrackWidthMeters;
+    m_driveState.update();
+  }
+
+  /**
+   * Switches between the arbitrary feedforward and the SparkMax's own FF gain, overriding
+   * {@link DriveConstants#kUseArbitraryFeedforward}. This is for the auto benchmark, to compare the two.
+   * @param enabled Whether to send the kS/kV/kA feedforward with each reference.
+   */
+  public void setArbitraryFeedforward(boolean enabled) {
+    m_useArbitraryFeedforward = enabled;
+    for (SparkPIDController PIDController : PIDControllers) {
+      PIDController.setFF(enabled ? 0 : DriveConstants.kVelocityFF);
+    }
+  }
+
+  /** Returns how well the last auton path was followed. */
+  public PathTrackingStats getPathStats() {
+    return m_pathStats;
+  }
+
+  /**
+   * Returns where the simulated robot really is, as opposed to where the odometry thinks it is.
+   * Outside of simulation this is just the odometry pose.
+   */
+  public Pose2d getSimulatedPose() {
+    return m_drivetrainSim != null ? m_drivetrainSim.getPose() : getPose();
+  }
+
+  /** Stops the simulated robot where it is, for example between runs of the auto benchmark. */
+  public void resetSimulation() {
+    if (m_drivetrainSim == null) {
+      return;
+    }
+
+    Pose2d pose = m_drivetrainSim.getPose();
+    m_drivetrainSim = createDrivetrainSim();
+    m_drivetrainSim.setPose(pose);
+
+    for (int i = 0; i < m_simWheelVelocities.length; i++) {
+      m_simWheelVelocities[i] = 0;
+      m_simMotorCurrents[i] = 0;
+    }
+    m_simYawRate = 0;
+    m_simForwardAcceleration = 0;
+  }
+
+  private static DifferentialDrivetrainSim createDrivetrainSim() {
+    return new DifferentialDrivetrainSim(
+      DCMotor.getNEO(2),
+      DriveConstants.kGearRatio,
+      DriveConstants.kSimMomentOfInertia,
+      DriveConstants.kSimMass,
+      DriveConstants.kWheelDiameter / 2,
+      DriveConstants.kTrackWidthMeters,
+      null
+    );
+  }
+
+  /**
+   * Works out the voltage a SparkMax applies, running the same velocity loop it would on the robot.
+   * @param reference The velocity reference in meters per second, in the motor's direction.
+   * @param feedforward The arbitrary feedforward in volts.
+   * @param velocity The wheel velocity in meters per second, in the motor's direction.
+   * @return The voltage, in the motor's direction.
+   */
+  private double getSimMotorVoltage(double reference, double feedforward, double velocity) {
+    double output;
+    if (m_simOpenLoop) {
+      output = m_simPercent;
+    } else {
+      output = DriveConstants.kVelocityP * (reference - velocity)
+        + (m_useArbitraryFeedforward ? feedforward / MotorConstants.kNominalVoltage : DriveConstants.kVelocityFF * reference);
+    }
+
+    // Voltage compensation holds the output steady until the battery can't supply it
+    double battery = RobotController.getBatteryVoltage();
+    return MathUtil.clamp(output * MotorConstants.kNominalVoltage, -battery, battery);
+  }
+
+  /** Throws away the traction controller's speed estimate. Call this when the robot is disabled, since it may be moved by hand. */
+  public void resetTraction() {
+    m_traction.reset();
+  }
+
+  /**
+   * Lowers a simulated motor voltage so the motor stays within the smart current limit, like the SparkMax does.
+   * @param voltage The voltage, in the motor's direction.
+   * @param velocity The wheel velocity in meters per second, in the motor's direction.
+   * @return The voltage that keeps the current at or under the limit.
+   */
+  private double limitSimMotorVoltage(double voltage, double velocity) {
+    double motorSpeed = velocity / (DriveConstants.kWheelDiameter / 2) * DriveConstants.kGearRatio;
+    double current = kSimMotor.getCurrent(motorSpeed, voltage);
+    if (Math.abs(current) <= m_simCurrentLimit) {
+      return voltage;
+    }
+    return kSimMotor.getVoltage(kSimMotor.getTorque(Math.copySign(m_simCurrentLimit, current)), motorSpeed);
+  }
+
+  @Override
+  public void simulationPeriodic() {
+    double dt = 0.02;
+
+    // The drivetrain sim is forwards positive, which may be opposite to the motors
+    double sign = DriveConstants.kInvertEncoders ? -1 : 1;
+    double leftVoltage = getSimMotorVoltage(m_lastLeftReference, m_lastLeftFeedforward, m_simWheelVelocities[0]);
+    double rightVoltage = getSimMotorVoltage(m_lastRightReference, m_lastRightFeedforward, m_simWheelVelocities[2]);
+    // So the simulated battery sees the current the power budget allowed
+    leftVoltage = limitSimMotorVoltage(leftVoltage, m_simWheelVelocities[0]);
+    rightVoltage = limitSimMotorVoltage(rightVoltage, m_simWheelVelocities[2]);
+
+    double lastSpeed = (m_drivetrainSim.getLeftVelocityMetersPerSecond() + m_drivetrainSim.getRightVelocityMetersPerSecond()) / 2;
+
+    m_drivetrainSim.setInputs(sign * leftVoltage, sign * rightVoltage);
+    m_drivetrainSim.update(dt);
+
+    double leftVelocity = m_drivetrainSim.getLeftVelocityMetersPerSecond();
+    double rightVelocity = m_drivetrainSim.getRightVelocityMetersPerSecond();
+
+    // The wheels don't slip in simulation, so every wheel on a side reads the same.
+    // Positions and the heading are integrated here rather than read from the sim, so resetting its pose doesn't move them.
+    for (int i = 0; i < 4; i++) {
+      boolean left = i == TractionController.kLeftFront || i == TractionController.kLeftBack;
+      m_simWheelVelocities[i] = sign * (left ? leftVelocity : rightVelocity);
+      m_simWheelPositions[i] += m_simWheelVelocities[i] * dt;
+      m_simMotorCurrents[i] = Math.abs(left ? m_drivetrainSim.getLeftCurrentDrawAmps() : m_drivetrainSim.getRightCurrentDrawAmps()) / 2;
+    }
+
+    m_simYawRate = Math.toDegrees((rightVelocity - leftVelocity) / DriveConstants.kTrackWidthMeters);
+    m_simHeading += m_simYawRate * dt;
+    m_simForwardAcceleration = ((leftVelocity + rightVelocity) / 2 - lastSpeed) / dt;
   }
 }
@@ -4,27 +4,131 @@
 
 package frc.robot.subsystems;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.function.BooleanSupplier;
+
+import edu.wpi.first.networktables.GenericEntry;
+import edu.wpi.first.wpilibj.AsynchronousInterrupt;
 import edu.wpi.first.wpilibj.DigitalInput;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.shuffleboard.BuiltInWidgets;
 import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
+import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardTab;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 
-import com.ctre.phoenix.motorcontrol.ControlMode;
+import com.ctre.phoenix.motorcontrol.SupplyCurrentLimitConfiguration;
 import com.ctre.phoenix.motorcontrol.can.BaseTalon;
 
+import frc.robot.Constants.HealthConstants;
 import frc.robot.Constants.IndexConstants;
+import frc.robot.Constants.MotorConstants;
+import frc.utils.DeviceChecks;
+import frc.utils.HealthMonitor;
+import frc.utils.JamDetector;
+import frc.utils.VoltageOutput;
 
 public class IndexSubsystem extends SubsystemBase {
-  private final BaseTalon indexMotor = new BaseTalon(IndexConstants.kIndexMotorChannel, "SRX");  
+  private final BaseTalon indexMotor = new BaseTalon(IndexConstants.kIndexMotorChannel, "SRX");
+  private final VoltageOutput m_output = VoltageOutput.talon(indexMotor, MotorConstants.kNominalVoltage);
   private final DigitalInput ballSensor = new DigitalInput(IndexConstants.kBallSensorPort);
-  
+
+  // Detects a ball stuck in the index from the motor current
+  private final JamDetector m_jamDetector = new JamDetector(
+    IndexConstants.kJamCurrentPerOutput,
+    IndexConstants.kJamMinOutput,
+    IndexConstants.kJamTime,
+    IndexConstants.kJamFilterTimeConstant,
+    0.02
+  );
+
+  // Reacts to the ball sensor right away instead of waiting for the next loop
+  private final AsynchronousInterrupt m_ballInterrupt = new AsynchronousInterrupt(ballSensor, this::onBallSensorEdge);
+  private final ArrayBlockingQueue<BallEvent> m_ballEvents = new ArrayBlockingQueue<>(IndexConstants.kBallEventQueueSize);
+
+  // When armed, the interrupt switches the index to the hold speed as soon as a ball arrives
+  private volatile boolean m_stopOnEntryArmed = false;
+  private volatile double m_holdVoltage = 0;
+
+  // Re-reads the sensor once the debounce time is up, if an edge came too soon after the last one
+  private final Notifier m_debounceNotifier = new Notifier(this::onDebounceTimer);
+
+  // Runs once on the interrupt thread and once on the debounce thread, see setSensorThreadSetup. Null until it is set.
+  private volatile Runnable m_sensorThreadSetup = null;
+  // Each only touched by its own thread
+  private boolean m_interruptThreadSetUp = false;
+  private boolean m_debounceThreadSetUp = false;
+
+  // Guarded by this, since the interrupt thread, the debounce notifier and the simulation all update them.
+  // The dashboard reads the volatile ones.
+  private boolean m_ballPresent;
+  private double m_lastEdgeTime = Double.NEGATIVE_INFINITY;
+  // The time of the latest edge that came too soon, which is when the sensor really changed if it stays changed
+  private double m_pendingEdgeTime = Double.NaN;
+  private volatile double m_lastEntryTime = 0;
+  private volatile double m_lastExitTime = 0;
+  private volatile double m_stopLatency = 0;
+  // Balls that left the sensor while the index was running forwards, into the shooter
+  private volatile int m_launchCount = 0;
+
+  /** A ball reaching or leaving the sensor. */
+  public static final class BallEvent {
+    public enum Type {
+      ENTRY, EXIT
+    }
+
+    public final Type type;
+    /** The FPGA time of the sensor edge in seconds. */
+    public final double timestamp;
+
+    public BallEvent(Type type, double timestamp) {
+      this.type = type;
+      this.timestamp = timestamp;
+    }
+  }
+
+  // Only used in simulation, to act out a jam from the dashboard
+  private GenericEntry m_simulateJam;
+  private double m_simCurrent = 0;
+  private double m_simSpeed = 0;
+  // A simulated ball at the sensor, and how far it has moved past it. Balls come from the intake.
+  private boolean m_simBallPresent = false;
+  private double m_simBallTravel = 0;
+  private BooleanSupplier m_simBallSource = () -> false;
+
   /**
    * Creates a new index subsystem.
-   * It controls the mechanism that holds the ball in the robot before it gets shot.   
+   * It controls the mechanism that holds the ball in the robot before it gets shot.
    **/
   public IndexSubsystem() {
     indexMotor.setInverted(IndexConstants.kIndexInverted);
+    setCurrentLimit(IndexConstants.kCurrentLimit);
+
+    ShuffleboardTab indexTab = Shuffleboard.getTab("Index");
+    indexTab.addBoolean("Is Ball Detected", this::isBallDetected);
+    indexTab.addDouble("Last Ball Entry", () -> m_lastEntryTime);
+    indexTab.addDouble("Last Ball Exit", () -> m_lastExitTime);
+    indexTab.addDouble("Stop Latency ms", () -> m_stopLatency * 1000);
+    indexTab.addInteger("Balls Launched", this::getLaunchCount);
+    indexTab.addBoolean("Jammed", this::isJammed);
+    indexTab.addInteger("Jams", m_jamDetector::getJamCount);
+    indexTab.addDouble("Stator Current", this::getStatorCurrent);
+    indexTab.addDouble("Supply Current", indexMotor::getSupplyCurrent);
 
-    Shuffleboard.getTab("Index").addBoolean("Is Ball Detected", this::isBallDetected);
+    // Start from what the sensor reads now, so the first edge isn't mistaken for no change when a ball is preloaded
+    m_ballPresent = isBallDetected();
+    m_debounceNotifier.setName("Ball Sensor Debounce");
+
+    // The sensor reads low when a ball is there, so a falling edge is a ball arriving and a rising edge is it leaving
+    m_ballInterrupt.setInterruptEdges(true, true);
+    m_ballInterrupt.enable();
+
+    if (RobotBase.isSimulation()) {
+      m_simulateJam = indexTab.add("Simulate Jam", false).withWidget(BuiltInWidgets.kToggleButton).getEntry();
+      indexTab.addDouble("Sim Roller Speed", () -> m_simSpeed);
+    }
   }
 
   /**
@@ -36,23 +140,299 @@ public class IndexSubsystem extends SubsystemBase {
 
   /**
    * Starts the index.
-   * @param speed How fast the index motor should spin. Goes from -1 to 1, with -1 being full reverse and 1 being full forwards.
+   * @param speed How fast the index motor should spin, as a fraction of the nominal voltage. Goes from -1 to 1, with -1 being full reverse and 1 being full forwards.
    */
   public void setIndexSpeed(double speed) {
-    indexMotor.set(ControlMode.PercentOutput, speed);
+    setIndexVoltage(speed * MotorConstants.kNominalVoltage);
+  }
+
+  /**
+   * Starts the index at a voltage, which stays the same as the battery sags, so balls are staged the same way.
+   * This is also called from the sensor interrupt thread, so it is synchronized.
+   * @param volts The voltage, positive is forwards.
+   */
+  public synchronized void setIndexVoltage(double volts) {
+    m_output.setVoltage(volts);
+  }
+
+  /**
+   * Adds the index motor to the health monitor.
+   * @param monitor The health monitor.
+   */
+  public void addHealthChecks(HealthMonitor monitor) {
+    monitor.addCheck("Index", DeviceChecks.talon(indexMotor, HealthConstants.kTalonWarningTemperature, HealthConstants.kTalonFaultTemperature));
+  }
+
+  /**
+   * Sets the supply current limit of the index motor.
+   * This is called by the power subsystem as the battery voltage changes.
+   * @param amps The limit in amps.
+   */
+  public void setCurrentLimit(int amps) {
+    // A timeout of 0 sends the config without waiting for a response, so this doesn't block the loop
+    indexMotor.configSupplyCurrentLimit(new SupplyCurrentLimitConfiguration(true, amps, amps, 0), 0);
   }
 
   /**
    * Stops the indexer. This should be done after the ball is completly in the indexer.
    */
   public void stopIndex() {
-    indexMotor.set(ControlMode.PercentOutput, 0);
+    setIndexVoltage(0);
   }
-  
+
   /**
    * Detects whether the ball is over the sensor. True means it is in the sensor, and false means it is not.
    * */
   public boolean isBallDetected() {
-    return !ballSensor.get();
+    return RobotBase.isSimulation() ? m_simBallPresent : !ballSensor.get();
+  }
+
+  /** Returns how many balls have left the index forwards, into the shooter, since {@link #resetLaunchCount()}. */
+  public int getLaunchCount() {
+    return m_launchCount;
+  }
+
+  /** Resets the launch count. This is done at the start of each match. */
+  public void resetLaunchCount() {
+    m_launchCount = 0;
+  }
+
+  /**
+   * Arms the index to drop to a hold speed the moment a ball reaches the sensor.
+   * This happens in the sensor interrupt, so the ball stops in the same place no matter where the loop is.
+   * It disarms itself after one ball, and {@link #setIndexVoltage} still works as normal while armed.
+   * @param holdVoltage The voltage to switch to, usually 0.
+   */
+  public void armStopOnEntry(double holdVoltage) {
+    m_holdVoltage = holdVoltage;
+    m_stopOnEntryArmed = true;
+  }
+
+  /** Cancels {@link #armStopOnEntry}. */
+  public void disarmStopOnEntry() {
+    m_stopOnEntryArmed = false;
+  }
+
+  /**
+   * Takes the oldest ball event off the queue.
+   * @return The event, or null if there are none.
+   */
+  public BallEvent pollBallEvent() {
+    return m_ballEvents.poll();
+  }
+
+  /** Throws away every queued ball event, for example when a command starts and only cares about new balls. */
+  public void clearBallEvents() {
+    m_ballEvents.clear();
+  }
+
+  /**
+   * Called on the interrupt thread when the ball sensor changes.
+   * If both edges happened since the last call, they are handled in the order they happened.
+   */
+  private void onBallSensorEdge(boolean rising, boolean falling) {
+    double risingTime = m_ballInterrupt.getRisingTimestamp();
+    double fallingTime = m_ballInterrupt.getFallingTimestamp();
+
+    if (rising && falling && risingTime < fallingTime) {
+      handleBallSensorEdge(false, risingTime);
+      handleBallSensorEdge(true, fallingTime);
+    } else {
+      if (falling) {
+        handleBallSensorEdge(true, fallingTime);
+      }
+      if (rising) {
+        handleBallSensorEdge(false, risingTime);
+      }
+    }
+
+    // After the edge, so the first ball isn't held up by it
+    Runnable setup = m_sensorThreadSetup;
+    if (!m_interruptThreadSetUp && setup != null) {
+      m_interruptThreadSetUp = true;
+      setup.run();
+    }
+  }
+
+  private void onDebounceTimer() {
+    resampleBallSensor();
+
+    Runnable setup = m_sensorThreadSetup;
+    if (!m_debounceThreadSetUp && setup != null) {
+      m_debounceThreadSetUp = true;
+      setup.run();
+    }
+  }
+
+  /**
+   * Sets something to run on the sensor interrupt thread and on the debounce notifier thread, once each, the first
+   * time they are called after this. The robot uses this to make them control threads. It runs after the edge is handled.
+   * @param setup What to run.
+   */
+  public void setSensorThreadSetup(Runnable setup) {
+    m_sensorThreadSetup = setup;
+  }
+
+  private synchronized void handleBallSensorEdge(boolean entered, double timestamp) {
+    // Ignore edges that don't change the state
+    if (entered == m_ballPresent) {
+      return;
+    }
+
+    // An edge too soon after the last one is probably noise at the edge of the ball, but it might not be.
+    // Read the sensor again once the debounce time is up, and keep the change then if it is still there.
+    double sinceLastEdge = timestamp - m_lastEdgeTime;
+    if (sinceLastEdge < IndexConstants.kBallSensorDebounceTime) {
+      m_pendingEdgeTime = timestamp;
+      m_debounceNotifier.startSingle(Math.max(IndexConstants.kBallSensorDebounceTime - sinceLastEdge, IndexConstants.kMinDebounceDelay));
+      return;
+    }
+
+    applyBallSensorEdge(entered, timestamp);
+  }
+
+  /** Called by the debounce notifier once an edge that came too soon has had time to settle. */
+  private synchronized void resampleBallSensor() {
+    double pendingTime = m_pendingEdgeTime;
+    m_pendingEdgeTime = Double.NaN;
+
+    boolean present = isBallDetected();
+    if (!Double.isNaN(pendingTime) && present != m_ballPresent) {
+      applyBallSensorEdge(present, pendingTime);
+    }
+  }
+
+  private void applyBallSensorEdge(boolean entered, double timestamp) {
+    m_lastEdgeTime = timestamp;
+    m_ballPresent = entered;
+
+    if (entered) {
+      if (m_stopOnEntryArmed) {
+        m_stopOnEntryArmed = false;
+        setIndexVoltage(m_holdVoltage);
+        m_stopLatency = Timer.getFPGATimestamp() - timestamp;
+      }
+      m_lastEntryTime = timestamp;
+    } else {
+      m_lastExitTime = timestamp;
+      if (m_output.getVoltage() > 0) {
+        m_launchCount++;
+      }
+    }
+
+    // Drop the oldest event if nobody is reading them
+    BallEvent event = new BallEvent(entered ? BallEvent.Type.ENTRY : BallEvent.Type.EXIT, timestamp);
+    while (!m_ballEvents.offer(event)) {
+      m_ballEvents.poll();
+    }
+  }
+
+  /**
+   * Returns the current going through the index motor. Unlike the supply current,
+   * this isn't capped by the supply current limit, so it shows a stall clearly.
+   * @return The stator current in amps.
+   */
+  public double getStatorCurrent() {
+    return RobotBase.isSimulation() ? m_simCurrent : indexMotor.getStatorCurrent();
+  }
+
+  /** Returns whether something is stuck in the index. */
+  public boolean isJammed() {
+    return m_jamDetector.isJammed();
+  }
+
+  /** Clears the jam state, for example after reversing to clear a jam. */
+  public void resetJamDetector() {
+    m_jamDetector.reset();
+  }
+
+  /**
+   * Pauses or resumes jam detection, so reversing to clear a jam doesn't count as a jam itself.
+   * @param paused Whether to pause it.
+   */
+  public void setJamDetectionPaused(boolean paused) {
+    m_jamDetector.setPaused(paused);
+  }
+
+  /** Returns how many jams there have been since {@link #resetJamCount()}. */
+  public int getJamCount() {
+    return m_jamDetector.getJamCount();
+  }
+
+  /** Resets the jam count. This is done at the start of each match. */
+  public void resetJamCount() {
+    m_jamDetector.resetJamCount();
+  }
+
+  /**
+   * This method runs automatically every scheduler run. It shouldn't be run manually.
+   */
+  @Override
+  public void periodic() {
+    m_jamDetector.update(getStatorCurrent(), m_output.getFraction(), Timer.getFPGATimestamp());
+  }
+
+  /** Returns the surface speed of the simulated roller in meters per second, or 0 outside of simulation. */
+  public double getSimulatedRollerSpeed() {
+    return m_simSpeed;
+  }
+
+  /**
+   * Jams or frees the simulated roller, the same as the "Simulate Jam" button on the dashboard.
+   * @param jammed Whether the roller is stuck.
+   */
+  public void setSimulatedJam(boolean jammed) {
+    m_simulateJam.setBoolean(jammed);
+  }
+
+  @Override
+  public void simulationPeriodic() {
+    // A jammed roller draws its stall current instead of its free current
+    double currentAtFullOutput = m_simulateJam.getBoolean(false) ? IndexConstants.kSimStallCurrent : IndexConstants.kSimFreeCurrent;
+    // The Talon's voltage compensation isn't simulated, so work out what the battery can really supply
+    double applied = m_output.getAppliedVoltage(RobotController.getBatteryVoltage()) / MotorConstants.kNominalVoltage;
+    m_simCurrent = Math.abs(applied) * currentAtFullOutput;
+    m_simSpeed = m_simulateJam.getBoolean(false) ? 0 : applied * IndexConstants.kSimFreeSpeed;
+
+    // The sensor interrupt isn't simulated, so the edges are handled here, on the robot thread.
+    // That also keeps simulated runs the same every time.
+    double now = Timer.getFPGATimestamp();
+    if (!m_simBallPresent) {
+      if (m_simBallSource.getAsBoolean()) {
+        m_simBallPresent = true;
+        m_simBallTravel = 0;
+        handleBallSensorEdge(true, now);
+      }
+    } else {
+      // A ball that moves far enough either way leaves the sensor, forwards into the shooter or back into the intake
+      m_simBallTravel += m_simSpeed * 0.02;
+      if (Math.abs(m_simBallTravel) > IndexConstants.kSimBallLength) {
+        m_simBallPresent = false;
+        handleBallSensorEdge(false, now);
+      }
+    }
+  }
+
+  /**
+   * Sets where simulated balls come from.
+   * @param source Returns true when a ball reaches the index.
+   */
+  public void setSimulatedBallSource(BooleanSupplier source) {
+    m_simBallSource = source;
+  }
+
+  /**
+   * Puts the simulated index back to the start of a match.
+   * @param preloaded Whether a ball is already staged at the sensor.
+   */
+  public synchronized void resetSimulation(boolean preloaded) {
+    m_simBallTravel = 0;
+    if (preloaded != m_simBallPresent) {
+      m_simBallPresent = preloaded;
+      // Reset the debounce too, since this isn't a real edge
+      m_lastEdgeTime = Double.NEGATIVE_INFINITY;
+      handleBallSensorEdge(preloaded, Timer.getFPGATimestamp());
+    }
+    clearBallEvents();
   }
 }
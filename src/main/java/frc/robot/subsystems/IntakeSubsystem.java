@@ -4,23 +4,64 @@
 
 package frc.robot.subsystems;
 
-import com.ctre.phoenix.motorcontrol.ControlMode;
+import com.ctre.phoenix.motorcontrol.SupplyCurrentLimitConfiguration;
 import com.ctre.phoenix.motorcontrol.can.BaseTalon;
 
+import edu.wpi.first.networktables.GenericEntry;
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.shuffleboard.BuiltInWidgets;
+import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
+import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardTab;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 
+import frc.robot.Constants.HealthConstants;
 import frc.robot.Constants.IntakeConstants;
+import frc.robot.Constants.MotorConstants;
+import frc.utils.DeviceChecks;
+import frc.utils.HealthMonitor;
+import frc.utils.JamDetector;
+import frc.utils.VoltageOutput;
 
 public class IntakeSubsystem extends SubsystemBase {
 
   private final BaseTalon bobIntakeMotor = new BaseTalon(IntakeConstants.kIntakeMotorChannel, "SRX");
+  private final VoltageOutput m_output = VoltageOutput.talon(bobIntakeMotor, MotorConstants.kNominalVoltage);
+
+  // Detects a ball stuck in the intake from the motor current
+  private final JamDetector m_jamDetector = new JamDetector(
+    IntakeConstants.kJamCurrentPerOutput,
+    IntakeConstants.kJamMinOutput,
+    IntakeConstants.kJamTime,
+    IntakeConstants.kJamFilterTimeConstant,
+    0.02
+  );
+
+  // Only used in simulation, to act out a jam from the dashboard
+  private GenericEntry m_simulateJam;
+  private double m_simCurrent = 0;
+  private double m_simSpeed = 0;
+  // How long the intake has been feeding a simulated ball towards the index
+  private double m_simFeedTime = 0;
 
   /**
    * Creates a new IntakeSubsystem. which manages is what intakes the ball from the human players, or outtakes a ball or other object that should not be there.
    **/
   public IntakeSubsystem(){
     bobIntakeMotor.setInverted(IntakeConstants.kIntakeInverted);
-    
+    setCurrentLimit(IntakeConstants.kCurrentLimit);
+
+    ShuffleboardTab intakeTab = Shuffleboard.getTab("Intake");
+    intakeTab.addBoolean("Jammed", this::isJammed);
+    intakeTab.addInteger("Jams", m_jamDetector::getJamCount);
+    intakeTab.addDouble("Stator Current", this::getStatorCurrent);
+    intakeTab.addDouble("Supply Current", bobIntakeMotor::getSupplyCurrent);
+
+    if (RobotBase.isSimulation()) {
+      m_simulateJam = intakeTab.add("Simulate Jam", false).withWidget(BuiltInWidgets.kToggleButton).getEntry();
+      intakeTab.addDouble("Sim Roller Speed", () -> m_simSpeed);
+    }
   }
 
   /**
@@ -32,16 +73,133 @@ public class IntakeSubsystem extends SubsystemBase {
 
   /**
    * Starts the intake.
-   * @param speed How fast the intake motor should spin. Goes from -1 to 1, with -1 being full reverse and 1 being full forwards.
+   * @param speed How fast the intake motor should spin, as a fraction of the nominal voltage. Goes from -1 to 1, with -1 being full reverse and 1 being full forwards.
    */
   public void setIntakeSpeed(double speed) {
-    bobIntakeMotor.set(ControlMode.PercentOutput, speed);
+    m_output.setFraction(speed);
+  }
+
+  /**
+   * Starts the intake at a voltage, which stays the same as the battery sags.
+   * @param volts The voltage, positive is intaking.
+   */
+  public void setIntakeVoltage(double volts) {
+    m_output.setVoltage(volts);
+  }
+
+  /**
+   * Adds the intake motor to the health monitor.
+   * @param monitor The health monitor.
+   */
+  public void addHealthChecks(HealthMonitor monitor) {
+    monitor.addCheck("Intake", DeviceChecks.talon(bobIntakeMotor, HealthConstants.kTalonWarningTemperature, HealthConstants.kTalonFaultTemperature));
+  }
+
+  /**
+   * Sets the supply current limit of the intake motor.
+   * This is called by the power subsystem as the battery voltage changes.
+   * @param amps The limit in amps.
+   */
+  public void setCurrentLimit(int amps) {
+    // A timeout of 0 sends the config without waiting for a response, so this doesn't block the loop
+    bobIntakeMotor.configSupplyCurrentLimit(new SupplyCurrentLimitConfiguration(true, amps, amps, 0), 0);
   }
 
   /**
    * Stops the intake. This should be done after the ball exits the intake.
    */
   public void stopIntake() {
-    bobIntakeMotor.set(ControlMode.PercentOutput, 0);
+    setIntakeVoltage(0);
+  }
+
+  /**
+   * Returns the current going through the intake motor. Unlike the supply current,
+   * this isn't capped by the supply current limit, so it shows a stall clearly.
+   * @return The stator current in amps.
+   */
+  public double getStatorCurrent() {
+    return RobotBase.isSimulation() ? m_simCurrent : bobIntakeMotor.getStatorCurrent();
+  }
+
+  /** Returns whether something is stuck in the intake. */
+  public boolean isJammed() {
+    return m_jamDetector.isJammed();
+  }
+
+  /** Clears the jam state, for example after reversing to clear a jam. */
+  public void resetJamDetector() {
+    m_jamDetector.reset();
+  }
+
+  /**
+   * Pauses or resumes jam detection, so reversing to clear a jam doesn't count as a jam itself.
+   * @param paused Whether to pause it.
+   */
+  public void setJamDetectionPaused(boolean paused) {
+    m_jamDetector.setPaused(paused);
+  }
+
+  /** Returns how many jams there have been since {@link #resetJamCount()}. */
+  public int getJamCount() {
+    return m_jamDetector.getJamCount();
+  }
+
+  /** Resets the jam count. This is done at the start of each match. */
+  public void resetJamCount() {
+    m_jamDetector.resetJamCount();
+  }
+
+  /**
+   * This method runs automatically every scheduler run. It shouldn't be run manually.
+   */
+  @Override
+  public void periodic() {
+    m_jamDetector.update(getStatorCurrent(), m_output.getFraction(), Timer.getFPGATimestamp());
+  }
+
+  /** Returns the surface speed of the simulated roller in meters per second, or 0 outside of simulation. */
+  public double getSimulatedRollerSpeed() {
+    return m_simSpeed;
+  }
+
+  /**
+   * Jams or frees the simulated roller, the same as the "Simulate Jam" button on the dashboard.
+   * @param jammed Whether the roller is stuck.
+   */
+  public void setSimulatedJam(boolean jammed) {
+    m_simulateJam.setBoolean(jammed);
+  }
+
+  @Override
+  public void simulationPeriodic() {
+    // A jammed roller draws its stall current instead of its free current
+    double currentAtFullOutput = m_simulateJam.getBoolean(false) ? IntakeConstants.kSimStallCurrent : IntakeConstants.kSimFreeCurrent;
+    // The Talon's voltage compensation isn't simulated, so work out what the battery can really supply
+    double applied = m_output.getAppliedVoltage(RobotController.getBatteryVoltage()) / MotorConstants.kNominalVoltage;
+    m_simCurrent = Math.abs(applied) * currentAtFullOutput;
+    m_simSpeed = m_simulateJam.getBoolean(false) ? 0 : applied * IntakeConstants.kSimFreeSpeed;
+
+    // There are no balls on the simulated field, so one is picked up whenever the intake runs forwards for long enough.
+    // It waits at the end of the intake until the index takes it.
+    if (m_simSpeed > 0) {
+      m_simFeedTime = Math.min(m_simFeedTime + 0.02, IntakeConstants.kSimBallFeedTime);
+    }
+  }
+
+  /**
+   * Hands a simulated ball to the index, if the intake has one ready.
+   * @return Whether there was a ball.
+   */
+  public boolean takeSimulatedBall() {
+    if (m_simFeedTime < IntakeConstants.kSimBallFeedTime || m_simSpeed <= 0) {
+      return false;
+    }
+    m_simFeedTime = 0;
+    return true;
+  }
+
+  /** Empties the simulated intake. */
+  public void resetSimulation() {
+    m_simFeedTime = 0;
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,315 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+import java.util.function.IntToDoubleFunction;
+
+import edu.wpi.first.math.filter.LinearFilter;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.PowerDistribution;
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.networktables.GenericEntry;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.shuffleboard.BuiltInWidgets;
+import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
+import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardTab;
+import edu.wpi.first.wpilibj.simulation.BatterySim;
+import edu.wpi.first.wpilibj.simulation.PDPSim;
+import edu.wpi.first.wpilibj.simulation.RoboRioSim;
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+
+import frc.robot.Constants.PowerConstants;
+import frc.robot.Constants.ThermalConstants;
+import frc.utils.CurrentBudget;
+import frc.utils.MotorThermalModel;
+import frc.utils.RateGroup;
+
+public class PowerSubsystem extends SubsystemBase {
+  /** The thermal models of a mechanism's motors, and what they last worked out. */
+  private static class ThermalGroup {
+    final CurrentBudget.Consumer consumer;
+    final MotorThermalModel[] models;
+    final IntToDoubleFunction current;
+    final IntToDoubleFunction temperature;
+    // Whether each model has been set to its motor's first reported temperature
+    final boolean[] seeded;
+
+    double meanCurrent = 0;
+    double hottestMeasured = 0;
+    double hottestModel = 0;
+    double timeToLimit = Double.POSITIVE_INFINITY;
+    double allowedCurrent = Double.POSITIVE_INFINITY;
+
+    ThermalGroup(CurrentBudget.Consumer consumer, IntToDoubleFunction current, IntToDoubleFunction temperature) {
+      this.consumer = consumer;
+      this.current = current;
+      this.temperature = temperature;
+
+      models = new MotorThermalModel[consumer.getMotorCount()];
+      seeded = new boolean[models.length];
+      for (int i = 0; i < models.length; i++) {
+        models[i] = new MotorThermalModel(ThermalConstants.kNeoResistance, ThermalConstants.kNeoThermalResistance,
+          ThermalConstants.kNeoThermalCapacity, ThermalConstants.kAmbientTemperature, ThermalConstants.kLimitTemperature,
+          ThermalConstants.kCorrectionRate);
+      }
+    }
+  }
+
+  private final PowerDistribution m_powerDistribution =
+    new PowerDistribution(PowerConstants.kPowerDistributionId, PowerConstants.kPowerDistributionType);
+
+  private final CurrentBudget m_budget = new CurrentBudget(PowerConstants.kLimitHysteresis);
+  private final List<ThermalGroup> m_thermalGroups = new ArrayList<>();
+
+  // Smooths the estimated open circuit (no load) voltage of the battery
+  private final LinearFilter m_openCircuitVoltageFilter =
+    LinearFilter.singlePoleIIR(PowerConstants.kOpenCircuitVoltageTimeConstant, PowerConstants.kUpdatePeriod);
+
+  // Only used in simulation
+  private PDPSim m_pdpSim;
+  private double[] m_simCurrents;
+  private GenericEntry m_simOpenCircuitVoltage;
+
+  private final ShuffleboardTab powerTab = Shuffleboard.getTab("Power");
+
+  private double m_voltage = 12;
+  private double m_minVoltage = 12;
+  private double m_totalCurrent = 0;
+  private double m_openCircuitVoltage = 12;
+  private double m_availableCurrent = 0;
+  private double m_canUtilization = 0;
+
+  /**
+   * Creates a new power subsystem.
+   * It watches the battery and splits the current that can be drawn without browning out
+   * between the mechanisms, giving more to the higher priority ones.
+   */
+  public PowerSubsystem() {
+    if (RobotBase.isSimulation()) {
+      m_pdpSim = new PDPSim(m_powerDistribution);
+      m_simCurrents = new double[m_powerDistribution.getNumChannels()];
+      // Drag this down to check that the mechanisms run the same on a tired battery
+      m_simOpenCircuitVoltage = powerTab.add("Sim Open Circuit Voltage", PowerConstants.kSimOpenCircuitVoltage)
+        .withWidget(BuiltInWidgets.kNumberSlider)
+        .withProperties(Map.of("min", PowerConstants.kSimMinOpenCircuitVoltage, "max", PowerConstants.kSimMaxOpenCircuitVoltage))
+        .getEntry();
+    }
+
+    powerTab.addDouble("Battery Voltage", () -> m_voltage);
+    powerTab.addDouble("Total Current", () -> m_totalCurrent);
+    powerTab.addDouble("Open Circuit Voltage", () -> m_openCircuitVoltage);
+    powerTab.addDouble("Available Current", () -> m_availableCurrent);
+    powerTab.addDouble("CAN Utilization", () -> m_canUtilization);
+  }
+
+  /**
+   * Adds a mechanism to the current budget. Mechanisms added first have the highest priority.
+   * @param name The name of the mechanism.
+   * @param motorCount How many motors share the limit.
+   * @param minPerMotor The smallest limit for each motor in amps.
+   * @param maxPerMotor The largest limit for each motor in amps.
+   * @param setLimit Applies a per-motor current limit to the mechanism.
+   * @param channels The power distribution channels the motors are wired to.
+   */
+  public void addConsumer(String name, int motorCount, int minPerMotor, int maxPerMotor, IntConsumer setLimit, int... channels) {
+    CurrentBudget.Consumer consumer = m_budget.addConsumer(name, motorCount, minPerMotor, maxPerMotor, setLimit, channels);
+
+    powerTab.addDouble(name + " Limit", consumer::getLimitPerMotor);
+  }
+
+  /**
+   * Models how hot a mechanism's motors are, and caps its current limit so they last the rest of the match.
+   * The hottest motor sets the cap for all of them. Add the mechanism with {@link #addConsumer} first.
+   * @param name The name the mechanism was added with.
+   * @param current Returns the current of a motor in amps, by its index (0 up to the motor count).
+   * @param temperature Returns the temperature a motor's controller reports in degrees Celsius, by its index.
+   */
+  public void addThermalModel(String name, IntToDoubleFunction current, IntToDoubleFunction temperature) {
+    CurrentBudget.Consumer consumer = getConsumer(name);
+    if (consumer == null) {
+      throw new IllegalArgumentException("No power consumer named " + name);
+    }
+
+    ThermalGroup group = new ThermalGroup(consumer, current, temperature);
+    m_thermalGroups.add(group);
+
+    // Logged for the log analyzer, which replays the model against the reported temperature
+    powerTab.addDouble(name + " Motor Current", () -> group.meanCurrent);
+    powerTab.addDouble(name + " Motor Temperature", () -> group.hottestMeasured);
+    powerTab.addDouble(name + " Model Temperature", () -> group.hottestModel);
+    powerTab.addDouble(name + " Time To Limit", () -> Math.min(group.timeToLimit, 999));
+    powerTab.addDouble(name + " Thermal Limit", () -> Math.min(group.allowedCurrent, 999));
+  }
+
+  /** Returns how long the motors have to last, which is the rest of the match if there is a match timer. */
+  private double getThermalHorizon() {
+    double matchTime = DriverStation.getMatchTime();
+    if (matchTime <= 0) {
+      return ThermalConstants.kDefaultHorizon;
+    }
+    if (DriverStation.isAutonomous()) {
+      matchTime += ThermalConstants.kTeleopLength;
+    }
+    return Math.max(ThermalConstants.kMinHorizon, matchTime);
+  }
+
+  /**
+   * Steps every thermal model and updates the thermal caps of the current budget.
+   * @param dt How long since the last update in seconds.
+   */
+  private void updateThermalModels(double dt) {
+    double horizon = getThermalHorizon();
+
+    for (ThermalGroup group : m_thermalGroups) {
+      double currentSum = 0;
+      group.hottestMeasured = 0;
+      group.hottestModel = 0;
+      group.timeToLimit = Double.POSITIVE_INFINITY;
+      group.allowedCurrent = Double.POSITIVE_INFINITY;
+
+      for (int i = 0; i < group.models.length; i++) {
+        MotorThermalModel model = group.models[i];
+        double current = Math.abs(group.current.applyAsDouble(i));
+        double measured = group.temperature.applyAsDouble(i);
+
+        // The motors may still be warm from the last match. A motor controller reports 0 until it has a reading.
+        if (!group.seeded[i] && measured > 0) {
+          model.reset(measured);
+          group.seeded[i] = true;
+        }
+        model.update(dt, current, measured);
+
+        currentSum += current;
+        group.hottestMeasured = Math.max(group.hottestMeasured, measured);
+        group.hottestModel = Math.max(group.hottestModel, model.getTemperature());
+        group.timeToLimit = Math.min(group.timeToLimit, model.getTimeToLimit());
+        group.allowedCurrent = Math.min(group.allowedCurrent, model.getAllowedCurrent(horizon));
+      }
+
+      group.meanCurrent = currentSum / group.models.length;
+      group.consumer.setThermalLimit(group.allowedCurrent);
+    }
+  }
+
+  /** Returns the last measured battery voltage. */
+  public double getVoltage() {
+    return m_voltage;
+  }
+
+  /**
+   * Reads the power distribution and recalculates the current limits.
+   */
+  private void updateBudget() {
+    m_voltage = m_powerDistribution.getVoltage();
+    m_minVoltage = Math.min(m_minVoltage, m_voltage);
+    m_totalCurrent = m_powerDistribution.getTotalCurrent();
+
+    // The battery acts like a voltage source behind a resistance: V = Voc - I * R
+    m_openCircuitVoltage = m_openCircuitVoltageFilter.calculate(
+      m_voltage + m_totalCurrent * PowerConstants.kBatteryResistance);
+
+    // Anything not on a managed channel (roboRIO, radio, etc.) has to come out of the budget first
+    double managedCurrent = 0;
+    for (CurrentBudget.Consumer consumer : m_budget.getConsumers()) {
+      for (int channel : consumer.getChannels()) {
+        managedCurrent += m_powerDistribution.getCurrent(channel);
+      }
+    }
+    double unmanagedCurrent = Math.max(0, m_totalCurrent - managedCurrent);
+
+    m_availableCurrent = getAvailableCurrent(m_openCircuitVoltage, unmanagedCurrent);
+    m_budget.allocate(m_availableCurrent);
+  }
+
+  /**
+   * Works out how much current the mechanisms can share without the battery sagging below
+   * {@link PowerConstants#kMinVoltage}.
+   * @param openCircuitVoltage The battery's voltage with no load.
+   * @param unmanagedCurrent The current drawn by everything that isn't in the budget, in amps.
+   * @return The current for the budget to split, in amps.
+   */
+  public static double getAvailableCurrent(double openCircuitVoltage, double unmanagedCurrent) {
+    // Current that keeps the voltage above the brownout margin
+    double maxCurrent = (openCircuitVoltage - PowerConstants.kMinVoltage) / PowerConstants.kBatteryResistance;
+    return Math.min(PowerConstants.kMaxTotalCurrent, maxCurrent) - unmanagedCurrent;
+  }
+
+  /**
+   * Returns a mechanism in the current budget, for example to check its limit.
+   * @param name The name the mechanism was added with.
+   * @return The mechanism, or null if there isn't one with that name.
+   */
+  public CurrentBudget.Consumer getConsumer(String name) {
+    for (CurrentBudget.Consumer consumer : m_budget.getConsumers()) {
+      if (consumer.getName().equals(name)) {
+        return consumer;
+      }
+    }
+    return null;
+  }
+
+  /** Returns the lowest battery voltage since the last {@link #resetMinVoltage()}. */
+  public double getMinVoltage() {
+    return m_minVoltage;
+  }
+
+  /** Starts tracking the lowest battery voltage again. */
+  public void resetMinVoltage() {
+    m_minVoltage = m_voltage;
+  }
+
+  /**
+   * Sets the open circuit voltage of the simulated battery, the same as dragging the slider on the power tab.
+   * @param volts The voltage with no load.
+   */
+  public void setSimOpenCircuitVoltage(double volts) {
+    if (m_simOpenCircuitVoltage != null) {
+      m_simOpenCircuitVoltage.setDouble(volts);
+    }
+  }
+
+  /**
+   * Adds the power subsystem's periodic tasks to the rate groups.
+   * The power distribution only updates its readings every so often, so the budget goes in the slow group.
+   * Motor temperatures change over tens of seconds, so the thermal models go there too, just before the budget uses their caps.
+   * @param fast The fast rate group.
+   * @param slow The slow rate group.
+   */
+  public void addRateGroupTasks(RateGroup fast, RateGroup slow) {
+    slow.addTask(() -> {
+      updateThermalModels(PowerConstants.kUpdatePeriod);
+      updateBudget();
+
+      // Logged for the match log analyzer, 0 to 1
+      m_canUtilization = RobotController.getCANStatus().percentBusUtilization;
+    });
+  }
+
+  @Override
+  public void simulationPeriodic() {
+    // The simulated mechanisms with a current model draw from their channels
+    for (ThermalGroup group : m_thermalGroups) {
+      int[] channels = group.consumer.getChannels();
+      for (int i = 0; i < channels.length && i < group.models.length; i++) {
+        m_pdpSim.setCurrent(channels[i], Math.abs(group.current.applyAsDouble(i)));
+      }
+    }
+
+    // Sag the simulated battery based on the simulated channel currents
+    for (int i = 0; i < m_simCurrents.length; i++) {
+      m_simCurrents[i] = m_pdpSim.getCurrent(i);
+    }
+
+    double voltage = BatterySim.calculateLoadedBatteryVoltage(
+      m_simOpenCircuitVoltage.getDouble(PowerConstants.kSimOpenCircuitVoltage), PowerConstants.kBatteryResistance, m_simCurrents);
+
+    RoboRioSim.setVInVoltage(voltage);
+    m_pdpSim.setVoltage(voltage);
+  }
+}
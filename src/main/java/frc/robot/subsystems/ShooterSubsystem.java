@@ -11,17 +11,29 @@ import com.revrobotics.RelativeEncoder;
 
 import com.revrobotics.CANSparkLowLevel.MotorType;
 
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.shuffleboard.BuiltInLayouts;
 import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
 import edu.wpi.first.wpilibj2.command.RepeatCommand;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 
 import frc.robot.Constants.ShooterConstants;
-import frc.utils.SparkSendablePID;
+import frc.robot.Constants.HealthConstants;
+import frc.robot.Constants.MotorConstants;
+import frc.robot.Constants.TelemetryConstants;
+import frc.utils.GainScheduledSparkPID;
+import frc.utils.DeviceChecks;
+import frc.utils.HealthMonitor;
+import frc.utils.StructSchema;
+import frc.utils.Utils;
+import frc.utils.VoltageOutput;
 
 public class ShooterSubsystem extends SubsystemBase {
   private final CANSparkMax topShootMotor = new CANSparkMax(ShooterConstants.kShooterTopMotorCANID, MotorType.kBrushless);
   private final CANSparkMax bottomShootMotor = new CANSparkMax(ShooterConstants.kShooterBottomMotorCANID, MotorType.kBrushless);
+  private final VoltageOutput m_topOutput = VoltageOutput.sparkMax(topShootMotor, MotorConstants.kNominalVoltage);
+  private final VoltageOutput m_bottomOutput = VoltageOutput.sparkMax(bottomShootMotor, MotorConstants.kNominalVoltage);
 
   private final SparkPIDController topMotorPIDController = topShootMotor.getPIDController();
   private final SparkPIDController bottomMotorPIDController = bottomShootMotor.getPIDController();
@@ -29,70 +41,201 @@ public class ShooterSubsystem extends SubsystemBase {
   private final RelativeEncoder topMotorEncoder = topShootMotor.getEncoder();
   private final RelativeEncoder bottomMotorEncoder = bottomShootMotor.getEncoder();
 
-  /** This creates a new shooter subsystem, which manages the speed of the shooter wheels, so the ball can move out at the correct speed. */
+  // Separate gains for backfeeding, slow speeds and shots
+  private final GainScheduledSparkPID topMotorGains = new GainScheduledSparkPID(topMotorPIDController, ControlType.kVelocity, "Top shooter");
+  private final GainScheduledSparkPID bottomMotorGains = new GainScheduledSparkPID(bottomMotorPIDController, ControlType.kVelocity, "Bottom shooter");
+
+  // Wheel speeds and outputs, sent as one update per loop
+  private final StructSchema m_shooterState = new StructSchema("ShooterState")
+    .addDouble("topSpeed", () -> topMotorEncoder.getVelocity())
+    .addDouble("bottomSpeed", () -> bottomMotorEncoder.getVelocity())
+    .addDouble("topOutput", () -> topShootMotor.getAppliedOutput())
+    .addDouble("bottomOutput", () -> bottomShootMotor.getAppliedOutput());
+
+  /**
+   * This creates a new shooter subsystem, which manages the speed of the shooter wheels, so the ball can move out at the correct speed.
+   * Call {@link #configureMotors()} before using it.
+   */
   public ShooterSubsystem() {
+    configureGainSchedule(topMotorGains);
+    configureGainSchedule(bottomMotorGains);
+
+    m_shooterState.publish(NetworkTableInstance.getDefault().getTable(TelemetryConstants.kTableName), "Shooter State");
+
+    if (TelemetryConstants.kPublishDashboardDoubles) {
+      Shuffleboard.getTab("Shooter").addDouble("Top Motor Speed", topMotorEncoder::getVelocity);
+      Shuffleboard.getTab("Shooter").addDouble("Bottom Motor Speed", bottomMotorEncoder::getVelocity);
+    }
+
+    Shuffleboard.getTab("Shooter").add("I AM SPEED", 
+      new RepeatCommand(new InstantCommand(() -> setPercent(1, 1), this)).finallyDo(() -> stopShooter()));
+
+    topMotorGains.addErrorWidgets(Shuffleboard.getTab("Shooter").getLayout("Top Tracking Error", BuiltInLayouts.kList));
+    bottomMotorGains.addErrorWidgets(Shuffleboard.getTab("Shooter").getLayout("Bottom Tracking Error", BuiltInLayouts.kList));
+  } 
+
+  /**
+   * Configures the shooter motors and encoders over CAN.
+   * This is kept out of the constructor because it is slow, so it can run on a background thread at boot.
+   */
+  public void configureMotors() {
     topShootMotor.restoreFactoryDefaults();
     bottomShootMotor.restoreFactoryDefaults();
 
-    topMotorPIDController.setP(ShooterConstants.kVelocityP);
-    topMotorPIDController.setI(ShooterConstants.kVelocityI);
-    topMotorPIDController.setD(ShooterConstants.kVelocityD);
-    topMotorPIDController.setFF(ShooterConstants.kVelocityFF);
+    topMotorGains.applyGains();
 
     topMotorEncoder.setPositionConversionFactor(ShooterConstants.kTurningEncoderPositionFactor);
     topMotorEncoder.setVelocityConversionFactor(ShooterConstants.kTurningEncoderVelocityFactor);
 
+    topShootMotor.setSmartCurrentLimit(ShooterConstants.kSmartCurrentLimit);
     topShootMotor.setIdleMode(ShooterConstants.kShooterMotorIdleMode);
     topShootMotor.setInverted(ShooterConstants.kTopShooterMotorInverted);
+    topShootMotor.enableVoltageCompensation(MotorConstants.kNominalVoltage);
     topShootMotor.burnFlash();
 
-    bottomMotorPIDController.setP(ShooterConstants.kVelocityP);
-    bottomMotorPIDController.setI(ShooterConstants.kVelocityI);
-    bottomMotorPIDController.setD(ShooterConstants.kVelocityD);
-    bottomMotorPIDController.setFF(ShooterConstants.kVelocityFF);
+    bottomMotorGains.applyGains();
 
     bottomMotorEncoder.setPositionConversionFactor(ShooterConstants.kTurningEncoderPositionFactor);
     bottomMotorEncoder.setVelocityConversionFactor(ShooterConstants.kTurningEncoderVelocityFactor);
     
+    bottomShootMotor.setSmartCurrentLimit(ShooterConstants.kSmartCurrentLimit);
     bottomShootMotor.setIdleMode(ShooterConstants.kShooterMotorIdleMode);
     bottomShootMotor.setInverted(ShooterConstants.kBottomShooterMotorInverted);
+    bottomShootMotor.enableVoltageCompensation(MotorConstants.kNominalVoltage);
     bottomShootMotor.burnFlash();
 
-    Shuffleboard.getTab("Shooter").addDouble("Top Motor Speed", topMotorEncoder::getVelocity);
-    Shuffleboard.getTab("Shooter").addDouble("Bottom Motor Speed", bottomMotorEncoder::getVelocity);
+    // Clear the faults from before this boot, so the health monitor only reports new ones
+    topShootMotor.clearFaults();
+    bottomShootMotor.clearFaults();
+  }
 
-    Shuffleboard.getTab("Shooter").add("I AM SPEED", 
-      new RepeatCommand(new InstantCommand(() -> setPercent(1, 1), this)).finallyDo(() -> stopShooter()));
+  /**
+   * Adds the shooter motors to the health monitor.
+   * @param monitor The health monitor.
+   */
+  public void addHealthChecks(HealthMonitor monitor) {
+    monitor.addCheck("Shooter Top", DeviceChecks.sparkMax(topShootMotor, HealthConstants.kMotorWarningTemperature,
+      HealthConstants.kMotorFaultTemperature, HealthConstants.kStaleEncoderOutput, HealthConstants.kStaleEncoderCurrent,
+      HealthConstants.kStaleEncoderChecks));
+    monitor.addCheck("Shooter Bottom", DeviceChecks.sparkMax(bottomShootMotor, HealthConstants.kMotorWarningTemperature,
+      HealthConstants.kMotorFaultTemperature, HealthConstants.kStaleEncoderOutput, HealthConstants.kStaleEncoderCurrent,
+      HealthConstants.kStaleEncoderChecks));
+  }
 
-    Shuffleboard.getTab("Shooter").add("Shooter PID controller", new SparkSendablePID(topMotorPIDController, ControlType.kVelocity));
-  } 
+  /**
+   * Adds the dashboard PID tuning widgets, one per gain region of each motor. Changes from the dashboard write
+   * complete sets of gains, so call this on the main thread after {@link #configureMotors()} has written the first ones.
+   */
+  public void addTuningWidgets() {
+    topMotorGains.addTuningWidgets(Shuffleboard.getTab("Shooter").getLayout("Top Gains", BuiltInLayouts.kList), "Top");
+    bottomMotorGains.addTuningWidgets(Shuffleboard.getTab("Shooter").getLayout("Bottom Gains", BuiltInLayouts.kList), "Bottom");
+  }
+
+  /**
+   * Sets up the gain regions of a shooter motor.
+   */
+  private void configureGainSchedule(GainScheduledSparkPID gains) {
+    gains.addRegion(ShooterConstants.kHighSpeedRegionMin, ShooterConstants.kMaxMetersPerSecond, ShooterConstants.kHighSpeedGains);
+    gains.addRegion(0, ShooterConstants.kHighSpeedRegionMin, ShooterConstants.kLowSpeedGains);
+    gains.addRegion(-ShooterConstants.kMaxMetersPerSecond, 0, ShooterConstants.kBackfeedGains);
+  }
+
+  /** Returns the gain schedule of the top motor, for tuning. */
+  public GainScheduledSparkPID getTopMotorGains() {
+    return topMotorGains;
+  }
+
+  /** Returns the gain schedule of the bottom motor, for tuning. */
+  public GainScheduledSparkPID getBottomMotorGains() {
+    return bottomMotorGains;
+  }
   
   /** Starts the shooter with a specified top and bottom speed, in order to achieve backspin
    * @param topSpeed the speed you want the top shooter wheel to move at (-1 - 1)
    * @param bottomSpeed the speed you want the bottom shooter wheel to move at (-1 - 1)
    * **/
   public void startShooter(double topSpeed, double bottomSpeed) {
-    topMotorPIDController.setReference(topSpeed * ShooterConstants.kMaxMetersPerSecond, ControlType.kVelocity);
-    bottomMotorPIDController.setReference(bottomSpeed * ShooterConstants.kMaxMetersPerSecond, ControlType.kVelocity);
+    topMotorGains.setReference(topSpeed * ShooterConstants.kMaxMetersPerSecond);
+    bottomMotorGains.setReference(bottomSpeed * ShooterConstants.kMaxMetersPerSecond);
   }
   
   /** Starts the shooter with the same speed for the top and bottom
    * @param speed the speed you want the shooter wheels to move at (-1 - 1)
    */
   public void startShooter(double speed) {
-    topMotorPIDController.setReference(speed * ShooterConstants.kMaxMetersPerSecond, ControlType.kVelocity);
-    bottomMotorPIDController.setReference(speed * ShooterConstants.kMaxMetersPerSecond, ControlType.kVelocity);
+    startShooter(speed, speed);
+  }
+
+  /**
+   * Runs the shooter wheels at a specific speed with closed loop control.
+   * @param topSpeed The top wheel speed in meters per second.
+   * @param bottomSpeed The bottom wheel speed in meters per second.
+   */
+  public void setVelocity(double topSpeed, double bottomSpeed) {
+    topMotorGains.setReference(topSpeed);
+    bottomMotorGains.setReference(bottomSpeed);
   }
 
-  /** Sets the motors to a specific percentage. This is for testing purposes. */
+  /** Sets the motors to a specific percentage of the nominal voltage. This is for testing purposes. */
   public void setPercent(double topSpeed, double bottomSpeed) {
-    topShootMotor.set(topSpeed);
-    bottomShootMotor.set(bottomSpeed);
+    setVoltage(topSpeed * MotorConstants.kNominalVoltage, bottomSpeed * MotorConstants.kNominalVoltage);
+  }
+
+  /**
+   * Runs the shooter wheels open loop at a voltage, which stays the same as the battery sags.
+   * @param topVolts The top motor voltage.
+   * @param bottomVolts The bottom motor voltage.
+   */
+  public void setVoltage(double topVolts, double bottomVolts) {
+    topMotorGains.stop();
+    bottomMotorGains.stop();
+
+    m_topOutput.setVoltage(topVolts);
+    m_bottomOutput.setVoltage(bottomVolts);
   }
   
+  /**
+   * Sets the current limit of both shooter motors.
+   * This is called by the power subsystem as the battery voltage changes, so it doesn't wait for the motors to confirm.
+   * @param amps The limit for each motor in amps.
+   */
+  public void setCurrentLimit(int amps) {
+    Utils.setSmartCurrentLimitNoWait(topShootMotor, amps, MotorConstants.kSparkMaxCanTimeoutMs);
+    Utils.setSmartCurrentLimitNoWait(bottomShootMotor, amps, MotorConstants.kSparkMaxCanTimeoutMs);
+  }
+
+  /**
+   * Returns the current of one shooter motor, for the thermal model.
+   * @param index 0 for the top motor, 1 for the bottom one.
+   * @return The current in amps.
+   */
+  public double getMotorCurrent(int index) {
+    return (index == 0 ? topShootMotor : bottomShootMotor).getOutputCurrent();
+  }
+
+  /**
+   * Returns the temperature one shooter motor reports, for the thermal model.
+   * @param index 0 for the top motor, 1 for the bottom one.
+   * @return The temperature in degrees Celsius.
+   */
+  public double getMotorTemperature(int index) {
+    return (index == 0 ? topShootMotor : bottomShootMotor).getMotorTemperature();
+  }
+
   /** Stops the motor and sets them both to 0 */
   public void stopShooter() {
+    topMotorGains.stop();
+    bottomMotorGains.stop();
+
     topShootMotor.set(0);
     bottomShootMotor.set(0);
   }
+
+  @Override
+  public void periodic() {
+    topMotorGains.recordMeasurement(topMotorEncoder.getVelocity());
+    bottomMotorGains.recordMeasurement(bottomMotorEncoder.getVelocity());
+
+    m_shooterState.update();
+  }
 }
@@ -0,0 +1,144 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
+import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardTab;
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+
+import frc.robot.Constants.VisionConstants;
+import frc.utils.RateGroup;
+import frc.utils.SharedObservations;
+import frc.utils.SharedObservations.Observation;
+
+public class VisionSubsystem extends SubsystemBase {
+  private final Path m_resultsPath = Path.of(VisionConstants.kResultsFile);
+
+  // Null until the vision worker has started and made the file
+  private SharedObservations m_results;
+  private Object m_resultsFileKey;
+
+  // Read into and kept, so reading never allocates
+  private final Observation m_read = new Observation();
+  private final Observation m_latest = new Observation();
+
+  // When the latest frame was captured and when the worker finished with it, on the FPGA clock
+  private double m_frameTimestamp = Double.NaN;
+  private double m_processedTimestamp = Double.NaN;
+  private double m_latency = 0;
+
+  private final ShuffleboardTab visionTab = Shuffleboard.getTab("Vision");
+
+  /**
+   * Creates a new vision subsystem. It reads the target observations that the vision worker
+   * (tools/visionworker) writes to shared memory. The worker runs as its own process, so the robot loop
+   * never waits on it, and frames never pass through this program at all.
+   */
+  public VisionSubsystem() {
+    visionTab.addBoolean("Worker Connected", this::isConnected);
+    visionTab.addBoolean("Has Target", this::hasTarget);
+    visionTab.addDouble("Target Yaw", () -> m_latest.yawDegrees);
+    visionTab.addDouble("Target Pitch", () -> m_latest.pitchDegrees);
+    visionTab.addDouble("Target Area", () -> m_latest.area);
+    visionTab.addDouble("Latency ms", () -> getLatency() * 1000);
+  }
+
+  /**
+   * Opens the worker's results, if the worker has made them.
+   * A restarted worker makes a new file, so while nothing is coming in, check whether the file was replaced.
+   */
+  private void tryOpen() {
+    if (m_results != null && isConnected()) {
+      return;
+    }
+
+    try {
+      if (!Files.exists(m_resultsPath)) {
+        return;
+      }
+      Object fileKey = Files.readAttributes(m_resultsPath, BasicFileAttributes.class).fileKey();
+      if (m_results != null && fileKey != null && fileKey.equals(m_resultsFileKey)) {
+        return;
+      }
+
+      if (m_results != null) {
+        m_results.close();
+        m_results = null;
+      }
+      m_results = SharedObservations.open(m_resultsPath);
+      m_resultsFileKey = fileKey;
+    } catch (IOException e) {
+      DriverStation.reportWarning("Couldn't open vision results: " + e.getMessage(), false);
+    }
+  }
+
+  /** Reads the newest observation, if there is one the robot hasn't seen. */
+  private void readObservation() {
+    if (m_results == null || !m_results.readLatest(m_read) || m_read.sequence == m_latest.sequence) {
+      return;
+    }
+
+    m_latest.copyFrom(m_read);
+
+    // The worker timestamps with System.nanoTime(), so turn them into FPGA time by how long ago they were
+    double now = Timer.getFPGATimestamp();
+    long nanoNow = System.nanoTime();
+    m_frameTimestamp = now - (nanoNow - m_latest.frameTimestampNanos) * 1e-9;
+    m_processedTimestamp = now - (nanoNow - m_latest.processedNanos) * 1e-9;
+    m_latency = (nanoNow - m_latest.frameTimestampNanos) * 1e-9;
+  }
+
+  /** Returns whether the worker has sent anything recently. */
+  public boolean isConnected() {
+    return Timer.getFPGATimestamp() - m_processedTimestamp < VisionConstants.kStaleTime;
+  }
+
+  /** Returns whether a target is in view, going by a recent frame. */
+  public boolean hasTarget() {
+    return m_latest.targetCount > 0 && isConnected();
+  }
+
+  /** Returns the angle of the target right of the camera's center, in degrees. Only meaningful if {@link #hasTarget()}. */
+  public double getTargetYaw() {
+    return m_latest.yawDegrees;
+  }
+
+  /** Returns the angle of the target above the camera's center, in degrees. Only meaningful if {@link #hasTarget()}. */
+  public double getTargetPitch() {
+    return m_latest.pitchDegrees;
+  }
+
+  /**
+   * Returns when the frame of the latest observation was captured, on the same clock as {@link Timer#getFPGATimestamp()},
+   * for example to look up where the robot was at the time.
+   */
+  public double getObservationTimestamp() {
+    return m_frameTimestamp;
+  }
+
+  /** Returns how long it took from capturing the latest frame to the robot reading its observation, in seconds. */
+  public double getLatency() {
+    return m_latency;
+  }
+
+  /**
+   * Adds the vision subsystem's periodic tasks to the rate groups.
+   * Observations are read in the fast group so they are as fresh as possible, and reading them only copies a few numbers.
+   * The worker may start after the robot program, so the slow group keeps trying to open its results until it has.
+   * @param fast The fast rate group.
+   * @param slow The slow rate group.
+   */
+  public void addRateGroupTasks(RateGroup fast, RateGroup slow) {
+    fast.addTask(this::readObservation);
+    slow.addTask(this::tryOpen);
+  }
+}
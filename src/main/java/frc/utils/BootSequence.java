@@ -0,0 +1,180 @@
+package frc.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Runs the robot's startup steps, in parallel where it can.
+ *
+ * <p>Each step declares which steps it depends on. Background steps (such as CAN configuration or
+ * starting the camera) run on a small thread pool as soon as their dependencies are done. Main thread
+ * steps (anything that touches the command scheduler, Shuffleboard or PathPlanner) run on the thread
+ * that calls {@link #run()}, in the order they were added, while the background steps keep going.
+ * {@link #run()} returns once every step has finished.
+ *
+ * <p>The start and end time of each step is recorded so slow steps are easy to spot.
+ */
+public class BootSequence {
+    private final int m_threads;
+
+    private final List<Step> m_steps = new ArrayList<>();
+    private final Map<String, Step> m_stepsByName = new HashMap<>();
+
+    private double m_startTime;
+    private double m_totalTime;
+
+    private static class Step {
+        final String name;
+        final Runnable action;
+        final String[] dependencies;
+        final boolean mainThread;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        volatile double startTime;
+        volatile double endTime;
+        volatile String threadName;
+
+        Step(String name, Runnable action, String[] dependencies, boolean mainThread) {
+            this.name = name;
+            this.action = action;
+            this.dependencies = dependencies;
+            this.mainThread = mainThread;
+        }
+    }
+
+    /**
+     * Creates an empty boot sequence.
+     * @param threads The number of threads for background steps.
+     */
+    public BootSequence(int threads) {
+        m_threads = threads;
+    }
+
+    /**
+     * Adds a step that runs on a background thread.
+     * @param name The name of the step.
+     * @param action The work to do.
+     * @param dependencies The names of the steps that must finish first.
+     */
+    public void addStep(String name, Runnable action, String... dependencies) {
+        addStep(new Step(name, action, dependencies, false));
+    }
+
+    /**
+     * Adds a step that runs on the main thread.
+     * @param name The name of the step.
+     * @param action The work to do.
+     * @param dependencies The names of the steps that must finish first.
+     */
+    public void addMainThreadStep(String name, Runnable action, String... dependencies) {
+        addStep(new Step(name, action, dependencies, true));
+    }
+
+    private void addStep(Step step) {
+        if (m_stepsByName.containsKey(step.name)) {
+            throw new IllegalArgumentException("Duplicate boot step: " + step.name);
+        }
+        for (String dependency : step.dependencies) {
+            // Requiring dependencies to be added first also rules out cycles
+            if (!m_stepsByName.containsKey(dependency)) {
+                throw new IllegalArgumentException("Boot step " + step.name + " depends on unknown step " + dependency);
+            }
+        }
+
+        m_steps.add(step);
+        m_stepsByName.put(step.name, step);
+    }
+
+    /**
+     * Runs every step and waits for them all to finish.
+     * If a step throws anything, even an Error, it is reported and the steps that depend on it still run.
+     */
+    public void run() {
+        m_startTime = Timer.getFPGATimestamp();
+        ExecutorService executor = Executors.newFixedThreadPool(m_threads, runnable -> {
+            Thread thread = new Thread(runnable, "Boot");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Start the background steps as soon as their dependencies are done
+        for (Step step : m_steps) {
+            if (!step.mainThread) {
+                getDependencies(step).thenRunAsync(() -> runStep(step), executor);
+            }
+        }
+
+        // Run the main thread steps in order, waiting for their dependencies
+        for (Step step : m_steps) {
+            if (step.mainThread) {
+                getDependencies(step).join();
+                runStep(step);
+            }
+        }
+
+        for (Step step : m_steps) {
+            step.done.join();
+        }
+        executor.shutdown();
+
+        m_totalTime = Timer.getFPGATimestamp() - m_startTime;
+    }
+
+    private CompletableFuture<Void> getDependencies(Step step) {
+        CompletableFuture<?>[] dependencies = new CompletableFuture<?>[step.dependencies.length];
+        for (int i = 0; i < dependencies.length; i++) {
+            dependencies[i] = m_stepsByName.get(step.dependencies[i]).done;
+        }
+        return CompletableFuture.allOf(dependencies);
+    }
+
+    private void runStep(Step step) {
+        step.threadName = Thread.currentThread().getName();
+        step.startTime = Timer.getFPGATimestamp();
+        try {
+            step.action.run();
+        } catch (Throwable e) {
+            // Errors too, for example an UnsatisfiedLinkError from a vendor library, so the rest of the robot still boots
+            DriverStation.reportError("Boot step " + step.name + " failed: " + e, e.getStackTrace());
+        } finally {
+            // Always complete, or run() and every step that depends on this one would wait forever
+            step.endTime = Timer.getFPGATimestamp();
+            step.done.complete(null);
+        }
+    }
+
+    /** Returns how long the whole sequence took in seconds. */
+    public double getTotalTime() {
+        return m_totalTime;
+    }
+
+    /**
+     * Prints the boot timeline and publishes it to NetworkTables.
+     * Each entry is the step name, the thread it ran on, and its start and end time in milliseconds.
+     * @param tableName The table to publish the timeline in.
+     */
+    public void publish(String tableName) {
+        String[] timeline = new String[m_steps.size()];
+        for (int i = 0; i < timeline.length; i++) {
+            Step step = m_steps.get(i);
+            timeline[i] = String.format("%s [%s]: %.0f - %.0f ms",
+                step.name, step.threadName, (step.startTime - m_startTime) * 1000, (step.endTime - m_startTime) * 1000);
+            System.out.println("Boot " + timeline[i]);
+        }
+        System.out.println(String.format("Boot finished in %.0f ms", m_totalTime * 1000));
+
+        NetworkTable table = NetworkTableInstance.getDefault().getTable(tableName);
+        table.getEntry("Timeline").setStringArray(timeline);
+        table.getEntry("Total ms").setDouble(m_totalTime * 1000);
+    }
+}
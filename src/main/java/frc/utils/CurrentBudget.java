@@ -0,0 +1,140 @@
+package frc.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Splits a total current budget between several mechanisms by priority.
+ * Every mechanism always gets its minimum current. Whatever is left over is handed out
+ * in priority order (the order the consumers were added), each up to its maximum.
+ * A mechanism's maximum can be lowered for a while to keep its motors from overheating,
+ * even below its minimum, and then whatever it can't use goes to the others.
+ */
+public class CurrentBudget {
+    private final List<Consumer> m_consumers = new ArrayList<>();
+
+    // Don't send a new limit over CAN unless it changed by at least this many amps per motor
+    private final int m_hysteresis;
+
+    /** A mechanism whose current limit is managed by the budget. */
+    public static class Consumer {
+        private final String m_name;
+        private final int m_motorCount;
+        private final int m_minPerMotor;
+        private final int m_maxPerMotor;
+        private final IntConsumer m_setLimit;
+        private final int[] m_channels;
+
+        private int m_limitPerMotor = -1;
+        private int m_thermalLimitPerMotor = Integer.MAX_VALUE;
+
+        private Consumer(String name, int motorCount, int minPerMotor, int maxPerMotor, IntConsumer setLimit, int[] channels) {
+            m_name = name;
+            m_motorCount = motorCount;
+            m_minPerMotor = minPerMotor;
+            m_maxPerMotor = maxPerMotor;
+            m_setLimit = setLimit;
+            m_channels = channels;
+        }
+
+        public String getName() {
+            return m_name;
+        }
+
+        /** Returns how many motors share the limit. */
+        public int getMotorCount() {
+            return m_motorCount;
+        }
+
+        /** Returns the power distribution channels this mechanism is wired to. */
+        public int[] getChannels() {
+            return m_channels;
+        }
+
+        /** Returns the current limit of each motor in amps (-1 before the first allocation). */
+        public int getLimitPerMotor() {
+            return m_limitPerMotor;
+        }
+
+        /** Returns the current limit of the whole mechanism in amps. */
+        public int getTotalLimit() {
+            return m_limitPerMotor * m_motorCount;
+        }
+
+        /**
+         * Caps the limit of each motor so it doesn't overheat. This can go below the minimum, since a slow
+         * mechanism is better than a burnt out motor. It takes effect at the next allocation.
+         * @param amps The cap for each motor in amps. It is never less than 1, since a limit of 0 can mean no limit.
+         */
+        public void setThermalLimit(double amps) {
+            m_thermalLimitPerMotor = (int) Math.max(1, Math.floor(amps));
+        }
+
+        /** Returns the largest limit each motor can be given right now, in amps. */
+        public int getMaxPerMotor() {
+            return Math.min(m_maxPerMotor, m_thermalLimitPerMotor);
+        }
+
+        /** Returns the limit each motor is always given, which is the minimum unless the thermal cap is lower. */
+        private int getFloorPerMotor() {
+            return Math.min(m_minPerMotor, getMaxPerMotor());
+        }
+    }
+
+    /**
+     * Creates an empty current budget.
+     * @param hysteresis The smallest change in a per-motor limit (in amps) that gets applied.
+     */
+    public CurrentBudget(int hysteresis) {
+        m_hysteresis = hysteresis;
+    }
+
+    /**
+     * Adds a mechanism to the budget. Mechanisms added first have the highest priority.
+     * @param name The name of the mechanism, for telemetry.
+     * @param motorCount How many motors share the limit.
+     * @param minPerMotor The smallest limit for each motor in amps.
+     * @param maxPerMotor The largest limit for each motor in amps.
+     * @param setLimit Applies a per-motor current limit to the mechanism.
+     * @param channels The power distribution channels the motors are wired to.
+     * @return The added consumer.
+     */
+    public Consumer addConsumer(String name, int motorCount, int minPerMotor, int maxPerMotor, IntConsumer setLimit, int... channels) {
+        Consumer consumer = new Consumer(name, motorCount, minPerMotor, maxPerMotor, setLimit, channels);
+        m_consumers.add(consumer);
+        return consumer;
+    }
+
+    public List<Consumer> getConsumers() {
+        return m_consumers;
+    }
+
+    /**
+     * Splits the budget between the mechanisms and applies the new limits.
+     * @param totalAmps The total current available to all of the mechanisms.
+     */
+    public void allocate(double totalAmps) {
+        // Everyone gets their minimum first
+        double remaining = totalAmps;
+        for (Consumer consumer : m_consumers) {
+            remaining -= consumer.getFloorPerMotor() * consumer.m_motorCount;
+        }
+
+        for (Consumer consumer : m_consumers) {
+            int floor = consumer.getFloorPerMotor();
+            int extraPerMotor = (int) Math.max(0, Math.floor(remaining / consumer.m_motorCount));
+            int limit = Math.min(consumer.getMaxPerMotor(), floor + extraPerMotor);
+            remaining -= (limit - floor) * consumer.m_motorCount;
+
+            // Always apply decreases that reach the minimum, so a sagging battery or a hot motor is never ignored
+            boolean changed = Math.abs(limit - consumer.m_limitPerMotor) >= m_hysteresis
+                || (limit == floor && consumer.m_limitPerMotor != limit);
+
+            if (consumer.m_limitPerMotor < 0 || changed) {
+                consumer.m_limitPerMotor = limit;
+                consumer.m_setLimit.accept(limit);
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package frc.utils;
+
+import com.ctre.phoenix.ErrorCode;
+import com.ctre.phoenix.motorcontrol.Faults;
+import com.ctre.phoenix.motorcontrol.StickyFaults;
+import com.ctre.phoenix.motorcontrol.can.BaseTalon;
+import com.kauailabs.navx.frc.AHRS;
+import com.revrobotics.CANSparkBase.FaultID;
+import com.revrobotics.CANSparkMax;
+import com.revrobotics.REVLibError;
+import com.revrobotics.RelativeEncoder;
+
+import frc.utils.HealthMonitor.Check;
+import frc.utils.HealthMonitor.Health;
+
+/** Health checks for the devices on the robot, for use with {@link HealthMonitor}. */
+public final class DeviceChecks {
+    private DeviceChecks() {}
+
+    /**
+     * Checks a SparkMax for faults, its motor temperature, and that its encoder is updating.
+     * Sticky faults (such as a brownout earlier in the match) are warnings, active faults are faults.
+     *
+     * <p>The SparkMax is read in {@link HealthMonitor#sample()} on the robot thread, since REVLib keeps the last error
+     * per SparkMax and the robot loop's own calls would overwrite it.
+     * @param motor The SparkMax.
+     * @param warningTemperature The motor temperature to warn at in degrees Celsius.
+     * @param faultTemperature The motor temperature to fault at in degrees Celsius.
+     * @param staleOutput The applied output above which the encoder should be moving.
+     * @param staleCurrent The current below which the motor isn't pushing against anything, in amps. A motor stalled
+     * against a wall draws a lot of current with a still encoder, which is fine.
+     * @param stalePolls How many checks in a row the encoder can stay still at that output before it is stale.
+     */
+    public static Check sparkMax(CANSparkMax motor, double warningTemperature, double faultTemperature, double staleOutput,
+            double staleCurrent, int stalePolls) {
+        RelativeEncoder encoder = motor.getEncoder();
+
+        // The readings from one sample
+        final class Sample {
+            final short faults;
+            final REVLibError error;
+            final short stickyFaults;
+            final double temperature;
+            final double position;
+            final double output;
+            final double current;
+
+            Sample() {
+                faults = motor.getFaults();
+                // Right after getFaults, before anything else on this thread can change it
+                error = motor.getLastError();
+                stickyFaults = motor.getStickyFaults();
+                temperature = motor.getMotorTemperature();
+                position = encoder.getPosition();
+                output = motor.getAppliedOutput();
+                current = motor.getOutputCurrent();
+            }
+        }
+
+        return new HealthMonitor.SampledCheck() {
+            private volatile Sample m_sample = null;
+
+            // Only used on the monitor thread
+            private double m_lastPosition = Double.NaN;
+            private int m_stillPolls = 0;
+
+            @Override
+            public void sample() {
+                m_sample = new Sample();
+            }
+
+            @Override
+            public Health check() {
+                Sample sample = m_sample;
+                if (sample == null) {
+                    return Health.kOk;
+                }
+                if (sample.error != REVLibError.kOk) {
+                    return Health.fault("Not responding (" + sample.error + ")");
+                }
+
+                // An encoder that doesn't move while the motor is driven hard without drawing current means its status frames have stopped
+                if (sample.position == m_lastPosition && Math.abs(sample.output) > staleOutput && sample.current < staleCurrent) {
+                    m_stillPolls++;
+                } else {
+                    m_stillPolls = 0;
+                }
+                m_lastPosition = sample.position;
+
+                Health health = Health.kOk;
+                if (sample.faults != 0) {
+                    health = Health.fault("Faults " + describeFaults(sample.faults));
+                } else if (sample.stickyFaults != 0) {
+                    health = Health.warning("Sticky faults " + describeFaults(sample.stickyFaults));
+                }
+
+                if (sample.temperature >= faultTemperature) {
+                    health = health.worst(Health.fault(String.format("Motor at %.0f C", sample.temperature)));
+                } else if (sample.temperature >= warningTemperature) {
+                    health = health.worst(Health.warning(String.format("Motor at %.0f C", sample.temperature)));
+                }
+
+                if (m_stillPolls >= stalePolls) {
+                    health = health.worst(Health.fault("Encoder not updating"));
+                }
+                return health;
+            }
+        };
+    }
+
+    private static String describeFaults(short faults) {
+        StringBuilder description = new StringBuilder();
+        for (FaultID fault : FaultID.values()) {
+            if ((faults & (1 << fault.value)) != 0) {
+                if (description.length() > 0) {
+                    description.append(", ");
+                }
+                description.append(fault.name().substring(1));
+            }
+        }
+        return description.toString();
+    }
+
+    /**
+     * Checks a Talon for faults and its temperature.
+     * Sticky faults are warnings, active faults are faults.
+     * @param motor The Talon.
+     * @param warningTemperature The controller temperature to warn at in degrees Celsius.
+     * @param faultTemperature The controller temperature to fault at in degrees Celsius.
+     */
+    public static Check talon(BaseTalon motor, double warningTemperature, double faultTemperature) {
+        // Only used on the monitor thread, so these can be reused
+        Faults faults = new Faults();
+        StickyFaults stickyFaults = new StickyFaults();
+
+        return () -> {
+            ErrorCode error = motor.getFaults(faults);
+            if (error != ErrorCode.OK) {
+                return Health.fault("Not responding (" + error + ")");
+            }
+            motor.getStickyFaults(stickyFaults);
+            double temperature = motor.getTemperature();
+
+            Health health = Health.kOk;
+            if (faults.hasAnyFault()) {
+                health = Health.fault("Faults 0x" + Integer.toHexString(faults.toBitfield()));
+            } else if (stickyFaults.hasAnyFault()) {
+                health = Health.warning("Sticky faults 0x" + Integer.toHexString(stickyFaults.toBitfield()));
+            }
+
+            if (temperature >= faultTemperature) {
+                health = health.worst(Health.fault(String.format("Controller at %.0f C", temperature)));
+            } else if (temperature >= warningTemperature) {
+                health = health.worst(Health.warning(String.format("Controller at %.0f C", temperature)));
+            }
+            return health;
+        };
+    }
+
+    /**
+     * Checks that a navX is connected and done calibrating.
+     * @param gyro The navX.
+     */
+    public static Check navX(AHRS gyro) {
+        return () -> {
+            if (!gyro.isConnected()) {
+                return Health.fault("Disconnected");
+            } else if (gyro.isCalibrating()) {
+                return Health.warning("Calibrating");
+            }
+            return Health.kOk;
+        };
+    }
+}
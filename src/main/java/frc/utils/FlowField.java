@@ -0,0 +1,211 @@
+package frc.utils;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+import edu.wpi.first.math.geometry.Pose2d;
+
+/**
+ * A distance field and flow field over a {@link NavGrid} towards a single target pose.
+ * Everything is computed once when the field is created (at boot), so following
+ * the field at runtime is just a few array lookups per loop.
+ */
+public class FlowField {
+    // 8-connected neighbors: column offset, row offset
+    private static final int[] kNeighborColumns = {1, -1, 0, 0, 1, 1, -1, -1};
+    private static final int[] kNeighborRows = {0, 0, 1, -1, 1, -1, 1, -1};
+    private static final double[] kNeighborCosts = {1, 1, 1, 1, Math.sqrt(2), Math.sqrt(2), Math.sqrt(2), Math.sqrt(2)};
+
+    private final NavGrid m_grid;
+    private final Pose2d m_target;
+    private final int m_goalCell;
+
+    // Distance to the goal cell in meters (infinite if unreachable)
+    private final double[] m_distance;
+    // The next cell to drive to from each cell (-1 for the goal cell or unreachable cells)
+    private final int[] m_next;
+
+    /**
+     * Builds the distance and flow fields for a target pose.
+     * If the target is inside an obstacle (for example right against a wall),
+     * the field leads to the closest free cell instead.
+     * @param grid The navigation grid.
+     * @param target The pose to drive to.
+     */
+    public FlowField(NavGrid grid, Pose2d target) {
+        m_grid = grid;
+        m_target = target;
+        m_distance = new double[grid.getCellCount()];
+        m_next = new int[grid.getCellCount()];
+
+        Arrays.fill(m_distance, Double.POSITIVE_INFINITY);
+        Arrays.fill(m_next, -1);
+
+        m_goalCell = findNearestFreeCell(target.getX(), target.getY(), Math.max(grid.getRows(), grid.getColumns()));
+        if (m_goalCell >= 0) {
+            computeDistances();
+            computeFlow();
+        }
+    }
+
+    /** Dijkstra's algorithm outwards from the goal cell. */
+    private void computeDistances() {
+        PriorityQueue<double[]> queue = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+
+        m_distance[m_goalCell] = 0;
+        queue.add(new double[]{0, m_goalCell});
+
+        while (!queue.isEmpty()) {
+            double[] entry = queue.poll();
+            int cell = (int) entry[1];
+
+            // Skip stale queue entries
+            if (entry[0] > m_distance[cell]) {
+                continue;
+            }
+
+            for (int i = 0; i < kNeighborCosts.length; i++) {
+                int neighbor = getNeighbor(cell, i);
+                if (neighbor < 0) {
+                    continue;
+                }
+
+                double distance = m_distance[cell] + kNeighborCosts[i] * m_grid.getNodeSize();
+                if (distance < m_distance[neighbor]) {
+                    m_distance[neighbor] = distance;
+                    queue.add(new double[]{distance, neighbor});
+                }
+            }
+        }
+    }
+
+    /** Points every reachable cell at its neighbor closest to the goal. */
+    private void computeFlow() {
+        for (int cell = 0; cell < m_next.length; cell++) {
+            if (cell == m_goalCell || Double.isInfinite(m_distance[cell])) {
+                continue;
+            }
+
+            double best = m_distance[cell];
+            for (int i = 0; i < kNeighborCosts.length; i++) {
+                int neighbor = getNeighbor(cell, i);
+                if (neighbor >= 0 && m_distance[neighbor] < best) {
+                    best = m_distance[neighbor];
+                    m_next[cell] = neighbor;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a free neighbor of a cell, or -1 if it is off the grid or blocked.
+     * Diagonal moves are not allowed to cut the corner of an obstacle.
+     */
+    private int getNeighbor(int cell, int direction) {
+        int column = m_grid.getColumn(cell) + kNeighborColumns[direction];
+        int row = m_grid.getRow(cell) + kNeighborRows[direction];
+
+        if (!isFree(row, column)) {
+            return -1;
+        }
+        if (kNeighborColumns[direction] != 0 && kNeighborRows[direction] != 0
+            && (!isFree(m_grid.getRow(cell), column) || !isFree(row, m_grid.getColumn(cell)))) {
+            return -1;
+        }
+        return row * m_grid.getColumns() + column;
+    }
+
+    private boolean isFree(int row, int column) {
+        return row >= 0 && row < m_grid.getRows() && column >= 0 && column < m_grid.getColumns()
+            && !m_grid.isBlocked(row * m_grid.getColumns() + column);
+    }
+
+    /**
+     * Finds the free cell closest to a point by searching outwards in square rings.
+     * @return The cell, or -1 if there is no free cell within the radius.
+     */
+    private int findNearestFreeCell(double x, double y, int maxRadius) {
+        int centerColumn = (int) Math.floor(x / m_grid.getNodeSize());
+        int centerRow = (int) Math.floor(y / m_grid.getNodeSize());
+
+        for (int radius = 0; radius <= maxRadius; radius++) {
+            int bestCell = -1;
+            double bestDistance = Double.POSITIVE_INFINITY;
+
+            for (int row = centerRow - radius; row <= centerRow + radius; row++) {
+                for (int column = centerColumn - radius; column <= centerColumn + radius; column++) {
+                    // Only look at the edge of the ring
+                    boolean onRing = Math.abs(row - centerRow) == radius || Math.abs(column - centerColumn) == radius;
+                    if (!onRing || !isFree(row, column)) {
+                        continue;
+                    }
+
+                    int cell = row * m_grid.getColumns() + column;
+                    double distance = Math.hypot(m_grid.getCellCenterX(cell) - x, m_grid.getCellCenterY(cell) - y);
+                    if (distance < bestDistance) {
+                        bestDistance = distance;
+                        bestCell = cell;
+                    }
+                }
+            }
+
+            if (bestCell >= 0) {
+                return bestCell;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the cell to start following the field from.
+     * This is just the cell the robot is in while it stays inside the free corridor.
+     * If the robot has left it (pushed into an obstacle cell or off the grid),
+     * this searches outwards for the closest cell that can still reach the goal.
+     * @return The cell, or -1 if no reachable cell is nearby.
+     */
+    public int findEntryCell(double x, double y, int searchRadius) {
+        int cell = m_grid.getCell(x, y);
+        if (cell >= 0 && isReachable(cell)) {
+            return cell;
+        }
+
+        int nearest = findNearestFreeCell(x, y, searchRadius);
+        return nearest >= 0 && isReachable(nearest) ? nearest : -1;
+    }
+
+    /**
+     * Follows the flow field a few cells ahead of a cell.
+     * @param cell The starting cell.
+     * @param steps How many cells to look ahead.
+     * @return The cell that many steps along the path, stopping early at the goal.
+     */
+    public int getLookaheadCell(int cell, int steps) {
+        for (int i = 0; i < steps && m_next[cell] >= 0; i++) {
+            cell = m_next[cell];
+        }
+        return cell;
+    }
+
+    /** Whether the goal can be reached from a cell. */
+    public boolean isReachable(int cell) {
+        return !Double.isInfinite(m_distance[cell]);
+    }
+
+    /** Returns the distance along the field from a cell to the goal in meters. */
+    public double getDistance(int cell) {
+        return m_distance[cell];
+    }
+
+    /** Returns the cell the field leads to. This is -1 if the target has no free cell nearby. */
+    public int getGoalCell() {
+        return m_goalCell;
+    }
+
+    public NavGrid getGrid() {
+        return m_grid;
+    }
+
+    public Pose2d getTarget() {
+        return m_target;
+    }
+}
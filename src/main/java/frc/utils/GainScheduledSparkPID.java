@@ -0,0 +1,324 @@
+package frc.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.revrobotics.REVLibError;
+import com.revrobotics.SparkPIDController;
+import com.revrobotics.CANSparkBase.ControlType;
+
+import edu.wpi.first.util.sendable.Sendable;
+import edu.wpi.first.util.sendable.SendableBuilder;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardContainer;
+import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardLayout;
+
+/**
+ * Runs a SparkMax PID controller with a different set of gains for each region of setpoints.
+ *
+ * <p>The SparkMax has four gain slots. Each region uses one of them, and one is kept spare.
+ * New gains are written to the spare slot and read back to check them, and only then does the
+ * region switch over to that slot. This way the motor never runs with half-written gains,
+ * and a failed write leaves the old gains in use.
+ *
+ * <p>The tracking error is recorded separately for each region, so it is easy to see which
+ * speeds need more tuning. {@link #addTuningWidgets} puts a PID widget for each region on the dashboard,
+ * and every change made there goes through {@link #setGains}.
+ */
+public class GainScheduledSparkPID {
+    private static final int kSlotCount = 4;
+    private static final int kWriteAttempts = 3;
+    // The SparkMax stores gains as 32 bit floats, which only keep about 7 significant digits,
+    // so a gain read back is compared relative to its size
+    private static final double kReadbackTolerance = 1e-5;
+
+    private final SparkPIDController m_controller;
+    private final ControlType m_controlType;
+    private final String m_name;
+
+    private final List<Region> m_regions = new ArrayList<>();
+    private int m_spareSlot = kSlotCount - 1;
+
+    private Region m_activeRegion = null;
+    private double m_setpoint = 0;
+
+    /** A set of PID gains. */
+    public static class Gains {
+        public final double p;
+        public final double i;
+        public final double d;
+        public final double ff;
+        public final double iZone;
+
+        public Gains(double p, double i, double d, double ff, double iZone) {
+            this.p = p;
+            this.i = i;
+            this.d = d;
+            this.ff = ff;
+            this.iZone = iZone;
+        }
+    }
+
+    /** A range of setpoints that share a set of gains. */
+    private static class Region {
+        final double minSetpoint;
+        final double maxSetpoint;
+        int slot;
+        Gains gains;
+
+        // Tracking error statistics
+        double sumSquaredError = 0;
+        double maxError = 0;
+        int samples = 0;
+
+        Region(double minSetpoint, double maxSetpoint, int slot) {
+            this.minSetpoint = minSetpoint;
+            this.maxSetpoint = maxSetpoint;
+            this.slot = slot;
+        }
+
+        double getRMSError() {
+            return samples == 0 ? 0 : Math.sqrt(sumSquaredError / samples);
+        }
+    }
+
+    /**
+     * Creates a gain scheduled PID controller with no regions.
+     * @param controller The SparkMax PID controller.
+     * @param controlType The control type to use for references.
+     * @param name The name used in error messages.
+     */
+    public GainScheduledSparkPID(SparkPIDController controller, ControlType controlType, String name) {
+        m_controller = controller;
+        m_controlType = controlType;
+        m_name = name;
+    }
+
+    /**
+     * Adds a region of setpoints with its own gains. Up to three regions can be added.
+     * The gains aren't sent to the controller until {@link #applyGains()} is called.
+     * @param minSetpoint The lowest setpoint in the region.
+     * @param maxSetpoint The highest setpoint in the region.
+     * @param gains The gains to use in the region.
+     * @return The index of the region.
+     */
+    public int addRegion(double minSetpoint, double maxSetpoint, Gains gains) {
+        if (m_regions.size() >= kSlotCount - 1) {
+            throw new IllegalStateException(m_name + " can only have " + (kSlotCount - 1) + " gain regions");
+        }
+
+        Region region = new Region(minSetpoint, maxSetpoint, m_regions.size());
+        region.gains = gains;
+        m_regions.add(region);
+
+        return m_regions.size() - 1;
+    }
+
+    /**
+     * Writes the gains of every region to the controller. Call this after the controller is
+     * reset to factory defaults. This waits for CAN responses, so don't call it every loop.
+     * @return Whether every region was written successfully.
+     */
+    public boolean applyGains() {
+        boolean success = true;
+        for (int i = 0; i < m_regions.size(); i++) {
+            Region region = m_regions.get(i);
+            if (!writeGains(region.slot, region.gains)) {
+                DriverStation.reportError("Failed to configure gains for " + m_name + " region " + i, false);
+                success = false;
+            }
+        }
+        return success;
+    }
+
+    /**
+     * Changes the gains of a region. The new gains are written to the spare slot and checked
+     * before the region switches to them, so the motor only ever runs on a complete set of gains.
+     * This waits for CAN responses, so don't call it every loop.
+     * @param regionIndex The region to change.
+     * @param gains The new gains.
+     * @return Whether the new gains were applied.
+     */
+    public boolean setGains(int regionIndex, Gains gains) {
+        Region region = m_regions.get(regionIndex);
+
+        if (!writeGains(m_spareSlot, gains)) {
+            DriverStation.reportError("Failed to update gains for " + m_name + " region " + regionIndex + ", keeping the old gains", false);
+            return false;
+        }
+
+        // Swap the region onto the freshly written slot
+        int oldSlot = region.slot;
+        region.slot = m_spareSlot;
+        region.gains = gains;
+        m_spareSlot = oldSlot;
+
+        // Reset the statistics, since they were for the old gains
+        region.sumSquaredError = 0;
+        region.maxError = 0;
+        region.samples = 0;
+
+        // Switch over right away if the region is in use
+        if (region == m_activeRegion) {
+            m_controller.setReference(m_setpoint, m_controlType, region.slot);
+        }
+        return true;
+    }
+
+    /**
+     * Writes a set of gains to a slot and reads them back, retrying a few times if they don't match.
+     * @return Whether the slot holds the new gains.
+     */
+    private boolean writeGains(int slot, Gains gains) {
+        for (int attempt = 0; attempt < kWriteAttempts; attempt++) {
+            boolean written = m_controller.setP(gains.p, slot) == REVLibError.kOk
+                && m_controller.setI(gains.i, slot) == REVLibError.kOk
+                && m_controller.setD(gains.d, slot) == REVLibError.kOk
+                && m_controller.setFF(gains.ff, slot) == REVLibError.kOk
+                && m_controller.setIZone(gains.iZone, slot) == REVLibError.kOk;
+
+            if (written && matches(slot, gains)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matches(int slot, Gains gains) {
+        return matches(m_controller.getP(slot), gains.p)
+            && matches(m_controller.getI(slot), gains.i)
+            && matches(m_controller.getD(slot), gains.d)
+            && matches(m_controller.getFF(slot), gains.ff)
+            && matches(m_controller.getIZone(slot), gains.iZone);
+    }
+
+    private static boolean matches(double actual, double expected) {
+        // Rounding expected to a float first means zero and other exactly representable gains have to match exactly
+        return Math.abs(actual - (float) expected) <= kReadbackTolerance * Math.abs(expected);
+    }
+
+    /**
+     * Sets the reference using the gains of the region the setpoint is in.
+     * Setpoints outside of every region use the closest region.
+     * @param setpoint The setpoint.
+     */
+    public void setReference(double setpoint) {
+        m_setpoint = setpoint;
+        m_activeRegion = findRegion(setpoint);
+        m_controller.setReference(setpoint, m_controlType, m_activeRegion.slot);
+    }
+
+    private Region findRegion(double setpoint) {
+        Region closest = m_regions.get(0);
+        double closestDistance = Double.POSITIVE_INFINITY;
+
+        for (int i = 0; i < m_regions.size(); i++) {
+            Region region = m_regions.get(i);
+            if (setpoint >= region.minSetpoint && setpoint <= region.maxSetpoint) {
+                return region;
+            }
+
+            double distance = Math.min(Math.abs(setpoint - region.minSetpoint), Math.abs(setpoint - region.maxSetpoint));
+            if (distance < closestDistance) {
+                closestDistance = distance;
+                closest = region;
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Stops tracking error until the next reference, for example when the motor is switched to open loop.
+     */
+    public void stop() {
+        m_activeRegion = null;
+    }
+
+    /**
+     * Records the tracking error for the active region. Call this once per loop.
+     * @param measurement The measured value, in the same units as the setpoint.
+     */
+    public void recordMeasurement(double measurement) {
+        if (m_activeRegion == null) {
+            return;
+        }
+
+        double error = Math.abs(m_setpoint - measurement);
+        m_activeRegion.sumSquaredError += error * error;
+        m_activeRegion.maxError = Math.max(m_activeRegion.maxError, error);
+        m_activeRegion.samples++;
+    }
+
+    /** Returns the RMS tracking error of a region since its gains were last changed. */
+    public double getRMSError(int regionIndex) {
+        return m_regions.get(regionIndex).getRMSError();
+    }
+
+    /** Returns the largest tracking error of a region since its gains were last changed. */
+    public double getMaxError(int regionIndex) {
+        return m_regions.get(regionIndex).maxError;
+    }
+
+    /** Returns the gains of a region. */
+    public Gains getGains(int regionIndex) {
+        return m_regions.get(regionIndex).gains;
+    }
+
+    /**
+     * Adds a PID widget for every region, for tuning from the dashboard. Each change writes a complete set of gains
+     * with {@link #setGains}, so the motor never runs on a half-tuned slot. Changes wait for CAN responses on the
+     * robot thread, so only tune with the robot on blocks, not during a match.
+     * @param container The tab or layout to add the widgets to.
+     * @param prefix The start of each widget's name, for example "Top".
+     */
+    public void addTuningWidgets(ShuffleboardContainer container, String prefix) {
+        for (int i = 0; i < m_regions.size(); i++) {
+            Region region = m_regions.get(i);
+            String name = String.format("%s %.2f to %.2f PID", prefix, region.minSetpoint, region.maxSetpoint);
+            container.add(name, new RegionTuner(i));
+        }
+    }
+
+    /** The dashboard view of one region's gains. */
+    private class RegionTuner implements Sendable {
+        private final int m_regionIndex;
+
+        RegionTuner(int regionIndex) {
+            m_regionIndex = regionIndex;
+        }
+
+        private Gains get() {
+            return getGains(m_regionIndex);
+        }
+
+        @Override
+        public void initSendable(SendableBuilder builder) {
+            builder.setSmartDashboardType("PIDController");
+            builder.addDoubleProperty("p", () -> get().p, p -> setGains(m_regionIndex, new Gains(p, get().i, get().d, get().ff, get().iZone)));
+            builder.addDoubleProperty("i", () -> get().i, i -> setGains(m_regionIndex, new Gains(get().p, i, get().d, get().ff, get().iZone)));
+            builder.addDoubleProperty("d", () -> get().d, d -> setGains(m_regionIndex, new Gains(get().p, get().i, d, get().ff, get().iZone)));
+            builder.addDoubleProperty("f", () -> get().ff, ff -> setGains(m_regionIndex, new Gains(get().p, get().i, get().d, ff, get().iZone)));
+            // Negative izones aren't valid, so they are ignored like in SparkSendablePID
+            builder.addDoubleProperty("izone", () -> get().iZone, iZone -> {
+                if (iZone >= 0) {
+                    setGains(m_regionIndex, new Gains(get().p, get().i, get().d, get().ff, iZone));
+                }
+            });
+        }
+    }
+
+    /**
+     * Adds the tracking error of every region to a Shuffleboard layout.
+     * @param layout The layout to add the widgets to.
+     */
+    public void addErrorWidgets(ShuffleboardLayout layout) {
+        for (int i = 0; i < m_regions.size(); i++) {
+            final int index = i;
+            Region region = m_regions.get(i);
+            String name = String.format("%.2f to %.2f", region.minSetpoint, region.maxSetpoint);
+
+            layout.addDouble(name + " RMS Error", () -> getRMSError(index));
+            layout.addDouble(name + " Max Error", () -> getMaxError(index));
+        }
+    }
+}
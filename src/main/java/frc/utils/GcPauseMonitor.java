@@ -0,0 +1,75 @@
+package frc.utils;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+/**
+ * Records every garbage collection pause, so the effect of the GC settings in build.gradle can be seen on the
+ * dashboard next to the loop jitter.
+ *
+ * <p>The JVM reports each collection after it finishes, on its own notification thread, so this costs the robot
+ * loop nothing. Concurrent collections (from G1 or ZGC) don't stop the program, so they are left out.
+ */
+public class GcPauseMonitor {
+    private final TimingStats m_pauses;
+    private volatile long m_pauseCount = 0;
+    private volatile double m_totalPauseTime = 0;
+
+    /**
+     * Creates the monitor and starts listening.
+     * @param samples How many of the most recent pauses to keep.
+     */
+    public GcPauseMonitor(int samples) {
+        m_pauses = new TimingStats(samples);
+
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector instanceof NotificationEmitter) {
+                ((NotificationEmitter) collector).addNotificationListener((notification, handback) -> {
+                    if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                        record(GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData()));
+                    }
+                }, null, null);
+            }
+        }
+    }
+
+    private synchronized void record(GarbageCollectionNotificationInfo info) {
+        String name = info.getGcName();
+        if (name.contains("Concurrent") || name.contains("Cycles")) {
+            return;
+        }
+
+        // The duration is only whole milliseconds
+        double pause = info.getGcInfo().getDuration() / 1000.0;
+        m_pauses.add(pause);
+        m_pauseCount++;
+        m_totalPauseTime += pause;
+    }
+
+    /** Returns the length of each recent pause, in seconds. */
+    public TimingStats getPauseStats() {
+        return m_pauses;
+    }
+
+    /** Returns how many pauses there have been since the last reset. */
+    public long getPauseCount() {
+        return m_pauseCount;
+    }
+
+    /** Returns how long the program has been paused in total since the last reset, in seconds. */
+    public double getTotalPauseTime() {
+        return m_totalPauseTime;
+    }
+
+    /** Throws away the recorded pauses, for example before comparing GC settings. */
+    public synchronized void reset() {
+        m_pauses.reset();
+        m_pauseCount = 0;
+        m_totalPauseTime = 0;
+    }
+}
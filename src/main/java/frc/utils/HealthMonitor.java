@@ -0,0 +1,243 @@
+package frc.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.wpi.first.networktables.IntegerPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.StringPublisher;
+import edu.wpi.first.wpilibj.DriverStation;
+
+/**
+ * Checks the health of every device (faults, temperatures, connections) on a low priority background thread.
+ *
+ * <p>Reading faults costs a JNI call and sometimes a CAN round trip per device, so doing it in the robot loop
+ * would eat into the 20 ms budget. Here the checks run a couple of times a second on their own thread, and the
+ * results are swapped into an immutable snapshot. Reading the health from the robot loop is just a field load.
+ *
+ * <p>Some devices can't safely be read from another thread. A SparkMax keeps its last error per object, so reading
+ * its faults here would mix up errors with the robot loop's calls. Those devices use a {@link SampledCheck}, whose
+ * readings are copied on the robot thread by {@link #sample()} and only judged here.
+ *
+ * <p>When a device gets worse or recovers, a warning or error is sent to the driver station,
+ * and the status of every device is published to NetworkTables.
+ */
+public class HealthMonitor {
+    private final double m_period;
+    private final String m_tableName;
+
+    private final List<String> m_names = new ArrayList<>();
+    private final List<Check> m_checks = new ArrayList<>();
+    private final List<SampledCheck> m_sampledChecks = new ArrayList<>();
+
+    private volatile Snapshot m_snapshot = new Snapshot(new Health[0]);
+    private Thread m_thread;
+
+    /** How bad a problem is. */
+    public enum Level {
+        OK, WARNING, FAULT
+    }
+
+    /** The result of one check. */
+    public static final class Health {
+        public static final Health kOk = new Health(Level.OK, "");
+
+        public final Level level;
+        public final String message;
+
+        public Health(Level level, String message) {
+            this.level = level;
+            this.message = message;
+        }
+
+        public static Health warning(String message) {
+            return new Health(Level.WARNING, message);
+        }
+
+        public static Health fault(String message) {
+            return new Health(Level.FAULT, message);
+        }
+
+        /** Returns whichever of the two is worse. */
+        public Health worst(Health other) {
+            return other.level.compareTo(level) > 0 ? other : this;
+        }
+    }
+
+    /**
+     * Checks one device. This is only ever called from the monitor thread,
+     * so a check can keep its own state between calls.
+     */
+    @FunctionalInterface
+    public interface Check {
+        Health check();
+    }
+
+    /**
+     * A check whose device has to be read on the robot thread. {@link #sample()} copies the readings there,
+     * and {@link #check()} judges the latest copy on the monitor thread. Before the first sample a check should be OK.
+     */
+    public interface SampledCheck extends Check {
+        /** Reads the device. This is called from the robot thread, so keep it to cached reads that don't wait on CAN. */
+        void sample();
+    }
+
+    /** An immutable copy of the latest result of every check. */
+    public static final class Snapshot {
+        private final Health[] m_health;
+        private final Level m_worst;
+
+        private Snapshot(Health[] health) {
+            m_health = health;
+
+            Level worst = Level.OK;
+            for (Health h : health) {
+                if (h.level.compareTo(worst) > 0) {
+                    worst = h.level;
+                }
+            }
+            m_worst = worst;
+        }
+
+        /** Returns the result of a check, or OK if it hasn't run yet. */
+        public Health get(int check) {
+            return check < m_health.length ? m_health[check] : Health.kOk;
+        }
+
+        /** Returns the worst level of every device. */
+        public Level getWorst() {
+            return m_worst;
+        }
+    }
+
+    /**
+     * Creates a health monitor with no checks.
+     * @param period How often to run the checks in seconds.
+     * @param tableName The NetworkTables table to publish the status of each device in.
+     */
+    public HealthMonitor(double period, String tableName) {
+        m_period = period;
+        m_tableName = tableName;
+    }
+
+    /**
+     * Adds a check. This must be done before {@link #start()}.
+     * @param name The name of the device.
+     * @param check The check to run.
+     * @return The index of the check, for {@link #isOk(int)} and {@link Snapshot#get(int)}.
+     */
+    public int addCheck(String name, Check check) {
+        if (m_thread != null) {
+            throw new IllegalStateException("Can't add health check " + name + " after the health monitor has started");
+        }
+
+        m_names.add(name);
+        m_checks.add(check);
+        if (check instanceof SampledCheck) {
+            m_sampledChecks.add((SampledCheck) check);
+        }
+        return m_checks.size() - 1;
+    }
+
+    /** Starts running the checks in the background. */
+    public void start() {
+        m_thread = new Thread(this::run, "Health Monitor");
+        m_thread.setDaemon(true);
+        // Below the robot loop, so the checks only use spare CPU time
+        m_thread.setPriority(Thread.MIN_PRIORITY);
+        m_thread.start();
+    }
+
+    /**
+     * Reads the devices of every {@link SampledCheck}. Call this from the robot thread, for example in the slow rate group.
+     * It does nothing until the monitor has started.
+     */
+    public void sample() {
+        if (m_thread == null) {
+            return;
+        }
+        for (int i = 0; i < m_sampledChecks.size(); i++) {
+            m_sampledChecks.get(i).sample();
+        }
+    }
+
+    /** Returns the latest results. This is cheap enough to call every loop. */
+    public Snapshot getSnapshot() {
+        return m_snapshot;
+    }
+
+    /** Returns whether the latest result of a check was not a fault. */
+    public boolean isOk(int check) {
+        return m_snapshot.get(check).level != Level.FAULT;
+    }
+
+    private void run() {
+        NetworkTable table = NetworkTableInstance.getDefault().getTable(m_tableName);
+        StringPublisher[] statusPublishers = new StringPublisher[m_checks.size()];
+        for (int i = 0; i < statusPublishers.length; i++) {
+            statusPublishers[i] = table.getStringTopic(m_names.get(i)).publish();
+        }
+        StringPublisher worstPublisher = table.getStringTopic("Worst").publish();
+        IntegerPublisher faultCountPublisher = table.getIntegerTopic("Fault Count").publish();
+
+        Health[] previous = new Health[m_checks.size()];
+        for (int i = 0; i < previous.length; i++) {
+            previous[i] = Health.kOk;
+        }
+
+        long periodMillis = (long) (m_period * 1000);
+
+        while (!Thread.currentThread().isInterrupted()) {
+            Health[] health = new Health[m_checks.size()];
+            int faultCount = 0;
+
+            for (int i = 0; i < health.length; i++) {
+                try {
+                    health[i] = m_checks.get(i).check();
+                } catch (RuntimeException e) {
+                    health[i] = Health.fault("Check failed: " + e.getMessage());
+                }
+
+                if (health[i].level == Level.FAULT) {
+                    faultCount++;
+                }
+
+                report(m_names.get(i), previous[i], health[i]);
+                statusPublishers[i].set(health[i].level + (health[i].message.isEmpty() ? "" : ": " + health[i].message));
+            }
+
+            Snapshot snapshot = new Snapshot(health);
+            m_snapshot = snapshot;
+            previous = health;
+
+            worstPublisher.set(snapshot.getWorst().toString());
+            faultCountPublisher.set(faultCount);
+
+            try {
+                Thread.sleep(periodMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /** Tells the driver station when a device changes level. Messages like temperatures change all the time, so they don't count. */
+    private static void report(String name, Health previous, Health current) {
+        if (current.level == previous.level) {
+            return;
+        }
+
+        switch (current.level) {
+            case FAULT:
+                DriverStation.reportError(name + ": " + current.message, false);
+                break;
+            case WARNING:
+                DriverStation.reportWarning(name + ": " + current.message, false);
+                break;
+            case OK:
+                DriverStation.reportWarning(name + " is OK again", false);
+                break;
+        }
+    }
+}
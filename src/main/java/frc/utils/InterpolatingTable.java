@@ -0,0 +1,169 @@
+package frc.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * A lookup table that linearly interpolates between points, with one key and any number of value columns.
+ *
+ * <p>The points are kept in sorted primitive arrays, so a lookup is a binary search and doesn't allocate.
+ * (WPILib's InterpolatingDoubleTreeMap boxes every key, which creates garbage every loop.)
+ * Keys outside the table use the closest point instead of extrapolating.
+ *
+ * <p>The table is saved as a JSON array of objects, for example
+ * {@code [{"distance": 1.5, "top": 12.0, "bottom": 6.0}]}.
+ */
+public class InterpolatingTable {
+    private final String m_keyName;
+    private final String[] m_columns;
+
+    private double[] m_keys = new double[0];
+    // Indexed by [column][point]
+    private double[][] m_values;
+
+    /**
+     * Creates an empty table.
+     * @param keyName The name of the key, used in the file.
+     * @param columns The names of the value columns, used in the file.
+     */
+    public InterpolatingTable(String keyName, String... columns) {
+        m_keyName = keyName;
+        m_columns = columns;
+        m_values = new double[columns.length][0];
+    }
+
+    /**
+     * Adds a point, replacing any point with the same key. This allocates, so don't call it every loop.
+     * @param key The key.
+     * @param values One value for each column.
+     */
+    public void addPoint(double key, double... values) {
+        if (values.length != m_columns.length) {
+            throw new IllegalArgumentException("Expected " + m_columns.length + " values but got " + values.length);
+        }
+
+        int index = Arrays.binarySearch(m_keys, key);
+        if (index >= 0) {
+            for (int column = 0; column < m_columns.length; column++) {
+                m_values[column][index] = values[column];
+            }
+            return;
+        }
+
+        // Insert the point in sorted order
+        int insertion = -(index + 1);
+        int size = m_keys.length;
+
+        double[] keys = new double[size + 1];
+        System.arraycopy(m_keys, 0, keys, 0, insertion);
+        keys[insertion] = key;
+        System.arraycopy(m_keys, insertion, keys, insertion + 1, size - insertion);
+
+        double[][] columnValues = new double[m_columns.length][size + 1];
+        for (int column = 0; column < m_columns.length; column++) {
+            System.arraycopy(m_values[column], 0, columnValues[column], 0, insertion);
+            columnValues[column][insertion] = values[column];
+            System.arraycopy(m_values[column], insertion, columnValues[column], insertion + 1, size - insertion);
+        }
+
+        m_keys = keys;
+        m_values = columnValues;
+    }
+
+    /**
+     * Looks up a value, interpolating between the points on either side of the key.
+     * @param key The key.
+     * @param column The index of the column, in the order they were given to the constructor.
+     * @return The value, or NaN if the table is empty.
+     */
+    public double get(double key, int column) {
+        double[] keys = m_keys;
+        double[] values = m_values[column];
+        int size = keys.length;
+
+        if (size == 0) {
+            return Double.NaN;
+        }
+
+        int index = Arrays.binarySearch(keys, key);
+        if (index >= 0) {
+            return values[index];
+        }
+
+        int upper = -(index + 1);
+        if (upper == 0) {
+            return values[0];
+        } else if (upper == size) {
+            return values[size - 1];
+        }
+
+        int lower = upper - 1;
+        double t = (key - keys[lower]) / (keys[upper] - keys[lower]);
+        return values[lower] + t * (values[upper] - values[lower]);
+    }
+
+    /** Returns the number of points in the table. */
+    public int size() {
+        return m_keys.length;
+    }
+
+    /**
+     * Replaces the points in the table with the ones in a file. Points that are missing a value are skipped.
+     * @param file The JSON file.
+     * @throws IOException If the file can't be read or isn't a JSON array. The table is left as it was.
+     */
+    public void load(File file) throws IOException {
+        JsonNode json = new ObjectMapper().readTree(file);
+        if (!json.isArray()) {
+            throw new IOException(file.getName() + " should be a JSON array of points");
+        }
+
+        InterpolatingTable loaded = new InterpolatingTable(m_keyName, m_columns);
+        for (JsonNode point : json) {
+            JsonNode key = point.get(m_keyName);
+            double[] values = new double[m_columns.length];
+            boolean complete = key != null && key.isNumber();
+
+            for (int column = 0; column < m_columns.length && complete; column++) {
+                JsonNode value = point.get(m_columns[column]);
+                complete = value != null && value.isNumber();
+                if (complete) {
+                    values[column] = value.asDouble();
+                }
+            }
+
+            if (complete) {
+                loaded.addPoint(key.asDouble(), values);
+            }
+        }
+
+        m_keys = loaded.m_keys;
+        m_values = loaded.m_values;
+    }
+
+    /**
+     * Saves the table to a file, in the same format {@link #load(File)} reads.
+     * @param file The JSON file.
+     * @throws IOException If the file can't be written.
+     */
+    public void save(File file) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        ArrayNode json = mapper.createArrayNode();
+
+        for (int i = 0; i < m_keys.length; i++) {
+            ObjectNode point = json.addObject();
+            point.put(m_keyName, m_keys[i]);
+            for (int column = 0; column < m_columns.length; column++) {
+                point.put(m_columns[column], m_values[column][i]);
+            }
+        }
+
+        mapper.writerWithDefaultPrettyPrinter().writeValue(file, json);
+    }
+}
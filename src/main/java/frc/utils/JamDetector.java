@@ -0,0 +1,106 @@
+package frc.utils;
+
+import edu.wpi.first.math.filter.LinearFilter;
+
+/**
+ * Detects a jammed roller from its motor current.
+ *
+ * <p>A free spinning roller draws little current for how hard it is driven, and a stalled one draws a lot.
+ * So instead of a fixed current threshold (which would trip at full speed and miss jams at low speed),
+ * this looks at the smoothed stator current divided by the applied output. The motor is jammed once that
+ * stays above the threshold for long enough, which also ignores the short spike when the motor starts.
+ */
+public class JamDetector {
+    private final double m_currentPerOutput;
+    private final double m_minOutput;
+    private final double m_jamTime;
+
+    private final LinearFilter m_currentFilter;
+
+    private double m_highSince = Double.NaN;
+    private boolean m_jammed = false;
+    private boolean m_paused = false;
+    private int m_jamCount = 0;
+
+    /**
+     * Creates a jam detector.
+     * @param currentPerOutput The stator current per unit of output (amps at 100% output) above which the roller is stalling.
+     * @param minOutput Outputs smaller than this are never considered jammed, since the ratio is noisy near 0.
+     * @param jamTime How long the current has to stay high before it is a jam, in seconds.
+     * @param filterTimeConstant The time constant of the current filter in seconds.
+     * @param period How often {@link #update} is called in seconds.
+     */
+    public JamDetector(double currentPerOutput, double minOutput, double jamTime, double filterTimeConstant, double period) {
+        m_currentPerOutput = currentPerOutput;
+        m_minOutput = minOutput;
+        m_jamTime = jamTime;
+        m_currentFilter = LinearFilter.singlePoleIIR(filterTimeConstant, period);
+    }
+
+    /**
+     * Updates the detector. Call this once per loop.
+     * @param statorCurrent The stator (motor) current in amps.
+     * @param output The applied output from -1 to 1.
+     * @param time The current time in seconds.
+     * @return Whether the roller is jammed. This is always false while paused.
+     */
+    public boolean update(double statorCurrent, double output, double time) {
+        if (m_paused) {
+            return false;
+        }
+
+        double current = m_currentFilter.calculate(Math.abs(statorCurrent));
+
+        boolean high = Math.abs(output) >= m_minOutput && current / Math.abs(output) > m_currentPerOutput;
+        if (!high) {
+            m_highSince = Double.NaN;
+        } else if (Double.isNaN(m_highSince)) {
+            m_highSince = time;
+        }
+
+        boolean jammed = high && time - m_highSince >= m_jamTime;
+        if (jammed && !m_jammed) {
+            m_jamCount++;
+        }
+        m_jammed = jammed;
+
+        return m_jammed;
+    }
+
+    /** Returns whether the roller was jammed at the last update. */
+    public boolean isJammed() {
+        return m_jammed;
+    }
+
+    /**
+     * Forgets the current history, for example after reversing to clear a jam,
+     * so the next jam has to build up from scratch. The jam count is kept.
+     */
+    public void reset() {
+        m_currentFilter.reset();
+        m_highSince = Double.NaN;
+        m_jammed = false;
+    }
+
+    /**
+     * Pauses or resumes detection. While paused the current is ignored and no jams are counted, which is
+     * needed while reversing to clear a jam, since driving against whatever is stuck draws a lot of current too.
+     * Resuming starts again from scratch, the same as {@link #reset()}.
+     * @param paused Whether to pause detection.
+     */
+    public void setPaused(boolean paused) {
+        if (paused != m_paused) {
+            reset();
+        }
+        m_paused = paused;
+    }
+
+    /** Returns how many jams have been detected since the count was last reset. */
+    public int getJamCount() {
+        return m_jamCount;
+    }
+
+    public void resetJamCount() {
+        m_jamCount = 0;
+    }
+}
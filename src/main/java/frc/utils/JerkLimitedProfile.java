@@ -0,0 +1,83 @@
+package frc.utils;
+
+/**
+ * A velocity profile that limits both acceleration and jerk (the rate of change of acceleration).
+ * Unlike a slew rate limiter, it starts easing off the acceleration before it reaches the goal,
+ * so the velocity arrives at the goal smoothly without overshooting.
+ * It can also use a lower limit when slowing down than when speeding up.
+ */
+public class JerkLimitedProfile {
+    private final double m_maxAcceleration;
+    private final double m_maxDeceleration;
+    private final double m_maxJerk;
+
+    private double m_velocity = 0;
+    private double m_acceleration = 0;
+
+    /**
+     * Creates a new jerk limited profile.
+     * @param maxAcceleration The largest acceleration when speeding up (units per second squared).
+     * @param maxDeceleration The largest acceleration when slowing down (units per second squared).
+     * @param maxJerk The largest jerk (units per second cubed).
+     */
+    public JerkLimitedProfile(double maxAcceleration, double maxDeceleration, double maxJerk) {
+        m_maxAcceleration = maxAcceleration;
+        m_maxDeceleration = maxDeceleration;
+        m_maxJerk = maxJerk;
+    }
+
+    /**
+     * Moves the profile one step towards a goal velocity.
+     * @param goal The goal velocity.
+     * @param dt The time step in seconds.
+     * @return The new velocity.
+     */
+    public double calculate(double goal, double dt) {
+        double error = goal - m_velocity;
+
+        // How much the velocity will still change if the acceleration is ramped down to zero right now
+        double rampDownChange = m_acceleration * Math.abs(m_acceleration) / (2 * m_maxJerk);
+
+        double targetAcceleration;
+        if (Math.signum(error) == Math.signum(m_acceleration) && Math.abs(error) <= Math.abs(rampDownChange)) {
+            // Close enough to start easing off
+            targetAcceleration = 0;
+        } else {
+            // Moving away from zero is speeding up, otherwise it is slowing down
+            boolean speedingUp = Math.signum(error) == Math.signum(m_velocity) || m_velocity == 0;
+            targetAcceleration = Math.signum(error) * (speedingUp ? m_maxAcceleration : m_maxDeceleration);
+        }
+
+        // Move the acceleration towards its target, limited by the jerk
+        double maxChange = m_maxJerk * dt;
+        m_acceleration += Math.max(-maxChange, Math.min(maxChange, targetAcceleration - m_acceleration));
+
+        double nextVelocity = m_velocity + m_acceleration * dt;
+
+        // Don't overshoot the goal
+        if (Math.signum(goal - nextVelocity) != Math.signum(error) || error == 0) {
+            nextVelocity = goal;
+            m_acceleration = 0;
+        }
+
+        m_velocity = nextVelocity;
+        return m_velocity;
+    }
+
+    /**
+     * Resets the profile to a velocity with no acceleration.
+     * @param velocity The current velocity.
+     */
+    public void reset(double velocity) {
+        m_velocity = velocity;
+        m_acceleration = 0;
+    }
+
+    public double getVelocity() {
+        return m_velocity;
+    }
+
+    public double getAcceleration() {
+        return m_acceleration;
+    }
+}
@@ -0,0 +1,121 @@
+package frc.utils;
+
+/**
+ * Estimates a motor's winding temperature from its current, and works out how much current it can take
+ * for the rest of a match without overheating.
+ *
+ * <p>The motor is modeled as one lump that is heated by I^2 R in the windings and cools to the air through a
+ * thermal resistance: C dT/dt = I^2 R - (T - T_air) / R_th. The temperature the motor controller reports
+ * is coarse and lags behind the windings, so it only slowly pulls the estimate towards it instead of replacing it.
+ *
+ * <p>Given how much of the match is left, {@link #getAllowedCurrent} is the steady current that would bring the
+ * motor to its limit right as the match ends. Capping the current there slows a hot motor down a little at a time,
+ * early on, instead of it hitting the limit and cutting out in the endgame. Near the end of the match the cap
+ * rises again, since there's no point saving heat for after the buzzer.
+ *
+ * <p>This class only uses the JDK so the log analyzer can replay it against logged matches.
+ */
+public class MotorThermalModel {
+    private final double m_resistance;
+    private final double m_thermalResistance;
+    private final double m_timeConstant;
+    private final double m_ambient;
+    private final double m_limit;
+    private final double m_correctionRate;
+
+    private double m_temperature;
+    private double m_current = 0;
+
+    /**
+     * Creates a model of a motor that starts at the air temperature.
+     * @param resistance The winding resistance in ohms.
+     * @param thermalResistance How many degrees Celsius above the air each watt of heat holds the motor at.
+     * @param thermalCapacity How many joules it takes to heat the motor by one degree Celsius.
+     * @param ambient The air temperature in degrees Celsius.
+     * @param limit The temperature to stay under in degrees Celsius.
+     * @param correctionRate How fast a reported temperature pulls in the estimate, as a fraction of the difference per second.
+     */
+    public MotorThermalModel(double resistance, double thermalResistance, double thermalCapacity, double ambient, double limit, double correctionRate) {
+        m_resistance = resistance;
+        m_thermalResistance = thermalResistance;
+        m_timeConstant = thermalResistance * thermalCapacity;
+        m_ambient = ambient;
+        m_limit = limit;
+        m_correctionRate = correctionRate;
+        m_temperature = ambient;
+    }
+
+    /**
+     * Steps the model forward.
+     * @param dt How long it has been since the last update, in seconds.
+     * @param current The motor's current in amps.
+     * @param measuredTemperature The temperature the motor controller reports, or NaN if there isn't one
+     *     (for example in simulation). Reports of 0 or less are ignored too.
+     */
+    public void update(double dt, double current, double measuredTemperature) {
+        m_current = current;
+
+        // Solved exactly over the step, so long steps are still stable
+        double steadyState = getSteadyStateTemperature(current);
+        m_temperature = steadyState + (m_temperature - steadyState) * Math.exp(-dt / m_timeConstant);
+
+        if (measuredTemperature > 0) {
+            double gain = 1 - Math.exp(-dt * m_correctionRate);
+            m_temperature += gain * (measuredTemperature - m_temperature);
+        }
+    }
+
+    /**
+     * Sets the estimate, for example to the reported temperature when the robot starts,
+     * since the motors may still be warm from the last match.
+     * @param temperature The temperature in degrees Celsius.
+     */
+    public void reset(double temperature) {
+        m_temperature = temperature;
+    }
+
+    /** Returns the estimated winding temperature in degrees Celsius. */
+    public double getTemperature() {
+        return m_temperature;
+    }
+
+    /** Returns the temperature the motor would settle at if it kept drawing a current. */
+    public double getSteadyStateTemperature(double current) {
+        return m_ambient + current * current * m_resistance * m_thermalResistance;
+    }
+
+    /**
+     * Returns how long until the motor reaches its limit if it keeps drawing the current from the last update.
+     * @return The time in seconds, 0 if it is already there, or infinity if it never will.
+     */
+    public double getTimeToLimit() {
+        if (m_temperature >= m_limit) {
+            return 0;
+        }
+
+        double steadyState = getSteadyStateTemperature(m_current);
+        if (steadyState <= m_limit) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return -m_timeConstant * Math.log((steadyState - m_limit) / (steadyState - m_temperature));
+    }
+
+    /**
+     * Returns the steady current that would bring the motor exactly to its limit after some time.
+     * Once the motor is at its limit, this is the current that holds it there.
+     * @param horizon How long the motor has to last, in seconds, usually the rest of the match.
+     * @return The current in amps.
+     */
+    public double getAllowedCurrent(double horizon) {
+        double decay = Math.exp(-Math.max(horizon, 0) / m_timeConstant);
+
+        // T(horizon) = steady + (T - steady) * decay = limit, solved for steady
+        double steadyState = decay < 1 ? (m_limit - m_temperature * decay) / (1 - decay) : m_limit;
+        if (m_temperature >= m_limit) {
+            steadyState = m_limit;
+        }
+
+        double rise = steadyState - m_ambient;
+        return rise > 0 ? Math.sqrt(rise / (m_resistance * m_thermalResistance)) : 0;
+    }
+}
@@ -0,0 +1,119 @@
+package frc.utils;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.Filesystem;
+
+/**
+ * The PathPlanner navigation grid, loaded from the deploy directory.
+ * Cells are stored in a flat array indexed by {@code row * columns + column},
+ * where rows go along the y axis and columns go along the x axis.
+ */
+public class NavGrid {
+    private final double m_nodeSize;
+    private final int m_rows;
+    private final int m_columns;
+    private final boolean[] m_blocked;
+
+    /**
+     * Creates a navigation grid.
+     * @param nodeSize The size of each (square) cell in meters.
+     * @param rows The number of rows (y direction).
+     * @param columns The number of columns (x direction).
+     * @param blocked Whether each cell is an obstacle, indexed by {@code row * columns + column}.
+     */
+    public NavGrid(double nodeSize, int rows, int columns, boolean[] blocked) {
+        m_nodeSize = nodeSize;
+        m_rows = rows;
+        m_columns = columns;
+        m_blocked = blocked;
+    }
+
+    /**
+     * Loads the navigation grid from a file in the deploy directory.
+     * @param fileName The path of the navgrid file relative to the deploy directory.
+     * @return The loaded grid.
+     * @throws IOException If the file can't be read or parsed.
+     */
+    public static NavGrid fromDeployDirectory(String fileName) throws IOException {
+        JsonNode json = new ObjectMapper().readTree(new File(Filesystem.getDeployDirectory(), fileName));
+
+        JsonNode grid = json.get("grid");
+        int rows = grid.size();
+        int columns = grid.get(0).size();
+        boolean[] blocked = new boolean[rows * columns];
+
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                // PathPlanner marks obstacles as true
+                blocked[row * columns + column] = grid.get(row).get(column).asBoolean();
+            }
+        }
+
+        return new NavGrid(json.get("nodeSizeMeters").asDouble(), rows, columns, blocked);
+    }
+
+    public double getNodeSize() {
+        return m_nodeSize;
+    }
+
+    public int getRows() {
+        return m_rows;
+    }
+
+    public int getColumns() {
+        return m_columns;
+    }
+
+    public int getCellCount() {
+        return m_rows * m_columns;
+    }
+
+    public boolean isBlocked(int cell) {
+        return m_blocked[cell];
+    }
+
+    /**
+     * Finds the cell that contains a point on the field.
+     * @return The cell index, or -1 if the point is off the grid.
+     */
+    public int getCell(double x, double y) {
+        int column = (int) Math.floor(x / m_nodeSize);
+        int row = (int) Math.floor(y / m_nodeSize);
+
+        if (row < 0 || row >= m_rows || column < 0 || column >= m_columns) {
+            return -1;
+        }
+        return row * m_columns + column;
+    }
+
+    /** Returns the column of a cell. */
+    public int getColumn(int cell) {
+        return cell % m_columns;
+    }
+
+    /** Returns the row of a cell. */
+    public int getRow(int cell) {
+        return cell / m_columns;
+    }
+
+    /** Returns the x coordinate of the center of a cell in meters. */
+    public double getCellCenterX(int cell) {
+        return (getColumn(cell) + 0.5) * m_nodeSize;
+    }
+
+    /** Returns the y coordinate of the center of a cell in meters. */
+    public double getCellCenterY(int cell) {
+        return (getRow(cell) + 0.5) * m_nodeSize;
+    }
+
+    /** Returns the center of a cell. */
+    public Translation2d getCellCenter(int cell) {
+        return new Translation2d(getCellCenterX(cell), getCellCenterY(cell));
+    }
+}
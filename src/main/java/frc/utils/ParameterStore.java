@@ -0,0 +1,228 @@
+package frc.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.DoubleSupplier;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import edu.wpi.first.networktables.BooleanEntry;
+import edu.wpi.first.networktables.DoubleEntry;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableEvent;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+
+/**
+ * A set of numbers that can be tuned from the dashboard while the robot is running.
+ *
+ * <p>Reading a parameter is just a field load and an array index: all of the values live in
+ * an immutable snapshot that is swapped out in one go by {@link #update()}, which should be called
+ * once at the start of every loop. Changes from the dashboard are picked up there, so every value
+ * changes at the same time and never in the middle of a loop.
+ *
+ * <p>Values are loaded from a file in the deploy directory at startup. Pressing "Commit" on the
+ * dashboard writes the current values back to that file. Note that the next deploy overwrites
+ * the file with the copy in the repo, so copy committed values back into the repo.
+ */
+public class ParameterStore {
+    private final String m_fileName;
+    private final String m_tableName;
+
+    private final List<Parameter> m_parameters = new ArrayList<>();
+    private final List<DoubleEntry> m_entries = new ArrayList<>();
+    private BooleanEntry m_commitEntry;
+
+    // Set by the NetworkTables listener thread, cleared by the main loop
+    private final AtomicBoolean m_changed = new AtomicBoolean(false);
+
+    private volatile Snapshot m_snapshot = new Snapshot(new double[0], 0);
+    private boolean m_started = false;
+
+    /** An immutable copy of every parameter value. */
+    private static final class Snapshot {
+        final double[] values;
+        final long version;
+
+        Snapshot(double[] values, long version) {
+            this.values = values;
+            this.version = version;
+        }
+    }
+
+    /** A single tunable number. */
+    public static final class Parameter implements DoubleSupplier {
+        private final ParameterStore m_store;
+        private final int m_index;
+        private final String m_name;
+        private final double m_default;
+
+        private Parameter(ParameterStore store, int index, String name, double defaultValue) {
+            m_store = store;
+            m_index = index;
+            m_name = name;
+            m_default = defaultValue;
+        }
+
+        /** Returns the current value of the parameter. */
+        public double get() {
+            return m_store.m_snapshot.values[m_index];
+        }
+
+        @Override
+        public double getAsDouble() {
+            return get();
+        }
+
+        public String getName() {
+            return m_name;
+        }
+
+        public double getDefault() {
+            return m_default;
+        }
+    }
+
+    /**
+     * Creates an empty parameter store.
+     * @param fileName The file to load and save values from, relative to the deploy directory.
+     * @param tableName The NetworkTables table to publish the values in.
+     */
+    public ParameterStore(String fileName, String tableName) {
+        m_fileName = fileName;
+        m_tableName = tableName;
+    }
+
+    /**
+     * Adds a parameter. This must be done before {@link #start()}.
+     * @param name The name of the parameter. Slashes can be used to group parameters.
+     * @param defaultValue The value to use if there is no saved value.
+     * @return The parameter.
+     */
+    public Parameter add(String name, double defaultValue) {
+        if (m_started) {
+            throw new IllegalStateException("Can't add parameter " + name + " after the parameter store has started");
+        }
+
+        Parameter parameter = new Parameter(this, m_parameters.size(), name, defaultValue);
+        m_parameters.add(parameter);
+
+        // Make the default readable right away, in case something reads it before start()
+        double[] values = new double[m_parameters.size()];
+        for (Parameter p : m_parameters) {
+            values[p.m_index] = p.m_default;
+        }
+        m_snapshot = new Snapshot(values, 0);
+
+        return parameter;
+    }
+
+    /**
+     * Loads the saved values and starts listening for changes from the dashboard.
+     */
+    public void start() {
+        m_started = true;
+
+        double[] values = m_snapshot.values.clone();
+        loadFile(values);
+
+        NetworkTable table = NetworkTableInstance.getDefault().getTable(m_tableName);
+        for (Parameter parameter : m_parameters) {
+            DoubleEntry entry = table.getDoubleTopic(parameter.m_name).getEntry(values[parameter.m_index]);
+            entry.set(values[parameter.m_index]);
+            m_entries.add(entry);
+        }
+
+        m_commitEntry = table.getBooleanTopic("Commit").getEntry(false);
+        m_commitEntry.set(false);
+
+        // Only flag that something changed here: this runs on the NetworkTables thread
+        NetworkTableInstance.getDefault().addListener(
+            new String[]{"/" + m_tableName + "/"},
+            EnumSet.of(NetworkTableEvent.Kind.kValueRemote),
+            event -> m_changed.set(true));
+
+        m_snapshot = new Snapshot(values, 1);
+    }
+
+    /**
+     * Applies any changes from the dashboard. Call this once per loop, before anything reads parameters.
+     */
+    public void update() {
+        if (!m_changed.getAndSet(false)) {
+            return;
+        }
+
+        Snapshot current = m_snapshot;
+        double[] values = new double[current.values.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = m_entries.get(i).get(current.values[i]);
+        }
+        m_snapshot = new Snapshot(values, current.version + 1);
+
+        if (m_commitEntry.get(false)) {
+            m_commitEntry.set(false);
+            saveFile(values);
+        }
+    }
+
+    /** Returns how many times the values have changed. This can be used to tell if something needs to be recalculated. */
+    public long getVersion() {
+        return m_snapshot.version;
+    }
+
+    private File getFile() {
+        return new File(Filesystem.getDeployDirectory(), m_fileName);
+    }
+
+    private void loadFile(double[] values) {
+        File file = getFile();
+        if (!file.exists()) {
+            return;
+        }
+
+        try {
+            JsonNode json = new ObjectMapper().readTree(file);
+            for (Parameter parameter : m_parameters) {
+                JsonNode value = json.get(parameter.m_name);
+                if (value != null && value.isNumber()) {
+                    values[parameter.m_index] = value.asDouble();
+                }
+            }
+
+            // Warn about saved values that don't match a parameter anymore
+            Iterator<Map.Entry<String, JsonNode>> fields = json.fields();
+            while (fields.hasNext()) {
+                String name = fields.next().getKey();
+                if (m_parameters.stream().noneMatch(p -> p.m_name.equals(name))) {
+                    DriverStation.reportWarning("Unknown parameter in " + m_fileName + ": " + name, false);
+                }
+            }
+        } catch (IOException e) {
+            DriverStation.reportError("Failed to load parameters from " + m_fileName + ": " + e.getMessage(), false);
+        }
+    }
+
+    private void saveFile(double[] values) {
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode json = mapper.createObjectNode();
+        for (Parameter parameter : m_parameters) {
+            json.put(parameter.m_name, values[parameter.m_index]);
+        }
+
+        try {
+            mapper.writerWithDefaultPrettyPrinter().writeValue(getFile(), json);
+        } catch (IOException e) {
+            DriverStation.reportError("Failed to save parameters to " + m_fileName + ": " + e.getMessage(), false);
+        }
+    }
+}
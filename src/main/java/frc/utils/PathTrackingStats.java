@@ -0,0 +1,171 @@
+package frc.utils;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.IntegerPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+
+import com.pathplanner.lib.path.PathPlannerTrajectory;
+
+/**
+ * Measures how closely the robot follows a path, and publishes a summary when the path ends.
+ *
+ * <p>Each loop the robot's pose is compared to where the trajectory wanted it, in the frame of the target:
+ * <ul>
+ * <li>along-track error is how far ahead (positive) or behind the robot is in the direction of travel,</li>
+ * <li>cross-track error is how far to the side it is,</li>
+ * <li>heading error is how far the robot is turned from the path.</li>
+ * </ul>
+ * The errors go into running sums and maxes, so recording a sample doesn't allocate.
+ *
+ * <p>The path ends at its planned time no matter where the robot is, so the time over plan is how far behind
+ * schedule the robot was at the end: the along-track lag divided by the target speed.
+ */
+public class PathTrackingStats {
+    private final double m_minLagSpeed;
+
+    private int m_samples;
+    private double m_crossSquares;
+    private double m_alongSquares;
+    private double m_headingSquares;
+    private double m_crossMax;
+    private double m_alongMax;
+    private double m_headingMax;
+    private double m_lag;
+    private int m_paths = 0;
+
+    // The summary of the last path that ended
+    private double m_lastCrossRms = Double.NaN;
+    private double m_lastCrossMax = Double.NaN;
+    private double m_lastAlongRms = Double.NaN;
+    private double m_lastHeadingRms = Double.NaN;
+    private double m_lastTimeOverPlan = Double.NaN;
+
+    private final DoublePublisher m_crossRmsPublisher;
+    private final DoublePublisher m_crossMaxPublisher;
+    private final DoublePublisher m_alongRmsPublisher;
+    private final DoublePublisher m_alongMaxPublisher;
+    private final DoublePublisher m_headingRmsPublisher;
+    private final DoublePublisher m_headingMaxPublisher;
+    private final DoublePublisher m_timeOverPlanPublisher;
+    private final IntegerPublisher m_pathsPublisher;
+
+    /**
+     * Creates the stats and their NetworkTables topics.
+     * @param tableName The table to publish to.
+     * @param minLagSpeed Below this target speed (m/s) the schedule lag isn't updated, since dividing by the speed blows up.
+     */
+    public PathTrackingStats(String tableName, double minLagSpeed) {
+        m_minLagSpeed = minLagSpeed;
+
+        NetworkTable table = NetworkTableInstance.getDefault().getTable(tableName);
+        m_crossRmsPublisher = table.getDoubleTopic("Cross Track RMS").publish();
+        m_crossMaxPublisher = table.getDoubleTopic("Cross Track Max").publish();
+        m_alongRmsPublisher = table.getDoubleTopic("Along Track RMS").publish();
+        m_alongMaxPublisher = table.getDoubleTopic("Along Track Max").publish();
+        m_headingRmsPublisher = table.getDoubleTopic("Heading RMS Degrees").publish();
+        m_headingMaxPublisher = table.getDoubleTopic("Heading Max Degrees").publish();
+        m_timeOverPlanPublisher = table.getDoubleTopic("Time Over Plan").publish();
+        m_pathsPublisher = table.getIntegerTopic("Paths").publish();
+
+        start();
+    }
+
+    /** Clears the sums for a new path. */
+    public void start() {
+        m_samples = 0;
+        m_crossSquares = 0;
+        m_alongSquares = 0;
+        m_headingSquares = 0;
+        m_crossMax = 0;
+        m_alongMax = 0;
+        m_headingMax = 0;
+        m_lag = 0;
+    }
+
+    /**
+     * Records how far the robot is from the target. Call this once per loop while following a path.
+     * @param pose The robot's pose.
+     * @param target The trajectory state the robot should be at.
+     */
+    public void add(Pose2d pose, PathPlannerTrajectory.State target) {
+        // The target heading is the way the robot faces, so flip it when driving backwards to get the direction of travel
+        double direction = target.velocityMps < 0 ? -1 : 1;
+        double cos = target.heading.getCos() * direction;
+        double sin = target.heading.getSin() * direction;
+
+        double dx = pose.getX() - target.positionMeters.getX();
+        double dy = pose.getY() - target.positionMeters.getY();
+        double along = dx * cos + dy * sin;
+        double cross = -dx * sin + dy * cos;
+        double heading = MathUtil.angleModulus(pose.getRotation().getRadians() - target.heading.getRadians());
+
+        m_samples++;
+        m_crossSquares += cross * cross;
+        m_alongSquares += along * along;
+        m_headingSquares += heading * heading;
+        m_crossMax = Math.max(m_crossMax, Math.abs(cross));
+        m_alongMax = Math.max(m_alongMax, Math.abs(along));
+        m_headingMax = Math.max(m_headingMax, Math.abs(heading));
+
+        double speed = Math.abs(target.velocityMps);
+        if (speed >= m_minLagSpeed) {
+            m_lag = -along / speed;
+        }
+    }
+
+    /** Publishes the summary of the path that just ended. */
+    public void finish() {
+        if (m_samples == 0) {
+            return;
+        }
+
+        m_paths++;
+        m_lastCrossRms = Math.sqrt(m_crossSquares / m_samples);
+        m_lastCrossMax = m_crossMax;
+        m_lastAlongRms = Math.sqrt(m_alongSquares / m_samples);
+        m_lastHeadingRms = Math.toDegrees(Math.sqrt(m_headingSquares / m_samples));
+        m_lastTimeOverPlan = m_lag;
+
+        m_crossRmsPublisher.set(m_lastCrossRms);
+        m_crossMaxPublisher.set(m_lastCrossMax);
+        m_alongRmsPublisher.set(m_lastAlongRms);
+        m_alongMaxPublisher.set(m_alongMax);
+        m_headingRmsPublisher.set(m_lastHeadingRms);
+        m_headingMaxPublisher.set(Math.toDegrees(m_headingMax));
+        m_timeOverPlanPublisher.set(m_lastTimeOverPlan);
+        m_pathsPublisher.set(m_paths);
+    }
+
+    /** Returns how many paths have ended. */
+    public int getPathCount() {
+        return m_paths;
+    }
+
+    /** Returns the RMS cross-track error of the last path, in meters, or NaN if no path has ended. */
+    public double getLastCrossTrackRms() {
+        return m_lastCrossRms;
+    }
+
+    /** Returns the largest cross-track error of the last path, in meters, or NaN if no path has ended. */
+    public double getLastCrossTrackMax() {
+        return m_lastCrossMax;
+    }
+
+    /** Returns the RMS along-track error of the last path, in meters, or NaN if no path has ended. */
+    public double getLastAlongTrackRms() {
+        return m_lastAlongRms;
+    }
+
+    /** Returns the RMS heading error of the last path, in degrees, or NaN if no path has ended. */
+    public double getLastHeadingRms() {
+        return m_lastHeadingRms;
+    }
+
+    /** Returns how far behind schedule the robot was at the end of the last path, in seconds, or NaN if no path has ended. */
+    public double getLastTimeOverPlan() {
+        return m_lastTimeOverPlan;
+    }
+}
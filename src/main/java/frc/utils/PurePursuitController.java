@@ -0,0 +1,69 @@
+package frc.utils;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+
+import com.pathplanner.lib.controllers.PathFollowingController;
+import com.pathplanner.lib.path.PathPlannerTrajectory;
+
+/**
+ * A pure pursuit path follower for a differential drive.
+ *
+ * <p>It aims at a point a fixed distance ahead of the target state, in the direction of travel, and drives
+ * the arc that passes through it at the target speed. It doesn't correct along-track error, but it is smooth
+ * and doesn't need tuning beyond the lookahead distance. A longer lookahead cuts corners more and oscillates less.
+ */
+public class PurePursuitController implements PathFollowingController {
+    private final double m_lookahead;
+    private double m_positionalError = 0;
+
+    /**
+     * Creates a pure pursuit controller.
+     * @param lookahead How far ahead of the target state to aim, in meters.
+     */
+    public PurePursuitController(double lookahead) {
+        m_lookahead = lookahead;
+    }
+
+    @Override
+    public ChassisSpeeds calculateRobotRelativeSpeeds(Pose2d currentPose, PathPlannerTrajectory.State targetState) {
+        double velocity = targetState.velocityMps;
+        // The target heading is the way the robot faces, so aim behind it when driving backwards
+        double direction = velocity < 0 ? -1 : 1;
+
+        double aimX = targetState.positionMeters.getX() + direction * m_lookahead * targetState.heading.getCos();
+        double aimY = targetState.positionMeters.getY() + direction * m_lookahead * targetState.heading.getSin();
+
+        // The aim point in the robot's frame
+        double dx = aimX - currentPose.getX();
+        double dy = aimY - currentPose.getY();
+        double cos = currentPose.getRotation().getCos();
+        double sin = currentPose.getRotation().getSin();
+        double localX = dx * cos + dy * sin;
+        double localY = -dx * sin + dy * cos;
+
+        // Curvature of the arc that is tangent to the robot's heading and goes through the aim point
+        double distanceSquared = localX * localX + localY * localY;
+        double curvature = distanceSquared > 1e-6 ? 2 * localY / distanceSquared : 0;
+
+        m_positionalError = Math.hypot(
+            currentPose.getX() - targetState.positionMeters.getX(), currentPose.getY() - targetState.positionMeters.getY());
+
+        return new ChassisSpeeds(velocity, 0, velocity * curvature);
+    }
+
+    @Override
+    public void reset(Pose2d currentPose, ChassisSpeeds currentSpeeds) {
+        m_positionalError = 0;
+    }
+
+    @Override
+    public double getPositionalError() {
+        return m_positionalError;
+    }
+
+    @Override
+    public boolean isHolonomic() {
+        return false;
+    }
+}
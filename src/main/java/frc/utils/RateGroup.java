@@ -0,0 +1,111 @@
+package frc.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardLayout;
+
+/**
+ * A group of periodic tasks that all run at the same rate, for example a fast group for control that benefits from
+ * fresher sensor data and a slow group for telemetry that nobody reads 50 times a second.
+ *
+ * <p>Register the group with {@link SyncedRobot#addRateGroups} so its phase is staggered against the other groups,
+ * or call {@link #run()} yourself. Each run is timed, so the dashboard can show how much of the period the group uses,
+ * how late it starts, and how often it runs over.
+ */
+public class RateGroup implements Runnable {
+    private final String m_name;
+    private final double m_period;
+
+    private final List<Runnable> m_tasks = new ArrayList<>();
+
+    private final TimingStats m_duration;
+    private final TimingStats m_jitter;
+    private long m_overruns = 0;
+    private double m_lastStart = Double.NaN;
+
+    /**
+     * Creates an empty group.
+     * @param name The name shown on the dashboard.
+     * @param period How often the group runs in seconds.
+     * @param samples How many timing samples to keep.
+     */
+    public RateGroup(String name, double period, int samples) {
+        m_name = name;
+        m_period = period;
+        m_duration = new TimingStats(samples);
+        m_jitter = new TimingStats(samples);
+    }
+
+    /**
+     * Adds a task to the group. Tasks run in the order they were added, on the robot thread.
+     * @param task The task.
+     */
+    public void addTask(Runnable task) {
+        m_tasks.add(task);
+    }
+
+    /** Runs every task once and records how long it took. */
+    @Override
+    public void run() {
+        double start = Timer.getFPGATimestamp();
+        if (!Double.isNaN(m_lastStart)) {
+            // How far off the schedule this run started
+            m_jitter.add(Math.abs(start - m_lastStart - m_period));
+        }
+        m_lastStart = start;
+
+        for (int i = 0; i < m_tasks.size(); i++) {
+            m_tasks.get(i).run();
+        }
+
+        double duration = Timer.getFPGATimestamp() - start;
+        m_duration.add(duration);
+        if (duration > m_period) {
+            m_overruns++;
+        }
+    }
+
+    public String getName() {
+        return m_name;
+    }
+
+    public double getPeriod() {
+        return m_period;
+    }
+
+    /** Returns how long each run took, in seconds. */
+    public TimingStats getDurationStats() {
+        return m_duration;
+    }
+
+    /** Returns how far each run started from when it should have, in seconds. */
+    public TimingStats getJitterStats() {
+        return m_jitter;
+    }
+
+    /** Returns how many runs took longer than the period. */
+    public long getOverruns() {
+        return m_overruns;
+    }
+
+    /** Sorts the timing samples for the dashboard. Run this in the slow group, not every loop. */
+    public void updateCachedPercentiles() {
+        m_duration.updateCachedPercentiles();
+        m_jitter.updateCachedPercentiles();
+    }
+
+    /**
+     * Adds the timing of this group to a dashboard layout. The percentiles only change when
+     * {@link #updateCachedPercentiles()} runs.
+     * @param layout The layout, for example a list on the loop tab.
+     */
+    public void addWidgets(ShuffleboardLayout layout) {
+        layout.addDouble("Mean ms", () -> m_duration.getMean() * 1000);
+        layout.addDouble("99th ms", () -> m_duration.getCachedPercentile(99) * 1000);
+        layout.addDouble("Max ms", () -> m_duration.getMax() * 1000);
+        layout.addDouble("Jitter 99th ms", () -> m_jitter.getCachedPercentile(99) * 1000);
+        layout.addInteger("Overruns", this::getOverruns);
+    }
+}
@@ -0,0 +1,83 @@
+package frc.utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.wpilibj.DriverStation;
+
+import com.pathplanner.lib.controllers.PathFollowingController;
+import com.pathplanner.lib.path.PathPlannerTrajectory;
+
+/**
+ * A path following controller that passes everything through to one of several controllers, picked at runtime.
+ *
+ * <p>The choice is read when a path starts, so it never changes partway through a path.
+ * Controllers can be added later (for example ones that are slow to build, on a background thread).
+ * If the chosen one isn't there yet, the default is used instead.
+ * Every loop, the tracking error is recorded in the given stats.
+ */
+public class SelectablePathController implements PathFollowingController {
+    private final Map<String, PathFollowingController> m_controllers = new ConcurrentHashMap<>();
+    private final String m_defaultName;
+    private final Supplier<String> m_selection;
+    private final PathTrackingStats m_stats;
+
+    private PathFollowingController m_active;
+
+    /**
+     * Creates a selectable controller.
+     * @param defaultName The name of the controller to use when the chosen one isn't available.
+     * @param defaultController The default controller.
+     * @param selection Supplies the name of the chosen controller.
+     * @param stats Where to record the tracking error.
+     */
+    public SelectablePathController(String defaultName, PathFollowingController defaultController, Supplier<String> selection, PathTrackingStats stats) {
+        m_defaultName = defaultName;
+        m_selection = selection;
+        m_stats = stats;
+
+        m_controllers.put(defaultName, defaultController);
+        m_active = defaultController;
+    }
+
+    /**
+     * Adds a controller that can be chosen. This can be called from any thread.
+     * @param name The name it is chosen by.
+     * @param controller The controller.
+     */
+    public void addController(String name, PathFollowingController controller) {
+        m_controllers.put(name, controller);
+    }
+
+    @Override
+    public ChassisSpeeds calculateRobotRelativeSpeeds(Pose2d currentPose, PathPlannerTrajectory.State targetState) {
+        m_stats.add(currentPose, targetState);
+        return m_active.calculateRobotRelativeSpeeds(currentPose, targetState);
+    }
+
+    @Override
+    public void reset(Pose2d currentPose, ChassisSpeeds currentSpeeds) {
+        String name = m_selection.get();
+        PathFollowingController controller = name == null ? null : m_controllers.get(name);
+        if (controller == null) {
+            DriverStation.reportWarning("Path controller " + name + " isn't available, using " + m_defaultName, false);
+            controller = m_controllers.get(m_defaultName);
+        }
+
+        m_active = controller;
+        m_active.reset(currentPose, currentSpeeds);
+    }
+
+    @Override
+    public double getPositionalError() {
+        return m_active.getPositionalError();
+    }
+
+    @Override
+    public boolean isHolonomic() {
+        return false;
+    }
+}
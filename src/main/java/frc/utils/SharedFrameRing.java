@@ -0,0 +1,220 @@
+package frc.utils;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A ring of camera frames in a memory mapped file, shared between a process that captures frames and one that processes them.
+ *
+ * <p>The file starts with a header, followed by a fixed number of slots. Each slot has its own small header
+ * (sequence number, timestamp, size) and room for one frame. The writer fills the next slot in place and then
+ * publishes it by writing its sequence number. The reader works on the frame right where it is in the mapping,
+ * without copying it, and checks the slot's sequence number again afterwards to make sure the writer didn't
+ * lap it and overwrite the frame in the meantime.
+ *
+ * <p>Only one process may write to a ring. Sequence numbers start at 0 and timestamps are {@link System#nanoTime()}
+ * (CLOCK_MONOTONIC on Linux), which is the same clock in every process on the machine.
+ *
+ * <p>This class is shared with tools/visionworker, so it must only use the JDK.
+ */
+public class SharedFrameRing implements AutoCloseable {
+    private static final long kMagic = 0x474e495246524d46L; // "FMRFRING"
+    private static final int kHeaderBytes = 64;
+    private static final int kSlotHeaderBytes = 64;
+
+    // Header fields
+    private static final int kMagicOffset = 0;
+    private static final int kSlotCountOffset = 8;
+    private static final int kSlotBytesOffset = 16;
+    private static final int kWriteSequenceOffset = 24;
+
+    // Slot header fields, relative to the start of the slot
+    private static final int kSequenceOffset = 0;
+    private static final int kTimestampOffset = 8;
+    private static final int kWidthOffset = 16;
+    private static final int kHeightOffset = 24;
+    private static final int kLengthOffset = 32;
+
+    // A slot that is being written has this sequence number
+    private static final long kWriting = -1;
+
+    private static final VarHandle kLongs = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final FileChannel m_channel;
+    private final MappedByteBuffer m_buffer;
+    private final int m_slotCount;
+    private final int m_slotBytes;
+
+    // A view of the frame data in each slot, made once so using a slot doesn't allocate
+    private final ByteBuffer[] m_slotData;
+
+    private SharedFrameRing(FileChannel channel, MappedByteBuffer buffer, int slotCount, int slotBytes) {
+        m_channel = channel;
+        m_buffer = buffer;
+        m_slotCount = slotCount;
+        m_slotBytes = slotBytes;
+
+        buffer.order(ByteOrder.nativeOrder());
+        m_slotData = new ByteBuffer[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            m_slotData[i] = buffer.slice(slotOffset(i) + kSlotHeaderBytes, slotBytes);
+        }
+    }
+
+    /**
+     * Creates (or replaces) a ring file for writing frames into.
+     * @param path The file, ideally on a tmpfs such as /dev/shm so it never touches the disk.
+     * @param slotCount How many frames the ring holds.
+     * @param slotBytes The largest frame in bytes.
+     * @return The ring.
+     * @throws IOException If the file can't be created or mapped.
+     */
+    public static SharedFrameRing create(Path path, int slotCount, int slotBytes) throws IOException {
+        // Replace the file instead of truncating it, since a reader that still has the old one mapped
+        // would crash on a bus error if it shrank underneath it
+        Files.deleteIfExists(path);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = kHeaderBytes + (long) slotCount * (kSlotHeaderBytes + slotBytes);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+
+        SharedFrameRing ring = new SharedFrameRing(channel, buffer, slotCount, slotBytes);
+        for (int i = 0; i < slotCount; i++) {
+            kLongs.setRelease(buffer, slotOffset(i, slotBytes) + kSequenceOffset, kWriting);
+        }
+        kLongs.setRelease(buffer, kWriteSequenceOffset, 0L);
+        buffer.putLong(kSlotCountOffset, slotCount);
+        buffer.putLong(kSlotBytesOffset, slotBytes);
+        // The magic number goes last, so a reader never sees a half set up header
+        kLongs.setRelease(buffer, kMagicOffset, kMagic);
+        return ring;
+    }
+
+    /**
+     * Opens a ring file that another process created, for reading frames from.
+     * @param path The file.
+     * @return The ring.
+     * @throws IOException If the file can't be mapped or isn't a frame ring.
+     */
+    public static SharedFrameRing open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, kHeaderBytes);
+        header.order(ByteOrder.nativeOrder());
+        if ((long) kLongs.getAcquire(header, kMagicOffset) != kMagic) {
+            channel.close();
+            throw new IOException(path + " isn't a frame ring");
+        }
+
+        int slotCount = (int) header.getLong(kSlotCountOffset);
+        int slotBytes = (int) header.getLong(kSlotBytesOffset);
+        long size = kHeaderBytes + (long) slotCount * (kSlotHeaderBytes + slotBytes);
+        return new SharedFrameRing(channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size), slotCount, slotBytes);
+    }
+
+    private static int slotOffset(int slot, int slotBytes) {
+        return kHeaderBytes + slot * (kSlotHeaderBytes + slotBytes);
+    }
+
+    private int slotOffset(int slot) {
+        return slotOffset(slot, m_slotBytes);
+    }
+
+    public int getSlotCount() {
+        return m_slotCount;
+    }
+
+    public int getSlotBytes() {
+        return m_slotBytes;
+    }
+
+    /**
+     * Starts writing the next frame. Fill the returned buffer (from position 0) and then call {@link #commitFrame}.
+     * @return The frame data of the next slot, cleared. It is a view of the shared memory, so writing it is all it takes.
+     */
+    public ByteBuffer beginFrame() {
+        long sequence = (long) kLongs.getAcquire(m_buffer, kWriteSequenceOffset);
+        int slot = (int) (sequence % m_slotCount);
+
+        // Readers that are still looking at this slot will see that it changed
+        kLongs.setRelease(m_buffer, slotOffset(slot) + kSequenceOffset, kWriting);
+        VarHandle.storeStoreFence();
+
+        ByteBuffer data = m_slotData[slot];
+        data.clear();
+        return data;
+    }
+
+    /**
+     * Publishes the frame that was started with {@link #beginFrame()}.
+     * @param timestampNanos When the frame was captured, from {@link System#nanoTime()}.
+     * @param width The width in pixels.
+     * @param height The height in pixels.
+     * @param length How many bytes of frame data there are.
+     */
+    public void commitFrame(long timestampNanos, int width, int height, int length) {
+        long sequence = (long) kLongs.getAcquire(m_buffer, kWriteSequenceOffset);
+        int offset = slotOffset((int) (sequence % m_slotCount));
+
+        m_buffer.putLong(offset + kTimestampOffset, timestampNanos);
+        m_buffer.putLong(offset + kWidthOffset, width);
+        m_buffer.putLong(offset + kHeightOffset, height);
+        m_buffer.putLong(offset + kLengthOffset, length);
+        kLongs.setRelease(m_buffer, offset + kSequenceOffset, sequence);
+        kLongs.setRelease(m_buffer, kWriteSequenceOffset, sequence + 1);
+    }
+
+    /** Returns the sequence number of the newest frame, or -1 if there hasn't been one. */
+    public long getLatestSequence() {
+        return (long) kLongs.getAcquire(m_buffer, kWriteSequenceOffset) - 1;
+    }
+
+    /** Returns the slot a frame is in. */
+    public int getSlot(long sequence) {
+        return (int) (sequence % m_slotCount);
+    }
+
+    /**
+     * Returns whether a slot still holds a frame. Check this before and after using the frame's data,
+     * since the writer may have reused the slot in the meantime.
+     */
+    public boolean isValid(int slot, long sequence) {
+        VarHandle.acquireFence();
+        return (long) kLongs.getAcquire(m_buffer, slotOffset(slot) + kSequenceOffset) == sequence;
+    }
+
+    /**
+     * Returns the frame data of a slot. This is a view of the shared memory, not a copy.
+     * Use absolute gets, since the buffer is shared by every call.
+     */
+    public ByteBuffer getData(int slot) {
+        return m_slotData[slot];
+    }
+
+    public long getTimestampNanos(int slot) {
+        return m_buffer.getLong(slotOffset(slot) + kTimestampOffset);
+    }
+
+    public int getWidth(int slot) {
+        return (int) m_buffer.getLong(slotOffset(slot) + kWidthOffset);
+    }
+
+    public int getHeight(int slot) {
+        return (int) m_buffer.getLong(slotOffset(slot) + kHeightOffset);
+    }
+
+    public int getLength(int slot) {
+        return (int) m_buffer.getLong(slotOffset(slot) + kLengthOffset);
+    }
+
+    @Override
+    public void close() throws IOException {
+        m_channel.close();
+    }
+}
@@ -0,0 +1,222 @@
+package frc.utils;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Timestamped target observations in a memory mapped file, written by the vision worker and read by the robot.
+ *
+ * <p>Each observation goes in the next slot of a small ring. A slot is marked as being written while it is filled in,
+ * and the reader checks that mark before and after reading, so it never uses a half written observation and never
+ * has to wait on the writer. Reading copies a few numbers into an {@link Observation} the caller keeps, so it doesn't allocate.
+ *
+ * <p>Timestamps are {@link System#nanoTime()} (CLOCK_MONOTONIC on Linux), which is the same clock in every process on the machine.
+ *
+ * <p>This class is shared with tools/visionworker, so it must only use the JDK.
+ */
+public class SharedObservations implements AutoCloseable {
+    /** One observation. Reuse it, it's meant to be filled in over and over. */
+    public static class Observation {
+        /** The sequence number of this observation. */
+        public long sequence = -1;
+        /** The sequence number of the frame it came from. */
+        public long frameSequence = -1;
+        /** When that frame was captured, in nanoseconds. */
+        public long frameTimestampNanos;
+        /** When the worker finished with the frame, in nanoseconds. */
+        public long processedNanos;
+        /** How many targets were seen. The rest of the fields are only meaningful if this isn't 0. */
+        public int targetCount;
+        /** The angle of the best target right of the camera's center, in degrees. */
+        public double yawDegrees;
+        /** The angle of the best target above the camera's center, in degrees. */
+        public double pitchDegrees;
+        /** How much of the image the best target covers, from 0 to 1. */
+        public double area;
+
+        public void copyFrom(Observation other) {
+            sequence = other.sequence;
+            frameSequence = other.frameSequence;
+            frameTimestampNanos = other.frameTimestampNanos;
+            processedNanos = other.processedNanos;
+            targetCount = other.targetCount;
+            yawDegrees = other.yawDegrees;
+            pitchDegrees = other.pitchDegrees;
+            area = other.area;
+        }
+    }
+
+    private static final long kMagic = 0x5342524f52534256L; // "VBSRORBS"
+    private static final int kHeaderBytes = 64;
+    private static final int kSlotBytes = 64;
+
+    // Header fields
+    private static final int kMagicOffset = 0;
+    private static final int kSlotCountOffset = 8;
+    private static final int kWriteSequenceOffset = 16;
+
+    // Slot fields, relative to the start of the slot
+    private static final int kSequenceOffset = 0;
+    private static final int kFrameSequenceOffset = 8;
+    private static final int kFrameTimestampOffset = 16;
+    private static final int kProcessedOffset = 24;
+    private static final int kTargetCountOffset = 32;
+    private static final int kYawOffset = 40;
+    private static final int kPitchOffset = 48;
+    private static final int kAreaOffset = 56;
+
+    // A slot that is being written has this sequence number
+    private static final long kWriting = -1;
+
+    // How many times a read is retried if the writer got in the way
+    private static final int kReadAttempts = 4;
+
+    private static final VarHandle kLongs = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final FileChannel m_channel;
+    private final MappedByteBuffer m_buffer;
+    private final int m_slotCount;
+
+    private SharedObservations(FileChannel channel, MappedByteBuffer buffer, int slotCount) {
+        m_channel = channel;
+        m_buffer = buffer;
+        m_slotCount = slotCount;
+        buffer.order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Creates (or replaces) an observations file for writing into.
+     * @param path The file, ideally on a tmpfs such as /dev/shm so it never touches the disk.
+     * @param slotCount How many observations are kept.
+     * @return The observations.
+     * @throws IOException If the file can't be created or mapped.
+     */
+    public static SharedObservations create(Path path, int slotCount) throws IOException {
+        // Replace the file instead of truncating it, since a reader that still has the old one mapped
+        // would crash on a bus error if it shrank underneath it
+        Files.deleteIfExists(path);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, kHeaderBytes + (long) slotCount * kSlotBytes);
+
+        SharedObservations observations = new SharedObservations(channel, buffer, slotCount);
+        for (int i = 0; i < slotCount; i++) {
+            kLongs.setRelease(buffer, slotOffset(i) + kSequenceOffset, kWriting);
+        }
+        kLongs.setRelease(buffer, kWriteSequenceOffset, 0L);
+        buffer.putLong(kSlotCountOffset, slotCount);
+        // The magic number goes last, so a reader never sees a half set up header
+        kLongs.setRelease(buffer, kMagicOffset, kMagic);
+        return observations;
+    }
+
+    /**
+     * Opens an observations file that another process created, read only.
+     * @param path The file.
+     * @return The observations.
+     * @throws IOException If the file can't be mapped or isn't an observations file.
+     */
+    public static SharedObservations open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, kHeaderBytes);
+        header.order(ByteOrder.nativeOrder());
+        if ((long) kLongs.getAcquire(header, kMagicOffset) != kMagic) {
+            channel.close();
+            throw new IOException(path + " isn't an observations file");
+        }
+
+        int slotCount = (int) header.getLong(kSlotCountOffset);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, kHeaderBytes + (long) slotCount * kSlotBytes);
+        return new SharedObservations(channel, buffer, slotCount);
+    }
+
+    private static int slotOffset(int slot) {
+        return kHeaderBytes + slot * kSlotBytes;
+    }
+
+    /**
+     * Publishes an observation. Its sequence number is filled in.
+     * @param observation The observation.
+     */
+    public void write(Observation observation) {
+        long sequence = (long) kLongs.getAcquire(m_buffer, kWriteSequenceOffset);
+        int offset = slotOffset((int) (sequence % m_slotCount));
+
+        kLongs.setRelease(m_buffer, offset + kSequenceOffset, kWriting);
+        // Keep the fields below from being written before the slot is marked
+        VarHandle.storeStoreFence();
+
+        m_buffer.putLong(offset + kFrameSequenceOffset, observation.frameSequence);
+        m_buffer.putLong(offset + kFrameTimestampOffset, observation.frameTimestampNanos);
+        m_buffer.putLong(offset + kProcessedOffset, observation.processedNanos);
+        m_buffer.putLong(offset + kTargetCountOffset, observation.targetCount);
+        m_buffer.putDouble(offset + kYawOffset, observation.yawDegrees);
+        m_buffer.putDouble(offset + kPitchOffset, observation.pitchDegrees);
+        m_buffer.putDouble(offset + kAreaOffset, observation.area);
+
+        observation.sequence = sequence;
+        kLongs.setRelease(m_buffer, offset + kSequenceOffset, sequence);
+        kLongs.setRelease(m_buffer, kWriteSequenceOffset, sequence + 1);
+    }
+
+    /** Returns the sequence number of the newest observation, or -1 if there hasn't been one. */
+    public long getLatestSequence() {
+        return (long) kLongs.getAcquire(m_buffer, kWriteSequenceOffset) - 1;
+    }
+
+    /**
+     * Reads the newest observation.
+     * @param out Filled in with the observation. Left alone if this returns false.
+     * @return Whether there was an observation to read. This is false if there hasn't been one yet,
+     *     or (very rarely) if the writer kept overwriting it while it was being read.
+     */
+    public boolean readLatest(Observation out) {
+        for (int attempt = 0; attempt < kReadAttempts; attempt++) {
+            long sequence = getLatestSequence();
+            if (sequence < 0) {
+                return false;
+            }
+
+            int offset = slotOffset((int) (sequence % m_slotCount));
+            if ((long) kLongs.getAcquire(m_buffer, offset + kSequenceOffset) != sequence) {
+                continue;
+            }
+
+            long frameSequence = m_buffer.getLong(offset + kFrameSequenceOffset);
+            long frameTimestamp = m_buffer.getLong(offset + kFrameTimestampOffset);
+            long processed = m_buffer.getLong(offset + kProcessedOffset);
+            long targetCount = m_buffer.getLong(offset + kTargetCountOffset);
+            double yaw = m_buffer.getDouble(offset + kYawOffset);
+            double pitch = m_buffer.getDouble(offset + kPitchOffset);
+            double area = m_buffer.getDouble(offset + kAreaOffset);
+
+            // Keep the fields above from being read after the check below
+            VarHandle.loadLoadFence();
+            if ((long) kLongs.getAcquire(m_buffer, offset + kSequenceOffset) != sequence) {
+                continue;
+            }
+
+            out.sequence = sequence;
+            out.frameSequence = frameSequence;
+            out.frameTimestampNanos = frameTimestamp;
+            out.processedNanos = processed;
+            out.targetCount = (int) targetCount;
+            out.yawDegrees = yaw;
+            out.pitchDegrees = pitch;
+            out.area = area;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        m_channel.close();
+    }
+}
@@ -67,7 +67,7 @@ public class SparkSendablePID implements Sendable, AutoCloseable {
     }
 
     public void setD(double d) {
-        m_PIDController.setP(d);
+        m_PIDController.setD(d);
         m_d = d;
     }
 
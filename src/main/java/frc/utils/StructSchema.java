@@ -0,0 +1,158 @@
+package frc.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.RawPublisher;
+
+/**
+ * Packs several related values into a single binary struct topic, so they are sent
+ * as one NetworkTables update (with one timestamp) instead of one topic per value.
+ *
+ * <p>The fields are declared once with suppliers, and the schema string is generated from them
+ * so dashboards and log viewers can decode the topic. Packing reuses one buffer and
+ * the suppliers return primitives, so {@link #update()} doesn't allocate.
+ *
+ * <pre>
+ * StructSchema state = new StructSchema("DriveState")
+ *     .addDouble("x", () -> getPose().getX())
+ *     .addDouble("y", () -> getPose().getY());
+ * state.publish(table, "Drive State");
+ * ...
+ * state.update(); // every loop
+ * </pre>
+ */
+public class StructSchema {
+    private final String m_typeName;
+
+    private final List<Field> m_fields = new ArrayList<>();
+    private final StringBuilder m_schema = new StringBuilder();
+    private int m_size = 0;
+
+    private byte[] m_buffer;
+    private ByteBuffer m_byteBuffer;
+    private RawPublisher m_publisher;
+
+    private static class Field {
+        final int offset;
+        final DoubleSupplier doubleSupplier;
+        final BooleanSupplier booleanSupplier;
+
+        Field(int offset, DoubleSupplier doubleSupplier, BooleanSupplier booleanSupplier) {
+            this.offset = offset;
+            this.doubleSupplier = doubleSupplier;
+            this.booleanSupplier = booleanSupplier;
+        }
+    }
+
+    /**
+     * Creates an empty struct schema.
+     * @param typeName The name of the struct type. This should be unique across the robot.
+     */
+    public StructSchema(String typeName) {
+        m_typeName = typeName;
+    }
+
+    /**
+     * Adds a double field (8 bytes) to the struct.
+     * @return This schema, for chaining.
+     */
+    public StructSchema addDouble(String name, DoubleSupplier supplier) {
+        addField("double", name, 8, supplier, null);
+        return this;
+    }
+
+    /**
+     * Adds a boolean field (1 byte) to the struct.
+     * @return This schema, for chaining.
+     */
+    public StructSchema addBoolean(String name, BooleanSupplier supplier) {
+        addField("bool", name, 1, null, supplier);
+        return this;
+    }
+
+    private void addField(String type, String name, int size, DoubleSupplier doubleSupplier, BooleanSupplier booleanSupplier) {
+        if (m_publisher != null) {
+            throw new IllegalStateException("Can't add fields to " + m_typeName + " after it has been published");
+        }
+
+        m_fields.add(new Field(m_size, doubleSupplier, booleanSupplier));
+        m_schema.append(type).append(' ').append(name).append(';');
+        m_size += size;
+    }
+
+    /**
+     * Starts publishing the struct. No fields can be added after this.
+     * @param table The table to publish the topic in.
+     * @param topicName The name of the topic.
+     */
+    public void publish(NetworkTable table, String topicName) {
+        NetworkTableInstance.getDefault().addSchema("struct:" + m_typeName, "structschema", getSchema());
+
+        m_buffer = new byte[m_size];
+        m_byteBuffer = ByteBuffer.wrap(m_buffer).order(ByteOrder.LITTLE_ENDIAN);
+        m_publisher = table.getRawTopic(topicName).publish("struct:" + m_typeName);
+    }
+
+    /**
+     * Reads every field and sends them as a single update. Call this once per loop.
+     */
+    public void update() {
+        pack(m_byteBuffer);
+        m_publisher.set(m_buffer);
+    }
+
+    /**
+     * Reads every field into a buffer using the struct layout (little endian).
+     * @param buffer The buffer to write to. It must be at least {@link #getSize()} bytes.
+     */
+    public void pack(ByteBuffer buffer) {
+        for (int i = 0; i < m_fields.size(); i++) {
+            Field field = m_fields.get(i);
+
+            if (field.doubleSupplier != null) {
+                buffer.putDouble(field.offset, field.doubleSupplier.getAsDouble());
+            } else {
+                buffer.put(field.offset, (byte) (field.booleanSupplier.getAsBoolean() ? 1 : 0));
+            }
+        }
+    }
+
+    /**
+     * Reads a double field back out of a packed struct.
+     * @param buffer The packed data, in little endian order.
+     * @param field The index of the field, in the order it was added.
+     */
+    public double unpackDouble(ByteBuffer buffer, int field) {
+        return buffer.getDouble(m_fields.get(field).offset);
+    }
+
+    /**
+     * Reads a boolean field back out of a packed struct.
+     * @param buffer The packed data.
+     * @param field The index of the field, in the order it was added.
+     */
+    public boolean unpackBoolean(ByteBuffer buffer, int field) {
+        return buffer.get(m_fields.get(field).offset) != 0;
+    }
+
+    /** Returns the schema string, for example {@code "double x;double y;"}. */
+    public String getSchema() {
+        return m_schema.toString();
+    }
+
+    /** Returns the size of the packed struct in bytes. */
+    public int getSize() {
+        return m_size;
+    }
+
+    public String getTypeName() {
+        return m_typeName;
+    }
+}
@@ -0,0 +1,362 @@
+package frc.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.wpi.first.hal.DriverStationJNI;
+import edu.wpi.first.hal.NotifierJNI;
+import edu.wpi.first.util.WPIUtilJNI;
+import edu.wpi.first.wpilibj.IterativeRobotBase;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+
+/**
+ * A replacement for TimedRobot that can run the robot loop as soon as a new Driver Station packet arrives.
+ *
+ * <p>TimedRobot runs on its own 20 ms timer, which drifts against the Driver Station's packets. A stick movement
+ * can sit in a packet for almost a whole period before the loop reads it. When synced, this class instead waits
+ * for the new data event and runs the loop right away. If no packet comes within the fallback timeout
+ * (the Driver Station is lagging or disconnected), the loop runs anyway so autos and safety code keep going.
+ * When not synced, the loop runs on a fixed period just like TimedRobot.
+ *
+ * <p>When not synced, the loop waits on an FPGA notifier the same way TimedRobot does, so the period is just as precise.
+ * When synced, it waits on the new data event instead, since a notifier can only be woken by its own alarm.
+ *
+ * <p>To measure the stick-to-output latency in either mode, call {@link #markOutputsSent()} right after the
+ * outputs are set. The age of the packet that was used is then recorded in {@link #getInputLatencyStats()}.
+ *
+ * <p>In simulation, the robot can also be stepped one loop at a time with {@link #startSteppedSimulation()} and
+ * {@link #stepSimulation()} instead of {@link #startCompetition()}, to run faster than real time.
+ */
+public class SyncedRobot extends IterativeRobotBase {
+    private static class Callback {
+        final Runnable func;
+        final double period;
+        double expiration;
+
+        Callback(Runnable func, double period, double expiration) {
+            this.func = func;
+            this.period = period;
+            this.expiration = expiration;
+        }
+    }
+
+    private final boolean m_syncToDriverStation;
+    private final double m_fallbackTimeout;
+    private final double m_startTime = Timer.getFPGATimestamp();
+
+    private final List<Callback> m_callbacks = new ArrayList<>();
+
+    // Wakes the loop when synced: set by a new Driver Station packet, and by endCompetition()
+    private final int m_event = WPIUtilJNI.createEvent(false, false);
+    // Wakes the loop when not synced, like TimedRobot. 0 when synced.
+    private final int m_notifier;
+    private volatile boolean m_exit = false;
+
+    // The FPGA time the latest packet arrived, and the packet the latency was last recorded for
+    private volatile double m_lastPacketTime = Double.NaN;
+    private double m_lastRecordedPacketTime = Double.NaN;
+    private final TimingStats m_inputLatency;
+    // How long each loop takes, including the dashboard and telemetry updates after the robot code
+    private final TimingStats m_loopDuration;
+
+    private long m_syncedLoops = 0;
+    private long m_fallbackLoops = 0;
+
+    // When stepping in simulation, the simulated time of the next loop
+    private double m_nextSteppedLoop = Double.NaN;
+
+    /**
+     * Creates the robot base.
+     * @param period The loop period in seconds when not synced. This is also the period the loop overrun warning uses.
+     * @param syncToDriverStation Whether to run the loop when a Driver Station packet arrives.
+     * @param fallbackTimeout When synced, how long to wait for a packet before running the loop anyway, in seconds.
+     * @param latencySamples How many input latency samples to keep.
+     */
+    protected SyncedRobot(double period, boolean syncToDriverStation, double fallbackTimeout, int latencySamples) {
+        super(period);
+        m_syncToDriverStation = syncToDriverStation;
+        m_fallbackTimeout = fallbackTimeout;
+        if (syncToDriverStation) {
+            m_notifier = 0;
+        } else {
+            m_notifier = NotifierJNI.initializeNotifier();
+            NotifierJNI.setNotifierName(m_notifier, "SyncedRobot");
+        }
+        m_inputLatency = new TimingStats(latencySamples);
+        m_loopDuration = new TimingStats(latencySamples);
+    }
+
+    /**
+     * Adds a callback to run at a fixed period, separately from the main loop. This works the same way in both modes.
+     * Callbacks run on the robot thread, so call this from robotInit or the constructor.
+     * @param callback The callback.
+     * @param period How often to run it in seconds.
+     */
+    public void addPeriodic(Runnable callback, double period) {
+        addPeriodic(callback, period, 0);
+    }
+
+    /**
+     * Adds a callback to run at a fixed period, separately from the main loop. This works the same way in both modes.
+     * Callbacks run on the robot thread, so call this from robotInit or the constructor.
+     * @param callback The callback.
+     * @param period How often to run it in seconds.
+     * @param offset How far to shift it from the start of the robot program in seconds, so callbacks with the same period can be spread out.
+     */
+    public void addPeriodic(Runnable callback, double period, double offset) {
+        m_callbacks.add(new Callback(callback, period, m_startTime + offset + period));
+    }
+
+    /**
+     * Adds rate groups to run at their own periods, with their phases spread out so they don't all land in the same tick.
+     * Each group is offset by a different fraction of its period (or the main loop period, if that is shorter),
+     * so for example a 5 ms and a 100 ms group never start at the same time as each other or the main loop.
+     * @param groups The groups.
+     */
+    public void addRateGroups(RateGroup... groups) {
+        for (int i = 0; i < groups.length; i++) {
+            double window = Math.min(groups[i].getPeriod(), getPeriod());
+            addPeriodic(groups[i], groups[i].getPeriod(), window * (i + 1) / (groups.length + 1));
+        }
+    }
+
+    @Override
+    public void startCompetition() {
+        robotInit();
+
+        if (isSimulation()) {
+            simulationInit();
+        }
+
+        if (m_syncToDriverStation) {
+            DriverStationJNI.provideNewDataEventHandle(m_event);
+        } else {
+            startPacketTimestamps();
+        }
+
+        // Tell the DS that the robot is ready to be enabled
+        System.out.println("********** Robot program startup complete **********");
+        DriverStationJNI.observeUserProgramStarting();
+
+        double nextLoop = Timer.getFPGATimestamp() + (m_syncToDriverStation ? m_fallbackTimeout : getPeriod());
+
+        while (!m_exit) {
+            double now = Timer.getFPGATimestamp();
+            double deadline = nextLoop;
+            for (Callback callback : m_callbacks) {
+                deadline = Math.min(deadline, callback.expiration);
+            }
+
+            boolean newPacket = false;
+            if (deadline > now && m_syncToDriverStation) {
+                try {
+                    newPacket = !WPIUtilJNI.waitForObjectTimeout(m_event, deadline - now);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            } else if (deadline > now) {
+                // The alarm is in FPGA microseconds, and waiting returns 0 once the notifier is stopped
+                NotifierJNI.updateNotifierAlarm(m_notifier, (long) (deadline * 1e6));
+                if (NotifierJNI.waitForNotifierAlarm(m_notifier) == 0) {
+                    break;
+                }
+            }
+            if (m_exit) {
+                break;
+            }
+
+            now = Timer.getFPGATimestamp();
+            if (newPacket) {
+                m_lastPacketTime = now;
+            }
+
+            if (newPacket || now >= nextLoop) {
+                if (newPacket) {
+                    m_syncedLoops++;
+                } else if (m_syncToDriverStation) {
+                    m_fallbackLoops++;
+                }
+
+                loopFunc();
+                m_loopDuration.add(Timer.getFPGATimestamp() - now);
+
+                if (m_syncToDriverStation) {
+                    nextLoop = Timer.getFPGATimestamp() + m_fallbackTimeout;
+                } else {
+                    nextLoop = nextPeriod(nextLoop, getPeriod(), now);
+                }
+            }
+
+            now = Timer.getFPGATimestamp();
+            for (Callback callback : m_callbacks) {
+                if (callback.expiration <= now) {
+                    callback.func.run();
+                    callback.expiration = nextPeriod(callback.expiration, callback.period, now);
+                }
+            }
+        }
+
+        if (m_syncToDriverStation) {
+            DriverStationJNI.removeNewDataEventHandle(m_event);
+        } else {
+            NotifierJNI.cleanNotifier(m_notifier);
+        }
+        WPIUtilJNI.destroyEvent(m_event);
+    }
+
+    /**
+     * Starts the robot in simulation without its loop. Simulated time is paused, and only moves when
+     * {@link #stepSimulation()} is called, so the robot runs as fast as the computer can go.
+     * Call this instead of {@link #startCompetition()}, after the HAL is initialized.
+     */
+    public void startSteppedSimulation() {
+        if (!isSimulation()) {
+            throw new IllegalStateException("The robot can only be stepped in simulation");
+        }
+
+        SimHooks.pauseTiming();
+        robotInit();
+        simulationInit();
+        DriverStationJNI.observeUserProgramStarting();
+
+        m_nextSteppedLoop = Timer.getFPGATimestamp() + getPeriod();
+    }
+
+    /**
+     * Moves simulated time forward to the next robot loop and runs it, along with any periodic callbacks
+     * that come due on the way, in the same order as on the robot.
+     * Set the Driver Station state with DriverStationSim and call its notifyNewData() before this.
+     * @return How long the robot code took to run, in real seconds.
+     */
+    public double stepSimulation() {
+        if (Double.isNaN(m_nextSteppedLoop)) {
+            throw new IllegalStateException("Call startSteppedSimulation() first");
+        }
+
+        // The FPGA clock counts in microseconds, so anything due within one is due now
+        final double tolerance = 1e-6;
+        long busyNanos = 0;
+
+        while (true) {
+            double due = m_nextSteppedLoop;
+            for (Callback callback : m_callbacks) {
+                due = Math.min(due, callback.expiration);
+            }
+            double now = Timer.getFPGATimestamp();
+            if (due > now + tolerance) {
+                SimHooks.stepTiming(due - now);
+                now = Timer.getFPGATimestamp();
+            }
+
+            long start = System.nanoTime();
+
+            boolean ranLoop = false;
+            if (m_nextSteppedLoop <= now + tolerance) {
+                loopFunc();
+                m_nextSteppedLoop += getPeriod();
+                ranLoop = true;
+            }
+
+            for (Callback callback : m_callbacks) {
+                if (callback.expiration <= now + tolerance) {
+                    callback.func.run();
+                    callback.expiration += callback.period;
+                }
+            }
+
+            busyNanos += System.nanoTime() - start;
+            if (ranLoop) {
+                return busyNanos / 1e9;
+            }
+        }
+    }
+
+    /** Returns the next time after now on the schedule, skipping any periods that were missed. */
+    private static double nextPeriod(double expiration, double period, double now) {
+        return expiration + period * (1 + Math.floor((now - expiration) / period));
+    }
+
+    /**
+     * When running on a timer, packets are timestamped by a separate thread instead, so the latency can still be measured.
+     * That thread and the loop can race when a packet arrives right as the loop starts, so these samples are a little rougher.
+     */
+    private void startPacketTimestamps() {
+        int event = WPIUtilJNI.createEvent(false, false);
+        DriverStationJNI.provideNewDataEventHandle(event);
+
+        Thread thread = new Thread(() -> {
+            packetThreadStarted();
+            try {
+                while (!m_exit) {
+                    WPIUtilJNI.waitForObject(event);
+                    m_lastPacketTime = Timer.getFPGATimestamp();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "DS Packet Timestamps");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Called on the thread that timestamps Driver Station packets when it starts, which is only when not synced.
+     * It starts after robotInit. Override this to change the thread's priority.
+     */
+    protected void packetThreadStarted() {}
+
+    /**
+     * Records how old the Driver Station data was when the outputs were set. Call this right after the outputs are set,
+     * for example after running the command scheduler. Each packet is only counted once.
+     */
+    protected void markOutputsSent() {
+        double packetTime = m_lastPacketTime;
+        if (Double.isNaN(packetTime) || packetTime == m_lastRecordedPacketTime) {
+            return;
+        }
+
+        m_lastRecordedPacketTime = packetTime;
+        m_inputLatency.add(Timer.getFPGATimestamp() - packetTime);
+    }
+
+    /** Returns the stick-to-output latency samples, in seconds. */
+    public TimingStats getInputLatencyStats() {
+        return m_inputLatency;
+    }
+
+    /**
+     * Returns how long each robot loop took, in seconds. Unlike the rate group stats, this includes the
+     * Shuffleboard, SmartDashboard and LiveWindow updates that run after robotPeriodic.
+     */
+    public TimingStats getLoopDurationStats() {
+        return m_loopDuration;
+    }
+
+    /** Returns whether the loop runs when a Driver Station packet arrives, as opposed to on a timer. */
+    public boolean isSyncedToDriverStation() {
+        return m_syncToDriverStation;
+    }
+
+    /** Returns how many loops were started by a Driver Station packet. */
+    public long getSyncedLoopCount() {
+        return m_syncedLoops;
+    }
+
+    /** Returns how many loops ran because no packet came in time, when synced. */
+    public long getFallbackLoopCount() {
+        return m_fallbackLoops;
+    }
+
+    @Override
+    public void endCompetition() {
+        m_exit = true;
+        if (m_syncToDriverStation) {
+            WPIUtilJNI.setEvent(m_event);
+        } else {
+            NotifierJNI.stopNotifier(m_notifier);
+        }
+    }
+}
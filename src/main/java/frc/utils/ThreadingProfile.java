@@ -0,0 +1,252 @@
+package frc.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Threads;
+
+/**
+ * Splits the roboRIO's two cores between control and everything else.
+ *
+ * <p>By default the robot thread, the camera server, NetworkTables, the data log, the JIT compiler and the GC
+ * all run at the same priority on both cores, so any of them can delay a loop. This profile:
+ * <ul>
+ *   <li>gives the robot thread and control threads (for example a Notifier running a control loop) real-time
+ *       priority, and pins them to the control core,</li>
+ *   <li>raises the HAL notifier thread, which wakes every Notifier, to real-time priority,</li>
+ *   <li>pins every other normal thread in the program to the background core and lowers its priority.</li>
+ * </ul>
+ * Threads that are already real-time (the HAL and Driver Station threads) are left alone. So are the JVM's own
+ * threads that the robot thread has to wait for: the VM thread (which runs safepoints), the GC and the JIT compilers.
+ * Lowering those would leave a real-time robot thread stuck behind a nice 19 thread on the busy core whenever it
+ * needs a safepoint or a collection.
+ *
+ * <p>Java has no API for thread affinity, so the threads are found in /proc and moved with {@code taskset} and
+ * {@code renice}. Most native threads (NetworkTables, the camera server) don't have useful names, which is why
+ * everything that isn't control goes to the background rather than picking threads by name. New threads start on
+ * whatever core the thread that made them is on, so the threads are checked again every few seconds on a
+ * background thread.
+ *
+ * <p>Real-time threads must never spin. The robot thread waits on the Driver Station or a timeout, so it is fine.
+ * Compare the rate group jitter on the loop tab with this on and off.
+ */
+public class ThreadingProfile {
+    // Linux scheduling policies, from /proc/<tid>/stat
+    private static final int kSchedFifo = 1;
+    private static final int kSchedRoundRobin = 2;
+
+    // Names (from /proc/<tid>/comm, cut to 15 characters) of the JVM threads that stay at normal priority
+    private static final String[] kJvmThreadPrefixes = {"VM ", "GC ", "G1 ", "C1 Compiler", "C2 Compiler", "Sweeper"};
+
+    private final int m_controlCpu;
+    private final int m_backgroundCpu;
+    private final int m_backgroundNice;
+    private final long m_rescanPeriodMs;
+
+    // Thread ids that have been handled already, only touched by the rescan thread after it starts
+    private final Set<Integer> m_seenThreads = new HashSet<>();
+    // Thread ids that asked to be control threads, which the rescan leaves alone
+    private final Set<Integer> m_controlThreads = new HashSet<>();
+
+    private volatile boolean m_mainRealTime = false;
+    private volatile int m_backgroundThreads = 0;
+    private volatile boolean m_reportedFailure = false;
+
+    /**
+     * Creates the profile. Nothing changes until {@link #apply(int, int)}.
+     * @param controlCpu The core for the robot thread and control threads.
+     * @param backgroundCpu The core for everything else.
+     * @param backgroundNice The nice value for background threads, from 0 (normal) to 19 (lowest).
+     * @param rescanPeriod How often to look for new threads, in seconds.
+     */
+    public ThreadingProfile(int controlCpu, int backgroundCpu, int backgroundNice, double rescanPeriod) {
+        m_controlCpu = controlCpu;
+        m_backgroundCpu = backgroundCpu;
+        m_backgroundNice = backgroundNice;
+        m_rescanPeriodMs = (long) (rescanPeriod * 1000);
+    }
+
+    /**
+     * Applies the profile. Call this from the robot thread at the end of robotInit, once the threads that start at
+     * boot exist. Only call this on the real robot.
+     * @param mainPriority The real-time priority of the robot thread, from 1 to 99.
+     * @param notifierPriority The real-time priority of the HAL notifier thread, from 1 to 99.
+     */
+    public void apply(int mainPriority, int notifierPriority) {
+        addControlThread(mainPriority);
+        m_mainRealTime = Threads.getCurrentThreadIsRealTime();
+
+        if (!Notifier.setHALThreadPriority(true, notifierPriority)) {
+            reportFailure("Couldn't make the HAL notifier thread real-time");
+        }
+
+        Thread thread = new Thread(this::rescanLoop, "Thread Profile");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Makes the calling thread a control thread: real-time, on the control core. Call this from the thread itself,
+     * for example in the first run of a Notifier that runs a control loop.
+     * @param priority The real-time priority, from 1 to 99. Keep it at or below the robot thread's unless it has to
+     * preempt the robot loop.
+     */
+    public void addControlThread(int priority) {
+        if (!Threads.setCurrentThreadPriority(true, priority)) {
+            reportFailure("Couldn't make thread " + Thread.currentThread().getName() + " real-time");
+        }
+
+        int tid = getCurrentThreadId();
+        if (tid < 0) {
+            return;
+        }
+        synchronized (m_controlThreads) {
+            m_controlThreads.add(tid);
+        }
+        run("taskset -p -c " + m_controlCpu + " " + tid + " > /dev/null");
+    }
+
+    /** Returns whether the robot thread is running at real-time priority. */
+    public boolean isMainRealTime() {
+        return m_mainRealTime;
+    }
+
+    /** Returns how many threads have been moved to the background core. */
+    public int getBackgroundThreadCount() {
+        return m_backgroundThreads;
+    }
+
+    private void rescanLoop() {
+        while (true) {
+            rescan();
+            try {
+                Thread.sleep(m_rescanPeriodMs);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Moves every thread that hasn't been seen before, isn't a control thread, isn't one of the JVM's own threads and
+     * isn't real-time to the background.
+     */
+    private void rescan() {
+        List<Integer> newThreads = new ArrayList<>();
+
+        try (DirectoryStream<Path> tasks = Files.newDirectoryStream(Paths.get("/proc/self/task"))) {
+            for (Path task : tasks) {
+                int tid = Integer.parseInt(task.getFileName().toString());
+                if (!m_seenThreads.add(tid)) {
+                    continue;
+                }
+                synchronized (m_controlThreads) {
+                    if (m_controlThreads.contains(tid)) {
+                        continue;
+                    }
+                }
+                if (!isJvmThread(task) && !isRealTime(task)) {
+                    newThreads.add(tid);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            reportFailure("Couldn't list threads: " + e.getMessage());
+            return;
+        }
+
+        if (newThreads.isEmpty()) {
+            return;
+        }
+
+        // One shell for the whole batch, since starting processes from the JVM isn't cheap
+        StringBuilder command = new StringBuilder("for t in");
+        for (int tid : newThreads) {
+            command.append(' ').append(tid);
+        }
+        command.append("; do taskset -p -c ").append(m_backgroundCpu).append(" $t && renice -n ")
+            .append(m_backgroundNice).append(" -p $t; done > /dev/null 2>&1");
+
+        if (run(command.toString())) {
+            m_backgroundThreads += newThreads.size();
+        }
+    }
+
+    /** Returns whether a thread runs with a real-time scheduling policy, from its /proc/self/task/<tid>/stat. */
+    private static boolean isRealTime(Path task) {
+        try {
+            String stat = new String(Files.readAllBytes(task.resolve("stat")));
+            // The name can contain spaces, so count the fields from after it. The policy is field 41 and the name is field 2.
+            String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+            int policy = Integer.parseInt(fields[41 - 3]);
+            return policy == kSchedFifo || policy == kSchedRoundRobin;
+        } catch (IOException | RuntimeException e) {
+            // The thread probably exited, so it doesn't matter
+            return true;
+        }
+    }
+
+    /** Returns whether a thread is one of the JVM's own threads, from its /proc/self/task/<tid>/comm. */
+    private static boolean isJvmThread(Path task) {
+        try {
+            String name = new String(Files.readAllBytes(task.resolve("comm"))).trim();
+            for (String prefix : kJvmThreadPrefixes) {
+                if (name.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (IOException | RuntimeException e) {
+            // The thread probably exited, so it doesn't matter
+            return true;
+        }
+    }
+
+    /** Returns the Linux thread id of the calling thread, or -1 if it can't be found. */
+    private int getCurrentThreadId() {
+        try {
+            // This links to <pid>/task/<tid>
+            return Integer.parseInt(Files.readSymbolicLink(Paths.get("/proc/thread-self")).getFileName().toString());
+        } catch (IOException | RuntimeException e) {
+            reportFailure("Couldn't find the thread id: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /** Runs a shell command and waits for it. Returns whether it worked. */
+    private boolean run(String command) {
+        try {
+            Process process = new ProcessBuilder("sh", "-c", command).redirectErrorStream(true).start();
+            process.getInputStream().transferTo(OutputStream.nullOutputStream());
+            if (process.waitFor() != 0) {
+                reportFailure("Thread profile command failed: " + command);
+                return false;
+            }
+            return true;
+        } catch (IOException e) {
+            reportFailure("Couldn't run " + command + ": " + e.getMessage());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /** Reports the first failure to the Driver Station. The rest would just repeat it. */
+    private void reportFailure(String message) {
+        if (!m_reportedFailure) {
+            m_reportedFailure = true;
+            DriverStation.reportWarning(message, false);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package frc.utils;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the most recent samples of a duration (or any other number) so its distribution can be shown on the dashboard.
+ *
+ * <p>Samples go into a fixed size ring buffer, so adding one never allocates. {@link #getPercentile} sorts a copy
+ * of the buffer, so don't call it every loop. For the dashboard, run {@link #updateCachedPercentiles()} in the slow
+ * rate group and show {@link #getCachedPercentile}, which only looks up the last sorted copy.
+ */
+public class TimingStats {
+    private final double[] m_samples;
+    private int m_next = 0;
+    private int m_size = 0;
+    private long m_total = 0;
+
+    // A sorted copy of the samples from the last updateCachedPercentiles
+    private final double[] m_sorted;
+    private int m_sortedSize = 0;
+
+    /**
+     * Creates empty stats.
+     * @param capacity How many of the most recent samples to keep.
+     */
+    public TimingStats(int capacity) {
+        m_samples = new double[capacity];
+        m_sorted = new double[capacity];
+    }
+
+    /**
+     * Adds a sample, replacing the oldest one once the buffer is full.
+     * @param value The sample, usually in seconds.
+     */
+    public synchronized void add(double value) {
+        m_samples[m_next] = value;
+        m_next = (m_next + 1) % m_samples.length;
+        m_size = Math.min(m_size + 1, m_samples.length);
+        m_total++;
+    }
+
+    /** Throws away every sample. */
+    public synchronized void reset() {
+        m_next = 0;
+        m_size = 0;
+        m_total = 0;
+        m_sortedSize = 0;
+    }
+
+    /** Returns how many samples have been added since the last reset, including ones that have been replaced. */
+    public synchronized long getTotalCount() {
+        return m_total;
+    }
+
+    /** Returns the most recent sample, or NaN if there are none. */
+    public synchronized double getLast() {
+        if (m_size == 0) {
+            return Double.NaN;
+        }
+        return m_samples[(m_next - 1 + m_samples.length) % m_samples.length];
+    }
+
+    /** Returns the mean of the kept samples, or NaN if there are none. */
+    public synchronized double getMean() {
+        if (m_size == 0) {
+            return Double.NaN;
+        }
+
+        double sum = 0;
+        for (int i = 0; i < m_size; i++) {
+            sum += m_samples[i];
+        }
+        return sum / m_size;
+    }
+
+    /** Returns the largest of the kept samples, or NaN if there are none. */
+    public synchronized double getMax() {
+        if (m_size == 0) {
+            return Double.NaN;
+        }
+
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < m_size; i++) {
+            max = Math.max(max, m_samples[i]);
+        }
+        return max;
+    }
+
+    /**
+     * Returns how many of the kept samples are at least a threshold, for example how many attempts timed out.
+     * @param threshold The smallest sample to count.
+     */
+    public synchronized int countAtLeast(double threshold) {
+        int count = 0;
+        for (int i = 0; i < m_size; i++) {
+            if (m_samples[i] >= threshold) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns a percentile of the kept samples, using the closest sample rather than interpolating.
+     * @param percentile The percentile from 0 to 100, for example 50 for the median.
+     * @return The percentile, or NaN if there are no samples.
+     */
+    public synchronized double getPercentile(double percentile) {
+        if (m_size == 0) {
+            return Double.NaN;
+        }
+
+        double[] sorted = Arrays.copyOf(m_samples, m_size);
+        Arrays.sort(sorted);
+        return percentileOf(sorted, m_size, percentile);
+    }
+
+    /** Sorts a copy of the kept samples into a buffer made up front, for {@link #getCachedPercentile}. */
+    public synchronized void updateCachedPercentiles() {
+        System.arraycopy(m_samples, 0, m_sorted, 0, m_size);
+        Arrays.sort(m_sorted, 0, m_size);
+        m_sortedSize = m_size;
+    }
+
+    /**
+     * Returns a percentile of the samples as of the last {@link #updateCachedPercentiles()}, without sorting.
+     * @param percentile The percentile from 0 to 100, for example 50 for the median.
+     * @return The percentile, or NaN if there were no samples.
+     */
+    public synchronized double getCachedPercentile(double percentile) {
+        if (m_sortedSize == 0) {
+            return Double.NaN;
+        }
+        return percentileOf(m_sorted, m_sortedSize, percentile);
+    }
+
+    private static double percentileOf(double[] sorted, int size, double percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * size) - 1;
+        return sorted[Math.max(0, Math.min(size - 1, index))];
+    }
+}
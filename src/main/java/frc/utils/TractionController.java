@@ -0,0 +1,177 @@
+package frc.utils;
+
+/**
+ * Detects wheel slip on a differential drive and backs off the commanded speed of a slipping side.
+ *
+ * <p>The real chassis speed is estimated from the accelerometer (integrated) and corrected
+ * towards the wheels that still have grip. Together with the gyro rate, this gives the speed
+ * each wheel should be turning at. A wheel that is far from that speed is slipping: it is dropped
+ * from odometry, and the commanded speed of its side is pulled towards the ground speed
+ * (which lowers the torque) until it grips again.
+ */
+public class TractionController {
+    public static final int kLeftFront = 0;
+    public static final int kLeftBack = 1;
+    public static final int kRightFront = 2;
+    public static final int kRightBack = 3;
+
+    private final double m_trackWidth;
+    private final double m_slipThreshold;
+    private final double m_clearThreshold;
+    private final double m_reductionRate;
+    private final double m_recoveryRate;
+    private final double m_minScale;
+    private final double m_correctionGain;
+
+    private final boolean[] m_slipping = new boolean[4];
+
+    private double m_chassisVelocity = 0;
+    private double m_expectedLeft = 0;
+    private double m_expectedRight = 0;
+    private double m_leftScale = 1;
+    private double m_rightScale = 1;
+
+    /**
+     * Creates a new traction controller.
+     * @param trackWidth The distance between the left and right wheels in meters.
+     * @param slipThreshold How far a wheel's speed has to be from the ground speed to be slipping (m/s).
+     * @param clearThreshold How close a slipping wheel has to get to the ground speed to grip again (m/s).
+     * @param reductionRate How fast to back off a slipping side (fraction per second).
+     * @param recoveryRate How fast to give the speed back once it grips again (fraction per second).
+     * @param minScale The most a side will be backed off to, from 0 to 1.
+     * @param correctionGain How strongly the estimated chassis speed follows the gripping wheels each update, from 0 to 1.
+     */
+    public TractionController(double trackWidth, double slipThreshold, double clearThreshold,
+            double reductionRate, double recoveryRate, double minScale, double correctionGain) {
+        m_trackWidth = trackWidth;
+        m_slipThreshold = slipThreshold;
+        m_clearThreshold = clearThreshold;
+        m_reductionRate = reductionRate;
+        m_recoveryRate = recoveryRate;
+        m_minScale = minScale;
+        m_correctionGain = correctionGain;
+    }
+
+    /**
+     * Updates the slip estimate. Call this once per loop.
+     * @param wheelVelocities The speed of each wheel in m/s, indexed by {@link #kLeftFront} etc.
+     * @param angularVelocity The gyro rate in radians per second, counterclockwise positive.
+     * @param forwardAcceleration The measured forward acceleration of the chassis in m/s^2.
+     * @param dt The time since the last update in seconds.
+     */
+    public void update(double[] wheelVelocities, double angularVelocity, double forwardAcceleration, double dt) {
+        // Predict the chassis speed from the accelerometer
+        m_chassisVelocity += forwardAcceleration * dt;
+
+        // Each wheel's idea of the chassis speed, after removing the rotation the gyro measured
+        double halfTurn = angularVelocity * m_trackWidth / 2;
+        double gripSum = 0;
+        int gripCount = 0;
+        for (int i = 0; i < wheelVelocities.length; i++) {
+            if (!m_slipping[i]) {
+                gripSum += wheelVelocities[i] + (isLeft(i) ? halfTurn : -halfTurn);
+                gripCount++;
+            }
+        }
+
+        // Correct the drift of the integrated acceleration with the wheels that still grip.
+        // If none of them grip, nothing would stop the estimate drifting away on accelerometer bias and dragging the
+        // commands with it, so start it again from the average of all the wheels.
+        if (gripCount > 0) {
+            m_chassisVelocity += m_correctionGain * (gripSum / gripCount - m_chassisVelocity);
+        } else {
+            double wheelSum = 0;
+            for (int i = 0; i < wheelVelocities.length; i++) {
+                wheelSum += wheelVelocities[i] + (isLeft(i) ? halfTurn : -halfTurn);
+            }
+            m_chassisVelocity = wheelSum / wheelVelocities.length;
+        }
+
+        m_expectedLeft = m_chassisVelocity - halfTurn;
+        m_expectedRight = m_chassisVelocity + halfTurn;
+
+        boolean leftSlipping = false;
+        boolean rightSlipping = false;
+        for (int i = 0; i < wheelVelocities.length; i++) {
+            double error = Math.abs(wheelVelocities[i] - (isLeft(i) ? m_expectedLeft : m_expectedRight));
+
+            // Hysteresis, so a wheel right at the threshold doesn't flicker in and out of odometry
+            m_slipping[i] = m_slipping[i] ? error > m_clearThreshold : error > m_slipThreshold;
+
+            if (m_slipping[i]) {
+                if (isLeft(i)) {
+                    leftSlipping = true;
+                } else {
+                    rightSlipping = true;
+                }
+            }
+        }
+
+        m_leftScale = updateScale(m_leftScale, leftSlipping, dt);
+        m_rightScale = updateScale(m_rightScale, rightSlipping, dt);
+    }
+
+    private double updateScale(double scale, boolean slipping, double dt) {
+        if (slipping) {
+            return Math.max(m_minScale, scale - m_reductionRate * dt);
+        }
+        return Math.min(1, scale + m_recoveryRate * dt);
+    }
+
+    private static boolean isLeft(int wheel) {
+        return wheel == kLeftFront || wheel == kLeftBack;
+    }
+
+    /**
+     * Limits a commanded left side speed so a slipping side is pulled towards the ground speed.
+     * @param commanded The commanded speed in m/s.
+     * @return The speed to actually send to the motors.
+     */
+    public double limitLeft(double commanded) {
+        return m_expectedLeft + (commanded - m_expectedLeft) * m_leftScale;
+    }
+
+    /**
+     * Limits a commanded right side speed so a slipping side is pulled towards the ground speed.
+     * @param commanded The commanded speed in m/s.
+     * @return The speed to actually send to the motors.
+     */
+    public double limitRight(double commanded) {
+        return m_expectedRight + (commanded - m_expectedRight) * m_rightScale;
+    }
+
+    /** Whether a wheel is currently slipping. */
+    public boolean isSlipping(int wheel) {
+        return m_slipping[wheel];
+    }
+
+    /** Returns the estimated ground speed of the left wheels in m/s. */
+    public double getExpectedLeftVelocity() {
+        return m_expectedLeft;
+    }
+
+    /** Returns the estimated ground speed of the right wheels in m/s. */
+    public double getExpectedRightVelocity() {
+        return m_expectedRight;
+    }
+
+    public double getLeftScale() {
+        return m_leftScale;
+    }
+
+    public double getRightScale() {
+        return m_rightScale;
+    }
+
+    /** Resets the estimate, for example when the robot is disabled. */
+    public void reset() {
+        m_chassisVelocity = 0;
+        m_expectedLeft = 0;
+        m_expectedRight = 0;
+        m_leftScale = 1;
+        m_rightScale = 1;
+        for (int i = 0; i < m_slipping.length; i++) {
+            m_slipping[i] = false;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package frc.utils;
 
+import com.revrobotics.CANSparkMax;
+
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.geometry.Rotation2d;
 
@@ -31,4 +33,17 @@ public class Utils {
 
         return speedSign * Math.pow(speedWithDeadband, 0.5/sensitivity);
     }
+
+    /**
+     * Sets a SparkMax's smart current limit without waiting for it to confirm, so it can be called from the robot loop.
+     * Normally each parameter set blocks until the SparkMax answers over CAN. This is the same as the timeout of 0 the Talons use.
+     * @param motor The SparkMax.
+     * @param amps The limit in amps.
+     * @param canTimeoutMs The CAN timeout to put back afterwards, for the other calls on this SparkMax.
+     */
+    public static void setSmartCurrentLimitNoWait(CANSparkMax motor, int amps, int canTimeoutMs) {
+        motor.setCANTimeout(0);
+        motor.setSmartCurrentLimit(amps);
+        motor.setCANTimeout(canTimeoutMs);
+    }
 }
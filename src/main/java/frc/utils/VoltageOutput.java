@@ -0,0 +1,121 @@
+package frc.utils;
+
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleSupplier;
+
+import com.ctre.phoenix.motorcontrol.ControlMode;
+import com.ctre.phoenix.motorcontrol.can.BaseTalon;
+import com.revrobotics.CANSparkMax;
+
+/**
+ * Commands a motor in volts instead of as a fraction of whatever the battery happens to be at.
+ *
+ * <p>A percent output of 0.8 is 10.2 V on a fresh 12.8 V battery but 8.8 V on a tired 11 V one, so rollers
+ * spin slower and balls get staged differently as the battery sags. Commanding volts keeps the speed
+ * the same until the battery can't supply them anymore.
+ *
+ * <p>Talons and SparkMaxes do the compensation themselves against their own bus voltage, which is faster and
+ * more accurate than the robot loop can. Anything else divides by a measured bus voltage in software.
+ */
+public class VoltageOutput {
+    private final DoubleConsumer m_setFraction;
+    // Null when the motor controller compensates by itself
+    private final DoubleSupplier m_busVoltage;
+    private final double m_nominalVoltage;
+
+    private double m_volts = 0;
+
+    private VoltageOutput(DoubleConsumer setFraction, DoubleSupplier busVoltage, double nominalVoltage) {
+        m_setFraction = setFraction;
+        m_busVoltage = busVoltage;
+        m_nominalVoltage = nominalVoltage;
+    }
+
+    /**
+     * Turns on a Talon's voltage compensation. A factory reset turns it off again, so call this after one.
+     * @param talon The Talon.
+     * @param nominalVoltage The voltage a percent output of 1 means.
+     * @param timeoutMs How long to wait for the Talon to confirm, or 0 to not wait.
+     */
+    public static void configureTalon(BaseTalon talon, double nominalVoltage, int timeoutMs) {
+        talon.configVoltageCompSaturation(nominalVoltage, timeoutMs);
+        talon.enableVoltageCompensation(true);
+    }
+
+    /**
+     * Creates an output for a Talon, and turns on its voltage compensation without waiting.
+     * @param talon The Talon.
+     * @param nominalVoltage The voltage a percent output of 1 means.
+     */
+    public static VoltageOutput talon(BaseTalon talon, double nominalVoltage) {
+        configureTalon(talon, nominalVoltage, 0);
+        return new VoltageOutput(fraction -> talon.set(ControlMode.PercentOutput, fraction), null, nominalVoltage);
+    }
+
+    /**
+     * Creates an output for a SparkMax. Its voltage compensation has to be turned on where it is configured,
+     * with {@link CANSparkMax#enableVoltageCompensation}, since restoring the factory defaults turns it off.
+     * @param sparkMax The SparkMax.
+     * @param nominalVoltage The voltage it was told to compensate to.
+     */
+    public static VoltageOutput sparkMax(CANSparkMax sparkMax, double nominalVoltage) {
+        return new VoltageOutput(sparkMax::set, null, nominalVoltage);
+    }
+
+    /**
+     * Creates an output for a motor controller that can't compensate by itself.
+     * @param setFraction Sets the output from -1 to 1.
+     * @param busVoltage Returns the voltage the controller is powered from, for example the battery voltage.
+     * @param nominalVoltage The most that will be asked for.
+     */
+    public static VoltageOutput software(DoubleConsumer setFraction, DoubleSupplier busVoltage, double nominalVoltage) {
+        return new VoltageOutput(setFraction, busVoltage, nominalVoltage);
+    }
+
+    /**
+     * Sets the output.
+     * @param volts The voltage, from minus to plus the nominal voltage.
+     */
+    public void setVoltage(double volts) {
+        m_volts = Math.max(-m_nominalVoltage, Math.min(m_nominalVoltage, volts));
+
+        if (m_busVoltage == null) {
+            m_setFraction.accept(m_volts / m_nominalVoltage);
+            return;
+        }
+
+        double busVoltage = m_busVoltage.getAsDouble();
+        m_setFraction.accept(busVoltage > 0 ? Math.max(-1, Math.min(1, m_volts / busVoltage)) : 0);
+    }
+
+    /**
+     * Sets the output as a fraction of the nominal voltage, for code that still thinks in percent output.
+     * @param fraction The output from -1 to 1.
+     */
+    public void setFraction(double fraction) {
+        setVoltage(fraction * m_nominalVoltage);
+    }
+
+    /** Returns the voltage that was asked for. */
+    public double getVoltage() {
+        return m_volts;
+    }
+
+    /** Returns the voltage that was asked for, as a fraction of the nominal voltage. */
+    public double getFraction() {
+        return m_volts / m_nominalVoltage;
+    }
+
+    public double getNominalVoltage() {
+        return m_nominalVoltage;
+    }
+
+    /**
+     * Returns the voltage the motor really gets, which is less than asked for if the battery can't supply it.
+     * This is for simulation, where the motor controllers don't compensate.
+     * @param busVoltage The battery voltage.
+     */
+    public double getAppliedVoltage(double busVoltage) {
+        return Math.max(-busVoltage, Math.min(busVoltage, m_volts));
+    }
+}
@@ -0,0 +1,121 @@
+package frc.robot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.Constants.IndexConstants;
+import frc.robot.Constants.IntakeConstants;
+import frc.robot.Constants.LoopConstants;
+import frc.robot.Constants.MotorConstants;
+import frc.robot.Constants.PowerConstants;
+import frc.robot.commands.IntakeCommand;
+import frc.robot.commands.LaunchBallCommand;
+import frc.robot.subsystems.IndexSubsystem;
+import frc.robot.subsystems.IntakeSubsystem;
+
+/** Checks that the mechanisms run the same on a fresh battery and a tired one. */
+class BatteryCompensationTest {
+  // From a fresh battery to a tired one, as open circuit voltages
+  private static final double[] kBatteries = {
+    PowerConstants.kSimMaxOpenCircuitVoltage, PowerConstants.kSimOpenCircuitVoltage, 11.5, PowerConstants.kSimMinOpenCircuitVoltage
+  };
+  // kLaunchVoltage is 11 V, which a battery under about 11.2 V can't give the index any more, so launching is only
+  // checked down to 11.5 V
+  private static final double[] kLaunchBatteries = {
+    PowerConstants.kSimMaxOpenCircuitVoltage, PowerConstants.kSimOpenCircuitVoltage, 11.5
+  };
+
+  private static RobotContainer setUp(double openCircuitVoltage) {
+    RobotSimulation.reset();
+    RobotContainer container = RobotSimulation.getContainer();
+    container.getPowerSubsystem().setSimOpenCircuitVoltage(openCircuitVoltage);
+    container.resetMatchStats();
+    RobotSimulation.setMode(true, false);
+    RobotSimulation.step(1);
+    return container;
+  }
+
+  private static void tearDown() {
+    RobotSimulation.reset();
+    RobotSimulation.getContainer().getPowerSubsystem().setSimOpenCircuitVoltage(PowerConstants.kSimOpenCircuitVoltage);
+  }
+
+  /**
+   * Runs a command until it finishes.
+   * @return How long it took in seconds.
+   */
+  private static double time(Command command, double timeout) {
+    command.schedule();
+    double time = 0;
+    while (command.isScheduled() && time < timeout) {
+      RobotSimulation.step(LoopConstants.kPeriod);
+      time += LoopConstants.kPeriod;
+    }
+    assertFalse(command.isScheduled(), command.getName() + " didn't finish");
+    return time;
+  }
+
+  @Test
+  void rollerSpeedDoesNotDependOnTheBattery() {
+    double intakeSpeed = IntakeConstants.kIntakeVoltage / MotorConstants.kNominalVoltage * IntakeConstants.kSimFreeSpeed;
+    double indexSpeed = IndexConstants.kIndexVoltage / MotorConstants.kNominalVoltage * IndexConstants.kSimFreeSpeed;
+
+    for (double battery : kBatteries) {
+      RobotContainer container = setUp(battery);
+      IntakeSubsystem intake = container.getIntakeSubsystem();
+      IndexSubsystem index = container.getIndexSubsystem();
+
+      intake.setIntakeVoltage(IntakeConstants.kIntakeVoltage);
+      index.setIndexVoltage(IndexConstants.kIndexVoltage);
+      RobotSimulation.step(0.5);
+
+      assertEquals(intakeSpeed, intake.getSimulatedRollerSpeed(), 1e-6, "Intake speed on a " + battery + " V battery");
+      assertEquals(indexSpeed, index.getSimulatedRollerSpeed(), 1e-6, "Index speed on a " + battery + " V battery");
+      intake.stopIntake();
+      index.stopIndex();
+      tearDown();
+    }
+  }
+
+  @Test
+  void intakeTimeDoesNotDependOnTheBattery() {
+    double firstTime = Double.NaN;
+    for (double battery : kBatteries) {
+      RobotContainer container = setUp(battery);
+      IndexSubsystem index = container.getIndexSubsystem();
+      index.resetSimulation(false);
+
+      double time = time(new IntakeCommand(container.getIntakeSubsystem(), index), 5);
+      assertTrue(index.isBallDetected(), "No ball on a " + battery + " V battery");
+      tearDown();
+
+      if (Double.isNaN(firstTime)) {
+        firstTime = time;
+      }
+      assertEquals(firstTime, time, LoopConstants.kPeriod / 2, "Intake time on a " + battery + " V battery");
+    }
+  }
+
+  @Test
+  void launchTimeDoesNotDependOnTheBattery() {
+    double firstTime = Double.NaN;
+    for (double battery : kLaunchBatteries) {
+      RobotContainer container = setUp(battery);
+      assertTrue(container.getIndexSubsystem().isBallDetected(), "The ball should be preloaded");
+
+      // The launch command runs until it is let go, so stop it once the ball is out
+      Command launch = new LaunchBallCommand(container.getIndexSubsystem()).until(() -> container.getBallsLaunched() > 0);
+      double time = time(launch, 2);
+      tearDown();
+
+      if (Double.isNaN(firstTime)) {
+        firstTime = time;
+      }
+      assertEquals(firstTime, time, LoopConstants.kPeriod / 2, "Launch time on a " + battery + " V battery");
+    }
+  }
+}
@@ -0,0 +1,79 @@
+package frc.robot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import frc.robot.Constants.ClimbConstants;
+import frc.robot.commands.ClimbCommand;
+import frc.robot.subsystems.ClimbSubsystem;
+import frc.utils.TimingStats;
+
+/** Runs the automatic climb on the simulated climber and times it. */
+class ClimbTest {
+  // Working the simulation model through by hand gives about 1.4 s to extend and 3.4 s to pull.
+  // This leaves some room for that, but a climb that got noticeably slower should fail here.
+  private static final double kMaxClimbTime = 5.5;
+  // The simulation is stepped, so the same climb should take the same time every run
+  private static final double kRepeatTolerance = 0.05;
+
+  private ClimbSubsystem m_climb;
+  private TimingStats m_stats;
+  private ClimbCommand m_command;
+
+  @BeforeEach
+  void setUp() {
+    RobotSimulation.reset();
+    m_climb = RobotSimulation.getContainer().getClimbSubsystem();
+    m_stats = new TimingStats(ClimbConstants.kStatsSamples);
+    m_command = new ClimbCommand(m_climb, m_stats);
+    RobotSimulation.setMode(true, false);
+  }
+
+  /** Climbs from stowed, and returns how long it took. */
+  private double climb() {
+    m_command.schedule();
+    RobotSimulation.step(2 * ClimbConstants.kStageTimeout);
+
+    assertEquals(ClimbCommand.Stage.HOLD, m_command.getStage(), "The climb didn't finish");
+    assertTrue(m_command.isScheduled(), "The climb should keep holding until it is interrupted");
+    double time = m_stats.getLast();
+    m_command.cancel();
+    return time;
+  }
+
+  @Test
+  void climbsAndHolds() {
+    double time = climb();
+
+    assertTrue(time <= kMaxClimbTime, "The climb took " + time + " s");
+    // The simulated robot has no weight, so the hold output creeps the winch up to its soft limit instead of just holding
+    assertTrue(m_climb.getWinchPosition() >= ClimbConstants.kWinchClimbedPosition - ClimbConstants.kPositionTolerance,
+      "The winch let the robot down to " + m_climb.getWinchPosition());
+    assertEquals(ClimbConstants.kClimbRetractedPosition, m_climb.getClimbPosition(), ClimbConstants.kPositionTolerance);
+  }
+
+  @Test
+  void stageTimesAddUpToTheClimbTime() {
+    double time = climb();
+
+    double extend = m_command.getStageTime(ClimbCommand.Stage.EXTEND);
+    double pull = m_command.getStageTime(ClimbCommand.Stage.PULL);
+    assertTrue(extend > 0 && extend < ClimbConstants.kStageTimeout, "Extending took " + extend + " s");
+    assertTrue(pull > 0 && pull < ClimbConstants.kStageTimeout, "Pulling took " + pull + " s");
+    assertEquals(time, extend + pull, 0.021);
+  }
+
+  @Test
+  void climbTimeIsRepeatable() {
+    double first = climb();
+
+    RobotSimulation.reset();
+    RobotSimulation.setMode(true, false);
+    double second = climb();
+
+    assertEquals(first, second, kRepeatTolerance);
+  }
+}
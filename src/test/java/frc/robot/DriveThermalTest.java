@@ -0,0 +1,74 @@
+package frc.robot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.Constants.LoopConstants;
+import frc.robot.Constants.PowerConstants;
+import frc.robot.Constants.ThermalConstants;
+import frc.robot.subsystems.DriveSubsystem;
+import frc.utils.CurrentBudget;
+
+/** Checks that the power subsystem derates hot drive motors in simulation. */
+class DriveThermalTest {
+  // The smart current limit lets a little through while it reacts
+  private static final double kCurrentTolerance = 2;
+
+  private double m_maxMotorCurrent;
+
+  /**
+   * Drives forward at full turbo from a standstill.
+   * @return The drive's current limit per motor at the end.
+   */
+  private int runFullThrottle() {
+    RobotContainer container = RobotSimulation.getContainer();
+    DriveSubsystem drive = container.getDriveSubsystem();
+
+    Command command = container.createTeleopDriveCommand(false, () -> 1, () -> 0, () -> true);
+    command.schedule();
+    m_maxMotorCurrent = 0;
+    for (double time = 0; time < 3; time += LoopConstants.kPeriod) {
+      RobotSimulation.step(LoopConstants.kPeriod);
+      for (int i = 0; i < 4; i++) {
+        m_maxMotorCurrent = Math.max(m_maxMotorCurrent, drive.getMotorCurrent(i));
+      }
+    }
+    command.cancel();
+
+    return container.getPowerSubsystem().getConsumer("Drive").getLimitPerMotor();
+  }
+
+  // One test, since the thermal models can't be cooled back down once they have seen a hot motor
+  @Test
+  void hotMotorsAreDerated() {
+    RobotSimulation.reset();
+    RobotContainer container = RobotSimulation.getContainer();
+    DriveSubsystem drive = container.getDriveSubsystem();
+    CurrentBudget.Consumer driveConsumer = container.getPowerSubsystem().getConsumer("Drive");
+    RobotSimulation.setMode(true, false);
+
+    // Cold motors on a fresh battery get the whole maximum
+    RobotSimulation.step(1);
+    int coldLimit = runFullThrottle();
+    assertEquals(PowerConstants.kDriveMaxCurrent, coldLimit);
+
+    // Motors that report being past the limit are held to the current that keeps them where they are
+    RobotSimulation.reset();
+    RobotSimulation.setMode(true, false);
+    drive.setSimulatedMotorTemperature(ThermalConstants.kLimitTemperature + 10);
+    RobotSimulation.step(1);
+    int hotLimit = driveConsumer.getLimitPerMotor();
+    assertTrue(hotLimit < coldLimit, "Hot motors still got " + hotLimit + " A");
+
+    int drivingLimit = runFullThrottle();
+    assertTrue(drivingLimit <= hotLimit, "The limit went back up to " + drivingLimit + " A while driving");
+    assertTrue(m_maxMotorCurrent <= drivingLimit + kCurrentTolerance,
+      "A hot motor drew " + m_maxMotorCurrent + " A with a " + drivingLimit + " A limit");
+    assertTrue(Math.abs(container.getDriveSpeed()) > 0.5, "The derated robot should still drive");
+
+    RobotSimulation.reset();
+  }
+}
@@ -0,0 +1,93 @@
+package frc.robot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.Constants.IntakeConstants;
+import frc.robot.commands.IntakeCommand;
+import frc.robot.subsystems.IndexSubsystem;
+import frc.robot.subsystems.IntakeSubsystem;
+
+/** Runs the intake command against simulated jams. */
+class IntakeJamTest {
+  private IntakeSubsystem m_intake;
+  private IndexSubsystem m_index;
+  private Command m_command;
+
+  @BeforeEach
+  void setUp() {
+    RobotSimulation.reset();
+    RobotContainer container = RobotSimulation.getContainer();
+    m_intake = container.getIntakeSubsystem();
+    m_index = container.getIndexSubsystem();
+
+    // Start without a ball, otherwise the intake command finishes straight away
+    m_index.resetSimulation(false);
+    m_intake.setSimulatedJam(false);
+    m_index.setSimulatedJam(false);
+    container.resetMatchStats();
+
+    RobotSimulation.setMode(true, false);
+    m_command = new IntakeCommand(m_intake, m_index);
+  }
+
+  @Test
+  void picksUpABallWithoutAJam() {
+    m_command.schedule();
+    RobotSimulation.step(3);
+
+    assertFalse(m_command.isScheduled(), "The intake command never finished");
+    assertTrue(m_index.isBallDetected());
+    assertEquals(0, m_intake.getJamCount());
+    assertEquals(0, m_index.getJamCount());
+  }
+
+  @Test
+  void givesUpOnAJamThatStays() {
+    m_intake.setSimulatedJam(true);
+    m_command.schedule();
+    RobotSimulation.step(5);
+
+    assertFalse(m_command.isScheduled(), "The intake command didn't give up");
+    assertFalse(m_index.isBallDetected());
+    // One jam for the first try and one for each retry. Reversing against the jam mustn't count as another one.
+    assertEquals(IntakeConstants.kMaxUnjamAttempts + 1, m_intake.getJamCount());
+    assertEquals(0, m_index.getJamCount());
+  }
+
+  @Test
+  void picksUpABallOnceTheJamClears() {
+    m_intake.setSimulatedJam(true);
+    m_command.schedule();
+    // Long enough to see the jam and start backing off, but not to give up
+    RobotSimulation.step(0.5);
+    assertEquals(1, m_intake.getJamCount());
+
+    m_intake.setSimulatedJam(false);
+    RobotSimulation.step(3);
+
+    assertFalse(m_command.isScheduled(), "The intake command never finished");
+    assertTrue(m_index.isBallDetected());
+    assertEquals(1, m_intake.getJamCount());
+  }
+
+  @Test
+  void clearsAJamInTheIndex() {
+    m_index.setSimulatedJam(true);
+    m_command.schedule();
+    RobotSimulation.step(0.5);
+    assertEquals(1, m_index.getJamCount());
+
+    m_index.setSimulatedJam(false);
+    RobotSimulation.step(3);
+
+    assertTrue(m_index.isBallDetected());
+    assertEquals(1, m_index.getJamCount());
+    assertEquals(0, m_intake.getJamCount());
+  }
+}
@@ -0,0 +1,79 @@
+package frc.robot;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.Constants.PowerConstants;
+import frc.robot.subsystems.PowerSubsystem;
+import frc.utils.CurrentBudget;
+
+/** Checks the current budget against the simulated battery. */
+class PowerBudgetTest {
+  // The roboRIO, radio and everything else that isn't in the budget
+  private static final double kUnmanagedCurrent = 10;
+  // The budget only updates every 100 ms, so the voltage can dip a little under the target before it reacts
+  private static final double kVoltageTolerance = 0.3;
+
+  private static int getMinimumTotal() {
+    return 4 * PowerConstants.kDriveMinCurrent + 2 * PowerConstants.kShooterMinCurrent
+      + PowerConstants.kIntakeMinCurrent + PowerConstants.kIndexMinCurrent;
+  }
+
+  @Test
+  void minimumsFitOnATiredBattery() {
+    double available = PowerSubsystem.getAvailableCurrent(PowerConstants.kSimMinOpenCircuitVoltage, kUnmanagedCurrent);
+    assertTrue(available >= getMinimumTotal() + 10,
+      "The minimums need " + getMinimumTotal() + " A but a tired battery only has " + available + " A");
+  }
+
+  @Test
+  void freshBatteryGivesDriveMoreThanItsMinimum() {
+    double available = PowerSubsystem.getAvailableCurrent(PowerConstants.kSimOpenCircuitVoltage, kUnmanagedCurrent);
+    assertTrue(available - getMinimumTotal() >= 4 * 10, "Only " + available + " A available on a fresh battery");
+  }
+
+  @Test
+  void fullThrottleOnAFreshBattery() {
+    double driveLimit = runFullThrottle(PowerConstants.kSimOpenCircuitVoltage);
+    assertTrue(driveLimit > PowerConstants.kDriveMinCurrent, "Drive limit stayed at " + driveLimit + " A");
+  }
+
+  @Test
+  void fullThrottleOnATiredBattery() {
+    runFullThrottle(PowerConstants.kSimMinOpenCircuitVoltage);
+  }
+
+  /**
+   * Drives forward at full turbo from a standstill and checks that the battery stays above the brownout margin.
+   * @param openCircuitVoltage The simulated battery's voltage with no load.
+   * @return The drive's current limit per motor at the end.
+   */
+  private static double runFullThrottle(double openCircuitVoltage) {
+    RobotSimulation.reset();
+    RobotContainer container = RobotSimulation.getContainer();
+    PowerSubsystem power = container.getPowerSubsystem();
+
+    // Let the budget's estimate of the battery settle on the new voltage
+    power.setSimOpenCircuitVoltage(openCircuitVoltage);
+    RobotSimulation.setMode(true, false);
+    RobotSimulation.step(5);
+    power.resetMinVoltage();
+
+    Command drive = container.createTeleopDriveCommand(false, () -> 1, () -> 0, () -> true);
+    drive.schedule();
+    RobotSimulation.step(3);
+    drive.cancel();
+
+    CurrentBudget.Consumer driveConsumer = power.getConsumer("Drive");
+    int driveLimit = driveConsumer.getLimitPerMotor();
+    double minVoltage = power.getMinVoltage();
+    RobotSimulation.reset();
+    power.setSimOpenCircuitVoltage(PowerConstants.kSimOpenCircuitVoltage);
+
+    assertTrue(minVoltage >= PowerConstants.kMinVoltage - kVoltageTolerance,
+      "The battery sagged to " + minVoltage + " V from " + openCircuitVoltage + " V");
+    return driveLimit;
+  }
+}
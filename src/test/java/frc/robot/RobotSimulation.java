@@ -0,0 +1,68 @@
+package frc.robot;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import frc.robot.Constants.BenchmarkConstants;
+import frc.robot.Constants.LoopConstants;
+
+/**
+ * Runs the whole robot program in stepped simulation for the tests, the same way the auto benchmark does.
+ *
+ * <p>The robot program can only start once per JVM, so every test in a class shares it, and build.gradle gives each
+ * test class its own JVM. Call {@link #reset()} at the start of each test.
+ */
+final class RobotSimulation {
+  private static Robot s_robot;
+
+  private RobotSimulation() {}
+
+  /** Starts the robot program the first time this is called, and returns it. */
+  static synchronized Robot getRobot() {
+    if (s_robot == null) {
+      assertTrue(HAL.initialize(500, 0), "Failed to initialize the HAL");
+      DriverStationSim.setDsAttached(true);
+      setMode(false, false);
+
+      s_robot = new Robot();
+      s_robot.startSteppedSimulation();
+    }
+    return s_robot;
+  }
+
+  static RobotContainer getContainer() {
+    return getRobot().getRobotContainer();
+  }
+
+  /**
+   * Sets the Driver Station mode, and runs a loop so the robot sees it.
+   * Commands that don't run when disabled can only be scheduled after this.
+   */
+  static void setMode(boolean enabled, boolean autonomous) {
+    DriverStationSim.setAutonomous(autonomous);
+    DriverStationSim.setEnabled(enabled);
+    DriverStationSim.notifyNewData();
+    if (s_robot != null) {
+      s_robot.stepSimulation();
+    }
+  }
+
+  /**
+   * Runs the robot for a while in simulated time.
+   * @param seconds How long to run it for.
+   */
+  static void step(double seconds) {
+    int loops = (int) Math.ceil(seconds / LoopConstants.kPeriod);
+    for (int i = 0; i < loops; i++) {
+      getRobot().stepSimulation();
+    }
+  }
+
+  /** Disables the robot, lets it settle, and puts the simulated mechanisms back to the start of a match. */
+  static void reset() {
+    setMode(false, false);
+    step(BenchmarkConstants.kSettleLoops * LoopConstants.kPeriod);
+    getContainer().resetSimulation();
+  }
+}
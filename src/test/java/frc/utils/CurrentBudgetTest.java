@@ -0,0 +1,59 @@
+package frc.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class CurrentBudgetTest {
+    private final int[] m_driveLimit = {0};
+    private final int[] m_shooterLimit = {0};
+
+    private CurrentBudget create() {
+        CurrentBudget budget = new CurrentBudget(3);
+        budget.addConsumer("Drive", 4, 15, 40, amps -> m_driveLimit[0] = amps, 0, 1, 2, 3);
+        budget.addConsumer("Shooter", 2, 15, 40, amps -> m_shooterLimit[0] = amps, 10, 11);
+        return budget;
+    }
+
+    @Test
+    void extraCurrentGoesInPriorityOrder() {
+        CurrentBudget budget = create();
+        budget.allocate(4 * 15 + 2 * 15 + 4 * 10);
+
+        assertEquals(25, m_driveLimit[0]);
+        assertEquals(15, m_shooterLimit[0]);
+    }
+
+    @Test
+    void hotMotorIsDeratedBelowItsMinimum() {
+        CurrentBudget budget = create();
+        budget.getConsumers().get(0).setThermalLimit(10.7);
+        budget.allocate(4 * 15 + 2 * 15);
+
+        assertEquals(10, m_driveLimit[0]);
+        // What the drive can't use goes to the shooter
+        assertEquals(25, m_shooterLimit[0]);
+    }
+
+    @Test
+    void thermalLimitNeverTurnsTheLimitOff() {
+        CurrentBudget budget = create();
+        budget.getConsumers().get(0).setThermalLimit(0);
+        budget.allocate(200);
+
+        assertEquals(1, m_driveLimit[0]);
+    }
+
+    @Test
+    void coolingDownGivesTheCurrentBack() {
+        CurrentBudget budget = create();
+        CurrentBudget.Consumer drive = budget.getConsumers().get(0);
+        drive.setThermalLimit(10);
+        budget.allocate(200);
+        assertEquals(10, m_driveLimit[0]);
+
+        drive.setThermalLimit(Double.POSITIVE_INFINITY);
+        budget.allocate(200);
+        assertEquals(40, m_driveLimit[0]);
+    }
+}
@@ -0,0 +1,57 @@
+package frc.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class JamDetectorTest {
+    private static final double kDt = 0.02;
+
+    private double m_time = 0;
+
+    private static JamDetector create() {
+        return new JamDetector(40, 0.2, 0.25, 0.06, kDt);
+    }
+
+    private boolean run(JamDetector detector, double current, double output, double seconds) {
+        boolean jammed = false;
+        for (int i = 0; i < Math.round(seconds / kDt); i++) {
+            m_time += kDt;
+            jammed = detector.update(current, output, m_time);
+        }
+        return jammed;
+    }
+
+    @Test
+    void freeRollerIsNotJammed() {
+        JamDetector detector = create();
+        assertFalse(run(detector, 4 * 0.7, 0.7, 2));
+        assertEquals(0, detector.getJamCount());
+    }
+
+    @Test
+    void stalledRollerIsJammed() {
+        JamDetector detector = create();
+        assertTrue(run(detector, 60 * 0.7, 0.7, 1));
+        assertEquals(1, detector.getJamCount());
+    }
+
+    @Test
+    void reversingWhilePausedIsNotAJam() {
+        JamDetector detector = create();
+        run(detector, 60 * 0.7, 0.7, 1);
+
+        detector.setPaused(true);
+        assertFalse(detector.isJammed());
+        assertFalse(run(detector, 60 * 0.7, -0.7, 1));
+        assertEquals(1, detector.getJamCount());
+
+        // Once resumed, a jam has to build up again from scratch
+        detector.setPaused(false);
+        assertFalse(run(detector, 60 * 0.7, 0.7, 0.1));
+        assertTrue(run(detector, 60 * 0.7, 0.7, 1));
+        assertEquals(2, detector.getJamCount());
+    }
+}
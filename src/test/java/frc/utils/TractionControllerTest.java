@@ -0,0 +1,51 @@
+package frc.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import org.junit.jupiter.api.Test;
+
+class TractionControllerTest {
+    private static final double kDt = 0.02;
+
+    private static TractionController create() {
+        return new TractionController(0.66, 0.5, 0.25, 4.0, 2.0, 0.2, 0.2);
+    }
+
+    @Test
+    void estimateDoesNotDriftWhenEveryWheelSlips() {
+        TractionController traction = create();
+        double[] stopped = {0, 0, 0, 0};
+
+        // A biased accelerometer on a robot that isn't moving: every wheel ends up flagged as slipping
+        for (int i = 0; i < 50; i++) {
+            traction.update(stopped, 0, 30, kDt);
+        }
+        // Without anything gripping, the estimate has to come back to the wheels instead of running away
+        for (int i = 0; i < 500; i++) {
+            traction.update(stopped, 0, 0.5, kDt);
+        }
+
+        assertEquals(0, traction.getExpectedLeftVelocity(), 0.1);
+        assertEquals(0, traction.limitLeft(0), 0.1);
+        assertEquals(0, traction.limitRight(0), 0.1);
+        for (int wheel = 0; wheel < 4; wheel++) {
+            assertFalse(traction.isSlipping(wheel));
+        }
+    }
+
+    @Test
+    void resetGivesBackFullSpeed() {
+        TractionController traction = create();
+        double[] spinning = {3, 3, 0, 0};
+        for (int i = 0; i < 50; i++) {
+            traction.update(spinning, 0, 0, kDt);
+        }
+
+        traction.reset();
+
+        assertEquals(1, traction.getLeftScale());
+        assertEquals(1, traction.getRightScale());
+        assertEquals(2.0, traction.limitLeft(2.0), 1e-9);
+    }
+}
@@ -0,0 +1,86 @@
+package frc.loganalyzer;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import frc.loganalyzer.MatchSummary.Mode;
+
+/** The numbers from every match at one event, combined. */
+public class EventSummary {
+    final String eventName;
+
+    int matches = 0;
+    double enabledTime = 0;
+
+    int ballsShot = 0;
+    int cycles = 0;
+    double cycleTimeSum = 0;
+    double longestCycle = 0;
+    String longestCycleMatch = "";
+    int recoveries = 0;
+    double recoveryTimeSum = 0;
+    double maxRecoveryTime = 0;
+
+    int loopOverruns = 0;
+    final Map<String, Integer> overrunsBySource = new TreeMap<>();
+
+    double minBatteryVoltage = Double.NaN;
+    String minBatteryMatch = "";
+    final double[] canUtilizationSum = new double[Mode.values().length];
+    final int[] canUtilizationSamples = new int[Mode.values().length];
+
+    double driveDistance = 0;
+    double tractionLimitedTime = 0;
+
+    EventSummary(String eventName) {
+        this.eventName = eventName;
+    }
+
+    /** Adds a match to the event. */
+    void add(MatchSummary match) {
+        matches++;
+        enabledTime += match.enabledTime;
+
+        ballsShot += match.ballsShot;
+        cycles += match.cycles;
+        cycleTimeSum += match.cycleTimeSum;
+        if (match.longestCycle > longestCycle) {
+            longestCycle = match.longestCycle;
+            longestCycleMatch = match.matchName;
+        }
+        recoveries += match.recoveries;
+        recoveryTimeSum += match.recoveryTimeSum;
+        maxRecoveryTime = Math.max(maxRecoveryTime, match.maxRecoveryTime);
+
+        loopOverruns += match.loopOverruns;
+        for (Map.Entry<String, Integer> entry : match.overrunsBySource.entrySet()) {
+            overrunsBySource.merge(entry.getKey(), entry.getValue(), Integer::sum);
+        }
+
+        if (match.minBatteryVoltage < minBatteryVoltage || (Double.isNaN(minBatteryVoltage) && !Double.isNaN(match.minBatteryVoltage))) {
+            minBatteryVoltage = match.minBatteryVoltage;
+            minBatteryMatch = match.matchName;
+        }
+        for (int i = 0; i < canUtilizationSum.length; i++) {
+            canUtilizationSum[i] += match.canUtilizationSum[i];
+            canUtilizationSamples[i] += match.canUtilizationSamples[i];
+        }
+
+        driveDistance += match.driveDistance;
+        tractionLimitedTime += match.tractionLimitedTime;
+    }
+
+    /** Returns the average CAN bus utilization in a mode from 0 to 1, or NaN if there are no samples. */
+    public double getCanUtilization(Mode mode) {
+        int samples = canUtilizationSamples[mode.ordinal()];
+        return samples == 0 ? Double.NaN : canUtilizationSum[mode.ordinal()] / samples;
+    }
+
+    public double getMeanCycleTime() {
+        return cycles == 0 ? Double.NaN : cycleTimeSum / cycles;
+    }
+
+    public double getMeanRecoveryTime() {
+        return recoveries == 0 ? Double.NaN : recoveryTimeSum / recoveries;
+    }
+}
@@ -0,0 +1,201 @@
+package frc.loganalyzer;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import frc.loganalyzer.MatchSummary.Mode;
+
+/**
+ * Summarizes a set of match logs, one table row per match and one per event.
+ *
+ * <pre>
+ * ./gradlew :tools:loganalyzer:run --args="logs/"
+ * ./gradlew :tools:loganalyzer:run --args="--threads 4 logs/event1 logs/event2/FRC_20240316_183015.wpilog"
+ * </pre>
+ *
+ * Directories are searched for .wpilog files. Each log is analyzed on its own thread, and since only
+ * running totals are kept for each log, memory use stays about the same no matter how many logs there are.
+ */
+public final class LogAnalyzer {
+    private LogAnalyzer() {}
+
+    public static void main(String... args) throws InterruptedException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<File> files = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else {
+                addLogs(new File(args[i]), files);
+            }
+        }
+
+        if (files.isEmpty()) {
+            System.err.println("Usage: LogAnalyzer [--threads N] <log file or directory>...");
+            System.exit(1);
+        }
+
+        List<MatchSummary> matches = analyze(files, Math.max(1, Math.min(threads, files.size())));
+
+        // Group the matches by event, keeping the order the logs were found in
+        Map<String, EventSummary> events = new LinkedHashMap<>();
+        for (MatchSummary match : matches) {
+            if (match.error != null) {
+                System.err.println("Skipping " + match.fileName + ": " + match.error);
+                continue;
+            }
+            String eventName = match.eventName.isEmpty() ? "(no event)" : match.eventName;
+            events.computeIfAbsent(eventName, EventSummary::new).add(match);
+        }
+
+        printMatches(matches, System.out);
+        printThermal(matches, System.out);
+        printTelemetry(matches, System.out);
+        printEvents(events.values(), System.out);
+    }
+
+    private static void addLogs(File file, List<File> files) {
+        if (file.isDirectory()) {
+            File[] children = file.listFiles();
+            if (children != null) {
+                Arrays.sort(children);
+                for (File child : children) {
+                    addLogs(child, files);
+                }
+            }
+        } else if (file.getName().endsWith(".wpilog")) {
+            files.add(file);
+        }
+    }
+
+    /**
+     * Analyzes every log in parallel.
+     * @return The summaries, in the same order as the files.
+     */
+    private static List<MatchSummary> analyze(List<File> files, int threads) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        List<Future<MatchSummary>> futures = new ArrayList<>();
+        for (File file : files) {
+            futures.add(executor.submit(() -> MatchAnalyzer.analyze(file)));
+        }
+
+        List<MatchSummary> summaries = new ArrayList<>();
+        try {
+            for (Future<MatchSummary> future : futures) {
+                summaries.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            // MatchAnalyzer.analyze catches its own errors, so this would be a bug
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+        return summaries;
+    }
+
+    private static void printMatches(List<MatchSummary> matches, PrintStream out) {
+        Table table = new Table(
+            "Match", "Enabled s", "Balls", "Mean cycle s", "Longest cycle s", "Mean recovery s", "Max recovery s",
+            "Overruns", "Worst overrun", "Min battery V", "CAN auto %", "CAN teleop %", "CAN disabled %",
+            "Drive m", "Max speed m/s", "Traction limited s");
+
+        for (MatchSummary match : matches) {
+            if (match.error != null) {
+                continue;
+            }
+            table.addRow(
+                match.matchName, match.enabledTime, match.ballsShot, match.getMeanCycleTime(), match.longestCycle,
+                match.getMeanRecoveryTime(), match.maxRecoveryTime, match.loopOverruns, match.getWorstOverrunSource(),
+                match.minBatteryVoltage, percent(match.getCanUtilization(Mode.AUTO)),
+                percent(match.getCanUtilization(Mode.TELEOP)), percent(match.getCanUtilization(Mode.DISABLED)),
+                match.driveDistance, match.maxDriveSpeed, match.tractionLimitedTime);
+        }
+
+        out.println("Matches");
+        table.print(out);
+    }
+
+    /** Prints how well the motor thermal model matched the reported temperatures, so its constants can be tuned. */
+    private static void printThermal(List<MatchSummary> matches, PrintStream out) {
+        Table table = new Table("Match", "Mechanism", "Peak reported C", "Peak model C", "RMS error C", "Max error C");
+
+        for (MatchSummary match : matches) {
+            if (match.error != null) {
+                continue;
+            }
+            for (Map.Entry<String, ThermalReplay> entry : match.thermal.entrySet()) {
+                ThermalReplay replay = entry.getValue();
+                table.addRow(match.matchName, entry.getKey(), replay.peakReported, replay.peakModel, replay.getRmsError(), replay.maxError);
+            }
+        }
+
+        out.println("Motor thermal model");
+        table.print(out);
+    }
+
+    /**
+     * Prints how much the drive and shooter telemetry took up in each log, as structs and as dashboard doubles.
+     * Compare logs from before and after turning off TelemetryConstants.kPublishDashboardDoubles.
+     */
+    private static void printTelemetry(List<MatchSummary> matches, PrintStream out) {
+        Table table = new Table("Match", "Struct kB", "Struct records", "Double kB", "Double records", "Bytes per struct", "Bytes per double");
+
+        for (MatchSummary match : matches) {
+            if (match.error != null) {
+                continue;
+            }
+            table.addRow(match.matchName, match.structTelemetryBytes / 1000.0, match.structTelemetryRecords,
+                match.doubleTelemetryBytes / 1000.0, match.doubleTelemetryRecords,
+                perRecord(match.structTelemetryBytes, match.structTelemetryRecords),
+                perRecord(match.doubleTelemetryBytes, match.doubleTelemetryRecords));
+        }
+
+        out.println("Telemetry bytes logged");
+        table.print(out);
+    }
+
+    private static double perRecord(long bytes, long records) {
+        return records == 0 ? Double.NaN : (double) bytes / records;
+    }
+
+    private static void printEvents(Iterable<EventSummary> events, PrintStream out) {
+        Table table = new Table(
+            "Event", "Matches", "Enabled s", "Balls", "Mean cycle s", "Longest cycle s", "Longest cycle in",
+            "Mean recovery s", "Max recovery s", "Overruns", "Min battery V", "Min battery in",
+            "CAN auto %", "CAN teleop %", "CAN disabled %", "Drive m", "Traction limited s");
+        Table overruns = new Table("Event", "Overrun source", "Count");
+
+        for (EventSummary event : events) {
+            table.addRow(
+                event.eventName, event.matches, event.enabledTime, event.ballsShot, event.getMeanCycleTime(),
+                event.longestCycle, event.longestCycleMatch, event.getMeanRecoveryTime(), event.maxRecoveryTime,
+                event.loopOverruns, event.minBatteryVoltage, event.minBatteryMatch,
+                percent(event.getCanUtilization(Mode.AUTO)), percent(event.getCanUtilization(Mode.TELEOP)),
+                percent(event.getCanUtilization(Mode.DISABLED)), event.driveDistance, event.tractionLimitedTime);
+
+            for (Map.Entry<String, Integer> entry : event.overrunsBySource.entrySet()) {
+                overruns.addRow(event.eventName, entry.getKey(), entry.getValue());
+            }
+        }
+
+        out.println("Events");
+        table.print(out);
+        out.println("Loop overruns by source");
+        overruns.print(out);
+    }
+
+    private static double percent(double fraction) {
+        return fraction * 100;
+    }
+}
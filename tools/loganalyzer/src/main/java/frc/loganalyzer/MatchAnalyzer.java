@@ -0,0 +1,459 @@
+package frc.loganalyzer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import edu.wpi.first.util.datalog.DataLogReader;
+import edu.wpi.first.util.datalog.DataLogRecord;
+import edu.wpi.first.util.datalog.DataLogRecord.StartRecordData;
+
+import frc.loganalyzer.MatchSummary.Mode;
+
+/**
+ * Works out a {@link MatchSummary} from one .wpilog file.
+ *
+ * <p>The log is read one record at a time and only running totals are kept, so memory use doesn't
+ * depend on the length of the log. The file itself is memory mapped by {@link DataLogReader}, so it
+ * is paged in by the operating system instead of being copied onto the heap.
+ *
+ * <p>The signals come from what the robot already logs: the driver station mode, the FMS info,
+ * the console (for loop overrun messages), the drive and shooter state structs, the index ball
+ * sensor and the power tab (including the motor currents and temperatures for the thermal models). Signals that aren't in a log are just left out of its summary.
+ */
+public class MatchAnalyzer {
+    // Shots only count when the top shooter wheel is at least this fast (m/s), so a ball
+    // being pushed back out of the index doesn't look like a shot
+    private static final double kMinShotSpeed = 5;
+    // The shooter has recovered once it is back to this fraction of its speed before the shot
+    private static final double kRecoveredFraction = 0.95;
+    // Give up on a recovery that takes longer than this, since the shooter was probably turned off
+    private static final double kMaxRecoveryTime = 3;
+    // Gaps in the drive data longer than this aren't integrated, for example after a brownout
+    private static final double kMaxDriveGap = 0.5;
+
+    // Matches the timing lines printed by the loop watchdog, for example "\tDriveSubsystem.periodic(): 0.012345s"
+    private static final Pattern kEpochPattern = Pattern.compile("([\\w.$]+)\\(\\): (\\d+(?:\\.\\d+)?)s");
+
+    private enum Signal {
+        ENABLED, AUTONOMOUS, TEST,
+        EVENT_NAME, MATCH_TYPE, MATCH_NUMBER,
+        CONSOLE, SCHEMA,
+        DRIVE_STATE, SHOOTER_STATE,
+        BALL_DETECTED, BATTERY_VOLTAGE, CAN_UTILIZATION,
+        MOTOR_CURRENT, MOTOR_TEMPERATURE
+    }
+
+    private static final Map<String, Signal> kSignalsByName = Map.of(
+        "DS:enabled", Signal.ENABLED,
+        "DS:autonomous", Signal.AUTONOMOUS,
+        "DS:test", Signal.TEST,
+        "NT:/FMSInfo/EventName", Signal.EVENT_NAME,
+        "NT:/FMSInfo/MatchType", Signal.MATCH_TYPE,
+        "NT:/FMSInfo/MatchNumber", Signal.MATCH_NUMBER,
+        "console", Signal.CONSOLE,
+        "NT:/Shuffleboard/Index/Is Ball Detected", Signal.BALL_DETECTED,
+        "NT:/Shuffleboard/Power/Battery Voltage", Signal.BATTERY_VOLTAGE,
+        "NT:/Shuffleboard/Power/CAN Utilization", Signal.CAN_UTILIZATION);
+
+    private static final String kSchemaPrefix = "NT:/.schema/";
+
+    // The power tab's thermal model entries, for example "NT:/Shuffleboard/Power/Drive Motor Current"
+    private static final String kPowerPrefix = "NT:/Shuffleboard/Power/";
+    private static final String kMotorCurrentSuffix = " Motor Current";
+    private static final String kMotorTemperatureSuffix = " Motor Temperature";
+    private static final String kDriveStateType = "struct:DriveState";
+    private static final String kShooterStateType = "struct:ShooterState";
+
+    // The packed telemetry structs, and the one-value-per-topic entries they replace, to compare how much each logs
+    private static final String kTelemetryPrefix = "NT:/Telemetry/";
+    private static final String kStructTypePrefix = "struct:";
+    private static final String[] kDashboardDoublePrefixes = {"NT:/Shuffleboard/Drive/", "NT:/Shuffleboard/Shooter/"};
+
+    private final MatchSummary m_summary;
+
+    // Entry IDs are reused after an entry finishes, so this only holds the open entries
+    private final Map<Integer, Signal> m_entries = new HashMap<>();
+    private final Map<Integer, String> m_schemaTypes = new HashMap<>();
+    private final Map<Integer, ThermalReplay> m_thermalEntries = new HashMap<>();
+    // True for struct telemetry entries, false for dashboard doubles
+    private final Map<Integer, Boolean> m_telemetryEntries = new HashMap<>();
+
+    // Mode
+    private boolean m_enabled = false;
+    private boolean m_autonomous = false;
+    private boolean m_test = false;
+    private int m_matchType = 0;
+    private long m_matchNumber = 0;
+    private double m_lastEnabledTime = Double.NaN;
+    private double m_lastTime = 0;
+
+    // Drive struct offsets, looked up once the schema is seen
+    private int m_leftSpeedOffset = -1;
+    private int m_rightSpeedOffset = -1;
+    private int m_leftTractionOffset = -1;
+    private int m_rightTractionOffset = -1;
+    private double m_lastDriveTime = Double.NaN;
+
+    // Shooter
+    private int m_topSpeedOffset = -1;
+    private double m_topSpeed = 0;
+    private boolean m_ballDetected = false;
+    private double m_lastShotTime = Double.NaN;
+    private double m_recoveryStartTime = Double.NaN;
+    private double m_recoveryTarget = 0;
+    private boolean m_dipped = false;
+
+    // Loop overruns are attributed to the slowest epoch in the timing block printed after them
+    private boolean m_overrunPending = false;
+    private boolean m_inEpochBlock = false;
+    private String m_slowestEpoch = null;
+    private double m_slowestEpochTime = 0;
+
+    private MatchAnalyzer(String fileName) {
+        m_summary = new MatchSummary(fileName);
+    }
+
+    /**
+     * Reads a log and works out its summary. Errors reading the log are recorded in the summary
+     * instead of thrown, so one bad file doesn't stop the rest of an event from being analyzed.
+     * @param file The .wpilog file.
+     * @return The summary of the match.
+     */
+    public static MatchSummary analyze(File file) {
+        MatchAnalyzer analyzer = new MatchAnalyzer(file.getName());
+        try {
+            analyzer.read(file);
+        } catch (IOException | RuntimeException e) {
+            analyzer.m_summary.error = e.toString();
+        }
+        return analyzer.m_summary;
+    }
+
+    private void read(File file) throws IOException {
+        DataLogReader reader = new DataLogReader(file.getPath());
+        if (!reader.isValid()) {
+            throw new IOException("Not a valid data log");
+        }
+
+        for (DataLogRecord record : reader) {
+            if (record.isStart()) {
+                start(record.getStartData());
+            } else if (record.isFinish()) {
+                m_entries.remove(record.getFinishEntry());
+                m_schemaTypes.remove(record.getFinishEntry());
+                m_thermalEntries.remove(record.getFinishEntry());
+                m_telemetryEntries.remove(record.getFinishEntry());
+            } else if (!record.isControl()) {
+                countTelemetryBytes(record);
+                Signal signal = m_entries.get(record.getEntry());
+                if (signal != null) {
+                    m_lastTime = record.getTimestamp() / 1e6;
+                    handle(signal, record, m_lastTime);
+                }
+            }
+        }
+
+        // The log can end while the robot is still enabled
+        setEnabled(false, m_lastTime);
+
+        endEpochBlock();
+        if (m_overrunPending) {
+            m_summary.addOverrun("unknown");
+        }
+
+        if (!m_summary.eventName.isEmpty() && m_matchNumber > 0) {
+            m_summary.matchName = m_summary.eventName + " " + getMatchTypeLetter() + m_matchNumber;
+        }
+    }
+
+    private void start(StartRecordData data) {
+        if (data.name.startsWith(kTelemetryPrefix) && data.type.startsWith(kStructTypePrefix)) {
+            m_telemetryEntries.put(data.entry, true);
+        } else if (data.type.equals("double")) {
+            for (String prefix : kDashboardDoublePrefixes) {
+                if (data.name.startsWith(prefix)) {
+                    m_telemetryEntries.put(data.entry, false);
+                }
+            }
+        }
+
+        Signal signal = kSignalsByName.get(data.name);
+
+        if (signal == null) {
+            if (data.name.startsWith(kSchemaPrefix)) {
+                signal = Signal.SCHEMA;
+                m_schemaTypes.put(data.entry, data.name.substring(kSchemaPrefix.length()));
+            } else if (data.type.equals(kDriveStateType)) {
+                signal = Signal.DRIVE_STATE;
+            } else if (data.type.equals(kShooterStateType)) {
+                signal = Signal.SHOOTER_STATE;
+            } else if (data.name.startsWith(kPowerPrefix) && data.name.endsWith(kMotorCurrentSuffix)) {
+                signal = Signal.MOTOR_CURRENT;
+                m_thermalEntries.put(data.entry, getThermalReplay(data.name, kMotorCurrentSuffix));
+            } else if (data.name.startsWith(kPowerPrefix) && data.name.endsWith(kMotorTemperatureSuffix)) {
+                signal = Signal.MOTOR_TEMPERATURE;
+                m_thermalEntries.put(data.entry, getThermalReplay(data.name, kMotorTemperatureSuffix));
+            }
+        }
+
+        if (signal != null) {
+            m_entries.put(data.entry, signal);
+        }
+    }
+
+    private void handle(Signal signal, DataLogRecord record, double time) {
+        switch (signal) {
+            case ENABLED:
+                setEnabled(record.getBoolean(), time);
+                break;
+            case AUTONOMOUS:
+                m_autonomous = record.getBoolean();
+                break;
+            case TEST:
+                m_test = record.getBoolean();
+                break;
+            case EVENT_NAME:
+                m_summary.eventName = record.getString().trim();
+                break;
+            case MATCH_TYPE:
+                m_matchType = (int) record.getInteger();
+                break;
+            case MATCH_NUMBER:
+                m_matchNumber = record.getInteger();
+                break;
+            case CONSOLE:
+                for (String line : record.getString().split("\n")) {
+                    handleConsoleLine(line);
+                }
+                break;
+            case SCHEMA:
+                handleSchema(m_schemaTypes.get(record.getEntry()), new String(record.getRaw(), StandardCharsets.UTF_8));
+                break;
+            case DRIVE_STATE:
+                handleDriveState(StructLayout.wrap(record.getRaw()), time);
+                break;
+            case SHOOTER_STATE:
+                handleShooterState(StructLayout.wrap(record.getRaw()), time);
+                break;
+            case BALL_DETECTED:
+                handleBallSensor(record.getBoolean(), time);
+                break;
+            case BATTERY_VOLTAGE:
+                double voltage = record.getDouble();
+                // The power distribution reads 0 before its first update
+                if (voltage > 0 && !(voltage >= m_summary.minBatteryVoltage)) {
+                    m_summary.minBatteryVoltage = voltage;
+                }
+                break;
+            case MOTOR_CURRENT:
+                m_thermalEntries.get(record.getEntry()).addCurrent(record.getDouble(), time);
+                break;
+            case MOTOR_TEMPERATURE:
+                m_thermalEntries.get(record.getEntry()).addTemperature(record.getDouble());
+                break;
+            case CAN_UTILIZATION:
+                int mode = getMode().ordinal();
+                m_summary.canUtilizationSum[mode] += record.getDouble();
+                m_summary.canUtilizationSamples[mode]++;
+                break;
+        }
+    }
+
+    /** Adds a record's size in the log, header included, to the struct or dashboard double total. */
+    private void countTelemetryBytes(DataLogRecord record) {
+        Boolean struct = m_telemetryEntries.get(record.getEntry());
+        if (struct == null) {
+            return;
+        }
+
+        // Each record has a one byte header, then the entry id, payload size and timestamp in as few bytes as they fit in
+        long bytes = 1 + getVarBytes(record.getEntry()) + getVarBytes(record.getSize()) + getVarBytes(record.getTimestamp()) + record.getSize();
+        if (struct) {
+            m_summary.structTelemetryBytes += bytes;
+            m_summary.structTelemetryRecords++;
+        } else {
+            m_summary.doubleTelemetryBytes += bytes;
+            m_summary.doubleTelemetryRecords++;
+        }
+    }
+
+    private static int getVarBytes(long value) {
+        int bytes = 1;
+        while ((value >>>= 8) != 0) {
+            bytes++;
+        }
+        return bytes;
+    }
+
+    private ThermalReplay getThermalReplay(String entryName, String suffix) {
+        String mechanism = entryName.substring(kPowerPrefix.length(), entryName.length() - suffix.length());
+        return m_summary.thermal.computeIfAbsent(mechanism, name -> new ThermalReplay());
+    }
+
+    private Mode getMode() {
+        if (!m_enabled) {
+            return Mode.DISABLED;
+        } else if (m_test) {
+            return Mode.TEST;
+        } else if (m_autonomous) {
+            return Mode.AUTO;
+        }
+        return Mode.TELEOP;
+    }
+
+    private String getMatchTypeLetter() {
+        switch (m_matchType) {
+            case 1:
+                return "P";
+            case 2:
+                return "Q";
+            case 3:
+                return "E";
+            default:
+                return "";
+        }
+    }
+
+    private void setEnabled(boolean enabled, double time) {
+        if (m_enabled && !enabled) {
+            m_summary.enabledTime += time - m_lastEnabledTime;
+
+            // Cycles and recoveries don't carry over between enables (for example from auto to teleop)
+            m_lastShotTime = Double.NaN;
+            m_recoveryStartTime = Double.NaN;
+        } else if (!m_enabled && enabled) {
+            m_lastEnabledTime = time;
+        }
+        m_enabled = enabled;
+    }
+
+    private void handleSchema(String type, String schema) {
+        if (kDriveStateType.equals(type)) {
+            StructLayout layout = new StructLayout(schema);
+            m_leftSpeedOffset = layout.getDoubleOffset("leftSpeed");
+            m_rightSpeedOffset = layout.getDoubleOffset("rightSpeed");
+            m_leftTractionOffset = layout.getDoubleOffset("leftTraction");
+            m_rightTractionOffset = layout.getDoubleOffset("rightTraction");
+        } else if (kShooterStateType.equals(type)) {
+            m_topSpeedOffset = new StructLayout(schema).getDoubleOffset("topSpeed");
+        }
+    }
+
+    private void handleDriveState(ByteBuffer data, double time) {
+        if (m_leftSpeedOffset < 0 || m_rightSpeedOffset < 0) {
+            return;
+        }
+
+        double speed = Math.abs((data.getDouble(m_leftSpeedOffset) + data.getDouble(m_rightSpeedOffset)) / 2);
+        double dt = time - m_lastDriveTime;
+        m_lastDriveTime = time;
+
+        if (!m_enabled || !(dt < kMaxDriveGap)) {
+            return;
+        }
+
+        m_summary.driveDistance += speed * dt;
+        m_summary.maxDriveSpeed = Math.max(m_summary.maxDriveSpeed, speed);
+
+        if (m_leftTractionOffset >= 0 && m_rightTractionOffset >= 0
+            && Math.min(data.getDouble(m_leftTractionOffset), data.getDouble(m_rightTractionOffset)) < 1) {
+            m_summary.tractionLimitedTime += dt;
+        }
+    }
+
+    private void handleShooterState(ByteBuffer data, double time) {
+        if (m_topSpeedOffset < 0) {
+            return;
+        }
+        m_topSpeed = data.getDouble(m_topSpeedOffset);
+
+        if (Double.isNaN(m_recoveryStartTime)) {
+            return;
+        }
+
+        double elapsed = time - m_recoveryStartTime;
+        if (elapsed > kMaxRecoveryTime) {
+            m_recoveryStartTime = Double.NaN;
+        } else if (m_topSpeed < m_recoveryTarget) {
+            m_dipped = true;
+        } else if (m_dipped) {
+            m_summary.recoveries++;
+            m_summary.recoveryTimeSum += elapsed;
+            m_summary.maxRecoveryTime = Math.max(m_summary.maxRecoveryTime, elapsed);
+            m_recoveryStartTime = Double.NaN;
+        }
+    }
+
+    private void handleBallSensor(boolean detected, double time) {
+        boolean launched = m_ballDetected && !detected;
+        m_ballDetected = detected;
+
+        if (!launched || !m_enabled || m_topSpeed < kMinShotSpeed) {
+            return;
+        }
+
+        m_summary.ballsShot++;
+
+        if (!Double.isNaN(m_lastShotTime)) {
+            double cycle = time - m_lastShotTime;
+            m_summary.cycles++;
+            m_summary.cycleTimeSum += cycle;
+            m_summary.longestCycle = Math.max(m_summary.longestCycle, cycle);
+        }
+        m_lastShotTime = time;
+
+        m_recoveryStartTime = time;
+        m_recoveryTarget = kRecoveredFraction * m_topSpeed;
+        m_dipped = false;
+    }
+
+    private void handleConsoleLine(String line) {
+        Matcher matcher = kEpochPattern.matcher(line);
+        if (matcher.find()) {
+            m_inEpochBlock = true;
+            double epochTime = Double.parseDouble(matcher.group(2));
+            if (m_slowestEpoch == null || epochTime > m_slowestEpochTime) {
+                m_slowestEpoch = matcher.group(1);
+                m_slowestEpochTime = epochTime;
+            }
+            return;
+        }
+
+        endEpochBlock();
+
+        if (line.contains("Loop time of") && line.contains("overrun")) {
+            m_summary.loopOverruns++;
+            if (m_overrunPending) {
+                m_summary.addOverrun("unknown");
+            }
+            m_overrunPending = true;
+        }
+    }
+
+    /**
+     * The command scheduler prints its timing block (subsystem periodics and commands) before the robot
+     * loop prints its own, so the first block after an overrun message is the most specific one.
+     */
+    private void endEpochBlock() {
+        if (!m_inEpochBlock) {
+            return;
+        }
+
+        if (m_overrunPending) {
+            // "DriveSubsystem.periodic" -> "DriveSubsystem", "robotPeriodic" stays as it is
+            int dot = m_slowestEpoch.indexOf('.');
+            m_summary.addOverrun(dot > 0 ? m_slowestEpoch.substring(0, dot) : m_slowestEpoch);
+            m_overrunPending = false;
+        }
+
+        m_inEpochBlock = false;
+        m_slowestEpoch = null;
+        m_slowestEpochTime = 0;
+    }
+}
@@ -0,0 +1,93 @@
+package frc.loganalyzer;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The numbers worked out from one match log. Everything is a running total or extreme,
+ * so the size of a summary doesn't depend on how long the log is.
+ */
+public class MatchSummary {
+    /** The robot modes, used to split up per-mode numbers. */
+    public enum Mode {
+        DISABLED, AUTO, TELEOP, TEST
+    }
+
+    final String fileName;
+
+    String eventName = "";
+    String matchName;
+    String error;
+
+    double enabledTime = 0;
+
+    // Shooter
+    int ballsShot = 0;
+    int cycles = 0;
+    double cycleTimeSum = 0;
+    double longestCycle = 0;
+    int recoveries = 0;
+    double recoveryTimeSum = 0;
+    double maxRecoveryTime = 0;
+
+    // Robot loop
+    int loopOverruns = 0;
+    final Map<String, Integer> overrunsBySource = new TreeMap<>();
+
+    // Power and CAN
+    double minBatteryVoltage = Double.NaN;
+    final double[] canUtilizationSum = new double[Mode.values().length];
+    final int[] canUtilizationSamples = new int[Mode.values().length];
+
+    // Drive
+    double driveDistance = 0;
+    double maxDriveSpeed = 0;
+    double tractionLimitedTime = 0;
+
+    // Bytes logged for the drive and shooter telemetry, as packed structs and as dashboard doubles
+    long structTelemetryBytes = 0;
+    long structTelemetryRecords = 0;
+    long doubleTelemetryBytes = 0;
+    long doubleTelemetryRecords = 0;
+
+    // Motor thermal models replayed against the reported temperatures, by mechanism
+    final Map<String, ThermalReplay> thermal = new TreeMap<>();
+
+    MatchSummary(String fileName) {
+        this.fileName = fileName;
+        this.matchName = fileName;
+    }
+
+    /** Returns the average CAN bus utilization in a mode from 0 to 1, or NaN if there are no samples. */
+    public double getCanUtilization(Mode mode) {
+        int samples = canUtilizationSamples[mode.ordinal()];
+        return samples == 0 ? Double.NaN : canUtilizationSum[mode.ordinal()] / samples;
+    }
+
+    /** Returns the average time between shots, or NaN if less than two balls were shot. */
+    public double getMeanCycleTime() {
+        return cycles == 0 ? Double.NaN : cycleTimeSum / cycles;
+    }
+
+    /** Returns the average shooter recovery time, or NaN if no shots were recovered from. */
+    public double getMeanRecoveryTime() {
+        return recoveries == 0 ? Double.NaN : recoveryTimeSum / recoveries;
+    }
+
+    /** Returns what caused the most loop overruns, or an empty string if there weren't any. */
+    public String getWorstOverrunSource() {
+        String worst = "";
+        int worstCount = 0;
+        for (Map.Entry<String, Integer> entry : overrunsBySource.entrySet()) {
+            if (entry.getValue() > worstCount) {
+                worst = entry.getKey();
+                worstCount = entry.getValue();
+            }
+        }
+        return worst;
+    }
+
+    void addOverrun(String source) {
+        overrunsBySource.merge(source, 1, Integer::sum);
+    }
+}
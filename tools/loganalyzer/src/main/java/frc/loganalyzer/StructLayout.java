@@ -0,0 +1,75 @@
+package frc.loganalyzer;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The field offsets of a struct topic, parsed from the schema string the robot logs
+ * (for example {@code "double x;double y;bool slipping;"}). This matches the layout written by
+ * {@code frc.utils.StructSchema} on the robot, which only uses doubles and bools.
+ */
+public class StructLayout {
+    private final Map<String, Integer> m_offsets = new HashMap<>();
+    private final Map<String, String> m_types = new HashMap<>();
+    private int m_size = 0;
+
+    /**
+     * Parses a struct schema.
+     * @param schema The schema string.
+     * @throws IllegalArgumentException If the schema has a type that isn't supported.
+     */
+    public StructLayout(String schema) {
+        for (String declaration : schema.split(";")) {
+            declaration = declaration.trim();
+            if (declaration.isEmpty()) {
+                continue;
+            }
+
+            String[] parts = declaration.split("\\s+");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Can't parse struct field: " + declaration);
+            }
+
+            int size;
+            switch (parts[0]) {
+                case "double":
+                    size = 8;
+                    break;
+                case "bool":
+                    size = 1;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported struct field type: " + parts[0]);
+            }
+
+            m_offsets.put(parts[1], m_size);
+            m_types.put(parts[1], parts[0]);
+            m_size += size;
+        }
+    }
+
+    /**
+     * Returns the byte offset of a double field, or -1 if there isn't a double field with that name.
+     * Look offsets up once and reuse them, since this is a map lookup.
+     */
+    public int getDoubleOffset(String name) {
+        return "double".equals(m_types.get(name)) ? m_offsets.get(name) : -1;
+    }
+
+    /** Returns the byte offset of a bool field, or -1 if there isn't a bool field with that name. */
+    public int getBooleanOffset(String name) {
+        return "bool".equals(m_types.get(name)) ? m_offsets.get(name) : -1;
+    }
+
+    /** Returns the size of the packed struct in bytes. */
+    public int getSize() {
+        return m_size;
+    }
+
+    /** Wraps packed struct data so fields can be read at their offsets. */
+    public static ByteBuffer wrap(byte[] data) {
+        return ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,66 @@
+package frc.loganalyzer;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/** A plain text table with columns sized to fit their contents. */
+public class Table {
+    private final String[] m_headers;
+    private final List<String[]> m_rows = new ArrayList<>();
+
+    public Table(String... headers) {
+        m_headers = headers;
+    }
+
+    /**
+     * Adds a row. Doubles are printed with two decimal places, and NaN is printed as "-".
+     * @param values One value per column.
+     */
+    public void addRow(Object... values) {
+        String[] row = new String[m_headers.length];
+        for (int i = 0; i < row.length; i++) {
+            Object value = i < values.length ? values[i] : "";
+            if (value instanceof Double) {
+                double number = (Double) value;
+                row[i] = Double.isNaN(number) ? "-" : String.format("%.2f", number);
+            } else {
+                row[i] = String.valueOf(value);
+            }
+        }
+        m_rows.add(row);
+    }
+
+    public void print(PrintStream out) {
+        int[] widths = new int[m_headers.length];
+        for (int i = 0; i < widths.length; i++) {
+            widths[i] = m_headers[i].length();
+            for (String[] row : m_rows) {
+                widths[i] = Math.max(widths[i], row[i].length());
+            }
+        }
+
+        printRow(out, m_headers, widths);
+
+        StringBuilder divider = new StringBuilder();
+        for (int width : widths) {
+            divider.append("-".repeat(width)).append("  ");
+        }
+        out.println(divider.toString().stripTrailing());
+
+        for (String[] row : m_rows) {
+            printRow(out, row, widths);
+        }
+        out.println();
+    }
+
+    private static void printRow(PrintStream out, String[] row, int[] widths) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < row.length; i++) {
+            // Left align the first column (names), right align the numbers
+            String format = i == 0 ? "%-" + widths[i] + "s  " : "%" + widths[i] + "s  ";
+            line.append(String.format(format, row[i]));
+        }
+        out.println(line.toString().stripTrailing());
+    }
+}
@@ -0,0 +1,78 @@
+package frc.loganalyzer;
+
+import frc.utils.MotorThermalModel;
+
+/**
+ * Replays the robot's motor thermal model against one mechanism's logged current, and compares what it
+ * predicts with the temperature the motor controllers reported.
+ *
+ * <p>The model runs open loop here (the reported temperature only sets where it starts), so the error
+ * shows how good the thermal constants are, not how well the robot's correction hides them.
+ */
+public class ThermalReplay {
+    // Keep these the same as ThermalConstants on the robot
+    private static final double kResistance = 0.114;
+    private static final double kThermalResistance = 1.2;
+    private static final double kThermalCapacity = 200;
+    private static final double kAmbientTemperature = 30;
+    private static final double kLimitTemperature = 80;
+
+    // Gaps in the current longer than this aren't integrated, for example after a brownout
+    private static final double kMaxGap = 0.5;
+
+    private final MotorThermalModel m_model = new MotorThermalModel(
+        kResistance, kThermalResistance, kThermalCapacity, kAmbientTemperature, kLimitTemperature, 0);
+
+    private double m_lastCurrentTime = Double.NaN;
+    private double m_reported = Double.NaN;
+    private boolean m_seeded = false;
+
+    double peakReported = Double.NaN;
+    double peakModel = Double.NaN;
+    double maxError = 0;
+    private double m_errorSquaredSum = 0;
+    private int m_errorSamples = 0;
+
+    /** Records a new reported temperature. The first one sets where the model starts. */
+    void addTemperature(double temperature) {
+        // The motor controllers report 0 before their first reading
+        if (temperature <= 0) {
+            return;
+        }
+
+        m_reported = temperature;
+        if (!m_seeded) {
+            m_model.reset(temperature);
+            m_seeded = true;
+        }
+        if (!(temperature <= peakReported)) {
+            peakReported = temperature;
+        }
+    }
+
+    /** Steps the model with a new current, and records its error against the latest reported temperature. */
+    void addCurrent(double current, double time) {
+        double dt = time - m_lastCurrentTime;
+        m_lastCurrentTime = time;
+        if (!m_seeded || !(dt < kMaxGap)) {
+            return;
+        }
+
+        m_model.update(dt, current, Double.NaN);
+
+        double predicted = m_model.getTemperature();
+        if (!(predicted <= peakModel)) {
+            peakModel = predicted;
+        }
+
+        double error = predicted - m_reported;
+        m_errorSquaredSum += error * error;
+        m_errorSamples++;
+        maxError = Math.max(maxError, Math.abs(error));
+    }
+
+    /** Returns the root mean square difference between the model and the reported temperature, or NaN if there was nothing to compare. */
+    public double getRmsError() {
+        return m_errorSamples == 0 ? Double.NaN : Math.sqrt(m_errorSquaredSum / m_errorSamples);
+    }
+}
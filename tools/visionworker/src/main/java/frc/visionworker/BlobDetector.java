@@ -0,0 +1,77 @@
+package frc.visionworker;
+
+import java.nio.ByteBuffer;
+
+import frc.utils.SharedObservations.Observation;
+
+/**
+ * Finds a bright target (for example retroreflective tape lit by an LED ring) in an 8 bit grayscale frame.
+ *
+ * <p>Every pixel at or above the threshold counts as part of the target, and the target is where their centroid is.
+ * That is crude next to contour finding, but it is fast, needs no native libraries, and works well when the camera's
+ * exposure is turned down so the tape is the only bright thing in view. The frame is read right where it is,
+ * so nothing is copied or allocated.
+ */
+public class BlobDetector {
+    private final int m_threshold;
+    private final int m_minPixels;
+    private final double m_tanHalfHorizontalFov;
+    private final double m_tanHalfVerticalFov;
+
+    /**
+     * Creates a detector.
+     * @param threshold The lowest brightness (0 to 255) that counts as target.
+     * @param minPixels How many target pixels there must be to count as a target, so single hot pixels are ignored.
+     * @param horizontalFovDegrees The camera's horizontal field of view.
+     * @param verticalFovDegrees The camera's vertical field of view.
+     */
+    public BlobDetector(int threshold, int minPixels, double horizontalFovDegrees, double verticalFovDegrees) {
+        m_threshold = threshold;
+        m_minPixels = minPixels;
+        m_tanHalfHorizontalFov = Math.tan(Math.toRadians(horizontalFovDegrees) / 2);
+        m_tanHalfVerticalFov = Math.tan(Math.toRadians(verticalFovDegrees) / 2);
+    }
+
+    /**
+     * Looks for the target in a frame.
+     * @param frame The pixels, one byte each, row by row. Only absolute gets are used, so the buffer's position doesn't matter.
+     * @param width The width in pixels.
+     * @param height The height in pixels.
+     * @param out Filled in with the target count, yaw, pitch and area.
+     */
+    public void detect(ByteBuffer frame, int width, int height, Observation out) {
+        long count = 0;
+        long sumX = 0;
+        long sumY = 0;
+
+        int index = 0;
+        for (int y = 0; y < height; y++) {
+            long rowCount = 0;
+            for (int x = 0; x < width; x++) {
+                if ((frame.get(index++) & 0xff) >= m_threshold) {
+                    rowCount++;
+                    sumX += x;
+                }
+            }
+            count += rowCount;
+            sumY += rowCount * y;
+        }
+
+        if (count < m_minPixels) {
+            out.targetCount = 0;
+            out.yawDegrees = 0;
+            out.pitchDegrees = 0;
+            out.area = 0;
+            return;
+        }
+
+        // The centroid from -1 to 1, with up being positive
+        double nx = ((double) sumX / count + 0.5) / width * 2 - 1;
+        double ny = 1 - ((double) sumY / count + 0.5) / height * 2;
+
+        out.targetCount = 1;
+        out.yawDegrees = Math.toDegrees(Math.atan(nx * m_tanHalfHorizontalFov));
+        out.pitchDegrees = Math.toDegrees(Math.atan(ny * m_tanHalfVerticalFov));
+        out.area = (double) count / ((long) width * height);
+    }
+}
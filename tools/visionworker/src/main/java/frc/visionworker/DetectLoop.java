@@ -0,0 +1,115 @@
+package frc.visionworker;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.LockSupport;
+
+import frc.utils.SharedFrameRing;
+import frc.utils.SharedObservations;
+import frc.utils.SharedObservations.Observation;
+import frc.utils.TimingStats;
+
+/**
+ * Waits for frames in the ring, looks for the target in each one, and publishes an observation for it.
+ *
+ * <p>If frames come in faster than they can be processed, the ones in between are skipped and only the newest is used,
+ * since an old frame only adds latency. If the writer laps a frame while it is being processed, the result is thrown away.
+ */
+public class DetectLoop implements Runnable {
+    // How long to sleep between checks for a new frame
+    private static final long kPollNanos = 200_000;
+
+    private final SharedFrameRing m_frames;
+    private final SharedObservations m_results;
+    private final BlobDetector m_detector;
+    private final Observation m_observation = new Observation();
+
+    private final TimingStats m_processTime;
+    private volatile boolean m_stop = false;
+
+    private volatile long m_processed = 0;
+    private volatile long m_skipped = 0;
+    private volatile long m_overwritten = 0;
+
+    /**
+     * Creates the loop.
+     * @param frames Where the frames come from.
+     * @param results Where the observations go.
+     * @param detector The detector.
+     * @param samples How many processing time samples to keep.
+     */
+    public DetectLoop(SharedFrameRing frames, SharedObservations results, BlobDetector detector, int samples) {
+        m_frames = frames;
+        m_results = results;
+        m_detector = detector;
+        m_processTime = new TimingStats(samples);
+    }
+
+    @Override
+    public void run() {
+        // Frames from before the worker started are too old to be worth anything
+        long next = m_frames.getLatestSequence() + 1;
+
+        while (!m_stop) {
+            long sequence = m_frames.getLatestSequence();
+            if (sequence < next) {
+                LockSupport.parkNanos(kPollNanos);
+                continue;
+            }
+
+            m_skipped += sequence - next;
+            next = sequence + 1;
+
+            int slot = m_frames.getSlot(sequence);
+            if (!m_frames.isValid(slot, sequence)) {
+                m_overwritten++;
+                continue;
+            }
+
+            long start = System.nanoTime();
+            ByteBuffer data = m_frames.getData(slot);
+            int width = m_frames.getWidth(slot);
+            int height = m_frames.getHeight(slot);
+            long timestamp = m_frames.getTimestampNanos(slot);
+            m_detector.detect(data, width, height, m_observation);
+
+            if (!m_frames.isValid(slot, sequence)) {
+                m_overwritten++;
+                continue;
+            }
+
+            long end = System.nanoTime();
+            m_observation.frameSequence = sequence;
+            m_observation.frameTimestampNanos = timestamp;
+            m_observation.processedNanos = end;
+            m_results.write(m_observation);
+
+            m_processTime.add((end - start) * 1e-9);
+            m_processed++;
+        }
+    }
+
+    /** Makes {@link #run()} return after the frame it is on. */
+    public void stop() {
+        m_stop = true;
+    }
+
+    /** Returns how long each frame took to process, in seconds. */
+    public TimingStats getProcessTimeStats() {
+        return m_processTime;
+    }
+
+    /** Returns how many frames were processed. */
+    public long getProcessedCount() {
+        return m_processed;
+    }
+
+    /** Returns how many frames were skipped because a newer one was already waiting. */
+    public long getSkippedCount() {
+        return m_skipped;
+    }
+
+    /** Returns how many frames were overwritten by the writer before they were done. */
+    public long getOverwrittenCount() {
+        return m_overwritten;
+    }
+}
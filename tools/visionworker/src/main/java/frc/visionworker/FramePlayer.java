@@ -0,0 +1,69 @@
+package frc.visionworker;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.LockSupport;
+
+import frc.utils.SharedFrameRing;
+
+/**
+ * Plays recorded frames into a frame ring, as if a camera were capturing them.
+ * Each frame is timestamped when it goes into the ring.
+ */
+public class FramePlayer implements Runnable {
+    private final RecordedFrames m_recording;
+    private final SharedFrameRing m_ring;
+    private final double m_fps;
+    private final long m_count;
+    private volatile boolean m_stop = false;
+    private volatile long m_written = 0;
+
+    /**
+     * Creates a player.
+     * @param recording The frames.
+     * @param ring Where to play them into. Its slots must be big enough for a frame.
+     * @param fps How many frames to play a second, or 0 to play them as fast as possible.
+     * @param count How many frames to play in total, going back to the start of the recording as needed,
+     *     or 0 to play the recording once.
+     */
+    public FramePlayer(RecordedFrames recording, SharedFrameRing ring, double fps, long count) {
+        if (ring.getSlotBytes() < recording.width * recording.height) {
+            throw new IllegalArgumentException("The frame ring's slots are too small for " + recording.width + "x" + recording.height + " frames");
+        }
+        m_recording = recording;
+        m_ring = ring;
+        m_fps = fps;
+        m_count = count > 0 ? count : recording.frames.size();
+    }
+
+    @Override
+    public void run() {
+        long period = m_fps > 0 ? (long) (1e9 / m_fps) : 0;
+        long next = System.nanoTime();
+        int length = m_recording.width * m_recording.height;
+
+        for (long i = 0; i < m_count && !m_stop; i++) {
+            if (period > 0) {
+                long wait = next - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                next += period;
+            }
+
+            ByteBuffer slot = m_ring.beginFrame();
+            slot.put(m_recording.frames.get((int) (i % m_recording.frames.size())), 0, length);
+            m_ring.commitFrame(System.nanoTime(), m_recording.width, m_recording.height, length);
+            m_written++;
+        }
+    }
+
+    /** Makes {@link #run()} return after the frame it is on. */
+    public void stop() {
+        m_stop = true;
+    }
+
+    /** Returns how many frames were played. */
+    public long getWrittenCount() {
+        return m_written;
+    }
+}
@@ -0,0 +1,93 @@
+package frc.visionworker;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Grayscale frames loaded from binary PGM files, for replaying on a desktop.
+ *
+ * <p>Any video can be turned into frames with ffmpeg, for example
+ * {@code ffmpeg -i match.mp4 -vf scale=320:240,format=gray frames/%05d.pgm}.
+ * Every frame must be the same size.
+ */
+public class RecordedFrames {
+    public final int width;
+    public final int height;
+    public final List<byte[]> frames;
+
+    private RecordedFrames(int width, int height, List<byte[]> frames) {
+        this.width = width;
+        this.height = height;
+        this.frames = frames;
+    }
+
+    /**
+     * Loads every .pgm file in a directory, in name order.
+     * @param directory The directory.
+     * @return The frames.
+     * @throws IOException If a file can't be read, isn't a binary 8 bit PGM, or is a different size than the first one.
+     */
+    public static RecordedFrames load(File directory) throws IOException {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".pgm"));
+        if (files == null || files.length == 0) {
+            throw new IOException("No .pgm files in " + directory);
+        }
+        Arrays.sort(files);
+
+        int width = -1;
+        int height = -1;
+        List<byte[]> frames = new ArrayList<>(files.length);
+        for (File file : files) {
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            int[] header = new int[3];
+            int dataStart = parseHeader(bytes, header, file);
+
+            if (width < 0) {
+                width = header[0];
+                height = header[1];
+            } else if (header[0] != width || header[1] != height) {
+                throw new IOException(file + " is " + header[0] + "x" + header[1] + ", not " + width + "x" + height);
+            }
+            if (bytes.length - dataStart < width * height) {
+                throw new IOException(file + " is cut short");
+            }
+            frames.add(Arrays.copyOfRange(bytes, dataStart, dataStart + width * height));
+        }
+        return new RecordedFrames(width, height, frames);
+    }
+
+    /** Reads the width, height and max value of a PGM, and returns where the pixels start. */
+    private static int parseHeader(byte[] bytes, int[] header, File file) throws IOException {
+        if (bytes.length < 2 || bytes[0] != 'P' || bytes[1] != '5') {
+            throw new IOException(file + " isn't a binary PGM");
+        }
+
+        int i = 2;
+        for (int field = 0; field < 3; field++) {
+            // Skip whitespace and comments
+            while (i < bytes.length && (Character.isWhitespace(bytes[i]) || bytes[i] == '#')) {
+                if (bytes[i] == '#') {
+                    while (i < bytes.length && bytes[i] != '\n') {
+                        i++;
+                    }
+                }
+                i++;
+            }
+            int value = 0;
+            while (i < bytes.length && bytes[i] >= '0' && bytes[i] <= '9') {
+                value = value * 10 + (bytes[i++] - '0');
+            }
+            header[field] = value;
+        }
+
+        if (header[2] > 255) {
+            throw new IOException(file + " has 16 bit pixels, only 8 bit is supported");
+        }
+        // Exactly one whitespace character separates the header from the pixels
+        return i + 1;
+    }
+}
@@ -0,0 +1,111 @@
+package frc.visionworker;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.locks.LockSupport;
+
+import frc.utils.SharedFrameRing;
+import frc.utils.SharedObservations;
+import frc.utils.SharedObservations.Observation;
+import frc.utils.TimingStats;
+
+/**
+ * Times the whole pipeline on a desktop: recorded frames are played into a frame ring, the worker processes them,
+ * and a reader polls the results the same way the robot does. The files are temporary and deleted afterwards.
+ *
+ * <p>Latency is measured from when a frame went into the ring to when the reader saw its observation.
+ * The reader also checks how many bytes it allocated. Reading itself never allocates, but the JIT can
+ * allocate a few hundred bytes once when it recompiles the reader's loop partway through.
+ */
+final class VisionBenchmark {
+    // How often the reader polls, a lot more often than the robot does so the latency isn't dominated by polling
+    private static final long kReadPollNanos = 50_000;
+
+    private static final int kWarmupReads = 20_000;
+
+    private VisionBenchmark() {}
+
+    static void run(RecordedFrames recording, BlobDetector detector, long count, double fps) throws IOException, InterruptedException {
+        Path directory = Files.isDirectory(Path.of("/dev/shm")) ? Path.of("/dev/shm") : Path.of(System.getProperty("java.io.tmpdir"));
+        Path framesPath = Files.createTempFile(directory, "vision_frames", "");
+        Path resultsPath = Files.createTempFile(directory, "vision_results", "");
+
+        try (SharedFrameRing frames = SharedFrameRing.create(framesPath, VisionWorker.kDefaultSlots, recording.width * recording.height);
+                SharedObservations results = SharedObservations.create(resultsPath, VisionWorker.kResultSlots);
+                SharedObservations reader = SharedObservations.open(resultsPath)) {
+            DetectLoop loop = new DetectLoop(frames, results, detector, (int) Math.min(count, Integer.MAX_VALUE));
+            FramePlayer player = new FramePlayer(recording, frames, fps, count);
+
+            // The worker has to be waiting before the first frame, or it will skip the frames from before it started
+            Thread detectThread = new Thread(loop, "Detect");
+            detectThread.start();
+            Thread.sleep(100);
+
+            Thread playerThread = new Thread(player, "Player");
+            long start = System.nanoTime();
+            playerThread.start();
+
+            TimingStats latency = new TimingStats((int) Math.min(count, Integer.MAX_VALUE));
+            TimingStats readTime = new TimingStats((int) Math.min(count, Integer.MAX_VALUE));
+            Observation observation = new Observation();
+            long lastSequence = -1;
+            long reads = 0;
+            long targets = 0;
+
+            // The first calls load classes and link the VarHandles, which allocates, so get that out of the way like the robot would
+            for (int i = 0; i < kWarmupReads; i++) {
+                reader.readLatest(observation);
+                latency.add(0);
+                readTime.add(0);
+            }
+            latency.reset();
+            readTime.reset();
+            LockSupport.parkNanos(kReadPollNanos);
+
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+
+            // Keep reading until the player is done and the worker has caught up
+            while (playerThread.isAlive() || results.getLatestSequence() != lastSequence) {
+                long readStart = System.nanoTime();
+                boolean read = reader.readLatest(observation);
+                long now = System.nanoTime();
+
+                if (read && observation.sequence != lastSequence) {
+                    readTime.add((now - readStart) * 1e-9);
+                    latency.add((now - observation.frameTimestampNanos) * 1e-9);
+                    lastSequence = observation.sequence;
+                    reads++;
+                    if (observation.targetCount > 0) {
+                        targets++;
+                    }
+                } else {
+                    LockSupport.parkNanos(kReadPollNanos);
+                }
+            }
+
+            long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+            double elapsed = (System.nanoTime() - start) * 1e-9;
+            loop.stop();
+            detectThread.join();
+
+            TimingStats process = loop.getProcessTimeStats();
+            System.out.printf("%d %dx%d frames played in %.2f s (%.1f fps)%n",
+                player.getWrittenCount(), recording.width, recording.height, elapsed, player.getWrittenCount() / elapsed);
+            System.out.printf("Processed %d (%.1f fps), skipped %d, overwritten %d%n",
+                loop.getProcessedCount(), loop.getProcessedCount() / elapsed, loop.getSkippedCount(), loop.getOverwrittenCount());
+            System.out.printf("Reader saw %d observations, %d with a target%n", reads, targets);
+            System.out.printf("Processing ms:        mean %.3f  50th %.3f  99th %.3f  max %.3f%n",
+                process.getMean() * 1000, process.getPercentile(50) * 1000, process.getPercentile(99) * 1000, process.getMax() * 1000);
+            System.out.printf("Frame to reader ms:   mean %.3f  50th %.3f  99th %.3f  max %.3f%n",
+                latency.getMean() * 1000, latency.getPercentile(50) * 1000, latency.getPercentile(99) * 1000, latency.getMax() * 1000);
+            System.out.printf("Reader read us:       mean %.3f  99th %.3f, %d bytes allocated while reading%n",
+                readTime.getMean() * 1e6, readTime.getPercentile(99) * 1e6, allocated);
+        } finally {
+            Files.deleteIfExists(framesPath);
+            Files.deleteIfExists(resultsPath);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package frc.visionworker;
+
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import frc.utils.SharedFrameRing;
+import frc.utils.SharedObservations;
+
+/**
+ * The vision worker. It runs in its own process so a slow frame or a garbage collection pause here
+ * never holds up the robot loop, and frames and results go through shared memory instead of over the network.
+ *
+ * <pre>
+ * VisionWorker detect  [--frames F] [--results R] [--threshold N] [--min-pixels N] [--hfov DEG] [--vfov DEG]
+ * VisionWorker replay  [--frames F] [--fps N] [--loop] [--slots N] &lt;directory of .pgm frames&gt;
+ * VisionWorker capture [--frames F] [--slots N] --width W --height H
+ * VisionWorker bench   [--count N] [--fps N] [detector options] &lt;directory of .pgm frames&gt;
+ * </pre>
+ *
+ * {@code detect} is the worker itself: it reads frames from the frame ring and writes observations for the robot.
+ * The frames come from {@code replay}, which plays recorded frames, or {@code capture}, which reads raw 8 bit
+ * grayscale frames from stdin straight into the ring, for example from
+ * {@code ffmpeg -f v4l2 -i /dev/video0 -vf scale=320:240,format=gray -f rawvideo - | VisionWorker capture --width 320 --height 240}.
+ * {@code bench} runs a player, the worker and a reader like the robot's in one process and prints the timing.
+ * If frames keep getting overwritten before the worker is done with them, give the ring more {@code --slots}.
+ *
+ * <p>The robot reads the results file named in VisionConstants, which is the default here.
+ */
+public final class VisionWorker {
+    static final String kDefaultFrames = "/dev/shm/vision_frames";
+    static final String kDefaultResults = "/dev/shm/vision_results";
+    static final int kDefaultSlots = 4;
+    static final int kResultSlots = 8;
+
+    // Made for a dim exposure with an LED ring, and a camera like the Microsoft LifeCam
+    static final int kDefaultThreshold = 200;
+    static final int kDefaultMinPixels = 20;
+    static final double kDefaultHorizontalFov = 61;
+    static final double kDefaultVerticalFov = 48;
+
+    static final double kDefaultFps = 30;
+    static final int kStatsSamples = 1000;
+    static final long kStatsPeriodMs = 5000;
+
+    private VisionWorker() {}
+
+    public static void main(String... args) throws IOException, InterruptedException {
+        if (args.length == 0) {
+            usage();
+        }
+
+        Map<String, String> options = new HashMap<>();
+        String input = null;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--loop")) {
+                options.put("loop", "true");
+            } else if (args[i].startsWith("--") && i + 1 < args.length) {
+                options.put(args[i].substring(2), args[++i]);
+            } else {
+                input = args[i];
+            }
+        }
+
+        switch (args[0]) {
+            case "detect":
+                detect(options);
+                break;
+            case "replay":
+                if (input == null) {
+                    usage();
+                }
+                replay(new File(input), options);
+                break;
+            case "capture":
+                capture(options);
+                break;
+            case "bench":
+                if (input == null) {
+                    usage();
+                }
+                VisionBenchmark.run(RecordedFrames.load(new File(input)), createDetector(options),
+                    Long.parseLong(options.getOrDefault("count", "2000")), Double.parseDouble(options.getOrDefault("fps", "0")));
+                break;
+            default:
+                usage();
+        }
+    }
+
+    private static void usage() {
+        System.err.println("Usage: VisionWorker detect|replay|capture|bench [options] [frame directory]");
+        System.exit(1);
+    }
+
+    static BlobDetector createDetector(Map<String, String> options) {
+        return new BlobDetector(
+            Integer.parseInt(options.getOrDefault("threshold", String.valueOf(kDefaultThreshold))),
+            Integer.parseInt(options.getOrDefault("min-pixels", String.valueOf(kDefaultMinPixels))),
+            Double.parseDouble(options.getOrDefault("hfov", String.valueOf(kDefaultHorizontalFov))),
+            Double.parseDouble(options.getOrDefault("vfov", String.valueOf(kDefaultVerticalFov))));
+    }
+
+    private static void detect(Map<String, String> options) throws IOException, InterruptedException {
+        Path framesPath = Path.of(options.getOrDefault("frames", kDefaultFrames));
+        if (!Files.exists(framesPath)) {
+            System.out.println("Waiting for " + framesPath);
+            while (!Files.exists(framesPath)) {
+                Thread.sleep(500);
+            }
+        }
+
+        try (SharedFrameRing frames = SharedFrameRing.open(framesPath);
+                SharedObservations results = SharedObservations.create(Path.of(options.getOrDefault("results", kDefaultResults)), kResultSlots)) {
+            DetectLoop loop = new DetectLoop(frames, results, createDetector(options), kStatsSamples);
+            Thread thread = new Thread(loop, "Detect");
+            thread.setPriority(Thread.MAX_PRIORITY);
+            thread.start();
+
+            long lastProcessed = 0;
+            while (thread.isAlive()) {
+                Thread.sleep(kStatsPeriodMs);
+                long processed = loop.getProcessedCount();
+                System.out.printf("%.1f fps, processing mean %.2f ms, 99th %.2f ms, %d skipped, %d overwritten%n",
+                    (processed - lastProcessed) * 1000.0 / kStatsPeriodMs,
+                    loop.getProcessTimeStats().getMean() * 1000, loop.getProcessTimeStats().getPercentile(99) * 1000,
+                    loop.getSkippedCount(), loop.getOverwrittenCount());
+                lastProcessed = processed;
+            }
+        }
+    }
+
+    private static void replay(File directory, Map<String, String> options) throws IOException {
+        RecordedFrames recording = RecordedFrames.load(directory);
+        int slots = Integer.parseInt(options.getOrDefault("slots", String.valueOf(kDefaultSlots)));
+        double fps = Double.parseDouble(options.getOrDefault("fps", String.valueOf(kDefaultFps)));
+        long count = options.containsKey("loop") ? Long.MAX_VALUE : 0;
+
+        try (SharedFrameRing ring = SharedFrameRing.create(
+                Path.of(options.getOrDefault("frames", kDefaultFrames)), slots, recording.width * recording.height)) {
+            System.out.println("Playing " + recording.frames.size() + " " + recording.width + "x" + recording.height + " frames");
+            new FramePlayer(recording, ring, fps, count).run();
+        }
+    }
+
+    private static void capture(Map<String, String> options) throws IOException {
+        if (!options.containsKey("width") || !options.containsKey("height")) {
+            usage();
+        }
+        int width = Integer.parseInt(options.get("width"));
+        int height = Integer.parseInt(options.get("height"));
+        int slots = Integer.parseInt(options.getOrDefault("slots", String.valueOf(kDefaultSlots)));
+        int length = width * height;
+
+        // A FileChannel reads straight into the mapped slot, with no copy through a heap array
+        try (FileChannel in = new FileInputStream(FileDescriptor.in).getChannel();
+                SharedFrameRing ring = SharedFrameRing.create(Path.of(options.getOrDefault("frames", kDefaultFrames)), slots, length)) {
+            while (true) {
+                ByteBuffer slot = ring.beginFrame();
+                slot.limit(length);
+                while (slot.hasRemaining()) {
+                    if (in.read(slot) < 0) {
+                        return;
+                    }
+                }
+                // The end of the read is as close to the exposure as a pipe can tell
+                ring.commitFrame(System.nanoTime(), width, height, length);
+            }
+        }
+    }
+}